@@ -0,0 +1,167 @@
+package com.example.user_demo.benchmarks;
+
+import com.example.user_demo.UserDemoApplication;
+import com.example.user_demo.data.repository.CarteraRepository;
+import com.example.user_demo.data.services.CarteraService;
+import com.example.user_demo.data.services.TransaccionService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * La aplicación completa sobre una H2 en memoria con el dataset de GeneradorDatos, compartida por
+ * todos los hilos de una medición. El tamaño se elige con los @Param (ej: -p usuarios=100000).
+ *
+ * El generador corre al arrancar, antes de que se construyan los índices en memoria, así que la
+ * aplicación medida ve el dataset entero como si ya estuviera en la BD. Los benchmarks eligen sus
+ * argumentos de una muestra de usuarios, carteras con saldo y posiciones sacada al terminar.
+ */
+@State(Scope.Benchmark)
+public class AplicacionBenchmark {
+
+    private static final int MUESTRA = 10_000;
+
+    @Param("10000")
+    public int usuarios;
+
+    @Param("20")
+    public int transaccionesPorUsuario;
+
+    @Param("300")
+    public int criptos;
+
+    @Param("42")
+    public long semilla;
+
+    /**
+     * Transferencias por el LedgerEngine (criptowallet.ledger.habilitado) en vez de por BD.
+     */
+    @Param("false")
+    public boolean ledger;
+
+    TransaccionService transacciones;
+    CarteraService carteras;
+    CarteraRepository carteraRepository;
+    TransactionTemplate lectura;
+
+    private long[] idsUsuario;
+    private String[] emails;
+    private long[] carterasConSaldo;
+    private long[] idsCripto;
+    private List<Posicion> posiciones;
+
+    private String url;
+    private ConfigurableApplicationContext contexto;
+
+    @Setup(Level.Trial)
+    public void arrancar() {
+        // Una BD por medición: con -f 0 todas comparten JVM
+        url = "jdbc:h2:mem:benchmark" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        contexto = iniciarAplicacion();
+        muestrear(contexto.getBean(JdbcTemplate.class));
+        transacciones = contexto.getBean(TransaccionService.class);
+        carteras = contexto.getBean(CarteraService.class);
+        carteraRepository = contexto.getBean(CarteraRepository.class);
+        lectura = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        lectura.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void parar() {
+        contexto.close();
+        new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")).execute("SHUTDOWN");
+    }
+
+    // Como argumentos de línea de comandos: tienen prioridad sobre el application.properties (MySQL)
+    private ConfigurableApplicationContext iniciarAplicacion() {
+        return new SpringApplicationBuilder(UserDemoApplication.class).run(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.sql.init.mode=never",
+                "--spring.main.banner-mode=off",
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--criptowallet.ledger.habilitado=" + ledger,
+                "--criptowallet.generador.habilitado=true",
+                "--criptowallet.generador.usuarios=" + usuarios,
+                "--criptowallet.generador.transacciones=" + (long) usuarios * transaccionesPorUsuario,
+                "--criptowallet.generador.criptos=" + criptos,
+                "--criptowallet.generador.semilla=" + semilla);
+    }
+
+    /**
+     * Hasta MUESTRA filas de cada tipo repartidas por todo el rango de IDs. Solo carteras y posiciones
+     * de al menos 1000 (moneda fiat): cada operación mueve 1, así que no se agotan durante una medición.
+     */
+    private void muestrear(JdbcTemplate jdbc) {
+        long paso = Math.max(1, usuarios / MUESTRA);
+        List<Object[]> filas = jdbc.query("SELECT id_usuario, email FROM usuarios WHERE MOD(id_usuario, ?) = 0",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2)}, paso);
+        idsUsuario = filas.stream().mapToLong(fila -> (Long) fila[0]).toArray();
+        emails = filas.stream().map(fila -> (String) fila[1]).toArray(String[]::new);
+
+        carterasConSaldo = jdbc.queryForList("SELECT id_cartera FROM carteras WHERE MOD(id_cartera, ?) = 0 "
+                + "AND balance_total >= 1000 LIMIT " + MUESTRA, Long.class, paso).stream().mapToLong(Long::longValue).toArray();
+        idsCripto = jdbc.queryForList("SELECT id_cripto FROM criptomonedas", Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+        posiciones = jdbc.query("SELECT c.id_usuario, a.id_cartera, cr.simbolo FROM activos a "
+                + "JOIN carteras c ON c.id_cartera = a.id_cartera JOIN criptomonedas cr ON cr.id_cripto = a.id_cripto "
+                + "WHERE MOD(a.id_activo, ?) = 0 AND a.cantidad * cr.precio_actual >= 1000 LIMIT " + MUESTRA,
+                (rs, i) -> new Posicion(rs.getLong(1), rs.getLong(2), rs.getString(3)), paso);
+        if (idsUsuario.length < 2 || carterasConSaldo.length == 0 || posiciones.isEmpty()) {
+            throw new IllegalStateException("Dataset demasiado pequeño para medir: sube -p usuarios.");
+        }
+    }
+
+    long usuarioAleatorio() {
+        return idsUsuario[ThreadLocalRandom.current().nextInt(idsUsuario.length)];
+    }
+
+    String emailAleatorio() {
+        return emails[ThreadLocalRandom.current().nextInt(emails.length)];
+    }
+
+    // Cualquier usuario de la muestra menos 'idUsuario'
+    long otroUsuario(long idUsuario) {
+        long otro;
+        do {
+            otro = usuarioAleatorio();
+        } while (otro == idUsuario);
+        return otro;
+    }
+
+    long carteraAleatoria() {
+        return carterasConSaldo[ThreadLocalRandom.current().nextInt(carterasConSaldo.length)];
+    }
+
+    long criptoAleatoria() {
+        return idsCripto[ThreadLocalRandom.current().nextInt(idsCripto.length)];
+    }
+
+    Posicion posicionAleatoria() {
+        return posiciones.get(ThreadLocalRandom.current().nextInt(posiciones.size()));
+    }
+
+    /**
+     * Cripto que un usuario tiene en una de sus carteras: origen válido de una transferencia.
+     */
+    record Posicion(long idUsuario, long idCartera, String simbolo) {
+    }
+}
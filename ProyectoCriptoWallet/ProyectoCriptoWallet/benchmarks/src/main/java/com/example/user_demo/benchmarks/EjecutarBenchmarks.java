@@ -0,0 +1,34 @@
+package com.example.user_demo.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de benchmarks.jar: las mismas opciones que org.openjdk.jmh.Main, pero con el
+ * perfilador GC siempre activo (gc.alloc.rate.norm = bytes asignados por operación).
+ * Ej: java -jar target/benchmarks.jar Lecturas -p usuarios=100000 -rf json -rff target/base.json
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        if (linea.shouldHelp()) {
+            linea.showHelp();
+            return;
+        }
+        Runner runner = new Runner(new OptionsBuilder()
+                .parent(linea)
+                .addProfiler(GCProfiler.class)
+                .build());
+        if (linea.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+}
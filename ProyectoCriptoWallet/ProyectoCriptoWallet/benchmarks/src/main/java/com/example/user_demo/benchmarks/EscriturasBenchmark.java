@@ -0,0 +1,38 @@
+package com.example.user_demo.benchmarks;
+
+import com.example.user_demo.data.model.Transaccion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones que modifican saldos, con la transacción y los avisos tras el commit incluidos
+ * (patrimonio materializado, clasificación, versiones, eventos e historial).
+ * Cada llamada mueve 1 (moneda fiat) desde una posición o cartera de la muestra, todas de al menos 1000,
+ * así que el estado apenas cambia entre iteraciones.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EscriturasBenchmark {
+
+    @Benchmark
+    public Transaccion realizarTransferencia(AplicacionBenchmark app) {
+        AplicacionBenchmark.Posicion origen = app.posicionAleatoria();
+        return app.transacciones.realizarTransferencia(origen.idUsuario(), app.otroUsuario(origen.idUsuario()),
+                origen.idCartera(), origen.simbolo(), 1.0);
+    }
+
+    @Benchmark
+    public void invertirEnCripto(AplicacionBenchmark app) {
+        app.carteras.invertirEnCripto(app.carteraAleatoria(), app.criptoAleatoria(), 1.0);
+    }
+}
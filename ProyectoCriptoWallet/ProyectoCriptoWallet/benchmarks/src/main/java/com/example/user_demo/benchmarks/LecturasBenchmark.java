@@ -0,0 +1,58 @@
+package com.example.user_demo.benchmarks;
+
+import com.example.user_demo.data.dto.PaginaTransacciones;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Transaccion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de saldo, patrimonio y transacciones de un usuario o cartera al azar (sin escrituras:
+ * la L2 y las cachés en memoria se calientan en el warmup y se miden ya calientes).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LecturasBenchmark {
+
+    private static final int TAMANO_PAGINA = 20;
+
+    @Benchmark
+    public Double getBalanceTotalPorUsuario(AplicacionBenchmark app) {
+        return app.carteras.getBalanceTotalPorUsuario(app.emailAleatorio());
+    }
+
+    /**
+     * Cartera cargada con sus activos (lo que hace la vista con ${cartera.patrimonioEstimado}).
+     */
+    @Benchmark
+    public Double getPatrimonioEstimado(AplicacionBenchmark app) {
+        long idCartera = app.carteraAleatoria();
+        return app.lectura.execute(status -> app.carteraRepository.findById(idCartera)
+                .map(Cartera::getPatrimonioEstimado)
+                .orElseThrow());
+    }
+
+    @Benchmark
+    public List<Transaccion> getTransaccionesDeUsuario(AplicacionBenchmark app) {
+        return app.transacciones.getTransaccionesDeUsuario(app.usuarioAleatorio());
+    }
+
+    /**
+     * Primera página de la variante paginada por cursor (la que usan la API y el dashboard).
+     */
+    @Benchmark
+    public PaginaTransacciones getTransaccionesDeUsuarioPagina(AplicacionBenchmark app) {
+        return app.transacciones.getTransaccionesDeUsuario(app.usuarioAleatorio(), null, null, TAMANO_PAGINA);
+    }
+}
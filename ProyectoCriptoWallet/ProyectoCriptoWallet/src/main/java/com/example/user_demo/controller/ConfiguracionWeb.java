@@ -0,0 +1,32 @@
+package com.example.user_demo.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ConfiguracionWeb implements WebMvcConfigurer {
+
+    private final InterceptorContextoLectura interceptorContextoLectura;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ConfiguracionWeb(InterceptorContextoLectura interceptorContextoLectura, EntityManagerFactory entityManagerFactory) {
+        this.interceptorContextoLectura = interceptorContextoLectura;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptorContextoLectura);
+        // Open Session in View solo para las vistas (alguna plantilla aún recorre relaciones perezosas).
+        // La API REST devuelve DTOs ya montados: sin él, cada servicio suelta la conexión al terminar
+        // en lugar de retenerla hasta escribir la respuesta (spring.jpa.open-in-view=false)
+        OpenEntityManagerInViewInterceptor osiv = new OpenEntityManagerInViewInterceptor();
+        osiv.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(osiv).excludePathPatterns("/api/**");
+    }
+}
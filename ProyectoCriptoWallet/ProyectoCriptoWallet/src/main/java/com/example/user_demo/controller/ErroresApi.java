@@ -0,0 +1,50 @@
+package com.example.user_demo.controller;
+
+import com.example.user_demo.data.exception.ResourceNotFoundException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Errores de la API REST como application/problem+json, con el código HTTP que corresponde a las
+ * excepciones de los servicios (las vistas, en cambio, las convierten en mensajes flash).
+ * La clase base cubre los errores de Spring MVC: parámetros que faltan o no se pueden convertir,
+ * JSON mal formado, método no permitido...
+ */
+@RestControllerAdvice(assignableTypes = UserDemoApiController.class)
+public class ErroresApi extends ResponseEntityExceptionHandler {
+
+    @ExceptionHandler({NoSuchElementException.class, ResourceNotFoundException.class})
+    ProblemDetail noEncontrado(RuntimeException e) {
+        return problema(HttpStatus.NOT_FOUND, e);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ProblemDetail invalido(IllegalArgumentException e) {
+        return problema(HttpStatus.BAD_REQUEST, e);
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    ProblemDetail prohibido(SecurityException e) {
+        return problema(HttpStatus.FORBIDDEN, e);
+    }
+
+    // Estado que impide la operación (ej. cripto sin precio, destino sin carteras) o carrera con otra
+    // escritura (email duplicado entre la comprobación y el INSERT, bloqueo optimista): reintentable
+    @ExceptionHandler({IllegalStateException.class, DataIntegrityViolationException.class, ConcurrencyFailureException.class})
+    ProblemDetail conflicto(RuntimeException e) {
+        return problema(HttpStatus.CONFLICT, e);
+    }
+
+    private static ProblemDetail problema(HttpStatus estado, RuntimeException e) {
+        // Los mensajes de los servicios ya son para el usuario; los de BD no se exponen
+        boolean propio = !(e instanceof DataIntegrityViolationException || e instanceof ConcurrencyFailureException);
+        return ProblemDetail.forStatusAndDetail(estado, propio && e.getMessage() != null ? e.getMessage() : estado.getReasonPhrase());
+    }
+}
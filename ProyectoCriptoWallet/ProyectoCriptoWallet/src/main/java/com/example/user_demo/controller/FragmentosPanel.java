@@ -0,0 +1,144 @@
+package com.example.user_demo.controller;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.dto.PanelUsuario;
+import com.example.user_demo.data.versiones.VersionesUsuario.VersionPanel;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.expression.ThymeleafEvaluationContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché de las partes caras del dashboard ya renderizadas, por versión (VersionesUsuario):
+ * las tarjetas de las carteras de cada usuario (con el PanelUsuario del que salen, para no
+ * volver a leerlo de BD) y las opciones del desplegable de criptomonedas, que son las mismas
+ * para todos y solo cambian con los precios. El registro de actividad no se cachea: va paginado.
+ *
+ * Una entrada vale mientras coincidan las versiones de carteras y catálogo con las que se guardó;
+ * no hace falta invalidar nada, la siguiente petición con otra versión la sustituye.
+ */
+@Component
+public class FragmentosPanel {
+
+    private static final String PLANTILLA = "fragmentos-dashboard";
+
+    /**
+     * Tarjetas de las carteras de un usuario en una versión dada.
+     */
+    public record Carteras(long versionCarteras, long versionCatalogo, Locale idioma, PanelUsuario panel, String html) {
+    }
+
+    private record Opciones(long versionCatalogo, String html) {
+    }
+
+    private final ITemplateEngine motor;
+    private final ApplicationContext applicationContext;
+    private final CatalogoCriptomonedas catalogo;
+    private final JakartaServletWebApplication aplicacion;
+    private final int maxEntradas;
+
+    // Orden de acceso: la primera entrada es la menos usada
+    private final LinkedHashMap<Long, Carteras> carteras;
+    private volatile Opciones opciones;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    @Autowired
+    public FragmentosPanel(ITemplateEngine motor,
+                           ApplicationContext applicationContext,
+                           ServletContext servletContext,
+                           CatalogoCriptomonedas catalogo,
+                           @Value("${criptowallet.web.fragmentos.max-entradas:1000}") int maxEntradas) {
+        if (maxEntradas <= 0) {
+            throw new IllegalArgumentException("La caché de fragmentos debe admitir al menos una entrada.");
+        }
+        this.motor = motor;
+        this.applicationContext = applicationContext;
+        this.catalogo = catalogo;
+        this.aplicacion = JakartaServletWebApplication.buildApplication(servletContext);
+        this.maxEntradas = maxEntradas;
+        this.carteras = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Carteras> mayor) {
+                return size() > FragmentosPanel.this.maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Tarjetas de las carteras del usuario: de la caché si no han cambiado ni sus carteras ni los
+     * precios desde que se renderizaron; si no, carga el panel y las renderiza.
+     * @param version Versión leída ANTES de cargar nada (la que lleva la ETag de la respuesta).
+     * @param cargar Lectura del panel de BD, solo si falla la caché.
+     */
+    public Carteras carteras(VersionPanel version, Supplier<PanelUsuario> cargar,
+                             HttpServletRequest request, HttpServletResponse response) {
+        Locale idioma = RequestContextUtils.getLocale(request);
+        Carteras guardadas;
+        synchronized (this) {
+            guardadas = carteras.get(version.idUsuario());
+        }
+        if (guardadas != null && guardadas.versionCarteras() == version.carteras()
+                && guardadas.versionCatalogo() == version.catalogo() && guardadas.idioma().equals(idioma)) {
+            aciertos.increment();
+            return guardadas;
+        }
+        fallos.increment();
+
+        PanelUsuario panel = cargar.get();
+        WebContext contexto = contexto(request, response, idioma);
+        contexto.setVariable("usuario", panel);
+        contexto.setVariable("opcionesCripto", opciones(version.catalogo(), request, response, idioma));
+        Carteras nuevas = new Carteras(version.carteras(), version.catalogo(), idioma, panel,
+                motor.process(PLANTILLA, Set.of("carteras"), contexto));
+        synchronized (this) {
+            carteras.put(version.idUsuario(), nuevas);
+        }
+        return nuevas;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    // Las <option> del desplegable de inversión: una vez por versión del catálogo para todos los usuarios
+    private String opciones(long versionCatalogo, HttpServletRequest request, HttpServletResponse response, Locale idioma) {
+        Opciones actuales = opciones;
+        if (actuales != null && actuales.versionCatalogo() == versionCatalogo) {
+            return actuales.html();
+        }
+        WebContext contexto = contexto(request, response, idioma);
+        contexto.setVariable("todasLasCriptos", catalogo.todas());
+        String html = motor.process(PLANTILLA, Set.of("opciones-cripto"), contexto);
+        opciones = new Opciones(versionCatalogo, html);
+        return html;
+    }
+
+    // Como el de ThymeleafView: las URLs @{...} necesitan la petición y las expresiones, SpEL
+    private WebContext contexto(HttpServletRequest request, HttpServletResponse response, Locale idioma) {
+        WebContext contexto = new WebContext(aplicacion.buildExchange(request, response), idioma);
+        contexto.setVariable(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME,
+                new ThymeleafEvaluationContext(applicationContext, null));
+        return contexto;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.user_demo.controller;
+
+import com.example.user_demo.data.enrutado.ContextoLectura;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Fija en ContextoLectura el usuario al que se refiere la petición (ruta /usuario/{id},
+ * /transferencia/{idOrigen} o parámetros usuarioId/origenId de los formularios), para que
+ * sus lecturas vayan a la primaria si acaba de escribir.
+ */
+@Component
+public class InterceptorContextoLectura implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ContextoLectura.fijar(usuarioDe(request));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ContextoLectura.limpiar();
+    }
+
+    private static Long usuarioDe(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String valor = null;
+        if (variables != null) {
+            valor = variables.getOrDefault("id", variables.get("idOrigen"));
+        }
+        if (valor == null) {
+            valor = request.getParameter("usuarioId");
+        }
+        if (valor == null) {
+            valor = request.getParameter("origenId");
+        }
+        try {
+            return valor == null ? null : Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            return null; // El controlador rechazará el parámetro; aquí solo se pierde el enrutado
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.user_demo.controller;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.dto.AltaCartera;
+import com.example.user_demo.data.dto.AltaUsuario;
+import com.example.user_demo.data.dto.FichaUsuario;
+import com.example.user_demo.data.dto.FilaHistorial;
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.dto.Pagina;
+import com.example.user_demo.data.dto.PaginaTransacciones;
+import com.example.user_demo.data.dto.PanelActivo;
+import com.example.user_demo.data.dto.SolicitudInversion;
+import com.example.user_demo.data.dto.SolicitudTransferencia;
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.dto.ValoracionUsuario;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Transaccion;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.services.CarteraService;
+import com.example.user_demo.data.services.HistorialService;
+import com.example.user_demo.data.services.TransaccionService;
+import com.example.user_demo.data.services.UsuarioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * API REST (JSON) sobre los mismos servicios que las vistas: usuarios, carteras, activos,
+ * inversiones, transferencias e historial.
+ *
+ * Nunca devuelve entidades JPA, solo records de data.dto, y todos los listados van paginados
+ * (ver Pagina). Los errores de los servicios se traducen a códigos HTTP en ErroresApi, en lugar
+ * de los mensajes flash y redirecciones de UserDemoWebController.
+ * Las rutas de usuario usan {id} para que InterceptorContextoLectura enrute sus lecturas.
+ */
+@RestController
+@RequestMapping("/api")
+public class UserDemoApiController {
+
+    private final UsuarioService usuarioService;
+    private final CarteraService carteraService;
+    private final TransaccionService transaccionService;
+    private final HistorialService historialService;
+    private final CatalogoCriptomonedas catalogo;
+
+    @Autowired
+    public UserDemoApiController(UsuarioService usuarioService,
+                                 CarteraService carteraService,
+                                 TransaccionService transaccionService,
+                                 HistorialService historialService,
+                                 CatalogoCriptomonedas catalogo) {
+        this.usuarioService = usuarioService;
+        this.carteraService = carteraService;
+        this.transaccionService = transaccionService;
+        this.historialService = historialService;
+        this.catalogo = catalogo;
+    }
+
+    // --- USUARIOS ---
+
+    @GetMapping("/usuarios")
+    public Pagina<FichaUsuario> usuarios(@RequestParam(required = false) Long despuesDe,
+                                         @RequestParam(defaultValue = "50") int tamano) {
+        Slice<FichaUsuario> usuarios = usuarioService.getFichasUsuarios(despuesDe, tamano);
+        if (!usuarios.hasNext()) {
+            return Pagina.ultima(usuarios.getContent());
+        }
+        FichaUsuario ultimo = usuarios.getContent().get(usuarios.getNumberOfElements() - 1);
+        return new Pagina<>(usuarios.getContent(), Map.of("despuesDe", ultimo.idUsuario().toString()));
+    }
+
+    @GetMapping("/usuarios/{id}")
+    public FichaUsuario usuario(@PathVariable Long id) {
+        return ficha(id);
+    }
+
+    /**
+     * Alta de un usuario con su primera cartera (como el formulario de las vistas).
+     */
+    @PostMapping("/usuarios")
+    public ResponseEntity<FichaUsuario> crearUsuario(@RequestBody AltaUsuario alta) {
+        String detalle = alta.detalle() != null ? alta.detalle() : "Cuenta creada el " + LocalDate.now();
+        Usuario usuario = usuarioService.crearUsuarioConCartera(alta.nombre(), alta.email(), detalle, alta.saldoInicial());
+        return ResponseEntity.created(URI.create("/api/usuarios/" + usuario.getIdUsuario()))
+                .body(new FichaUsuario(usuario.getIdUsuario(), usuario.getNombre(), usuario.getEmail()));
+    }
+
+    @DeleteMapping("/usuarios/{id}")
+    public ResponseEntity<Void> eliminarUsuario(@PathVariable Long id) {
+        usuarioService.eliminarUsuario(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Patrimonio total del usuario (céntimos); un usuario sin carteras vale 0.
+     */
+    @GetMapping("/usuarios/{id}/patrimonio")
+    public ValoracionUsuario patrimonio(@PathVariable Long id) {
+        ficha(id);
+        ValoracionUsuario valoracion = carteraService.getValoracionUsuarios(List.of(id)).get(id);
+        return valoracion != null ? valoracion : new ValoracionUsuario(id, 0L, 0L);
+    }
+
+    // --- CARTERAS ---
+
+    /**
+     * Carteras valoradas del usuario, por ID. Un usuario tiene pocas: la valoración sale entera
+     * (del patrimonio materializado o de una consulta) y aquí solo se corta la página.
+     */
+    @GetMapping("/usuarios/{id}/carteras")
+    public Pagina<ValoracionCartera> carteras(@PathVariable Long id,
+                                              @RequestParam(defaultValue = "0") int pagina,
+                                              @RequestParam(defaultValue = "50") int tamano) {
+        validarPagina(pagina, tamano);
+        ficha(id);
+        List<ValoracionCartera> carteras = carteraService.getValoracionCarteras(id);
+        long desde = (long) pagina * tamano;
+        if (desde >= carteras.size()) {
+            return Pagina.ultima(List.of());
+        }
+        int hasta = (int) Math.min(desde + tamano, carteras.size());
+        List<ValoracionCartera> elementos = List.copyOf(carteras.subList((int) desde, hasta));
+        return hasta < carteras.size() ? siguientePagina(elementos, pagina) : Pagina.ultima(elementos);
+    }
+
+    @PostMapping("/usuarios/{id}/carteras")
+    public ResponseEntity<ValoracionCartera> crearCartera(@PathVariable Long id, @RequestBody AltaCartera alta) {
+        FichaUsuario usuario = ficha(id);
+        Cartera cartera = carteraService.crearCartera(usuario.email(),
+                alta.balanceInicial() != null ? alta.balanceInicial() : 0.0);
+        return ResponseEntity.created(URI.create("/api/carteras/" + cartera.getIdCartera()))
+                .body(new ValoracionCartera(cartera.getIdCartera(), cartera.getBalanceCentimos(), 0L));
+    }
+
+    @GetMapping("/carteras/{idCartera}")
+    public ValoracionCartera cartera(@PathVariable Long idCartera) {
+        return valoracion(idCartera);
+    }
+
+    @DeleteMapping("/carteras/{idCartera}")
+    public ResponseEntity<Void> eliminarCartera(@PathVariable Long idCartera) {
+        carteraService.eliminarCartera(idCartera);
+        return ResponseEntity.noContent().build();
+    }
+
+    // --- ACTIVOS E INVERSIONES ---
+
+    @GetMapping("/carteras/{idCartera}/activos")
+    public Pagina<PanelActivo> activos(@PathVariable Long idCartera,
+                                       @RequestParam(defaultValue = "0") int pagina,
+                                       @RequestParam(defaultValue = "50") int tamano) {
+        Slice<PanelActivo> activos = carteraService.getActivos(idCartera, pagina, tamano);
+        return activos.hasNext() ? siguientePagina(activos.getContent(), pagina) : Pagina.ultima(activos.getContent());
+    }
+
+    /**
+     * Añade una cripto (sin unidades) a la cartera.
+     */
+    @PostMapping("/carteras/{idCartera}/activos")
+    public ResponseEntity<PanelActivo> addCripto(@PathVariable Long idCartera, @RequestBody SolicitudInversion solicitud) {
+        CotizacionCripto cripto = cripto(solicitud.idCripto());
+        carteraService.addCriptomonedaACartera(idCartera, cripto.idCripto());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(new PanelActivo(cripto.idCripto(), cripto.simbolo(), cripto.nombre(), 0L));
+    }
+
+    @DeleteMapping("/carteras/{idCartera}/activos/{idCripto}")
+    public ResponseEntity<Void> removeCripto(@PathVariable Long idCartera, @PathVariable Long idCripto) {
+        carteraService.removeCriptomonedaDeCartera(idCartera, idCripto);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Compra 'cantidad' dólares de la cripto con el fiat de la cartera.
+     * @return La cartera ya revalorizada.
+     */
+    @PostMapping("/carteras/{idCartera}/inversiones")
+    public ValoracionCartera invertir(@PathVariable Long idCartera, @RequestBody SolicitudInversion solicitud) {
+        carteraService.invertirEnCripto(idCartera, cripto(solicitud.idCripto()).idCripto(), solicitud.cantidad());
+        return valoracion(idCartera);
+    }
+
+    // --- TRANSFERENCIAS E HISTORIAL ---
+
+    @PostMapping("/transferencias")
+    public ResponseEntity<FilaTransaccion> transferir(@RequestBody SolicitudTransferencia solicitud) {
+        Transaccion t = transaccionService.realizarTransferencia(solicitud.origenId(), solicitud.destinoId(),
+                solicitud.carteraOrigenId(), solicitud.criptoSimbolo(), solicitud.cantidad());
+        return ResponseEntity.status(HttpStatus.CREATED).body(fila(t));
+    }
+
+    /**
+     * Transacciones enviadas o recibidas, de la más reciente a la más antigua (paginación por cursor).
+     */
+    @GetMapping("/usuarios/{id}/transacciones")
+    public Pagina<FilaTransaccion> transacciones(@PathVariable Long id,
+                                                 @RequestParam(required = false)
+                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime antesDeFecha,
+                                                 @RequestParam(required = false) Long antesDeId,
+                                                 @RequestParam(defaultValue = "50") int tamano) {
+        PaginaTransacciones pagina = transaccionService.getTransaccionesDeUsuario(id, antesDeFecha, antesDeId, tamano);
+        List<FilaTransaccion> filas = pagina.transacciones().stream().map(this::fila).toList();
+        if (!pagina.hasSiguiente()) {
+            return Pagina.ultima(filas);
+        }
+        return new Pagina<>(filas, Map.of("antesDeFecha", pagina.siguienteFecha().toString(),
+                "antesDeId", pagina.siguienteId().toString()));
+    }
+
+    @GetMapping("/usuarios/{id}/historial")
+    public Pagina<FilaHistorial> historial(@PathVariable Long id,
+                                           @RequestParam(defaultValue = "0") int pagina,
+                                           @RequestParam(defaultValue = "50") int tamano) {
+        ficha(id);
+        Slice<FilaHistorial> entradas = historialService.getEntradas(id, pagina, tamano).map(FilaHistorial::de);
+        return entradas.hasNext() ? siguientePagina(entradas.getContent(), pagina) : Pagina.ultima(entradas.getContent());
+    }
+
+    // --- AUXILIARES ---
+
+    private FichaUsuario ficha(Long idUsuario) {
+        return usuarioService.getFichaUsuario(idUsuario)
+                .orElseThrow(() -> new NoSuchElementException("Usuario no encontrado"));
+    }
+
+    private ValoracionCartera valoracion(Long idCartera) {
+        Cartera cartera = carteraService.getCarteraById(idCartera)
+                .orElseThrow(() -> new NoSuchElementException("Cartera no encontrada"));
+        return carteraService.getValoracionCarteras(cartera.getUsuario().getIdUsuario()).stream()
+                .filter(v -> v.idCartera().equals(idCartera))
+                .findFirst()
+                .orElseThrow(() -> new NoSuchElementException("Cartera no encontrada"));
+    }
+
+    private CotizacionCripto cripto(Long idCripto) {
+        if (idCripto == null) {
+            throw new IllegalArgumentException("El ID de la criptomoneda es obligatorio.");
+        }
+        CotizacionCripto cripto = catalogo.porId(idCripto);
+        if (cripto == null) {
+            throw new NoSuchElementException("Criptomoneda no encontrada: " + idCripto);
+        }
+        return cripto;
+    }
+
+    // El símbolo sale del catálogo: la cripto de la Transaccion puede ser una referencia sin cargar
+    private FilaTransaccion fila(Transaccion t) {
+        CotizacionCripto cripto = catalogo.porId(t.getCriptomoneda().getIdCripto());
+        return new FilaTransaccion(t.getIdTransaccion(), t.getFecha(), t.getUsuarioOrigen().getIdUsuario(),
+                t.getUsuarioDestino().getIdUsuario(), cripto != null ? cripto.simbolo() : "?", t.getUnidades());
+    }
+
+    private static <T> Pagina<T> siguientePagina(List<T> elementos, int pagina) {
+        return new Pagina<>(elementos, Map.of("pagina", Integer.toString(pagina + 1)));
+    }
+
+    private static void validarPagina(int pagina, int tamano) {
+        if (pagina < 0 || tamano <= 0 || tamano > 100) {
+            throw new IllegalArgumentException("Página no válida (tamaño entre 1 y 100).");
+        }
+    }
+}
@@ -1,16 +1,54 @@
 package com.example.user_demo.controller;
 
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.InformeImportacion;
+import com.example.user_demo.data.dto.PanelUsuario;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import com.example.user_demo.data.dto.TablaClasificacion;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.exportacion.ExportadorTransacciones;
+import com.example.user_demo.data.exportacion.FormatoExportacion;
+import com.example.user_demo.data.importacion.ImportadorUsuarios;
+import com.example.user_demo.data.model.EntradaHistorial;
 import com.example.user_demo.data.model.Usuario;
-import com.example.user_demo.data.repository.CriptomonedaRepository;
+import com.example.user_demo.data.patrimonio.InformeVerificacion;
 import com.example.user_demo.data.services.CarteraService;
+import com.example.user_demo.data.services.HistorialService;
 import com.example.user_demo.data.services.TransaccionService;
 import com.example.user_demo.data.services.UsuarioService;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
 @Controller
 @RequestMapping("/")
 public class UserDemoWebController {
@@ -18,21 +56,51 @@ public class UserDemoWebController {
     private final UsuarioService usuarioService;
     private final CarteraService carteraService;
     private final TransaccionService transaccionService;
-    private final CriptomonedaRepository criptoRepo;
+    private final CatalogoCriptomonedas catalogo;
+    private final HistorialService historialService;
+    private final ExportadorTransacciones exportador;
+    private final ImportadorUsuarios importador;
+    private final ClasificacionPatrimonio clasificacion;
+    private final VersionesUsuario versiones;
+    private final FragmentosPanel fragmentos;
+    private final DifusorEventos eventos;
+    private final ObjectMapper objectMapper;
+    private final int entradasPorPagina;
 
     @Autowired
     public UserDemoWebController(UsuarioService usuarioService,
                                  CarteraService carteraService,
                                  TransaccionService transaccionService,
-                                 CriptomonedaRepository criptoRepo) {
+                                 CatalogoCriptomonedas catalogo,
+                                 HistorialService historialService,
+                                 ExportadorTransacciones exportador,
+                                 ImportadorUsuarios importador,
+                                 ClasificacionPatrimonio clasificacion,
+                                 VersionesUsuario versiones,
+                                 FragmentosPanel fragmentos,
+                                 DifusorEventos eventos,
+                                 ObjectMapper objectMapper,
+                                 @Value("${criptowallet.historial.entradas-dashboard:50}") int entradasPorPagina) {
         this.usuarioService = usuarioService;
         this.carteraService = carteraService;
         this.transaccionService = transaccionService;
-        this.criptoRepo = criptoRepo;
+        this.catalogo = catalogo;
+        this.historialService = historialService;
+        this.exportador = exportador;
+        this.importador = importador;
+        this.clasificacion = clasificacion;
+        this.versiones = versiones;
+        this.fragmentos = fragmentos;
+        this.eventos = eventos;
+        this.objectMapper = objectMapper;
+        this.entradasPorPagina = entradasPorPagina;
     }
 
     @GetMapping
-    public String index(Model model) {
+    public String index(Model model, WebRequest webRequest, HttpServletResponse response) {
+        if (noModificado(model, webRequest, response, versiones.etagLista())) {
+            return null; // 304 sin consultar la BD
+        }
         model.addAttribute("listaUsuarios", usuarioService.getAllUsuarios());
         return "index";
     }
@@ -50,11 +118,8 @@ public class UserDemoWebController {
                                  @RequestParam(defaultValue = "0.0") Double saldoInicial, // Nuevo parámetro
                                  RedirectAttributes ra) {
         try {
-            // 1. Crear el usuario
-            Usuario nuevoUsuario = usuarioService.crearUsuario(nombre, email, "Cuenta creada el " + java.time.LocalDate.now());
-
-            // 2. Crear automáticamente su primera cartera con el saldo indicado
-            carteraService.crearCartera(nuevoUsuario.getEmail(), saldoInicial);
+            // Crear el usuario y su primera cartera con el saldo indicado (todo o nada)
+            usuarioService.crearUsuarioConCartera(nombre, email, "Cuenta creada el " + java.time.LocalDate.now(), saldoInicial);
 
             ra.addFlashAttribute("mensaje", "Usuario y cartera registrados con éxito.");
             ra.addFlashAttribute("tipo", "success");
@@ -80,19 +145,69 @@ public class UserDemoWebController {
     }
 
     @GetMapping("/usuario/{id}")
-    public String dashboard(@PathVariable("id") Long id, Model model) {
-        Usuario usuario = usuarioService.getUsuarioById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+    public String dashboard(@PathVariable("id") Long id,
+                            @RequestParam(name = "historialPagina", defaultValue = "0") int historialPagina,
+                            Model model,
+                            WebRequest webRequest,
+                            HttpServletRequest request,
+                            HttpServletResponse response) {
+        // La versión se lee antes que los datos: si cambian entretanto, la próxima petición no coincide
+        VersionesUsuario.VersionPanel version = versiones.panel(id);
+        if (noModificado(model, webRequest, response, version.etag())) {
+            return null; // 304 sin consultar la BD
+        }
 
-        Double balance = carteraService.getBalanceTotalPorUsuario(usuario.getEmail());
+        // Modelo de lectura ya montado (número fijo de consultas), o el de la caché junto con sus tarjetas
+        FragmentosPanel.Carteras carteras = fragmentos.carteras(version, () -> carteraService.getPanelUsuario(id), request, response);
+        PanelUsuario panel = carteras.panel();
 
-        model.addAttribute("usuario", usuario);
-        model.addAttribute("balanceTotal", balance);
-        model.addAttribute("todasLasCriptos", criptoRepo.findAll());
+        model.addAttribute("usuario", panel);
+        model.addAttribute("balanceTotal", panel.getBalanceTotal());
+        model.addAttribute("htmlCarteras", carteras.html());
+
+        // Registro de actividad: solo las últimas N entradas (página 0), no todo el historial
+        Slice<EntradaHistorial> entradas = historialService.getEntradas(id, Math.max(0, historialPagina), entradasPorPagina);
+        model.addAttribute("entradasHistorial", entradas);
 
         return "dashboard";
     }
 
+    /**
+     * Eventos en directo del dashboard (Server-Sent Events): precios y cambios de saldo del usuario.
+     * La petición queda abierta en modo asíncrono sin ocupar hilo (ver DifusorEventos).
+     */
+    @GetMapping(value = "/usuario/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> eventos(@PathVariable("id") Long id) {
+        if (usuarioService.getFichaUsuario(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseBodyEmitter emisor = new ResponseBodyEmitter(); // Sin timeout (spring.mvc.async.request-timeout)
+        DifusorEventos.Suscripcion suscripcion;
+        try {
+            suscripcion = eventos.suscribir(id, new DifusorEventos.Canal() {
+                @Override
+                public void escribir(byte[] trama) throws IOException {
+                    emisor.send(trama, MediaType.TEXT_EVENT_STREAM); // Ya serializada: se copia tal cual
+                }
+
+                @Override
+                public void cerrar() {
+                    emisor.complete();
+                }
+            });
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        emisor.onCompletion(suscripcion::cancelar);
+        emisor.onTimeout(suscripcion::cancelar);
+        emisor.onError(e -> suscripcion.cancelar());
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .header("X-Accel-Buffering", "no") // Que un proxy nginx no acumule los eventos
+                .body(emisor);
+    }
+
     @PostMapping("/carteras/crear")
     public String crearCartera(@RequestParam Long usuarioId, @RequestParam Double balanceInicial, RedirectAttributes ra) {
         try {
@@ -137,12 +252,53 @@ public class UserDemoWebController {
     public String formTransferencia(@PathVariable("idOrigen") Long idOrigen, Model model) {
         Usuario origen = usuarioService.getUsuarioById(idOrigen).orElseThrow();
         model.addAttribute("usuarioOrigen", origen);
-        model.addAttribute("listaUsuarios", usuarioService.getAllUsuarios());
-        model.addAttribute("listaCriptos", criptoRepo.findAll());
+        // El destinatario se elige con el autocompletado (/usuarios/buscar), no con la lista completa
+        model.addAttribute("listaCriptos", catalogo.todas());
         model.addAttribute("misCarteras", origen.getCarteras());
         return "transferencia";
     }
 
+    /**
+     * Autocompletado de usuarios por prefijo de nombre o email (JSON).
+     * @param excluir Usuario que no debe salir (el origen de la transferencia).
+     */
+    @GetMapping(value = "/usuarios/buscar", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<SugerenciaUsuario> buscarUsuarios(@RequestParam("q") String prefijo,
+                                                  @RequestParam(defaultValue = "10") int limite,
+                                                  @RequestParam(required = false) Long excluir) {
+        return usuarioService.buscarUsuarios(prefijo, limite, excluir);
+    }
+
+    /**
+     * Usuarios con más patrimonio (JSON, valor en céntimos), de la instantánea en memoria.
+     */
+    @GetMapping(value = "/clasificacion/patrimonio", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<TablaClasificacion> clasificacionPatrimonio(@RequestParam(defaultValue = "100") int puestos) {
+        if (!clasificacion.isLista()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(clasificacion.patrimonio(puestos));
+    }
+
+    /**
+     * Usuarios con más unidades de una cripto (JSON, valor en unidades mínimas de 1e-8).
+     */
+    @GetMapping(value = "/clasificacion/tenedores/{simbolo}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<TablaClasificacion> clasificacionTenedores(@PathVariable String simbolo,
+                                                                    @RequestParam(defaultValue = "100") int puestos) {
+        CotizacionCripto cripto = catalogo.porSimbolo(simbolo);
+        if (cripto == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!clasificacion.isLista()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(clasificacion.tenedores(cripto.idCripto(), puestos));
+    }
+
     @PostMapping("/transferencia/ejecutar")
     public String ejecutarTransferencia(@RequestParam Long origenId,
                                         @RequestParam Long destinoId,
@@ -190,4 +346,111 @@ public class UserDemoWebController {
         }
         return "redirect:/usuario/" + usuarioId;
     }
+
+    // --- MANTENIMIENTO ---
+
+    @PostMapping("/admin/patrimonio/verificar")
+    public String verificarPatrimonio(@RequestParam(defaultValue = "false") boolean corregir, RedirectAttributes ra) {
+        try {
+            InformeVerificacion informe = carteraService.verificarPatrimonio(corregir);
+            if (informe.isConsistente()) {
+                ra.addFlashAttribute("mensaje", "Patrimonio verificado: " + informe.usuariosRevisados() + " usuario(s) sin deriva.");
+                ra.addFlashAttribute("tipo", "success");
+            } else {
+                ra.addFlashAttribute("mensaje", "Deriva en los usuarios " + informe.usuariosConDeriva()
+                        + (informe.corregido() ? " (corregida)." : "."));
+                ra.addFlashAttribute("tipo", "warning");
+            }
+        } catch (Exception e) {
+            ra.addFlashAttribute("mensaje", "Error: " + e.getMessage());
+            ra.addFlashAttribute("tipo", "danger");
+        }
+        return "redirect:/";
+    }
+
+    /**
+     * Alta masiva de usuarios desde un CSV (nombre,email[,saldoInicial[,detalle]]), cada uno con su cartera.
+     */
+    @PostMapping("/admin/usuarios/importar")
+    public String importarUsuarios(@RequestParam("archivo") MultipartFile archivo, RedirectAttributes ra) {
+        try (Reader csv = new InputStreamReader(archivo.getInputStream(), StandardCharsets.UTF_8)) {
+            InformeImportacion informe = importador.importar(csv, null); // Formulario: solo el resumen final
+            ra.addFlashAttribute("mensaje", "Importación: " + informe.importados() + " usuario(s) creados de "
+                    + informe.filasLeidas() + " fila(s), " + informe.rechazadas() + " rechazada(s).");
+            ra.addFlashAttribute("tipo", informe.rechazadas() == 0 ? "success" : "warning");
+        } catch (Exception e) {
+            ra.addFlashAttribute("mensaje", "Error: " + e.getMessage());
+            ra.addFlashAttribute("tipo", "danger");
+        }
+        return "redirect:/";
+    }
+
+    /**
+     * La misma importación para clientes que piden application/x-ndjson (scripts, curl): responde en streaming
+     * una línea por bloque confirmado (ProgresoImportacion) y termina con el InformeImportacion,
+     * o con {"error": ...} si la lectura del CSV falla (los bloques ya confirmados se quedan).
+     */
+    @PostMapping(value = "/admin/usuarios/importar", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> importarUsuariosConProgreso(@RequestParam("archivo") MultipartFile archivo) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+                .body(salida -> {
+                    try (Reader csv = new InputStreamReader(archivo.getInputStream(), StandardCharsets.UTF_8)) {
+                        InformeImportacion informe = importador.importar(csv, progreso -> escribirLinea(salida, progreso));
+                        escribirLinea(salida, informe);
+                    } catch (IOException e) {
+                        escribirLinea(salida, Map.of("error", String.valueOf(e.getMessage())));
+                    }
+                });
+    }
+
+    // Una línea JSON, enviada ya: el cliente ve el avance sin esperar al final
+    private void escribirLinea(OutputStream salida, Object linea) {
+        try {
+            salida.write(objectMapper.writeValueAsBytes(linea));
+            salida.write('\n');
+            salida.flush();
+        } catch (IOException e) {
+            // Cliente desconectado: la importación sigue, solo se deja de informar
+        }
+    }
+
+    /**
+     * Exportación completa de transacciones por rango de fechas [desde, hasta], en CSV o NDJSON.
+     * Se escribe en streaming según se lee de BD, sin cargar el resultado en memoria.
+     */
+    @GetMapping("/admin/transacciones/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarTransacciones(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "csv") String formato) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.plusDays(1).atStartOfDay();
+        FormatoExportacion tipo;
+        try {
+            tipo = FormatoExportacion.de(formato);
+            exportador.validarRango(inicio, fin);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                    .body(salida -> salida.write(e.getMessage().getBytes(StandardCharsets.UTF_8)));
+        }
+        String fichero = "transacciones_" + desde + "_" + hasta + "." + tipo.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(tipo.getTipoContenido() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fichero + "\"")
+                .body(salida -> exportador.exportar(inicio, fin, tipo, salida));
+    }
+
+    /**
+     * Petición condicional: pone la ETag y responde si el navegador ya tiene esa versión (304).
+     * Una página con mensaje flash no se valida ni se cachea: el mensaje se muestra una sola vez.
+     */
+    private static boolean noModificado(Model model, WebRequest webRequest, HttpServletResponse response, String etag) {
+        if (model.containsAttribute("mensaje")) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            return false;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache"); // Siempre se revalida
+        return webRequest.checkNotModified(etag);
+    }
 }
\ No newline at end of file
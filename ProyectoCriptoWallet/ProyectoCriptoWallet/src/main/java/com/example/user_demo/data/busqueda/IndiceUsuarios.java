@@ -0,0 +1,233 @@
+package com.example.user_demo.data.busqueda;
+
+import com.example.user_demo.data.commit.TrasCommit;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import com.example.user_demo.data.enrutado.ContextoLectura;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de prefijos sobre nombre y email de los usuarios, para el autocompletado.
+ *
+ * Cada usuario aporta varios términos normalizados (minúsculas y sin acentos): el nombre completo,
+ * cada una de sus palabras y el email. Los términos viven en un mapa ordenado (skip list), así que
+ * los que empiezan por un prefijo son un rango contiguo: buscar cuesta O(log n + k) y no depende
+ * del número de usuarios. Las lecturas no bloquean.
+ *
+ * Se carga de BD al arrancar y se mantiene con las altas y bajas tras el commit. Los cambios que
+ * llegan mientras se carga se guardan y se aplican encima de la carga al terminar.
+ * Con criptowallet.usuarios.busqueda.indice=false (o mientras carga) isListo() es false y los
+ * llamantes deben usar la consulta LIKE de UsuarioRepository.
+ */
+@Component
+public class IndiceUsuarios {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceUsuarios.class);
+
+    public static final int LIMITE_MAXIMO = 50;
+
+    private static final String CARGA = "SELECT id_usuario, nombre, email FROM usuarios";
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+    private static final char SEPARADOR = '\u0000'; // Entre término e ID: ningún término lo contiene
+    private static final char FIN_RANGO = '\uffff'; // Mayor que cualquier carácter de un término
+
+    /**
+     * Términos ("termino\0id" -> usuario) y usuarios por ID (para poder quitar sus términos).
+     */
+    private record Contenido(ConcurrentSkipListMap<String, SugerenciaUsuario> terminos,
+                             Map<Long, SugerenciaUsuario> usuarios) {
+        Contenido() {
+            this(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+
+    // Los cambios se serializan con 'cerrojo'; las búsquedas leen 'contenido' sin él
+    private final Object cerrojo = new Object();
+    private volatile Contenido contenido = new Contenido();
+    private volatile boolean listo;
+    private List<Consumer<Contenido>> pendientes = new ArrayList<>(); // Cambios llegados durante la carga (con el cerrojo)
+
+    @Autowired
+    public IndiceUsuarios(JdbcTemplate jdbcTemplate,
+                          @Value("${criptowallet.usuarios.busqueda.indice:true}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+    }
+
+    // Tras data.sql y sus usuarios de ejemplo
+    @EventListener(ApplicationReadyEvent.class)
+    void arrancar() {
+        if (habilitado) {
+            cargar();
+        }
+    }
+
+    public boolean isListo() {
+        return listo;
+    }
+
+    // --- LECTURAS ---
+
+    /**
+     * Usuarios cuyo nombre, alguna palabra del nombre o email empiezan por el prefijo
+     * (sin distinguir mayúsculas ni acentos), en orden alfabético del término que coincide.
+     * @param limite Máximo de resultados (se recorta a [1, LIMITE_MAXIMO]).
+     * @param excluido ID de usuario que no debe aparecer (ej. el origen de la transferencia), o null.
+     * @throws IllegalStateException Si el índice aún no está cargado.
+     */
+    public List<SugerenciaUsuario> buscar(String prefijo, int limite, Long excluido) {
+        if (!listo) {
+            throw new IllegalStateException("El índice de búsqueda de usuarios no está cargado.");
+        }
+        String clave = prefijo == null ? "" : normalizar(prefijo);
+        if (clave.isEmpty()) {
+            return List.of();
+        }
+        int maximo = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        List<SugerenciaUsuario> encontrados = new ArrayList<>(maximo);
+        Set<Long> vistos = new HashSet<>();
+        for (SugerenciaUsuario u : contenido.terminos().subMap(clave, clave + FIN_RANGO).values()) {
+            if (!u.idUsuario().equals(excluido) && vistos.add(u.idUsuario())) {
+                encontrados.add(u);
+                if (encontrados.size() == maximo) {
+                    break;
+                }
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * @return El usuario con ese ID, o null si no está (o el índice aún no se ha cargado).
+     */
+    public SugerenciaUsuario porId(Long idUsuario) {
+        return listo && idUsuario != null ? contenido.usuarios().get(idUsuario) : null;
+    }
+
+    // --- CAMBIOS (se aplican tras el commit de la transacción en curso) ---
+
+    public void usuarioCreado(Long idUsuario, String nombre, String email) {
+        usuariosCreados(List.of(new SugerenciaUsuario(idUsuario, nombre, email)));
+    }
+
+    /**
+     * Alta de varios usuarios con un único aviso tras el commit (importación por bloques).
+     */
+    public void usuariosCreados(List<SugerenciaUsuario> nuevos) {
+        List<SugerenciaUsuario> copia = List.copyOf(nuevos);
+        trasCommit(c -> copia.forEach(u -> anadir(c, u)));
+    }
+
+    public void usuarioEliminado(Long idUsuario) {
+        trasCommit(c -> quitar(c, idUsuario));
+    }
+
+    // --- MANTENIMIENTO ---
+
+    /**
+     * Vuelve a leer todos los usuarios de BD y sustituye el índice.
+     */
+    public void cargar() {
+        synchronized (cerrojo) {
+            if (pendientes == null) {
+                pendientes = new ArrayList<>(); // Si aún no se había cargado, conserva lo llegado antes
+            }
+        }
+        // De la primaria: el índice solo se corrige con las altas y bajas que lleguen después
+        Contenido nuevo = ContextoLectura.enPrimaria(() -> {
+            Contenido leido = new Contenido();
+            jdbcTemplate.query(CARGA, rs -> {
+                anadir(leido, new SugerenciaUsuario(rs.getLong(1), rs.getString(2), rs.getString(3)));
+            });
+            return leido;
+        });
+        synchronized (cerrojo) {
+            // Lo confirmado durante la carga puede estar o no en la lectura: altas y bajas son idempotentes
+            pendientes.forEach(cambio -> cambio.accept(nuevo));
+            pendientes = null;
+            contenido = nuevo;
+            listo = true;
+        }
+        log.info("Índice de búsqueda de usuarios cargado: {} usuario(s), {} término(s)",
+                nuevo.usuarios().size(), nuevo.terminos().size());
+    }
+
+    // --- INTERNOS ---
+
+    static String normalizar(String texto) {
+        String sinAcentos = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinAcentos.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> terminos(SugerenciaUsuario u) {
+        List<String> terminos = new ArrayList<>(4);
+        String nombre = u.nombre() == null ? "" : normalizar(u.nombre());
+        if (!nombre.isEmpty()) {
+            terminos.add(nombre);
+            String[] palabras = nombre.split(" ");
+            for (int i = 1; i < palabras.length; i++) {
+                terminos.add(palabras[i]); // La primera ya la cubre el nombre completo
+            }
+        }
+        if (u.email() != null) {
+            terminos.add(normalizar(u.email()));
+        }
+        return terminos;
+    }
+
+    private static void anadir(Contenido c, SugerenciaUsuario u) {
+        quitar(c, u.idUsuario());
+        c.usuarios().put(u.idUsuario(), u);
+        for (String termino : terminos(u)) {
+            c.terminos().put(termino + SEPARADOR + u.idUsuario(), u);
+        }
+    }
+
+    private static void quitar(Contenido c, Long idUsuario) {
+        SugerenciaUsuario anterior = c.usuarios().remove(idUsuario);
+        if (anterior != null) {
+            for (String termino : terminos(anterior)) {
+                c.terminos().remove(termino + SEPARADOR + idUsuario);
+            }
+        }
+    }
+
+    private void trasCommit(Consumer<Contenido> cambio) {
+        if (!habilitado) {
+            return;
+        }
+        TrasCommit.ejecutar(() -> aplicar(cambio));
+    }
+
+    private void aplicar(Consumer<Contenido> cambio) {
+        synchronized (cerrojo) {
+            if (pendientes != null) {
+                pendientes.add(cambio); // Carga en curso (o aún sin hacer): se aplica encima al terminar
+            } else {
+                cambio.accept(contenido);
+            }
+        }
+    }
+}
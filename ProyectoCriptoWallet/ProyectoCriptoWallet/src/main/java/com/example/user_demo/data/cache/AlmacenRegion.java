@@ -0,0 +1,168 @@
+package com.example.user_demo.data.cache;
+
+import com.example.user_demo.data.enrutado.ContextoLectura;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Almacén en memoria de una región de caché de Hibernate: LRU acotado por número de entradas
+ * y con caducidad por entrada. Cuenta aciertos y fallos para poder dimensionarla.
+ *
+ * Las entradas se reparten por hash entre varios segmentos, cada uno con su cerrojo y su parte
+ * del tope, así que lecturas de claves distintas casi nunca se esperan entre sí (el LRU es por segmento).
+ * Los cerrojos de READ_WRITE (SoftLock) no se expulsan ni caducan: si desaparecieran antes de
+ * liberarse, otra sesión podría cachear una versión anterior a la escritura en curso. Tampoco se
+ * guarda lo leído en transacciones que van a la réplica, que puede ir por detrás de la primaria.
+ */
+final class AlmacenRegion implements DomainDataStorageAccess {
+
+    private static final int MAX_SEGMENTOS = 16;
+    private static final int MIN_ENTRADAS_POR_SEGMENTO = 64;
+
+    private record Entrada(Object valor, long caducaEn) {
+
+        boolean esCerrojo() {
+            return valor instanceof SoftLock;
+        }
+    }
+
+    private final String nombre;
+    private final int maxEntradas;
+    private final long ttlMs;
+
+    // Cada segmento se protege consigo mismo; orden de acceso: la primera entrada es la menos usada
+    private final LinkedHashMap<Object, Entrada>[] segmentos;
+    private final int maxPorSegmento;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder escrituras = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    /**
+     * @param maxEntradas Tope de entradas (0 = sin límite).
+     * @param ttlMs Vida de cada entrada desde que se escribe (0 = no caduca).
+     */
+    @SuppressWarnings("unchecked")
+    AlmacenRegion(String nombre, int maxEntradas, long ttlMs) {
+        if (maxEntradas < 0 || ttlMs < 0) {
+            throw new IllegalArgumentException("Configuración de caché no válida para la región " + nombre);
+        }
+        this.nombre = nombre;
+        this.maxEntradas = maxEntradas;
+        this.ttlMs = ttlMs;
+        // Regiones pequeñas en pocos segmentos, para que el LRU siga siendo casi global
+        int numero = maxEntradas == 0 ? MAX_SEGMENTOS
+                : Math.max(1, Math.min(MAX_SEGMENTOS, maxEntradas / MIN_ENTRADAS_POR_SEGMENTO));
+        this.segmentos = new LinkedHashMap[numero];
+        for (int i = 0; i < numero; i++) {
+            segmentos[i] = new LinkedHashMap<>(64, 0.75f, true);
+        }
+        this.maxPorSegmento = maxEntradas == 0 ? 0 : (maxEntradas + numero - 1) / numero;
+    }
+
+    @Override
+    public Object getFromCache(Object clave, SharedSessionContractImplementor sesion) {
+        Object valor = leer(clave);
+        if (valor == null) {
+            fallos.increment();
+        } else {
+            aciertos.increment();
+        }
+        return valor;
+    }
+
+    @Override
+    public void putIntoCache(Object clave, Object valor, SharedSessionContractImplementor sesion) {
+        boolean cerrojo = valor instanceof SoftLock;
+        if (!cerrojo && ContextoLectura.leeDeReplica()) {
+            return;
+        }
+        long caducaEn = ttlMs > 0 && !cerrojo ? System.currentTimeMillis() + ttlMs : Long.MAX_VALUE;
+        LinkedHashMap<Object, Entrada> datos = segmento(clave);
+        synchronized (datos) {
+            datos.put(clave, new Entrada(valor, caducaEn));
+            while (maxPorSegmento > 0 && datos.size() > maxPorSegmento && expulsarMenosUsada(datos)) {
+                expulsiones.increment();
+            }
+        }
+        escrituras.increment();
+    }
+
+    @Override
+    public boolean contains(Object clave) {
+        return leer(clave) != null;
+    }
+
+    @Override
+    public void evictData() {
+        for (LinkedHashMap<Object, Entrada> datos : segmentos) {
+            synchronized (datos) {
+                datos.clear();
+            }
+        }
+    }
+
+    @Override
+    public void evictData(Object clave) {
+        LinkedHashMap<Object, Entrada> datos = segmento(clave);
+        synchronized (datos) {
+            datos.remove(clave);
+        }
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    EstadisticasRegion estadisticas() {
+        int entradas = 0;
+        for (LinkedHashMap<Object, Entrada> datos : segmentos) {
+            synchronized (datos) {
+                entradas += datos.size();
+            }
+        }
+        return new EstadisticasRegion(nombre, aciertos.sum(), fallos.sum(), escrituras.sum(), expulsiones.sum(),
+                entradas, maxEntradas, ttlMs / 1000);
+    }
+
+    private LinkedHashMap<Object, Entrada> segmento(Object clave) {
+        int h = clave.hashCode();
+        return segmentos[Math.floorMod(h ^ (h >>> 16), segmentos.length)];
+    }
+
+    private Object leer(Object clave) {
+        LinkedHashMap<Object, Entrada> datos = segmento(clave);
+        synchronized (datos) {
+            Entrada entrada = datos.get(clave);
+            if (entrada == null) {
+                return null;
+            }
+            if (entrada.caducaEn() <= System.currentTimeMillis()) {
+                datos.remove(clave);
+                return null;
+            }
+            return entrada.valor();
+        }
+    }
+
+    // Con el cerrojo del segmento. Quita la entrada menos usada que no sea un cerrojo;
+    // si solo quedan cerrojos no quita nada y el segmento se pasa del tope hasta que se liberen
+    private static boolean expulsarMenosUsada(LinkedHashMap<Object, Entrada> datos) {
+        Iterator<Map.Entry<Object, Entrada>> it = datos.entrySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().getValue().esCerrojo()) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
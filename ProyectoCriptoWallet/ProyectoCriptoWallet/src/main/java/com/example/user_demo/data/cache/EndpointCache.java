@@ -0,0 +1,29 @@
+package com.example.user_demo.data.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator /actuator/cachehibernate: aciertos, fallos, tamaño y ratio de cada región de la caché de segundo nivel.
+ */
+@Component
+@Endpoint(id = "cachehibernate")
+public class EndpointCache {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public EndpointCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public List<EstadisticasRegion> regiones() {
+        return RegionesCacheLocal.estadisticas(entityManagerFactory);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.user_demo.data.cache;
+
+/**
+ * Contadores de una región de la caché de segundo nivel desde el arranque.
+ * @param expulsiones Entradas sacadas por el tope de tamaño (no cuenta las caducadas).
+ * @param maxEntradas Tope configurado (0 = sin límite).
+ * @param ttlSegundos Vida configurada de cada entrada (0 = no caduca).
+ */
+public record EstadisticasRegion(String region, long aciertos, long fallos, long escrituras, long expulsiones,
+                                 int entradas, int maxEntradas, long ttlSegundos) {
+
+    /**
+     * Aciertos / lecturas, entre 0 y 1 (0 si aún no se ha leído).
+     */
+    public double getRatioAciertos() {
+        long lecturas = aciertos + fallos;
+        return lecturas == 0 ? 0.0 : (double) aciertos / lecturas;
+    }
+}
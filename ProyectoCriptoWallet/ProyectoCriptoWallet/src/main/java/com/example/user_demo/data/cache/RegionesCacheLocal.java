@@ -0,0 +1,99 @@
+package com.example.user_demo.data.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Proveedor de caché de segundo nivel de Hibernate en el propio proceso (sin dependencias externas).
+ * Se activa con hibernate.cache.region.factory_class y cada región se configura con
+ * hibernate.cache.local.&lt;region&gt;.max-entradas / .ttl-segundos (si no, los valores
+ * hibernate.cache.local.max-entradas / .ttl-segundos). La región de timestamps de la caché de consultas
+ * nunca expulsa ni caduca: perder una marca haría pasar por válidos resultados ya obsoletos.
+ */
+public class RegionesCacheLocal extends RegionFactoryTemplate {
+
+    public static final String PREFIJO = "hibernate.cache.local.";
+    static final int MAX_ENTRADAS_POR_DEFECTO = 10_000;
+    static final long TTL_SEGUNDOS_POR_DEFECTO = 600;
+
+    private final Map<String, AlmacenRegion> regiones = new ConcurrentHashMap<>();
+    private Map<String, Object> configuracion = Map.of();
+
+    /**
+     * Estadísticas de la caché de una fábrica de EntityManager, o lista vacía si no usa este proveedor.
+     */
+    public static List<EstadisticasRegion> estadisticas(EntityManagerFactory emf) {
+        RegionFactory fabrica = emf.unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        return fabrica instanceof RegionesCacheLocal local ? local.estadisticas() : List.of();
+    }
+
+    public List<EstadisticasRegion> estadisticas() {
+        List<EstadisticasRegion> lista = new ArrayList<>();
+        regiones.values().forEach(r -> lista.add(r.estadisticas()));
+        lista.sort(Comparator.comparing(EstadisticasRegion::region));
+        return lista;
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions opciones, Map<String, Object> propiedades) {
+        configuracion = new HashMap<>(propiedades);
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regiones.values().forEach(AlmacenRegion::release);
+        regiones.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig config,
+                                                                    DomainDataRegionBuildingContext contexto) {
+        return crear(config.getRegionName(), true);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String region, SessionFactoryImplementor sessionFactory) {
+        return crear(region, true);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String region, SessionFactoryImplementor sessionFactory) {
+        return crear(region, false);
+    }
+
+    private AlmacenRegion crear(String region, boolean acotada) {
+        return regiones.computeIfAbsent(region, nombre -> acotada
+                ? new AlmacenRegion(nombre, (int) valor(nombre, "max-entradas", MAX_ENTRADAS_POR_DEFECTO),
+                        valor(nombre, "ttl-segundos", TTL_SEGUNDOS_POR_DEFECTO) * 1000)
+                : new AlmacenRegion(nombre, 0, 0));
+    }
+
+    private long valor(String region, String clave, long porDefecto) {
+        Object valor = configuracion.get(PREFIJO + region + "." + clave);
+        if (valor == null) {
+            valor = configuracion.get(PREFIJO + clave);
+        }
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Long.parseLong(valor.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no numérico en " + PREFIJO + region + "." + clave + ": " + valor, e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.user_demo.data.catalogo;
+
+import com.example.user_demo.data.commit.TrasCommit;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.CriptomonedaRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Catálogo de criptomonedas y precios en memoria.
+ *
+ * Se guarda como una instantánea inmutable detrás de un AtomicReference: las lecturas son un get()
+ * y una búsqueda en un mapa (sin locks ni reservas de memoria) y cada cambio construye una
+ * instantánea nueva y la sustituye entera. Los escritores se serializan entre sí, nunca con los lectores.
+ * Los oyentes de precios se avisan fuera de ese cerrojo, pero en orden de versión.
+ */
+@Component
+public class CatalogoCriptomonedas {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoCriptomonedas.class);
+
+    private static final String UPDATE_PRECIO = "UPDATE criptomonedas SET precio_actual = ? WHERE id_cripto = ?";
+
+    /**
+     * Estado completo del catálogo en un instante. Nunca se modifica tras publicarse.
+     */
+    private record Instantanea(long version,
+                               Map<String, CotizacionCripto> porSimbolo,
+                               Map<Long, CotizacionCripto> porId,
+                               List<CotizacionCripto> todas) {
+
+        static Instantanea de(long version, List<CotizacionCripto> cotizaciones) {
+            List<CotizacionCripto> ordenadas = new ArrayList<>(cotizaciones);
+            ordenadas.sort(Comparator.comparing(CotizacionCripto::idCripto));
+            Map<String, CotizacionCripto> porSimbolo = new HashMap<>();
+            Map<Long, CotizacionCripto> porId = new HashMap<>();
+            for (CotizacionCripto c : ordenadas) {
+                porSimbolo.put(c.simbolo(), c);
+                porId.put(c.idCripto(), c);
+            }
+            return new Instantanea(version, Map.copyOf(porSimbolo), Map.copyOf(porId), List.copyOf(ordenadas));
+        }
+    }
+
+    private record AvisoPrecios(List<CotizacionCripto> cambios, long version) {
+    }
+
+    private final CriptomonedaRepository criptomonedaRepository;
+    private final PatrimonioMaterializado patrimonio;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicReference<Instantanea> actual = new AtomicReference<>();
+    private final List<OyentePrecios> oyentes = new CopyOnWriteArrayList<>();
+
+    // Avisos publicados y aún sin entregar, en orden de versión; los entrega un solo hilo a la vez
+    private final ConcurrentLinkedQueue<AvisoPrecios> avisosPendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean avisando = new AtomicBoolean();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public CatalogoCriptomonedas(CriptomonedaRepository criptomonedaRepository,
+                                 PatrimonioMaterializado patrimonio,
+                                 JdbcTemplate jdbcTemplate,
+                                 EntityManagerFactory entityManagerFactory,
+                                 PlatformTransactionManager transactionManager) {
+        this.criptomonedaRepository = criptomonedaRepository;
+        this.patrimonio = patrimonio;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // --- LECTURAS ---
+
+    /**
+     * @return La cotización de ese símbolo, o null si no existe.
+     */
+    public CotizacionCripto porSimbolo(String simbolo) {
+        return simbolo == null ? null : instantanea().porSimbolo.get(simbolo);
+    }
+
+    /**
+     * @return La cotización de ese ID, o null si no existe.
+     */
+    public CotizacionCripto porId(Long idCripto) {
+        return idCripto == null ? null : instantanea().porId.get(idCripto);
+    }
+
+    /**
+     * Todo el catálogo ordenado por ID (lista inmutable compartida).
+     */
+    public List<CotizacionCripto> todas() {
+        return instantanea().todas;
+    }
+
+    public long version() {
+        return instantanea().version;
+    }
+
+    /**
+     * Referencia JPA a la criptomoneda (sin SELECT) para asociarla a Activos y Transacciones.
+     * Debe usarse dentro de una transacción.
+     */
+    public Criptomoneda referencia(Long idCripto) {
+        return entityManager.getReference(Criptomoneda.class, idCripto);
+    }
+
+    // --- ESCRITURAS ---
+
+    /**
+     * Cambia el precio en BD y, tras el commit, publica una instantánea nueva y revaloriza
+     * el patrimonio materializado de los tenedores.
+     * @throws IllegalArgumentException Si el precio no es positivo.
+     * @throws NoSuchElementException Si la criptomoneda no existe.
+     */
+    public void actualizarPrecio(Long idCripto, long precioCentimos) {
+        if (precioCentimos <= 0) {
+            throw new IllegalArgumentException("El precio debe ser positivo.");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Criptomoneda cripto = criptomonedaRepository.findById(idCripto)
+                    .orElseThrow(() -> new NoSuchElementException("Criptomoneda no encontrada (ID: " + idCripto + ")"));
+            cripto.setPrecioCentimos(precioCentimos);
+            criptomonedaRepository.save(cripto);
+            patrimonio.precioActualizado(idCripto, precioCentimos);
+            TrasCommit.ejecutar(() -> publicarPrecios(Map.of(idCripto, precioCentimos)));
+        });
+    }
+
+    /**
+     * Aplica varios precios a la vez con un único UPDATE por lotes JDBC (sin leer las entidades)
+     * y, tras el commit, los publica juntos en una sola instantánea nueva.
+     * @param preciosPorId idCripto -> precio en céntimos. Los IDs que no existan se ignoran.
+     * @throws IllegalArgumentException Si algún precio no es positivo.
+     */
+    public void actualizarPrecios(Map<Long, Long> preciosPorId) {
+        if (preciosPorId.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas = new ArrayList<>(preciosPorId.size());
+        preciosPorId.forEach((idCripto, precio) -> {
+            if (precio == null || precio <= 0) {
+                throw new IllegalArgumentException("El precio debe ser positivo (ID: " + idCripto + ").");
+            }
+            filas.add(new Object[]{Importe.aDecimal(precio, Importe.ESCALA_FIAT), idCripto});
+        });
+        Map<Long, Long> cambios = Map.copyOf(preciosPorId);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_PRECIO, filas);
+            cambios.forEach(patrimonio::precioActualizado);
+            // El UPDATE JDBC no pasa por Hibernate: hay que sacar esas criptos de la caché de segundo nivel
+            // y vaciar la caché de consultas, que solo guarda las del catálogo y no se entera del cambio
+            TrasCommit.ejecutar(() -> {
+                Cache cache = entityManagerFactory.getCache();
+                cambios.keySet().forEach(id -> cache.evict(Criptomoneda.class, id));
+                cache.unwrap(org.hibernate.Cache.class).evictDefaultQueryRegion();
+                publicarPrecios(cambios);
+            });
+        });
+    }
+
+    /**
+     * Registra un oyente que recibirá cada cambio de precios publicado a partir de ahora.
+     */
+    public void suscribir(OyentePrecios oyente) {
+        oyentes.add(oyente);
+    }
+
+    public void desuscribir(OyentePrecios oyente) {
+        oyentes.remove(oyente);
+    }
+
+    /**
+     * Vuelve a leer todo el catálogo de BD y lo publica como una versión nueva
+     * (necesario si se dan de alta criptomonedas directamente en BD).
+     */
+    public synchronized void recargar() {
+        Instantanea anterior = actual.get();
+        long version = anterior == null ? 1L : anterior.version + 1;
+        List<CotizacionCripto> cotizaciones = new ArrayList<>();
+        for (Criptomoneda c : criptomonedaRepository.findAll()) {
+            cotizaciones.add(cotizacion(c, version));
+        }
+        actual.set(Instantanea.de(version, cotizaciones));
+    }
+
+    // --- INTERNOS ---
+
+    private Instantanea instantanea() {
+        Instantanea i = actual.get();
+        return i != null ? i : cargarPrimeraVez();
+    }
+
+    private synchronized Instantanea cargarPrimeraVez() {
+        if (actual.get() == null) {
+            recargar();
+        }
+        return actual.get();
+    }
+
+    private void publicarPrecios(Map<Long, Long> precios) {
+        sustituirPrecios(precios);
+        avisarPendientes();
+    }
+
+    // Sincronizado: las versiones se publican (y se encolan para avisar) en orden
+    private synchronized void sustituirPrecios(Map<Long, Long> precios) {
+        Instantanea anterior = instantanea();
+        if (!anterior.porId.keySet().containsAll(precios.keySet())) {
+            recargar(); // Alguna cripto dada de alta en BD después de cargar el catálogo
+            anterior = actual.get();
+        }
+        long version = anterior.version + 1;
+        List<CotizacionCripto> cotizaciones = new ArrayList<>(anterior.todas.size());
+        List<CotizacionCripto> cambios = new ArrayList<>(precios.size());
+        for (CotizacionCripto c : anterior.todas) {
+            Long precio = precios.get(c.idCripto());
+            if (precio == null) {
+                cotizaciones.add(c);
+            } else {
+                CotizacionCripto nueva = new CotizacionCripto(c.idCripto(), c.nombre(), c.simbolo(), precio, c.decimales(), version);
+                cotizaciones.add(nueva);
+                cambios.add(nueva);
+            }
+        }
+        actual.set(Instantanea.de(version, cotizaciones));
+        avisosPendientes.add(new AvisoPrecios(List.copyOf(cambios), version));
+    }
+
+    // Sin el cerrojo del catálogo: un oyente lento no frena a otros escritores ni a recargar().
+    // Si otro hilo ya está avisando, se lleva también nuestro aviso, después de los anteriores.
+    private void avisarPendientes() {
+        while (!avisosPendientes.isEmpty() && avisando.compareAndSet(false, true)) {
+            try {
+                AvisoPrecios aviso;
+                while ((aviso = avisosPendientes.poll()) != null) {
+                    for (OyentePrecios oyente : oyentes) {
+                        try {
+                            oyente.preciosActualizados(aviso.cambios(), aviso.version());
+                        } catch (RuntimeException e) {
+                            log.warn("Error en un oyente de precios", e);
+                        }
+                    }
+                }
+            } finally {
+                avisando.set(false);
+            }
+        }
+    }
+
+    private static CotizacionCripto cotizacion(Criptomoneda c, long version) {
+        return new CotizacionCripto(c.getIdCripto(), c.getNombre(), c.getSimbolo(), c.getPrecioCentimos(), c.getDecimales(), version);
+    }
+}
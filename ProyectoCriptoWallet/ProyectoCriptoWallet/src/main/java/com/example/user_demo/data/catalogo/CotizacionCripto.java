@@ -0,0 +1,23 @@
+package com.example.user_demo.data.catalogo;
+
+import com.example.user_demo.data.model.Importe;
+
+/**
+ * Vista inmutable de una Criptomoneda dentro de la instantánea del catálogo.
+ * @param precioCentimos Precio actual en céntimos (ver Importe).
+ * @param decimales Decimales que admite la cripto (máximo 8).
+ * @param version Versión del catálogo en la que cambió por última vez.
+ */
+public record CotizacionCripto(Long idCripto, String nombre, String simbolo, long precioCentimos, int decimales, long version) {
+
+    public boolean tienePrecio() {
+        return precioCentimos > 0;
+    }
+
+    /**
+     * Precio en dólares, solo para mostrar (mismo nombre que en Criptomoneda para las vistas).
+     */
+    public double getPrecioActual() {
+        return Importe.centimosADouble(precioCentimos);
+    }
+}
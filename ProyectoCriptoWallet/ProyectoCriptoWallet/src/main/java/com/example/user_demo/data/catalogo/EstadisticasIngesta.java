@@ -0,0 +1,12 @@
+package com.example.user_demo.data.catalogo;
+
+/**
+ * Contadores acumulados de la ingesta de precios.
+ * @param recibidos Ticks aceptados.
+ * @param fusionados Ticks que sustituyeron a otro pendiente del mismo símbolo en la misma ventana.
+ * @param rechazados Ticks descartados (símbolo desconocido, precio no positivo o ingesta parada).
+ * @param ventanas Ventanas que han llegado a ejecutar un UPDATE por lotes.
+ * @param preciosAplicados Precios escritos en BD en total.
+ */
+public record EstadisticasIngesta(long recibidos, long fusionados, long rechazados, long ventanas, long preciosAplicados) {
+}
@@ -0,0 +1,114 @@
+package com.example.user_demo.data.catalogo;
+
+import com.example.user_demo.data.model.Importe;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Fuente de ticks de ejemplo (sustituye a un feed real): lee un fichero de texto con una
+ * línea "SIMBOLO,precio" por tick (ej. "BTC,65000.25") y los pasa a la IngestaPrecios.
+ *
+ * Con 'seguir=true' se queda esperando líneas nuevas al llegar al final (como tail -f), así que
+ * otro proceso puede ir escribiendo en el fichero. Las líneas vacías o con '#' se ignoran.
+ * Desactivada si criptowallet.precios.fuente.archivo está vacío.
+ */
+@Component
+public class FuentePreciosArchivo {
+
+    private static final Logger log = LoggerFactory.getLogger(FuentePreciosArchivo.class);
+
+    private static final long ESPERA_LINEAS_MS = 200;
+
+    private final IngestaPrecios ingesta;
+    private final String archivo;
+    private final boolean seguir;
+
+    private volatile boolean activa;
+    private Thread hilo;
+
+    @Autowired
+    public FuentePreciosArchivo(IngestaPrecios ingesta,
+                                @Value("${criptowallet.precios.fuente.archivo:}") String archivo,
+                                @Value("${criptowallet.precios.fuente.seguir:true}") boolean seguir) {
+        this.ingesta = ingesta;
+        this.archivo = archivo;
+        this.seguir = seguir;
+    }
+
+    @PostConstruct
+    void arrancar() {
+        if (archivo == null || archivo.isBlank()) {
+            return;
+        }
+        activa = true;
+        hilo = Thread.ofVirtual().name("fuente-precios").start(() -> leer(Path.of(archivo)));
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activa = false;
+        hilo.interrupt();
+        hilo.join();
+    }
+
+    private void leer(Path ruta) {
+        long leidos = 0;
+        try (BufferedReader lector = Files.newBufferedReader(ruta, StandardCharsets.UTF_8)) {
+            while (activa) {
+                String linea = lector.readLine();
+                if (linea == null) {
+                    if (!seguir) {
+                        break;
+                    }
+                    Thread.sleep(ESPERA_LINEAS_MS);
+                    continue;
+                }
+                if (procesar(linea)) {
+                    leidos++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("No se pudo leer la fuente de precios {}", ruta, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Fuente de precios {} detenida tras {} ticks", ruta, leidos);
+    }
+
+    /**
+     * @return true si la línea era un tick aceptado por la ingesta.
+     */
+    boolean procesar(String linea) {
+        String texto = linea.strip();
+        if (texto.isEmpty() || texto.startsWith("#")) {
+            return false;
+        }
+        int coma = texto.indexOf(',');
+        if (coma <= 0) {
+            log.warn("Tick mal formado, se ignora: {}", texto);
+            return false;
+        }
+        try {
+            long centimos = Importe.deDecimal(new BigDecimal(texto.substring(coma + 1).strip()), Importe.ESCALA_FIAT);
+            return ingesta.publicar(texto.substring(0, coma).strip(), centimos);
+        } catch (NumberFormatException | ArithmeticException e) {
+            log.warn("Tick con precio inválido, se ignora: {}", texto);
+            return false;
+        }
+    }
+}
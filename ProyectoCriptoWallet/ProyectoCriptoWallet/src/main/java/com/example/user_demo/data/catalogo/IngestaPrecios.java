@@ -0,0 +1,154 @@
+package com.example.user_demo.data.catalogo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingesta de ticks de precio a alto ritmo.
+ *
+ * publicar() nunca bloquea: cada tick sobrescribe el último precio pendiente de su cripto en un
+ * mapa (como mucho una entrada por cripto del catálogo, así que la memoria está acotada aunque llegue
+ * una ráfaga). Un hilo virtual recoge el mapa cada 'ventana-ms' y aplica lo acumulado con un único
+ * UPDATE por lotes (CatalogoCriptomonedas.actualizarPrecios), que publica la instantánea nueva a los oyentes.
+ *
+ * Las transferencias no se ven frenadas: leen los precios del catálogo en memoria, no escriben en
+ * la tabla de criptomonedas y la ingesta usa como mucho una conexión a la vez. Si la BD va lenta,
+ * las ventanas simplemente fusionan más ticks.
+ */
+@Component
+public class IngestaPrecios {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaPrecios.class);
+
+    private final CatalogoCriptomonedas catalogo;
+    private final boolean habilitada;
+    private final long ventanaMs;
+
+    private final ConcurrentHashMap<Long, Long> pendientes = new ConcurrentHashMap<>(); // idCripto -> último precio
+    private final AtomicLong recibidos = new AtomicLong();
+    private final AtomicLong fusionados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong ventanas = new AtomicLong();
+    private final AtomicLong preciosAplicados = new AtomicLong();
+
+    private volatile boolean activa;
+    private Thread hilo;
+
+    @Autowired
+    public IngestaPrecios(CatalogoCriptomonedas catalogo,
+                          @Value("${criptowallet.precios.ingesta.habilitada:true}") boolean habilitada,
+                          @Value("${criptowallet.precios.ingesta.ventana-ms:250}") long ventanaMs) {
+        if (ventanaMs <= 0) {
+            throw new IllegalArgumentException("La ventana de la ingesta de precios debe ser positiva.");
+        }
+        this.catalogo = catalogo;
+        this.habilitada = habilitada;
+        this.ventanaMs = ventanaMs;
+    }
+
+    @PostConstruct
+    void arrancar() {
+        if (!habilitada) {
+            return;
+        }
+        activa = true;
+        hilo = Thread.ofVirtual().name("ingesta-precios").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activa = false;
+        hilo.interrupt();
+        hilo.join();
+        try {
+            aplicarVentana(); // Lo que quedase pendiente
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron aplicar los últimos precios al parar la ingesta", e);
+        }
+    }
+
+    public boolean isActiva() {
+        return activa;
+    }
+
+    /**
+     * Acepta un tick sin bloquear. El precio se aplicará en la próxima ventana, salvo que antes
+     * llegue otro de la misma cripto (gana el último).
+     * @return false si se descarta (ingesta parada, símbolo desconocido o precio no positivo).
+     */
+    public boolean publicar(String simbolo, long precioCentimos) {
+        CotizacionCripto cripto = activa && precioCentimos > 0 ? catalogo.porSimbolo(simbolo) : null;
+        if (cripto == null) {
+            rechazados.incrementAndGet();
+            return false;
+        }
+        if (pendientes.put(cripto.idCripto(), precioCentimos) != null) {
+            fusionados.incrementAndGet();
+        }
+        recibidos.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Aplica ya lo acumulado (lo llama el hilo de la ingesta al cerrar cada ventana).
+     * @return Número de precios escritos.
+     */
+    public synchronized int aplicarVentana() {
+        Map<Long, Long> lote = new HashMap<>();
+        for (Long idCripto : pendientes.keySet()) {
+            Long precio = pendientes.remove(idCripto);
+            if (precio == null) {
+                continue;
+            }
+            CotizacionCripto actual = catalogo.porId(idCripto);
+            if (actual == null || actual.precioCentimos() != precio) {
+                lote.put(idCripto, precio); // Un tick igual al precio publicado no genera escritura
+            }
+        }
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        try {
+            catalogo.actualizarPrecios(lote);
+        } catch (RuntimeException e) {
+            // Se devuelven a la cola salvo que ya haya llegado un tick más nuevo
+            lote.forEach(pendientes::putIfAbsent);
+            throw e;
+        }
+        ventanas.incrementAndGet();
+        preciosAplicados.addAndGet(lote.size());
+        return lote.size();
+    }
+
+    public EstadisticasIngesta estadisticas() {
+        return new EstadisticasIngesta(recibidos.get(), fusionados.get(), rechazados.get(), ventanas.get(), preciosAplicados.get());
+    }
+
+    private void bucle() {
+        while (activa) {
+            try {
+                Thread.sleep(ventanaMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                aplicarVentana();
+            } catch (RuntimeException e) {
+                log.error("Error aplicando una ventana de precios, se reintentará", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.user_demo.data.catalogo;
+
+import java.util.List;
+
+/**
+ * Recibe cada instantánea nueva del catálogo tras un cambio de precios (ver CatalogoCriptomonedas.suscribir).
+ * Se invoca en el hilo que publica, en orden de versión: debe ser rápido y no bloquear.
+ */
+@FunctionalInterface
+public interface OyentePrecios {
+
+    /**
+     * @param cambios Cotizaciones que han cambiado, ya con su precio y versión nuevos.
+     * @param version Versión del catálogo recién publicada.
+     */
+    void preciosActualizados(List<CotizacionCripto> cambios, long version);
+}
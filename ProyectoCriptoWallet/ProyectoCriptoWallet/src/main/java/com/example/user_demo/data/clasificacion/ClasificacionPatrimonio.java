@@ -0,0 +1,451 @@
+package com.example.user_demo.data.clasificacion;
+
+import com.example.user_demo.data.busqueda.IndiceUsuarios;
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.catalogo.OyentePrecios;
+import com.example.user_demo.data.commit.TrasCommit;
+import com.example.user_demo.data.dto.PosicionesUsuario;
+import com.example.user_demo.data.dto.PuestoClasificacion;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import com.example.user_demo.data.dto.TablaClasificacion;
+import com.example.user_demo.data.enrutado.ContextoLectura;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Clasificaciones en vivo: usuarios con más patrimonio (fiat + valor de sus criptos) y, por cada cripto,
+ * usuarios con más unidades. Cada una es una TablaTopK con los 'puestos' publicados más una 'holgura'.
+ *
+ * Los servicios y el motor de ledger avisan tras el commit de qué usuarios han cambiado (transferencias,
+ * inversiones, carteras, importación, bajas) y el catálogo de cada cambio de precio. Un hilo virtual junta
+ * los avisos cada 'intervalo-ms', revalora a esos usuarios (en memoria si PatrimonioMaterializado ya los tiene;
+ * si no, con una consulta agrupada por cada trozo de usuarios) y a los de la tabla de patrimonio si ha cambiado
+ * algún precio, y publica una instantánea inmutable: leer los primeros puestos es O(1) y no toca la BD ni bloquea.
+ *
+ * Una subida de precio puede adelantar a alguien de fuera de la tabla: el umbral de los de fuera sube lo que
+ * podría ganar el mayor tenedor de esa cripto. Cuando el umbral deja algún puesto publicado sin garantizar,
+ * se recalcula todo con una consulta agregada (como mucho cada 'recalculo-minimo-ms'); además se recalcula
+ * siempre cada 'recalculo-ms' para corregir cualquier desvío.
+ *
+ * Con criptowallet.clasificacion.habilitada=false no se mantiene nada e isLista() es false.
+ */
+@Component
+public class ClasificacionPatrimonio implements OyentePrecios {
+
+    private static final Logger log = LoggerFactory.getLogger(ClasificacionPatrimonio.class);
+
+    // Máximo de IDs por consulta cuando hay que leer de BD a los usuarios cambiados
+    private static final int USUARIOS_POR_CONSULTA = 1000;
+
+    // Fiat por usuario (id_cripto = 0) y unidades por usuario y cripto, agrupadas por usuario
+    private static final String RECALCULO = "SELECT id_usuario, 0 AS id_cripto, SUM(balance_total) AS cantidad "
+            + "FROM carteras GROUP BY id_usuario "
+            + "UNION ALL SELECT c.id_usuario, a.id_cripto, SUM(a.cantidad) FROM activos a "
+            + "JOIN carteras c ON c.id_cartera = a.id_cartera WHERE a.cantidad > 0 GROUP BY c.id_usuario, a.id_cripto "
+            + "ORDER BY 1, 2";
+    private static final String CAMBIADOS = "SELECT id_usuario, 0 AS id_cripto, SUM(balance_total) AS cantidad "
+            + "FROM carteras WHERE id_usuario IN (:ids) GROUP BY id_usuario "
+            + "UNION ALL SELECT c.id_usuario, a.id_cripto, SUM(a.cantidad) FROM activos a "
+            + "JOIN carteras c ON c.id_cartera = a.id_cartera WHERE a.cantidad > 0 AND c.id_usuario IN (:ids) "
+            + "GROUP BY c.id_usuario, a.id_cripto ORDER BY 1, 2";
+
+    /**
+     * Lo que leen las consultas: sustituido entero en cada publicación.
+     */
+    private record Publicado(TablaClasificacion patrimonio, Map<Long, TablaClasificacion> porCripto, boolean exacto) {
+    }
+
+    private static final TablaClasificacion VACIA = new TablaClasificacion(List.of(), 0, 0L);
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final CatalogoCriptomonedas catalogo;
+    private final PatrimonioMaterializado patrimonio;
+    private final IndiceUsuarios busqueda;
+    private final boolean habilitada;
+    private final int puestos;
+    private final int capacidad;
+    private final long intervaloMs;
+    private final long recalculoMs;
+    private final long recalculoMinimoMs;
+
+    // Avisos pendientes (de cualquier hilo); el hilo de la clasificación los recoge en cada vuelta
+    private final Set<Long> cambiados = ConcurrentHashMap.newKeySet();
+    private final Set<Long> eliminados = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> preciosPendientes = new ConcurrentHashMap<>(); // idCripto -> último precio
+
+    // Tablas y precios con los que se valoran: solo con 'cerrojo'
+    private final Object cerrojo = new Object();
+    private TablaTopK porPatrimonio;
+    private Map<Long, TablaTopK> porCripto = new HashMap<>();
+    private Map<Long, Long> precios = new HashMap<>();
+    private long version;
+    private long ultimoRecalculo;
+    private boolean faltanNombres; // Se publicó con el índice de búsqueda aún sin cargar
+
+    private volatile Publicado publicado = new Publicado(VACIA, Map.of(), true);
+    private volatile boolean lista;
+    private volatile boolean activo;
+    private Thread hilo;
+
+    @Autowired
+    public ClasificacionPatrimonio(JdbcTemplate jdbcTemplate,
+                                   CatalogoCriptomonedas catalogo,
+                                   PatrimonioMaterializado patrimonio,
+                                   IndiceUsuarios busqueda,
+                                   @Value("${criptowallet.clasificacion.habilitada:true}") boolean habilitada,
+                                   @Value("${criptowallet.clasificacion.puestos:100}") int puestos,
+                                   @Value("${criptowallet.clasificacion.holgura:100}") int holgura,
+                                   @Value("${criptowallet.clasificacion.intervalo-ms:1000}") long intervaloMs,
+                                   @Value("${criptowallet.clasificacion.recalculo-ms:600000}") long recalculoMs,
+                                   @Value("${criptowallet.clasificacion.recalculo-minimo-ms:30000}") long recalculoMinimoMs) {
+        if (puestos <= 0 || holgura < 0 || intervaloMs <= 0 || recalculoMs <= 0 || recalculoMinimoMs < 0) {
+            throw new IllegalArgumentException("La configuración de la clasificación no es válida.");
+        }
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.catalogo = catalogo;
+        this.patrimonio = patrimonio;
+        this.busqueda = busqueda;
+        this.habilitada = habilitada;
+        this.puestos = puestos;
+        this.capacidad = puestos + holgura;
+        this.intervaloMs = intervaloMs;
+        this.recalculoMs = recalculoMs;
+        this.recalculoMinimoMs = recalculoMinimoMs;
+        this.porPatrimonio = new TablaTopK(capacidad);
+    }
+
+    // Tras data.sql; los nombres salen del índice de búsqueda, que quizá se cargue después
+    @EventListener(ApplicationReadyEvent.class)
+    void arrancar() {
+        if (!habilitada) {
+            return;
+        }
+        catalogo.suscribir(this);
+        recalcular();
+        activo = true;
+        hilo = Thread.ofVirtual().name("clasificacion-patrimonio").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activo = false;
+        catalogo.desuscribir(this);
+        hilo.interrupt();
+        hilo.join();
+    }
+
+    private void bucle() {
+        while (activo) {
+            try {
+                Thread.sleep(intervaloMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                long desde = System.currentTimeMillis() - ultimoRecalculo;
+                if (desde >= recalculoMs || (!publicado.exacto() && desde >= recalculoMinimoMs)) {
+                    recalcular();
+                }
+                actualizar();
+            } catch (RuntimeException e) {
+                log.error("Error al actualizar la clasificación de patrimonio", e);
+            }
+        }
+    }
+
+    public boolean isLista() {
+        return lista;
+    }
+
+    // --- LECTURAS (instantánea ya calculada) ---
+
+    /**
+     * Usuarios con más patrimonio total; valor en céntimos.
+     * @throws IllegalStateException Si la clasificación aún no se ha calculado.
+     */
+    public TablaClasificacion patrimonio(int n) {
+        comprobarLista();
+        return publicado.patrimonio().primeros(n);
+    }
+
+    /**
+     * Usuarios con más unidades de la cripto (sumando sus carteras); valor en unidades mínimas.
+     * @throws IllegalStateException Si la clasificación aún no se ha calculado.
+     */
+    public TablaClasificacion tenedores(Long idCripto, int n) {
+        comprobarLista();
+        return publicado.porCripto().getOrDefault(idCripto, VACIA).primeros(n);
+    }
+
+    // --- AVISOS (se recogen tras el commit de la transacción en curso) ---
+
+    /**
+     * Estos usuarios han cambiado de fiat o de unidades. Hay que avisar después de pasar los deltas
+     * a PatrimonioMaterializado en la misma transacción, para que al revalorarlos ya los tenga.
+     */
+    public void usuariosCambiados(Long... idsUsuario) {
+        List<Long> ids = new ArrayList<>(idsUsuario.length);
+        for (Long id : idsUsuario) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        trasCommit(() -> cambiados.addAll(ids));
+    }
+
+    public void usuarioEliminado(Long idUsuario) {
+        trasCommit(() -> eliminados.add(idUsuario));
+    }
+
+    @Override
+    public void preciosActualizados(List<CotizacionCripto> cambios, long version) {
+        for (CotizacionCripto c : cambios) {
+            preciosPendientes.put(c.idCripto(), c.precioCentimos());
+        }
+    }
+
+    // --- MANTENIMIENTO ---
+
+    /**
+     * Aplica los avisos acumulados y publica las tablas que han cambiado.
+     */
+    public void actualizar() {
+        synchronized (cerrojo) {
+            if (!lista) {
+                return;
+            }
+            Set<Long> revalorar = new HashSet<>();
+            aplicarPrecios(revalorar);
+            Set<Long> bajas = drenar(eliminados);
+            for (Long id : bajas) {
+                porPatrimonio.quitar(id);
+                porCripto.values().forEach(t -> t.quitar(id));
+            }
+            revalorar.addAll(drenar(cambiados));
+            revalorar.removeAll(bajas);
+            // Los ya materializados se valoran en memoria; el resto (ej. una importación) con una consulta por trozo
+            List<Long> deBd = new ArrayList<>();
+            for (Long id : revalorar) {
+                PosicionesUsuario p = patrimonio.posicionesMaterializadas(id);
+                if (p != null) {
+                    ofrecer(p, true);
+                } else {
+                    deBd.add(id);
+                }
+            }
+            for (int i = 0; i < deBd.size(); i += USUARIOS_POR_CONSULTA) {
+                List<Long> trozo = deBd.subList(i, Math.min(deBd.size(), i + USUARIOS_POR_CONSULTA));
+                Set<Long> sinFilas = new HashSet<>(trozo); // Sin carteras: valen cero
+                leer(CAMBIADOS, new MapSqlParameterSource("ids", trozo), p -> {
+                    sinFilas.remove(p.idUsuario());
+                    ofrecer(p, true);
+                });
+                sinFilas.forEach(id -> ofrecer(new PosicionesUsuario(id, 0L, Map.of()), true));
+            }
+            publicar(faltanNombres && busqueda.isListo());
+        }
+    }
+
+    /**
+     * Vuelve a calcular todas las clasificaciones desde BD (una consulta agregada en streaming)
+     * y las sustituye. Los avisos pendientes se aplican encima en la siguiente actualización.
+     */
+    public void recalcular() {
+        Map<Long, Long> preciosActuales = new HashMap<>();
+        for (CotizacionCripto c : catalogo.todas()) {
+            preciosActuales.put(c.idCripto(), c.precioCentimos());
+        }
+        synchronized (cerrojo) {
+            long inicio = System.currentTimeMillis();
+            precios = preciosActuales;
+            porPatrimonio = new TablaTopK(capacidad);
+            porCripto = new HashMap<>();
+            leer(RECALCULO, new MapSqlParameterSource(), p -> ofrecer(p, false));
+            ultimoRecalculo = System.currentTimeMillis();
+            lista = true;
+            publicar(true);
+            log.info("Clasificación de patrimonio recalculada en {} ms ({} cripto(s))",
+                    ultimoRecalculo - inicio, porCripto.size());
+        }
+    }
+
+    // --- INTERNOS (con el cerrojo) ---
+
+    private void aplicarPrecios(Set<Long> revalorar) {
+        for (Map.Entry<Long, Long> e : drenar(preciosPendientes).entrySet()) {
+            Long anterior = precios.put(e.getKey(), e.getValue());
+            long subida = e.getValue() - (anterior == null ? 0L : anterior);
+            if (subida == 0) {
+                continue;
+            }
+            if (subida > 0) {
+                TablaTopK tenedores = porCripto.get(e.getKey());
+                long maximoUnidades = tenedores == null ? 0L : tenedores.cotaMaxima();
+                // +1 céntimo: valorEnCentimos redondea y la cota no puede quedarse corta
+                porPatrimonio.elevarUmbral(Importe.sumar(Importe.valorEnCentimos(maximoUnidades, subida), 1L));
+            }
+            revalorar.addAll(porPatrimonio.usuarios());
+        }
+    }
+
+    private void ofrecer(PosicionesUsuario p, boolean cambio) {
+        long valor = p.balanceCentimos();
+        for (Map.Entry<Long, Long> e : p.unidadesPorCripto().entrySet()) {
+            valor = Importe.sumar(valor, Importe.valorEnCentimos(e.getValue(), precios.getOrDefault(e.getKey(), 0L)));
+            porCripto.computeIfAbsent(e.getKey(), k -> new TablaTopK(capacidad)).actualizar(p.idUsuario(), e.getValue());
+        }
+        porPatrimonio.actualizar(p.idUsuario(), valor);
+        if (cambio) {
+            // Las criptos que ya no tiene (en un recálculo las tablas son nuevas)
+            porCripto.forEach((idCripto, tabla) -> {
+                if (!p.unidadesPorCripto().containsKey(idCripto)) {
+                    tabla.quitar(p.idUsuario());
+                }
+            });
+        }
+    }
+
+    private void publicar(boolean todas) {
+        version++;
+        if (todas) {
+            faltanNombres = false;
+        }
+        Publicado anterior = publicado;
+        TablaClasificacion tablaPatrimonio = porPatrimonio.consumirModificada() || todas
+                ? tabla(porPatrimonio) : anterior.patrimonio();
+        boolean exacto = tablaPatrimonio.isExacta();
+        Map<Long, TablaClasificacion> tablasPorCripto = new HashMap<>();
+        for (Map.Entry<Long, TablaTopK> e : porCripto.entrySet()) {
+            TablaClasificacion previa = anterior.porCripto().get(e.getKey());
+            TablaClasificacion t = e.getValue().consumirModificada() || todas || previa == null
+                    ? tabla(e.getValue()) : previa;
+            tablasPorCripto.put(e.getKey(), t);
+            exacto &= t.isExacta();
+        }
+        publicado = new Publicado(tablaPatrimonio, Map.copyOf(tablasPorCripto), exacto);
+    }
+
+    private TablaClasificacion tabla(TablaTopK topK) {
+        List<TablaTopK.Entrada> primeras = topK.primeras(puestos);
+        List<PuestoClasificacion> lista = new ArrayList<>(primeras.size());
+        for (TablaTopK.Entrada e : primeras) {
+            SugerenciaUsuario u = busqueda.porId(e.idUsuario());
+            faltanNombres |= u == null && !busqueda.isListo();
+            lista.add(new PuestoClasificacion(lista.size() + 1, e.idUsuario(), u == null ? null : u.nombre(), e.valor()));
+        }
+        return new TablaClasificacion(List.copyOf(lista), Math.min(topK.exactos(), lista.size()), version);
+    }
+
+    /**
+     * Recorre las filas (ordenadas por usuario) y entrega las posiciones de cada usuario al terminar con él.
+     * Siempre de la primaria: las tablas se mantienen después solo con los cambios que llegan.
+     */
+    private void leer(String sql, MapSqlParameterSource parametros, Consumer<PosicionesUsuario> destino) {
+        Acumulador acumulador = new Acumulador(destino);
+        ContextoLectura.enPrimaria(() -> {
+            namedJdbcTemplate.query(sql, parametros, acumulador::fila);
+            return null;
+        });
+        acumulador.terminar();
+    }
+
+    private static final class Acumulador {
+
+        private final Consumer<PosicionesUsuario> destino;
+        private Long idUsuario;
+        private long fiat;
+        private Map<Long, Long> unidades = new HashMap<>();
+
+        Acumulador(Consumer<PosicionesUsuario> destino) {
+            this.destino = destino;
+        }
+
+        void fila(ResultSet rs) throws SQLException {
+            long id = rs.getLong(1);
+            if (idUsuario == null || idUsuario != id) {
+                terminar();
+                idUsuario = id;
+            }
+            long idCripto = rs.getLong(2);
+            BigDecimal cantidad = rs.getBigDecimal(3);
+            if (cantidad == null) {
+                return;
+            }
+            if (idCripto == 0) {
+                fiat = Importe.deDecimal(cantidad, Importe.ESCALA_FIAT);
+            } else {
+                unidades.put(idCripto, Importe.deDecimal(cantidad, Importe.ESCALA_CRIPTO));
+            }
+        }
+
+        void terminar() {
+            if (idUsuario != null) {
+                destino.accept(new PosicionesUsuario(idUsuario, fiat, unidades));
+                idUsuario = null;
+                fiat = 0L;
+                unidades = new HashMap<>();
+            }
+        }
+    }
+
+    private static <T> Set<T> drenar(Set<T> avisos) {
+        Set<T> recogidos = new HashSet<>();
+        for (T aviso : avisos) {
+            if (avisos.remove(aviso)) {
+                recogidos.add(aviso);
+            }
+        }
+        return recogidos;
+    }
+
+    private static Map<Long, Long> drenar(Map<Long, Long> avisos) {
+        Map<Long, Long> recogidos = new HashMap<>();
+        for (Map.Entry<Long, Long> e : avisos.entrySet()) {
+            if (avisos.remove(e.getKey(), e.getValue())) {
+                recogidos.put(e.getKey(), e.getValue());
+            }
+        }
+        return recogidos;
+    }
+
+    private void comprobarLista() {
+        if (!lista) {
+            throw new IllegalStateException("La clasificación de patrimonio aún no está calculada.");
+        }
+    }
+
+    private void trasCommit(Runnable aviso) {
+        if (!habilitada) {
+            return;
+        }
+        // Se registra después que los deltas de PatrimonioMaterializado, así que se ejecuta tras aplicarlos
+        TrasCommit.ejecutar(aviso);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.user_demo.data.clasificacion;
+
+import com.example.user_demo.data.model.Importe;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Los 'capacidad' usuarios con más valor de una clasificación, ordenados de mayor a menor
+ * (a igual valor, por ID), más una cota de lo que se ha quedado fuera.
+ *
+ * 'umbralFuera' es siempre mayor o igual que el valor de cualquier usuario que no está en la tabla:
+ * al expulsar al último se sube a su valor, y quien no entra por no superar al último también lo sube.
+ * Así, los puestos con valor por encima del umbral son exactos aunque la tabla no vea a todos los usuarios;
+ * cuando una bajada deja menos puestos exactos de los que se publican, hay que recalcular desde BD.
+ * Solo cuentan los valores mayores que cero (0 en el umbral = fuera no hay nadie con valor).
+ *
+ * No es thread-safe: ClasificacionPatrimonio lo protege con su cerrojo.
+ */
+final class TablaTopK {
+
+    record Entrada(long idUsuario, long valor) {
+    }
+
+    private static final Comparator<Entrada> ORDEN = Comparator.comparingLong(Entrada::valor).reversed()
+            .thenComparingLong(Entrada::idUsuario);
+
+    private final int capacidad;
+    private final TreeSet<Entrada> orden = new TreeSet<>(ORDEN);
+    private final Map<Long, Entrada> porUsuario = new HashMap<>();
+    private long umbralFuera;
+    private boolean modificada = true;
+
+    TablaTopK(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la clasificación debe ser mayor que cero.");
+        }
+        this.capacidad = capacidad;
+    }
+
+    int tamano() {
+        return orden.size();
+    }
+
+    long umbralFuera() {
+        return umbralFuera;
+    }
+
+    /**
+     * Mayor valor que puede tener cualquier usuario (esté o no en la tabla).
+     */
+    long cotaMaxima() {
+        return orden.isEmpty() ? umbralFuera : Math.max(orden.first().valor(), umbralFuera);
+    }
+
+    /**
+     * Nuevo valor (absoluto) del usuario; 0 o menos lo saca de la tabla.
+     */
+    void actualizar(long idUsuario, long valor) {
+        Entrada anterior = porUsuario.remove(idUsuario);
+        if (anterior != null) {
+            orden.remove(anterior);
+            modificada = true;
+        }
+        if (valor <= 0) {
+            return;
+        }
+        Entrada nueva = new Entrada(idUsuario, valor);
+        if (orden.size() < capacidad) {
+            insertar(nueva);
+            return;
+        }
+        Entrada ultima = orden.last();
+        if (ORDEN.compare(nueva, ultima) < 0) {
+            orden.remove(ultima);
+            porUsuario.remove(ultima.idUsuario());
+            umbralFuera = Math.max(umbralFuera, ultima.valor());
+            insertar(nueva);
+        } else if (valor > umbralFuera) {
+            umbralFuera = valor;
+            modificada = true; // Puede dejar de ser exacto algún puesto publicado
+        }
+    }
+
+    void quitar(long idUsuario) {
+        actualizar(idUsuario, 0L);
+    }
+
+    /**
+     * Los de fuera pueden haber ganado hasta 'delta' (ej. sube el precio de una cripto que quizá tienen).
+     */
+    void elevarUmbral(long delta) {
+        if (delta > 0) {
+            umbralFuera = Importe.sumar(umbralFuera, delta);
+            modificada = true;
+        }
+    }
+
+    /**
+     * Cuántos de los primeros puestos están por encima del umbral (y por tanto son exactos).
+     */
+    int exactos() {
+        int exactos = 0;
+        for (Entrada e : orden) {
+            if (e.valor() <= umbralFuera) {
+                break;
+            }
+            exactos++;
+        }
+        return exactos;
+    }
+
+    List<Long> usuarios() {
+        return new ArrayList<>(porUsuario.keySet());
+    }
+
+    List<Entrada> primeras(int n) {
+        List<Entrada> primeras = new ArrayList<>(Math.min(n, orden.size()));
+        for (Entrada e : orden) {
+            if (primeras.size() == n) {
+                break;
+            }
+            primeras.add(e);
+        }
+        return primeras;
+    }
+
+    /**
+     * @return true si ha cambiado desde la última llamada (para no volver a publicarla).
+     */
+    boolean consumirModificada() {
+        boolean antes = modificada;
+        modificada = false;
+        return antes;
+    }
+
+    private void insertar(Entrada e) {
+        orden.add(e);
+        porUsuario.put(e.idUsuario(), e);
+        modificada = true;
+    }
+}
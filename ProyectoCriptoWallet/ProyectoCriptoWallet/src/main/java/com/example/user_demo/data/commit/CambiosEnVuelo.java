@@ -0,0 +1,47 @@
+package com.example.user_demo.data.commit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuenta los cambios que una estructura en memoria tiene pendientes de aplicar tras el commit, para que
+ * pueda cargarse de BD sin cerrojo y saber si la lectura se cruzó con alguno (y repetirla).
+ *
+ * Uso: tomar una {@link Marca} antes de leer de BD y, con el cerrojo de la estructura ya cogido,
+ * comprobar {@link #estable(Marca)} antes de publicar lo leído. Los cambios se registran con
+ * {@link #trasCommit(Runnable)}, que los aplica con la semántica de {@link TrasCommit}.
+ */
+public class CambiosEnVuelo {
+
+    // Cambios registrados en transacciones aún sin terminar / ya aplicados (o descartados por rollback)
+    private final AtomicLong iniciados = new AtomicLong();
+    private final AtomicLong aplicados = new AtomicLong();
+
+    /**
+     * Registra un cambio que se ejecutará tras el commit de la transacción en curso (o ya, si no hay ninguna).
+     */
+    public void trasCommit(Runnable cambio) {
+        iniciados.incrementAndGet();
+        TrasCommit.ejecutar(cambio, aplicados::incrementAndGet);
+    }
+
+    /**
+     * @return Estado de los contadores antes de leer de BD.
+     */
+    public Marca marca() {
+        long a = aplicados.get(); // Primero los aplicados: así aplicados <= iniciados en la marca
+        return new Marca(a, iniciados.get());
+    }
+
+    /**
+     * @return true si al tomar la marca no había cambios en vuelo y desde entonces no ha empezado ni
+     * terminado ninguno, es decir, si lo leído de BD no se ha cruzado con ningún cambio.
+     */
+    public boolean estable(Marca marca) {
+        return marca.aplicados() == marca.iniciados()
+                && iniciados.get() == marca.iniciados()
+                && aplicados.get() == marca.aplicados();
+    }
+
+    public record Marca(long aplicados, long iniciados) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.user_demo.data.commit;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Ejecuta acciones cuando se confirma la transacción en curso, o en el momento si no hay ninguna.
+ *
+ * Todas las estructuras en memoria (índices, caches, avisos) pasan por aquí para que se comporten igual:
+ * - Se usa afterCompletion comprobando STATUS_COMMITTED, no afterCommit: lo que falle después del commit
+ *   se registra y no llega al llamante (la transacción ya está confirmada), y 'alTerminar' se puede
+ *   ejecutar también cuando se deshace.
+ * - Las acciones de una misma transacción se ejecutan en el orden en que se registraron.
+ */
+public final class TrasCommit {
+
+    private TrasCommit() {
+    }
+
+    /**
+     * Ejecuta 'accion' al confirmarse la transacción en curso (o ya, si no hay ninguna). Si se deshace, no se ejecuta.
+     */
+    public static void ejecutar(Runnable accion) {
+        ejecutar(accion, null);
+    }
+
+    /**
+     * Como {@link #ejecutar(Runnable)}, y además ejecuta 'alTerminar' (si no es null) cuando acaba la transacción
+     * tanto si se confirma como si se deshace, después de 'accion' y aunque esta falle.
+     */
+    public static void ejecutar(Runnable accion, Runnable alTerminar) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    terminar(status == STATUS_COMMITTED ? accion : null, alTerminar);
+                }
+            });
+        } else {
+            terminar(accion, alTerminar);
+        }
+    }
+
+    private static void terminar(Runnable accion, Runnable alTerminar) {
+        try {
+            if (accion != null) {
+                accion.run();
+            }
+        } finally {
+            if (alTerminar != null) {
+                alTerminar.run();
+            }
+        }
+    }
+}
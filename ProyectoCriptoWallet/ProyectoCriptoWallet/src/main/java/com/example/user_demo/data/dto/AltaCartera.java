@@ -0,0 +1,8 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Cuerpo de POST /api/usuarios/{id}/carteras.
+ * @param balanceInicial Dólares de la cartera nueva (0 si es null).
+ */
+public record AltaCartera(Double balanceInicial) {
+}
@@ -0,0 +1,9 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Cuerpo de POST /api/usuarios: el usuario y su primera cartera, como el formulario de alta.
+ * @param saldoInicial Dólares de la primera cartera (0 si es null).
+ * @param detalle Texto inicial del Historial (si es null, la fecha de alta).
+ */
+public record AltaUsuario(String nombre, String email, Double saldoInicial, String detalle) {
+}
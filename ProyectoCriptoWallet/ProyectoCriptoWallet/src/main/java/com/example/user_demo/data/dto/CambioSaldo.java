@@ -0,0 +1,11 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Evento "saldo" del stream de un usuario: variación de una posición de una de sus carteras
+ * tras una transferencia o una inversión ya confirmada.
+ * @param idCripto Cripto cuya cantidad cambia (nombre y precio, en el evento "precios").
+ * @param unidades Variación de la cantidad en unidades mínimas (negativa si sale).
+ * @param centimos Variación del efectivo en céntimos (negativa al invertir; 0 en transferencias).
+ */
+public record CambioSaldo(Long idCartera, Long idCripto, long unidades, long centimos) {
+}
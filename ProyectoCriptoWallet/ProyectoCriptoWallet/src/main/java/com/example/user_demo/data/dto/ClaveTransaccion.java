@@ -0,0 +1,10 @@
+package com.example.user_demo.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posición de una transacción en la paginación por (fecha, id) y tabla en la que está.
+ * @param archivada true si está en 'transacciones_archivo' (sin entidad Transaccion).
+ */
+public record ClaveTransaccion(Long idTransaccion, LocalDateTime fecha, boolean archivada) {
+}
@@ -0,0 +1,7 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Datos básicos de un usuario para la API REST (sin carteras, historial ni transacciones).
+ */
+public record FichaUsuario(Long idUsuario, String nombre, String email) {
+}
@@ -0,0 +1,15 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.EntradaHistorial;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del registro de actividad como fila plana (sin el usuario), para la API REST.
+ */
+public record FilaHistorial(Long idEntrada, LocalDateTime fecha, EntradaHistorial.Tipo tipo, String detalle) {
+
+    public static FilaHistorial de(EntradaHistorial entrada) {
+        return new FilaHistorial(entrada.getIdEntrada(), entrada.getFecha(), entrada.getTipo(), entrada.getDetalle());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.user_demo.data.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transacción como fila plana (sin entidades asociadas), para exportaciones y la API REST.
+ * @param unidades Unidades mínimas de cripto (ver Importe).
+ */
+public record FilaTransaccion(Long idTransaccion, LocalDateTime fecha, Long idUsuarioOrigen, Long idUsuarioDestino,
+                              String simbolo, long unidades) {
+}
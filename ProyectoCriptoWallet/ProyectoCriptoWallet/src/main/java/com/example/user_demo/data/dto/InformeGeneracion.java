@@ -0,0 +1,12 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Resultado de una generación de datos sintéticos (GeneradorDatos).
+ * @param primerUsuario ID del primer usuario generado (los generados son consecutivos).
+ * @param usuarios Usuarios creados, cada uno con su historial y al menos una cartera.
+ * @param criptos Criptomonedas creadas (además de las que ya hubiera).
+ * @param milisegundos Duración total de la carga.
+ */
+public record InformeGeneracion(long primerUsuario, long usuarios, long carteras, long activos, long transacciones,
+                                int criptos, long milisegundos) {
+}
@@ -0,0 +1,19 @@
+package com.example.user_demo.data.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva de usuarios.
+ * @param filasLeidas Filas de datos del CSV (sin cabecera ni líneas vacías).
+ * @param importados Usuarios creados, cada uno con su historial y su cartera.
+ * @param rechazadas Filas no importadas (formato, email repetido o ya registrado, bloque fallido).
+ * @param primerosRechazos Detalle de los primeros rechazos, como mucho ImportadorUsuarios.MAXIMO_RECHAZOS_DETALLADOS.
+ */
+public record InformeImportacion(long filasLeidas, long importados, long rechazadas, List<FilaRechazada> primerosRechazos) {
+
+    /**
+     * @param linea Número de línea en el CSV (la primera es 1).
+     */
+    public record FilaRechazada(long linea, String email, String motivo) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+
+import java.util.List;
+
+/**
+ * Evento "precios" del stream: el catálogo completo al conectarse y, después, solo las
+ * cotizaciones que han cambiado desde el evento anterior.
+ * @param version Versión del catálogo a la que corresponden los precios.
+ */
+public record InstantaneaPrecios(long version, List<CotizacionCripto> cotizaciones) {
+}
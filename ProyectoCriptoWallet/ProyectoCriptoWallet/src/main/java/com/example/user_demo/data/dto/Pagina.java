@@ -0,0 +1,18 @@
+package com.example.user_demo.data.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Página de un listado de la API REST. Sea cual sea la paginación del listado (número de página
+ * o cursor), 'siguiente' lleva los parámetros de consulta que hay que añadir a la misma URL
+ * para pedir la página siguiente.
+ * @param elementos Elementos de la página.
+ * @param siguiente Parámetros de la página siguiente, o null si esta es la última.
+ */
+public record Pagina<T>(List<T> elementos, Map<String, String> siguiente) {
+
+    public static <T> Pagina<T> ultima(List<T> elementos) {
+        return new Pagina<>(elementos, null);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Página del historial de transacciones de un usuario (paginación por cursor, de la más reciente a la más antigua).
+ * Para pedir la siguiente se pasan 'siguienteFecha' y 'siguienteId'; ambos son null en la última página.
+ * @param transacciones Transacciones de la página, con usuarios y cripto ya cargados.
+ * @param siguienteFecha Fecha de la última transacción de la página.
+ * @param siguienteId ID de la última transacción de la página (desempata fechas iguales).
+ */
+public record PaginaTransacciones(List<Transaccion> transacciones, LocalDateTime siguienteFecha, Long siguienteId) {
+
+    public boolean hasSiguiente() {
+        return siguienteId != null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Importe;
+
+/**
+ * Posición de una cripto dentro de una cartera del dashboard.
+ * @param unidades Unidades mínimas de 1e-8 (ver Importe).
+ */
+public record PanelActivo(Long idCripto, String simbolo, String nombre, long unidades) {
+
+    // Solo para mostrar
+    public double getCantidad() {
+        return Importe.unidadesADouble(unidades);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Importe;
+
+import java.util.List;
+
+/**
+ * Cartera tal como la muestra el dashboard.
+ * @param balanceCentimos Dinero fiat, en céntimos.
+ * @param patrimonioCentimos Fiat + valor de mercado de los activos, en céntimos.
+ * @param activos Activos de la cartera, en orden de alta.
+ */
+public record PanelCartera(Long idCartera, long balanceCentimos, long patrimonioCentimos, List<PanelActivo> activos) {
+
+    // Solo para mostrar (Thymeleaf: ${cartera.balanceTotal}, ${cartera.patrimonio})
+    public double getBalanceTotal() {
+        return Importe.centimosADouble(balanceCentimos);
+    }
+
+    public double getPatrimonio() {
+        return Importe.centimosADouble(patrimonioCentimos);
+    }
+}
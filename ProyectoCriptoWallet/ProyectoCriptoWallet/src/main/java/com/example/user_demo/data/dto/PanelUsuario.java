@@ -0,0 +1,29 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Importe;
+
+import java.util.List;
+
+/**
+ * Modelo de lectura del dashboard de un usuario: todo lo que pinta la página, ya cargado
+ * (la vista no toca entidades ni dispara cargas perezosas).
+ * @param tieneHistorial Si el usuario tiene fila de Historial.
+ * @param detalleHistorial Texto del Historial (puede ser null o vacío).
+ * @param carteras Carteras por ID, con su valoración y sus activos.
+ */
+public record PanelUsuario(Long idUsuario, String nombre, boolean tieneHistorial, String detalleHistorial,
+                           List<PanelCartera> carteras) {
+
+    public long patrimonioCentimos() {
+        long total = 0L;
+        for (PanelCartera cartera : carteras) {
+            total = Importe.sumar(total, cartera.patrimonioCentimos());
+        }
+        return total;
+    }
+
+    // Solo para mostrar
+    public double getBalanceTotal() {
+        return Importe.centimosADouble(patrimonioCentimos());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.user_demo.data.dto;
+
+import java.util.Map;
+
+/**
+ * Fiat y unidades por cripto de un usuario, sumando todas sus carteras.
+ * @param balanceCentimos Dinero fiat, en céntimos.
+ * @param unidadesPorCripto idCripto -> unidades mínimas (solo las mayores que cero).
+ */
+public record PosicionesUsuario(Long idUsuario, long balanceCentimos, Map<Long, Long> unidadesPorCripto) {
+}
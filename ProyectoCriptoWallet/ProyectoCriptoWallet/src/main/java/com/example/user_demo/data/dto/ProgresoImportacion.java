@@ -0,0 +1,7 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Avance de una importación masiva, notificado tras confirmar cada bloque.
+ */
+public record ProgresoImportacion(long filasLeidas, long importados, long rechazadas) {
+}
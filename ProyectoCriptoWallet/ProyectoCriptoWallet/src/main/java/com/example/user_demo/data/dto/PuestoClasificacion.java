@@ -0,0 +1,10 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Un puesto de una clasificación (ver ClasificacionPatrimonio).
+ * @param puesto Posición, empezando en 1.
+ * @param nombre Nombre del usuario, o null si el índice de búsqueda aún no lo tenía.
+ * @param valor Patrimonio en céntimos o unidades mínimas de la cripto, según la clasificación (ver Importe).
+ */
+public record PuestoClasificacion(int puesto, Long idUsuario, String nombre, long valor) {
+}
@@ -0,0 +1,24 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Transaccion;
+
+/**
+ * Resultado de una fila de un lote de transferencias.
+ * @param indice Posición de la fila en la lista de entrada.
+ * @param transaccion Transaccion creada, o null si la fila se rechazó.
+ * @param error Motivo del rechazo, o null si se realizó.
+ */
+public record ResultadoTransferencia(int indice, Transaccion transaccion, String error) {
+
+    public static ResultadoTransferencia ok(int indice, Transaccion transaccion) {
+        return new ResultadoTransferencia(indice, transaccion, null);
+    }
+
+    public static ResultadoTransferencia rechazada(int indice, String error) {
+        return new ResultadoTransferencia(indice, null, error);
+    }
+
+    public boolean isRealizada() {
+        return error == null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Cuerpo de POST /api/carteras/{idCartera}/activos (cantidad null: solo añade la cripto a la cartera)
+ * y de POST /api/carteras/{idCartera}/inversiones.
+ * @param cantidad Dólares de la cartera a invertir en la cripto.
+ */
+public record SolicitudInversion(Long idCripto, Double cantidad) {
+}
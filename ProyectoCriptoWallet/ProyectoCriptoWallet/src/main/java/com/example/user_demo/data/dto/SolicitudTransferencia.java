@@ -0,0 +1,12 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Una fila de una transferencia por lotes (mismos datos que realizarTransferencia).
+ * @param cantidad Importe en dólares a enviar.
+ */
+public record SolicitudTransferencia(Long origenId,
+                                     Long destinoId,
+                                     Long carteraOrigenId,
+                                     String criptoSimbolo,
+                                     Double cantidad) {
+}
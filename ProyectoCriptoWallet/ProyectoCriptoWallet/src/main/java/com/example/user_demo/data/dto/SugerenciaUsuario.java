@@ -0,0 +1,7 @@
+package com.example.user_demo.data.dto;
+
+/**
+ * Usuario propuesto por el autocompletado (destinatario de una transferencia, búsquedas).
+ */
+public record SugerenciaUsuario(Long idUsuario, String nombre, String email) {
+}
@@ -0,0 +1,27 @@
+package com.example.user_demo.data.dto;
+
+import java.util.List;
+
+/**
+ * Primeros puestos de una clasificación, tal como se publicaron en la última actualización.
+ * @param puestos Lista inmutable, de mayor a menor valor.
+ * @param exactos Cuántos de los primeros puestos están garantizados (nadie fuera de la lista puede superarlos).
+ * @param version Publicación en la que se calculó (crece con cada actualización).
+ */
+public record TablaClasificacion(List<PuestoClasificacion> puestos, int exactos, long version) {
+
+    /**
+     * false si algún puesto puede estar desplazado hasta el próximo recálculo completo.
+     */
+    public boolean isExacta() {
+        return exactos >= puestos.size();
+    }
+
+    /**
+     * Los n primeros puestos (vista de la misma lista, sin copiarla).
+     */
+    public TablaClasificacion primeros(int n) {
+        int hasta = Math.max(0, Math.min(n, puestos.size()));
+        return hasta == puestos.size() ? this : new TablaClasificacion(puestos.subList(0, hasta), Math.min(exactos, hasta), version);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Importe;
+
+/**
+ * Valor de una cartera calculado en BD (sin cargar activos ni criptos).
+ * @param idCartera ID de la cartera.
+ * @param balanceCentimos Dinero fiat, en céntimos.
+ * @param valorActivosCentimos Valor de mercado de sus activos, en céntimos.
+ */
+public record ValoracionCartera(Long idCartera, long balanceCentimos, long valorActivosCentimos) {
+
+    public long patrimonioCentimos() {
+        return Importe.sumar(balanceCentimos, valorActivosCentimos);
+    }
+
+    // Solo para mostrar (Thymeleaf: ${valoracion.patrimonio})
+    public double getPatrimonio() {
+        return Importe.centimosADouble(patrimonioCentimos());
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.user_demo.data.dto;
+
+import com.example.user_demo.data.model.Importe;
+
+/**
+ * Patrimonio total de un usuario (todas sus carteras) calculado en BD con una única consulta.
+ * @param idUsuario ID del usuario.
+ * @param balanceCentimos Suma del dinero fiat de sus carteras, en céntimos.
+ * @param valorActivosCentimos Suma del valor de mercado de sus activos, en céntimos.
+ */
+public record ValoracionUsuario(Long idUsuario, long balanceCentimos, long valorActivosCentimos) {
+
+    public long patrimonioCentimos() {
+        return Importe.sumar(balanceCentimos, valorActivosCentimos);
+    }
+
+    public double getPatrimonio() {
+        return Importe.centimosADouble(patrimonioCentimos());
+    }
+}
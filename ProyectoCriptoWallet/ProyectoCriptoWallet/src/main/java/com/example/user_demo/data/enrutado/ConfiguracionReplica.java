@@ -0,0 +1,71 @@
+package com.example.user_demo.data.enrutado;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Separa lecturas y escrituras cuando hay una réplica configurada (criptowallet.datos.replica.url).
+ * Sin esa propiedad la aplicación usa el DataSource único de spring.datasource.* como siempre.
+ *
+ * La primaria sale de spring.datasource.*; la réplica comparte driver y, si no se indican,
+ * usuario y contraseña. Ambos pools son Hikari independientes.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("criptowallet.datos.replica.url")
+public class ConfiguracionReplica {
+
+    @Bean
+    public DataSourceEnrutado dataSourceEnrutado(DataSourceProperties propiedades,
+                                                 LecturasTrasEscritura lecturas,
+                                                 @Value("${criptowallet.datos.replica.url}") String urlReplica,
+                                                 @Value("${criptowallet.datos.replica.username:}") String usuarioReplica,
+                                                 @Value("${criptowallet.datos.replica.password:}") String claveReplica,
+                                                 @Value("${criptowallet.datos.replica.pool-maximo:10}") int poolMaximo) {
+        HikariDataSource primaria = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaria.setPoolName("primaria");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(propiedades.determineDriverClassName())
+                .url(urlReplica)
+                .username(usuarioReplica.isEmpty() ? propiedades.determineUsername() : usuarioReplica)
+                .password(usuarioReplica.isEmpty() ? propiedades.determinePassword() : claveReplica)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        replica.setMaximumPoolSize(poolMaximo);
+
+        return new DataSourceEnrutado(primaria, replica, lecturas);
+    }
+
+    /**
+     * DataSource de la aplicación (JPA, JdbcTemplate, data.sql): la conexión física se elige en la
+     * primera sentencia, cuando ya se sabe si la transacción es de solo lectura.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceEnrutado enrutado) {
+        return new LazyConnectionDataSourceProxy(enrutado);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "criptowallet.datos.replica.vigilar-retraso", havingValue = "true", matchIfMissing = true)
+    public VigilanteReplica vigilanteReplica(DataSourceEnrutado enrutado,
+                                             @Value("${criptowallet.datos.replica.retraso-maximo-ms:2000}") long retrasoMaximoMs,
+                                             @Value("${criptowallet.datos.replica.latido-ms:500}") long intervaloMs) {
+        return new VigilanteReplica(
+                new JdbcTemplate(enrutado.getResolvedDataSources().get(DestinoDatos.PRIMARIA)),
+                new JdbcTemplate(enrutado.getResolvedDataSources().get(DestinoDatos.REPLICA)),
+                enrutado, retrasoMaximoMs, intervaloMs);
+    }
+}
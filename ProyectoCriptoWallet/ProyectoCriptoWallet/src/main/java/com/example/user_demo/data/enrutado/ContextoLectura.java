@@ -0,0 +1,72 @@
+package com.example.user_demo.data.enrutado;
+
+import java.util.function.Supplier;
+
+/**
+ * Usuario en cuyo nombre se atiende la petición actual (lo fija el interceptor web).
+ * DataSourceEnrutado lo consulta para mandar a la primaria las lecturas de quien acaba de escribir,
+ * y anota aquí si la transacción en curso lee de la réplica (para no cachear lo que lee).
+ * enPrimaria() obliga a leer de la primaria aunque la transacción sea readOnly.
+ */
+public final class ContextoLectura {
+
+    private static final ThreadLocal<Long> USUARIO = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> EN_REPLICA = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> SOLO_PRIMARIA = new ThreadLocal<>();
+
+    private ContextoLectura() {
+    }
+
+    public static void fijar(Long idUsuario) {
+        if (idUsuario == null) {
+            USUARIO.remove();
+        } else {
+            USUARIO.set(idUsuario);
+        }
+    }
+
+    public static Long usuario() {
+        return USUARIO.get();
+    }
+
+    public static void limpiar() {
+        USUARIO.remove();
+    }
+
+    /**
+     * Ejecuta 'lectura' sacando de la primaria las conexiones que pida, aunque sus transacciones sean readOnly.
+     * Para las cargas que siembran estado en memoria que dura: leídas de una réplica retrasada, se
+     * quedarían desfasadas hasta que algo las corrija. Una transacción que ya tenga su conexión la conserva.
+     */
+    public static <T> T enPrimaria(Supplier<T> lectura) {
+        boolean anidada = SOLO_PRIMARIA.get() != null;
+        SOLO_PRIMARIA.set(Boolean.TRUE);
+        try {
+            return lectura.get();
+        } finally {
+            if (!anidada) {
+                SOLO_PRIMARIA.remove();
+            }
+        }
+    }
+
+    public static boolean soloPrimaria() {
+        return SOLO_PRIMARIA.get() != null;
+    }
+
+    /**
+     * @return true si la transacción en curso en este hilo ha sacado su conexión de la réplica.
+     */
+    public static boolean leeDeReplica() {
+        return EN_REPLICA.get() != null;
+    }
+
+    // Solo DataSourceEnrutado: desde que elige la réplica hasta que acaba la transacción
+    static void entrarEnReplica() {
+        EN_REPLICA.set(Boolean.TRUE);
+    }
+
+    static void salirDeReplica() {
+        EN_REPLICA.remove();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.user_demo.data.enrutado;
+
+import com.example.user_demo.data.commit.TrasCommit;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Envía a la réplica las conexiones de las transacciones @Transactional(readOnly = true) y a la
+ * primaria todo lo demás: escrituras, código sin transacción, lecturas de un usuario que acaba
+ * de escribir (LecturasTrasEscritura) y cargas dentro de ContextoLectura.enPrimaria(). Si la
+ * réplica se retrasa más de lo tolerado o no responde, VigilanteReplica la marca como no
+ * disponible y también se lee de la primaria.
+ *
+ * El gestor de transacciones pide la conexión antes de publicar el flag readOnly, así que
+ * este DataSource debe usarse detrás de un LazyConnectionDataSourceProxy: la conexión real
+ * se elige al ejecutar la primera sentencia, cuando el flag ya está fijado.
+ * Al elegir la réplica lo anota en ContextoLectura hasta el final de la transacción.
+ */
+public class DataSourceEnrutado extends AbstractRoutingDataSource {
+
+    private final LecturasTrasEscritura lecturas;
+    private volatile boolean replicaDisponible = true;
+
+    public DataSourceEnrutado(DataSource primaria, DataSource replica, LecturasTrasEscritura lecturas) {
+        this.lecturas = lecturas;
+        setTargetDataSources(Map.of(DestinoDatos.PRIMARIA, primaria, DestinoDatos.REPLICA, replica));
+        setDefaultTargetDataSource(primaria);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DestinoDatos destino = destinoActual();
+        if (destino == DestinoDatos.REPLICA && !ContextoLectura.leeDeReplica()) {
+            ContextoLectura.entrarEnReplica();
+            TrasCommit.ejecutar(() -> { }, ContextoLectura::salirDeReplica);
+        }
+        return destino;
+    }
+
+    /**
+     * Pool al que iría ahora una conexión pedida desde este hilo.
+     */
+    public DestinoDatos destinoActual() {
+        if (!replicaDisponible || ContextoLectura.soloPrimaria() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return DestinoDatos.PRIMARIA;
+        }
+        if (lecturas.debeLeerDePrimaria(ContextoLectura.usuario())) {
+            return DestinoDatos.PRIMARIA;
+        }
+        return DestinoDatos.REPLICA;
+    }
+
+    public void setReplicaDisponible(boolean replicaDisponible) {
+        this.replicaDisponible = replicaDisponible;
+    }
+
+    public boolean isReplicaDisponible() {
+        return replicaDisponible;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.user_demo.data.enrutado;
+
+/**
+ * Pool al que DataSourceEnrutado envía una conexión.
+ */
+public enum DestinoDatos {
+    PRIMARIA,
+    REPLICA
+}
@@ -0,0 +1,82 @@
+package com.example.user_demo.data.enrutado;
+
+import com.example.user_demo.data.commit.TrasCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lee-lo-que-escribes: recuerda qué usuarios han escrito (transferencias, inversiones, carteras)
+ * en los últimos 'lectura-propia-ms' para que sus lecturas vayan a la primaria y no vean
+ * una réplica que aún no tiene su cambio. El resto de usuarios sigue leyendo de la réplica.
+ * Como mucho una vez por ventana, la propia escritura barre las entradas ya caducadas: solo se
+ * recuerdan los usuarios que han escrito en las dos últimas ventanas.
+ */
+@Component
+public class LecturasTrasEscritura {
+
+    private final long ventanaMs;
+
+    // idUsuario -> instante (ms) de su última escritura confirmada
+    private final ConcurrentHashMap<Long, Long> ultimasEscrituras = new ConcurrentHashMap<>();
+    private final AtomicLong ultimoBarrido = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    public LecturasTrasEscritura(@Value("${criptowallet.datos.replica.lectura-propia-ms:5000}") long ventanaMs) {
+        if (ventanaMs < 0) {
+            throw new IllegalArgumentException("La ventana de lectura propia no puede ser negativa.");
+        }
+        this.ventanaMs = ventanaMs;
+    }
+
+    /**
+     * Anota que estos usuarios han escrito. Dentro de una transacción cuenta desde el commit;
+     * si se deshace no se anota nada.
+     */
+    public void escrituraDe(Long... idsUsuario) {
+        if (ventanaMs == 0 || idsUsuario == null) {
+            return;
+        }
+        TrasCommit.ejecutar(() -> anotar(idsUsuario));
+    }
+
+    private void anotar(Long[] idsUsuario) {
+        long ahora = System.currentTimeMillis();
+        for (Long id : idsUsuario) {
+            if (id != null) {
+                ultimasEscrituras.put(id, ahora);
+            }
+        }
+        long anterior = ultimoBarrido.get();
+        if (ahora - anterior >= ventanaMs && ultimoBarrido.compareAndSet(anterior, ahora)) {
+            // removeIf de ConcurrentHashMap solo quita la entrada si no se ha renovado entretanto
+            ultimasEscrituras.values().removeIf(instante -> ahora - instante >= ventanaMs);
+        }
+    }
+
+    /**
+     * @return true si el usuario escribió hace menos de la ventana configurada.
+     */
+    public boolean debeLeerDePrimaria(Long idUsuario) {
+        if (idUsuario == null) {
+            return false;
+        }
+        Long instante = ultimasEscrituras.get(idUsuario);
+        if (instante == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - instante < ventanaMs) {
+            return true;
+        }
+        ultimasEscrituras.remove(idUsuario, instante); // Caducada: solo si nadie la ha renovado entretanto
+        return false;
+    }
+
+    // Solo para mostrar
+    public int getUsuariosEnPrimaria() {
+        return ultimasEscrituras.size();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.user_demo.data.enrutado;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Mide el retraso de replicación con un latido: cada 'intervalo-ms' escribe la hora actual en la
+ * tabla latidos_replicacion de la primaria y lee de la réplica el último latido que le ha llegado.
+ * Si la diferencia supera 'retraso-maximo-ms' (o la réplica no responde) deja de enrutar
+ * lecturas a la réplica hasta que se ponga al día.
+ */
+public class VigilanteReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(VigilanteReplica.class);
+
+    private static final String CREAR = "CREATE TABLE IF NOT EXISTS latidos_replicacion (id INT PRIMARY KEY, instante_ms BIGINT NOT NULL)";
+    private static final String ACTUALIZAR = "UPDATE latidos_replicacion SET instante_ms = ? WHERE id = 1";
+    private static final String INSERTAR = "INSERT INTO latidos_replicacion (id, instante_ms) VALUES (1, ?)";
+    private static final String LEER = "SELECT instante_ms FROM latidos_replicacion WHERE id = 1";
+
+    private final JdbcTemplate primaria;
+    private final JdbcTemplate replica;
+    private final DataSourceEnrutado enrutado;
+    private final long retrasoMaximoMs;
+    private final long intervaloMs;
+
+    private volatile long retrasoMs = -1;
+    private volatile boolean activo;
+    private Thread hilo;
+
+    public VigilanteReplica(JdbcTemplate primaria, JdbcTemplate replica, DataSourceEnrutado enrutado,
+                            long retrasoMaximoMs, long intervaloMs) {
+        if (retrasoMaximoMs <= 0 || intervaloMs <= 0) {
+            throw new IllegalArgumentException("El retraso máximo y el intervalo del latido deben ser positivos.");
+        }
+        this.primaria = primaria;
+        this.replica = replica;
+        this.enrutado = enrutado;
+        this.retrasoMaximoMs = retrasoMaximoMs;
+        this.intervaloMs = intervaloMs;
+    }
+
+    @PostConstruct
+    void arrancar() {
+        activo = true;
+        hilo = Thread.ofVirtual().name("replica-latido").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activo = false;
+        hilo.interrupt();
+        hilo.join();
+    }
+
+    private void bucle() {
+        while (activo) {
+            comprobar(System.currentTimeMillis());
+            try {
+                Thread.sleep(intervaloMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Escribe un latido en la primaria, lee el último de la réplica y actualiza su disponibilidad.
+     * @return El retraso medido en ms, o -1 si no se pudo medir.
+     */
+    long comprobar(long ahoraMs) {
+        try {
+            primaria.execute(CREAR);
+            if (primaria.update(ACTUALIZAR, ahoraMs) == 0) {
+                primaria.update(INSERTAR, ahoraMs);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo escribir el latido de replicación en la primaria", e);
+            return retrasoMs; // Sin latido nuevo no sabemos más de la réplica que antes
+        }
+
+        long medido;
+        try {
+            List<Long> leidos = replica.queryForList(LEER, Long.class);
+            medido = leidos.isEmpty() ? -1 : Math.max(0, System.currentTimeMillis() - leidos.get(0));
+        } catch (DataAccessException e) {
+            log.debug("Réplica sin responder al latido", e);
+            medido = -1;
+        }
+        retrasoMs = medido;
+
+        boolean disponible = medido >= 0 && medido <= retrasoMaximoMs;
+        if (disponible != enrutado.isReplicaDisponible()) {
+            if (disponible) {
+                log.info("Réplica al día (retraso {} ms): vuelven a enrutarse las lecturas", medido);
+            } else {
+                log.warn("Réplica retrasada o caída (retraso {} ms, máximo {} ms): se lee de la primaria", medido, retrasoMaximoMs);
+            }
+            enrutado.setReplicaDisponible(disponible);
+        }
+        return medido;
+    }
+
+    // Solo para mostrar
+    public long getRetrasoMs() {
+        return retrasoMs;
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.user_demo.data.eventos;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.catalogo.OyentePrecios;
+import com.example.user_demo.data.commit.TrasCommit;
+import com.example.user_demo.data.dto.CambioSaldo;
+import com.example.user_demo.data.dto.InstantaneaPrecios;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reparto de eventos en directo (Server-Sent Events) a los dashboards abiertos:
+ * - "precios": al conectarse, el catálogo completo; después, las cotizaciones que cambian,
+ *   agrupadas cada 'intervalo-precios-ms' (la ingesta puede publicar muchas veces por segundo).
+ * - "saldo": cada CambioSaldo de las carteras del usuario, tras el commit de la transferencia o inversión.
+ *
+ * Cada evento se serializa una sola vez a la trama SSE en bytes, y esa misma trama se encola a todos
+ * sus suscriptores. Una conexión inactiva no tiene hilo: solo su cola (vacía) y su Canal. Cuando una
+ * cola recibe tramas, un hilo virtual las escribe y termina al vaciarla, así que un cliente lento solo
+ * retiene su propio hilo; si su cola llega a 'cola-maxima' se le desconecta (el EventSource del
+ * navegador reconecta y recibe de nuevo el catálogo completo). Un latido cada 'latido-ms' mantiene
+ * abiertas las conexiones a través de proxies y descubre las que el cliente ya cerró.
+ */
+@Component
+public class DifusorEventos implements OyentePrecios {
+
+    private static final Logger log = LoggerFactory.getLogger(DifusorEventos.class);
+
+    private static final byte[] LATIDO = ": latido\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Conexión de un suscriptor (en la web, el ResponseBodyEmitter de la petición).
+     */
+    public interface Canal {
+
+        /**
+         * Escribe una trama SSE completa. Puede bloquear si el cliente no lee.
+         */
+        void escribir(byte[] trama) throws IOException;
+
+        void cerrar();
+    }
+
+    /**
+     * Alta devuelta por suscribir: cancelar() la da de baja (idempotente).
+     */
+    public final class Suscripcion {
+
+        private final Long idUsuario;
+        private final Canal canal;
+        private final ArrayDeque<byte[]> cola = new ArrayDeque<>(4);
+        private boolean escribiendo;
+        private boolean cancelada;
+
+        private Suscripcion(Long idUsuario, Canal canal) {
+            this.idUsuario = idUsuario;
+            this.canal = canal;
+        }
+
+        public void cancelar() {
+            synchronized (this) {
+                if (cancelada) {
+                    return;
+                }
+                cancelada = true;
+                cola.clear();
+            }
+            // Dentro de computeIfPresent: atómico con las altas del mismo usuario (ver suscribir)
+            suscripciones.computeIfPresent(idUsuario, (id, delUsuario) -> {
+                if (delUsuario.remove(this)) {
+                    total.decrementAndGet();
+                }
+                return delUsuario.isEmpty() ? null : delUsuario;
+            });
+        }
+
+        private void encolar(byte[] trama) {
+            boolean lanzar = false;
+            boolean lento = false;
+            synchronized (this) {
+                if (cancelada) {
+                    return;
+                }
+                if (cola.size() >= colaMaxima) {
+                    lento = true;
+                } else {
+                    cola.add(trama);
+                    lanzar = !escribiendo; // Si ya hay un hilo vaciando la cola, se la lleva él
+                    escribiendo = true;
+                }
+            }
+            if (lento) {
+                // Cliente que no lee: se le cierra en lugar de acumular tramas sin límite
+                desconectadosLentos.incrementAndGet();
+                cancelar();
+                canal.cerrar();
+            } else if (lanzar) {
+                escritores.execute(this::vaciar);
+            }
+        }
+
+        private void vaciar() {
+            while (true) {
+                byte[] trama;
+                synchronized (this) {
+                    trama = cola.poll();
+                    if (trama == null) {
+                        escribiendo = false;
+                        return;
+                    }
+                }
+                try {
+                    canal.escribir(trama);
+                } catch (IOException | RuntimeException e) {
+                    cancelar(); // El cliente se ha ido: el contenedor completa la petición
+                    return;
+                }
+            }
+        }
+    }
+
+    private record Catalogo(long version, byte[] trama) {
+    }
+
+    private final CatalogoCriptomonedas catalogo;
+    private final ObjectMapper objectMapper;
+    private final Executor escritores;
+    private final boolean habilitado;
+    private final int maxSuscriptores;
+    private final int colaMaxima;
+    private final long intervaloPreciosMs;
+    private final long latidoMs;
+
+    private final ConcurrentHashMap<Long, Set<Suscripcion>> suscripciones = new ConcurrentHashMap<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger desconectadosLentos = new AtomicInteger();
+
+    // Cambios de precio aún sin difundir (idCripto -> última cotización), en orden de llegada
+    private final Map<Long, CotizacionCripto> preciosPendientes = new LinkedHashMap<>();
+    private long versionPendiente;
+    private volatile Catalogo catalogoSerializado;
+
+    private volatile boolean activo;
+    private Thread hilo;
+
+    @Autowired
+    public DifusorEventos(CatalogoCriptomonedas catalogo,
+                          ObjectMapper objectMapper,
+                          @Value("${criptowallet.eventos.habilitado:true}") boolean habilitado,
+                          @Value("${criptowallet.eventos.max-suscriptores:50000}") int maxSuscriptores,
+                          @Value("${criptowallet.eventos.cola-maxima:32}") int colaMaxima,
+                          @Value("${criptowallet.eventos.intervalo-precios-ms:1000}") long intervaloPreciosMs,
+                          @Value("${criptowallet.eventos.latido-ms:25000}") long latidoMs) {
+        this(catalogo, objectMapper, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("eventos-", 0).factory()),
+                habilitado, maxSuscriptores, colaMaxima, intervaloPreciosMs, latidoMs);
+    }
+
+    // Para los tests: escritores síncronos
+    DifusorEventos(CatalogoCriptomonedas catalogo, ObjectMapper objectMapper, Executor escritores, boolean habilitado,
+                   int maxSuscriptores, int colaMaxima, long intervaloPreciosMs, long latidoMs) {
+        if (maxSuscriptores <= 0 || colaMaxima <= 0 || intervaloPreciosMs <= 0 || latidoMs <= 0) {
+            throw new IllegalArgumentException("La configuración de los eventos en directo debe usar valores positivos.");
+        }
+        this.catalogo = catalogo;
+        this.objectMapper = objectMapper;
+        this.escritores = escritores;
+        this.habilitado = habilitado;
+        this.maxSuscriptores = maxSuscriptores;
+        this.colaMaxima = colaMaxima;
+        this.intervaloPreciosMs = intervaloPreciosMs;
+        this.latidoMs = latidoMs;
+    }
+
+    @PostConstruct
+    void arrancar() {
+        if (!habilitado) {
+            return;
+        }
+        activo = true;
+        catalogo.suscribir(this);
+        hilo = Thread.ofVirtual().name("difusor-eventos").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activo = false;
+        catalogo.desuscribir(this);
+        hilo.interrupt();
+        hilo.join();
+        for (Set<Suscripcion> delUsuario : suscripciones.values()) {
+            for (Suscripcion s : delUsuario) {
+                s.cancelar();
+                s.canal.cerrar();
+            }
+        }
+        if (escritores instanceof ExecutorService servicio) {
+            servicio.shutdown();
+        }
+    }
+
+    /**
+     * Da de alta un suscriptor del usuario y le encola el catálogo completo.
+     * @throws IllegalStateException Si los eventos están deshabilitados o se ha llegado a 'max-suscriptores'.
+     */
+    public Suscripcion suscribir(Long idUsuario, Canal canal) {
+        if (!habilitado) {
+            throw new IllegalStateException("Los eventos en directo están deshabilitados.");
+        }
+        if (total.incrementAndGet() > maxSuscriptores) {
+            total.decrementAndGet();
+            throw new IllegalStateException("Demasiadas conexiones de eventos abiertas.");
+        }
+        Suscripcion suscripcion = new Suscripcion(idUsuario, canal);
+        suscripciones.compute(idUsuario, (id, delUsuario) -> {
+            Set<Suscripcion> conjunto = delUsuario != null ? delUsuario : ConcurrentHashMap.newKeySet();
+            conjunto.add(suscripcion);
+            return conjunto;
+        });
+        suscripcion.encolar(tramaCatalogo());
+        return suscripcion;
+    }
+
+    /**
+     * Avisa a los suscriptores del usuario de un cambio en sus carteras, tras el commit de la
+     * transacción en curso (o ya, si no hay ninguna). Sin suscriptores no cuesta nada.
+     */
+    public void saldoCambiado(Long idUsuario, CambioSaldo cambio) {
+        if (!suscripciones.containsKey(idUsuario)) {
+            return;
+        }
+        TrasCommit.ejecutar(() -> {
+            Set<Suscripcion> delUsuario = suscripciones.get(idUsuario);
+            if (delUsuario == null) {
+                return;
+            }
+            byte[] trama = trama("saldo", cambio);
+            for (Suscripcion s : delUsuario) {
+                s.encolar(trama);
+            }
+        });
+    }
+
+    @Override
+    public void preciosActualizados(List<CotizacionCripto> cambios, long version) {
+        synchronized (preciosPendientes) {
+            for (CotizacionCripto c : cambios) {
+                preciosPendientes.put(c.idCripto(), c);
+            }
+            versionPendiente = version;
+        }
+    }
+
+    public int getSuscriptores() {
+        return total.get();
+    }
+
+    public int getDesconectadosLentos() {
+        return desconectadosLentos.get();
+    }
+
+    // --- INTERNOS ---
+
+    private void bucle() {
+        long siguienteLatido = System.currentTimeMillis() + latidoMs;
+        while (activo) {
+            try {
+                Thread.sleep(intervaloPreciosMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                difundirPrecios();
+                if (System.currentTimeMillis() >= siguienteLatido) {
+                    difundir(LATIDO);
+                    siguienteLatido = System.currentTimeMillis() + latidoMs;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Error difundiendo eventos en directo", e);
+            }
+        }
+    }
+
+    /**
+     * Difunde en un solo evento los cambios de precio acumulados desde la última vez.
+     */
+    void difundirPrecios() {
+        InstantaneaPrecios cambios;
+        synchronized (preciosPendientes) {
+            if (preciosPendientes.isEmpty()) {
+                return;
+            }
+            cambios = new InstantaneaPrecios(versionPendiente, new ArrayList<>(preciosPendientes.values()));
+            preciosPendientes.clear();
+        }
+        if (total.get() > 0) {
+            difundir(trama("precios", cambios));
+        }
+    }
+
+    void difundir(byte[] trama) {
+        for (Set<Suscripcion> delUsuario : suscripciones.values()) {
+            for (Suscripcion s : delUsuario) {
+                s.encolar(trama);
+            }
+        }
+    }
+
+    // El catálogo completo para los que se conectan: una serialización por versión
+    private byte[] tramaCatalogo() {
+        long version = catalogo.version();
+        Catalogo actual = catalogoSerializado;
+        if (actual == null || actual.version() != version) {
+            actual = new Catalogo(version, trama("precios", new InstantaneaPrecios(version, catalogo.todas())));
+            catalogoSerializado = actual;
+        }
+        return actual.trama();
+    }
+
+    private byte[] trama(String evento, Object datos) {
+        try {
+            // JSON sin saltos de línea: cabe en una sola línea "data:"
+            return ("event: " + evento + "\ndata: " + objectMapper.writeValueAsString(datos) + "\n\n")
+                    .getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + evento, e);
+        }
+    }
+}
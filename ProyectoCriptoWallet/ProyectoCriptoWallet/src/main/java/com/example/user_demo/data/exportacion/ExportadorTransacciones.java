@@ -0,0 +1,78 @@
+package com.example.user_demo.data.exportacion;
+
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.repository.TransaccionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exporta las transacciones de un rango de fechas sin cargarlas en memoria: recorre un cursor de solo avance
+ * sobre una proyección plana (FilaTransaccion) y escribe cada fila en la salida según llega.
+ * La memoria usada no depende del número de filas. Incluye los meses archivados que caigan en el rango.
+ */
+@Component
+public class ExportadorTransacciones {
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final TransaccionRepository transaccionRepository;
+    private final TransactionTemplate lecturaTemplate;
+
+    @Autowired
+    public ExportadorTransacciones(TransaccionRepository transaccionRepository, PlatformTransactionManager transactionManager) {
+        this.transaccionRepository = transaccionRepository;
+        this.lecturaTemplate = new TransactionTemplate(transactionManager);
+        this.lecturaTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Comprueba el rango antes de empezar a responder (una vez enviadas las cabeceras ya no se puede devolver un error).
+     * @throws IllegalArgumentException Si falta alguna fecha o el rango está invertido.
+     */
+    public void validarRango(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde == null || hasta == null || !desde.isBefore(hasta)) {
+            throw new IllegalArgumentException("Rango de fechas no válido.");
+        }
+    }
+
+    /**
+     * Escribe en 'salida' las transacciones con fecha en [desde, hasta), por fecha e ID. No cierra 'salida'.
+     * @return Número de filas exportadas.
+     * @throws IOException Si falla la escritura (ej. el cliente cortó la descarga).
+     */
+    public long exportar(LocalDateTime desde, LocalDateTime hasta, FormatoExportacion formato, OutputStream salida) throws IOException {
+        validarRango(desde, hasta);
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+        try {
+            Long filas = lecturaTemplate.execute(status -> {
+                try (Stream<FilaTransaccion> stream = transaccionRepository.streamFilasConArchivo(desde, hasta)) {
+                    formato.escribirCabecera(escritor);
+                    long n = 0;
+                    for (Iterator<FilaTransaccion> it = stream.iterator(); it.hasNext(); n++) {
+                        formato.escribirFila(escritor, it.next());
+                    }
+                    return n;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            escritor.flush();
+            return filas != null ? filas : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
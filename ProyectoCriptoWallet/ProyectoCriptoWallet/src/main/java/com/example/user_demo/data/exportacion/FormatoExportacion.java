@@ -0,0 +1,119 @@
+package com.example.user_demo.data.exportacion;
+
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.model.Importe;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Formatos de exportación de transacciones. Cada fila se escribe directamente en el Writer.
+ */
+public enum FormatoExportacion {
+
+    CSV("text/csv", "csv") {
+        @Override
+        void escribirCabecera(Writer salida) throws IOException {
+            salida.write("id_transaccion,fecha,id_usuario_origen,id_usuario_destino,simbolo,cantidad\n");
+        }
+
+        @Override
+        void escribirFila(Writer salida, FilaTransaccion fila) throws IOException {
+            salida.write(String.valueOf(fila.idTransaccion()));
+            salida.write(',');
+            salida.write(String.valueOf(fila.fecha()));
+            salida.write(',');
+            salida.write(String.valueOf(fila.idUsuarioOrigen()));
+            salida.write(',');
+            salida.write(String.valueOf(fila.idUsuarioDestino()));
+            salida.write(',');
+            salida.write(csv(fila.simbolo()));
+            salida.write(',');
+            salida.write(cantidad(fila));
+            salida.write('\n');
+        }
+    },
+
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        void escribirCabecera(Writer salida) {
+        }
+
+        @Override
+        void escribirFila(Writer salida, FilaTransaccion fila) throws IOException {
+            salida.write("{\"idTransaccion\":");
+            salida.write(String.valueOf(fila.idTransaccion()));
+            salida.write(",\"fecha\":\"");
+            salida.write(String.valueOf(fila.fecha()));
+            salida.write("\",\"idUsuarioOrigen\":");
+            salida.write(String.valueOf(fila.idUsuarioOrigen()));
+            salida.write(",\"idUsuarioDestino\":");
+            salida.write(String.valueOf(fila.idUsuarioDestino()));
+            salida.write(",\"simbolo\":\"");
+            salida.write(json(fila.simbolo()));
+            // La cantidad va como texto para no perder decimales en lectores que usan double
+            salida.write("\",\"cantidad\":\"");
+            salida.write(cantidad(fila));
+            salida.write("\"}\n");
+        }
+    };
+
+    private final String tipoContenido;
+    private final String extension;
+
+    FormatoExportacion(String tipoContenido, String extension) {
+        this.tipoContenido = tipoContenido;
+        this.extension = extension;
+    }
+
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Formato a partir de su nombre (csv, ndjson), sin distinguir mayúsculas.
+     * @throws IllegalArgumentException Si el formato no existe.
+     */
+    public static FormatoExportacion de(String nombre) {
+        for (FormatoExportacion formato : values()) {
+            if (formato.name().equalsIgnoreCase(nombre)) {
+                return formato;
+            }
+        }
+        throw new IllegalArgumentException("Formato de exportación no soportado: " + nombre);
+    }
+
+    abstract void escribirCabecera(Writer salida) throws IOException;
+
+    abstract void escribirFila(Writer salida, FilaTransaccion fila) throws IOException;
+
+    private static String cantidad(FilaTransaccion fila) {
+        return Importe.aDecimal(fila.unidades(), Importe.ESCALA_CRIPTO).toPlainString();
+    }
+
+    private static String csv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String valor) {
+        StringBuilder sb = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
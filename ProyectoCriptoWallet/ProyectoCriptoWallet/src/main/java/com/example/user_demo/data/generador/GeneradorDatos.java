@@ -0,0 +1,522 @@
+package com.example.user_demo.data.generador;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.dto.InformeGeneracion;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/**
+ * Generador de datos sintéticos para pruebas de escala (benchmarks y pruebas de carga): N usuarios con su
+ * historial, de 1 a 8 carteras cada uno (la mayoría, una), posiciones en varias criptos por cartera, cientos
+ * de criptomonedas y un histórico de transferencias con actividad de ley de potencias: unos pocos usuarios
+ * y criptos concentran la mayor parte de las transacciones.
+ *
+ * Escribe directamente con lotes JDBC (sin entidades), en bloques de BLOQUE filas, cada uno en su propia
+ * transacción y repartidos entre 'hilos' hilos. Cada bloque tiene su propio generador aleatorio derivado de
+ * la semilla, así que con la misma semilla y los mismos tamaños el resultado es el mismo sea cual sea el
+ * número de hilos (las fechas son relativas al momento de la carga). Los IDs van explícitos a continuación
+ * de los existentes, y al terminar se ajustan los contadores IDENTITY y las secuencias (H2 o MySQL).
+ *
+ * Pensado para ejecutarse al arrancar ('habilitado'), tras data.sql y antes de que se carguen los índices
+ * en memoria (búsqueda, tenedores, clasificación), y sin tráfico. Los saldos no salen de sumar el
+ * histórico: las transacciones son solo volumen para las consultas. Tampoco se genera registro de actividad.
+ *
+ * Medido en H2 en memoria con un núcleo y el esquema de Hibernate: 100.000 usuarios (con 167.000 carteras y
+ * 369.000 activos) en 13-17 s y 1 millón de transacciones en unos 28 s (~36.000 filas/s). El límite son los
+ * siete índices de 'transacciones' (PK, tres de FK y tres de consulta), no el envío: cargar con CSVREAD y
+ * aplazar los índices de consulta hasta el final no bajan de 27 s por millón, así que no se usan. Con ese
+ * ritmo el objetivo por defecto es 1 millón de usuarios y 5 millones de transacciones (unos 5 minutos);
+ * 50 millones son unos 25 minutos por núcleo. En MySQL los lotes ya salen como INSERT multi-fila
+ * (rewriteBatchedStatements); LOAD DATA LOCAL INFILE exigiría habilitar la carga de ficheros locales en el
+ * driver y en el servidor y no está medido.
+ */
+@Component
+public class GeneradorDatos {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDatos.class);
+
+    /**
+     * Filas (usuarios o transacciones) por bloque. Fijo: forma parte de la definición del dataset.
+     */
+    static final int BLOQUE = 10_000;
+
+    private static final int MAXIMO_CARTERAS = 8;
+    private static final double PROBABILIDAD_OTRA_CARTERA = 0.4;
+    private static final int MAXIMO_POSICIONES = 12;
+    private static final double MEDIA_POSICIONES = 2.5;
+    private static final double EXPONENTE_CRIPTOS = 1.1;
+    private static final double CARTERAS_SIN_FIAT = 0.2;
+    // allocationSize de las secuencias de Activo y Transaccion: Hibernate puede tener reservado un bloque entero
+    private static final int HOLGURA_SECUENCIA = 50;
+
+    // Flujos aleatorios independientes: cada bloque de cada fase tiene el suyo
+    private static final long FLUJO_CRIPTOS = 1;
+    private static final long FLUJO_ESTRUCTURA = 2;
+    private static final long FLUJO_CONTENIDO = 3;
+    private static final long FLUJO_TRANSACCIONES = 4;
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "Carla", "Pedro", "Marta", "Javier", "Lucía", "Sergio",
+            "Elena", "David", "Paula", "Jorge", "Sara", "Pablo", "Laura", "Diego", "Irene", "Raúl", "Nuria", "Iván"};
+    private static final String[] APELLIDOS = {"López", "Martín", "Díaz", "García", "Ruiz", "Sánchez", "Pérez", "Gómez",
+            "Fernández", "Moreno", "Jiménez", "Álvarez", "Romero", "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos",
+            "Gil", "Serrano"};
+
+    private static final String INSERTAR_CRIPTO = "INSERT INTO criptomonedas (id_cripto, nombre, simbolo, precio_actual, decimales) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERTAR_USUARIO = "INSERT INTO usuarios (id_usuario, nombre, email) VALUES (?, ?, ?)";
+    private static final String INSERTAR_HISTORIAL = "INSERT INTO historiales (id_usuario, detalle) VALUES (?, ?)";
+    private static final String INSERTAR_CARTERA = "INSERT INTO carteras (id_cartera, id_usuario, balance_total) VALUES (?, ?, ?)";
+    private static final String INSERTAR_ACTIVO = "INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (?, ?, ?, ?)";
+    private static final String INSERTAR_TRANSACCION = "INSERT INTO transacciones "
+            + "(id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String CRIPTOS = "SELECT id_cripto, precio_actual, decimales FROM criptomonedas ORDER BY id_cripto";
+
+    /**
+     * Criptos que pueden aparecer en carteras y transacciones, de la más a la menos popular (por ID:
+     * las existentes, como BTC, antes que las generadas).
+     */
+    private record Criptos(long[] ids, long[] precios, int[] decimales, double[] acumulada) {
+
+        int size() {
+            return ids.length;
+        }
+
+        // Ley de Zipf: la cripto i (desde 0) con probabilidad proporcional a 1 / (i + 1)^EXPONENTE_CRIPTOS
+        int popular(SplittableRandom aleatorio) {
+            double u = aleatorio.nextDouble() * acumulada[acumulada.length - 1];
+            int i = Arrays.binarySearch(acumulada, u);
+            return Math.min(i >= 0 ? i : -i - 1, ids.length - 1);
+        }
+
+        // Unidades que valen 'centimos' al precio de la cripto i (al menos la unidad mínima)
+        long unidades(int i, long centimos) {
+            return precios[i] > 0 ? Math.max(1, Importe.fiatAUnidades(centimos, precios[i], decimales[i])) : Importe.UNIDAD_CRIPTO;
+        }
+    }
+
+    /**
+     * Dónde empieza cada bloque de usuarios en carteras y activos (primera pasada, solo la estructura).
+     */
+    private record Estructura(long[] carterasAntes, long[] activosAntes, long carteras, long activos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogoCriptomonedas catalogo;
+    private final VersionesUsuario versiones;
+    private final boolean habilitado;
+    private final int usuarios;
+    private final long transacciones;
+    private final int criptos;
+    private final long semilla;
+    private final int hilos;
+    private final int diasHistorial;
+
+    @Autowired
+    public GeneradorDatos(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          CatalogoCriptomonedas catalogo,
+                          VersionesUsuario versiones,
+                          @Value("${criptowallet.generador.habilitado:false}") boolean habilitado,
+                          @Value("${criptowallet.generador.usuarios:1000000}") int usuarios,
+                          @Value("${criptowallet.generador.transacciones:5000000}") long transacciones,
+                          @Value("${criptowallet.generador.criptos:300}") int criptos,
+                          @Value("${criptowallet.generador.semilla:42}") long semilla,
+                          @Value("${criptowallet.generador.hilos:0}") int hilos,
+                          @Value("${criptowallet.generador.dias-historial:365}") int diasHistorial) {
+        if (hilos < 0 || diasHistorial <= 0) {
+            throw new IllegalArgumentException("La configuración del generador de datos no es válida.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogo = catalogo;
+        this.versiones = versiones;
+        this.habilitado = habilitado;
+        this.usuarios = usuarios;
+        this.transacciones = transacciones;
+        this.criptos = criptos;
+        this.semilla = semilla;
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.diasHistorial = diasHistorial;
+    }
+
+    // Tras data.sql y antes de ApplicationReadyEvent, cuando se cargan los índices en memoria
+    @EventListener(ApplicationStartedEvent.class)
+    void alArrancar() {
+        if (habilitado) {
+            generar(usuarios, transacciones, criptos, semilla);
+        }
+    }
+
+    /**
+     * Añade el dataset a lo que ya haya en BD.
+     * @param usuarios Usuarios a crear (al menos 2 si hay transacciones).
+     * @param transacciones Transacciones entre los usuarios creados.
+     * @param criptos Criptomonedas a crear, además de las existentes.
+     * @throws IllegalArgumentException Si los tamaños no son válidos.
+     * @throws IllegalStateException Si la BD no es H2 ni MySQL.
+     */
+    public InformeGeneracion generar(int usuarios, long transacciones, int criptos, long semilla) {
+        if (usuarios <= 0 || transacciones < 0 || criptos < 0 || (transacciones > 0 && usuarios < 2)) {
+            throw new IllegalArgumentException("Tamaños no válidos para el generador de datos.");
+        }
+        long inicio = System.currentTimeMillis();
+        boolean h2 = esH2();
+
+        long primerUsuario = maximo("usuarios", "id_usuario") + 1;
+        long baseCarteras = maximo("carteras", "id_cartera");
+        long baseCriptos = maximo("criptomonedas", "id_cripto");
+        long baseActivos = Math.max(maximo("activos", "id_activo"), siguienteDeSecuencia("activos_seq", h2));
+        long baseTransacciones = Math.max(maximo("transacciones", "id_transaccion"), siguienteDeSecuencia("transacciones_seq", h2));
+
+        generarCriptos(baseCriptos, criptos, semilla);
+        Criptos pool = leerCriptos();
+        if (pool.size() == 0) {
+            throw new IllegalArgumentException("Hace falta al menos una criptomoneda.");
+        }
+
+        int bloquesUsuarios = (int) ((usuarios + BLOQUE - 1) / BLOQUE);
+        Estructura estructura = estructura(usuarios, bloquesUsuarios, pool.size(), semilla);
+        enParalelo(bloquesUsuarios, b -> generarUsuarios((int) b, primerUsuario, usuarios, baseCarteras, baseActivos,
+                estructura, pool, semilla));
+        log.info("Generados {} usuarios, {} carteras y {} activos en {} ms", usuarios, estructura.carteras(),
+                estructura.activos(), System.currentTimeMillis() - inicio);
+
+        long bloquesTransacciones = (transacciones + BLOQUE - 1) / BLOQUE;
+        LocalDateTime desde = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusDays(diasHistorial);
+        enParalelo(bloquesTransacciones, b -> generarTransacciones(b, baseTransacciones, transacciones, primerUsuario,
+                usuarios, desde, pool, semilla));
+
+        reiniciarContadores(h2, primerUsuario + usuarios, baseCarteras + estructura.carteras() + 1, baseCriptos + criptos + 1,
+                baseActivos + estructura.activos() + 1 + HOLGURA_SECUENCIA,
+                baseTransacciones + transacciones + 1 + HOLGURA_SECUENCIA);
+        catalogo.recargar();
+        versiones.listaCambiada();
+
+        long milisegundos = System.currentTimeMillis() - inicio;
+        log.info("Datos sintéticos generados en {} ms: {} usuarios, {} criptos, {} transacciones",
+                milisegundos, usuarios, criptos, transacciones);
+        return new InformeGeneracion(primerUsuario, usuarios, estructura.carteras(), estructura.activos(),
+                transacciones, criptos, milisegundos);
+    }
+
+    // --- FASES ---
+
+    private void generarCriptos(long base, int numero, long semilla) {
+        SplittableRandom aleatorio = aleatorio(semilla, FLUJO_CRIPTOS, 0);
+        List<Object[]> filas = new ArrayList<>(numero);
+        for (long id = base + 1; id <= base + numero; id++) {
+            // Precios entre 0,01 y 100.000, uniformes en escala logarítmica
+            long precio = logUniforme(aleatorio, 1, 10_000_000);
+            filas.add(new Object[]{id, "Cripto sintética " + id, "S" + id,
+                    Importe.aDecimal(precio, Importe.ESCALA_FIAT), Importe.ESCALA_CRIPTO});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERTAR_CRIPTO, filas));
+    }
+
+    private Criptos leerCriptos() {
+        List<long[]> filas = jdbcTemplate.query(CRIPTOS, (rs, i) -> new long[]{
+                rs.getLong("id_cripto"),
+                Importe.deDecimal(rs.getBigDecimal("precio_actual"), Importe.ESCALA_FIAT),
+                rs.getObject("decimales") != null ? rs.getInt("decimales") : Importe.ESCALA_CRIPTO});
+        long[] ids = new long[filas.size()];
+        long[] precios = new long[filas.size()];
+        int[] decimales = new int[filas.size()];
+        double[] acumulada = new double[filas.size()];
+        double suma = 0;
+        for (int i = 0; i < filas.size(); i++) {
+            ids[i] = filas.get(i)[0];
+            precios[i] = filas.get(i)[1];
+            decimales[i] = (int) filas.get(i)[2];
+            suma += 1.0 / Math.pow(i + 1, EXPONENTE_CRIPTOS);
+            acumulada[i] = suma;
+        }
+        return new Criptos(ids, precios, decimales, acumulada);
+    }
+
+    // Primera pasada: solo cuántas carteras y posiciones tiene cada usuario, para dar IDs a cada bloque
+    private static Estructura estructura(int usuarios, int bloques, int numeroCriptos, long semilla) {
+        long[] carterasAntes = new long[bloques];
+        long[] activosAntes = new long[bloques];
+        long carteras = 0;
+        long activos = 0;
+        for (int b = 0; b < bloques; b++) {
+            carterasAntes[b] = carteras;
+            activosAntes[b] = activos;
+            SplittableRandom aleatorio = aleatorio(semilla, FLUJO_ESTRUCTURA, b);
+            int enBloque = Math.min(BLOQUE, usuarios - b * BLOQUE);
+            for (int u = 0; u < enBloque; u++) {
+                int numero = carterasDe(aleatorio);
+                carteras += numero;
+                for (int c = 0; c < numero; c++) {
+                    activos += posicionesDe(aleatorio, c == 0, numeroCriptos);
+                }
+            }
+        }
+        return new Estructura(carterasAntes, activosAntes, carteras, activos);
+    }
+
+    private void generarUsuarios(int bloque, long primerUsuario, int usuarios, long baseCarteras, long baseActivos,
+                                 Estructura estructura, Criptos pool, long semilla) {
+        SplittableRandom forma = aleatorio(semilla, FLUJO_ESTRUCTURA, bloque); // Mismos sorteos que en estructura()
+        SplittableRandom aleatorio = aleatorio(semilla, FLUJO_CONTENIDO, bloque);
+        int enBloque = Math.min(BLOQUE, usuarios - bloque * BLOQUE);
+        long idCartera = baseCarteras + estructura.carterasAntes()[bloque];
+        long idActivo = baseActivos + estructura.activosAntes()[bloque];
+
+        List<Object[]> filasUsuarios = new ArrayList<>(enBloque);
+        List<Object[]> filasHistoriales = new ArrayList<>(enBloque);
+        List<Object[]> filasCarteras = new ArrayList<>(enBloque * 2);
+        List<Object[]> filasActivos = new ArrayList<>(enBloque * 4);
+        int[] elegidas = new int[MAXIMO_POSICIONES];
+        for (int u = 0; u < enBloque; u++) {
+            long idUsuario = primerUsuario + (long) bloque * BLOQUE + u;
+            String nombre = NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " " + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+            filasUsuarios.add(new Object[]{idUsuario, nombre, email(idUsuario)});
+            filasHistoriales.add(new Object[]{idUsuario, "Historial de " + nombre});
+
+            int numeroCarteras = carterasDe(forma);
+            for (int c = 0; c < numeroCarteras; c++) {
+                long cartera = ++idCartera;
+                long fiat = aleatorio.nextDouble() < CARTERAS_SIN_FIAT ? 0 : logUniforme(aleatorio, 1, 10_000_000);
+                filasCarteras.add(new Object[]{cartera, idUsuario, Importe.aDecimal(fiat, Importe.ESCALA_FIAT)});
+
+                int posiciones = posicionesDe(forma, c == 0, pool.size());
+                for (int p = 0; p < posiciones; p++) {
+                    int i = pool.popular(aleatorio);
+                    while (contiene(elegidas, p, i)) {
+                        i = (i + 1) % pool.size(); // Sin repetir cripto en la misma cartera
+                    }
+                    elegidas[p] = i;
+                    // Posiciones que valen entre 1 y 50.000
+                    long unidades = pool.unidades(i, logUniforme(aleatorio, 100, 5_000_000));
+                    filasActivos.add(new Object[]{++idActivo, cartera, pool.ids()[i], Importe.aDecimal(unidades, Importe.ESCALA_CRIPTO)});
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERTAR_USUARIO, filasUsuarios);
+            jdbcTemplate.batchUpdate(INSERTAR_HISTORIAL, filasHistoriales);
+            jdbcTemplate.batchUpdate(INSERTAR_CARTERA, filasCarteras);
+            jdbcTemplate.batchUpdate(INSERTAR_ACTIVO, filasActivos);
+        });
+        log.debug("Generador: bloque {} de usuarios ({} usuarios)", bloque, enBloque);
+    }
+
+    private void generarTransacciones(long bloque, long baseTransacciones, long total, long primerUsuario, int usuarios,
+                                      LocalDateTime desde, Criptos pool, long semilla) {
+        SplittableRandom aleatorio = aleatorio(semilla, FLUJO_TRANSACCIONES, bloque);
+        long primera = bloque * BLOQUE; // Posición (desde 0) de la primera transacción del bloque
+        int enBloque = (int) Math.min(BLOQUE, total - primera);
+        long multiplicador = coprimo(usuarios);
+        long duracionSegundos = diasHistorial * 86_400L;
+
+        long[] origenes = new long[enBloque];
+        long[] destinos = new long[enBloque];
+        long[] idsCripto = new long[enBloque];
+        long[] unidades = new long[enBloque];
+        for (int t = 0; t < enBloque; t++) {
+            long origen = usuarioActivo(aleatorio, usuarios, multiplicador);
+            long destino = usuarioActivo(aleatorio, usuarios, multiplicador);
+            if (destino == origen) {
+                destino = (destino + 1) % usuarios; // Nunca a sí mismo
+            }
+            int i = pool.popular(aleatorio);
+            origenes[t] = primerUsuario + origen;
+            destinos[t] = primerUsuario + destino;
+            idsCripto[t] = pool.ids()[i];
+            unidades[t] = pool.unidades(i, logUniforme(aleatorio, 100, 1_000_000)); // Entre 1 y 10.000
+        }
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERTAR_TRANSACCION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int t) throws SQLException {
+                long posicion = primera + t;
+                ps.setLong(1, baseTransacciones + posicion + 1);
+                ps.setLong(2, origenes[t]);
+                ps.setLong(3, destinos[t]);
+                ps.setLong(4, idsCripto[t]);
+                ps.setBigDecimal(5, Importe.aDecimal(unidades[t], Importe.ESCALA_CRIPTO));
+                // Repartidas por igual en el periodo y en el mismo orden que los IDs, como las reales
+                ps.setTimestamp(6, Timestamp.valueOf(desde.plusSeconds(posicion * duracionSegundos / total)));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return enBloque;
+            }
+        }));
+        log.debug("Generador: bloque {} de transacciones", bloque);
+    }
+
+    private void reiniciarContadores(boolean h2, long usuario, long cartera, long cripto, long activo, long transaccion) {
+        if (h2) {
+            jdbcTemplate.execute("ALTER TABLE usuarios ALTER COLUMN id_usuario RESTART WITH " + usuario);
+            jdbcTemplate.execute("ALTER TABLE carteras ALTER COLUMN id_cartera RESTART WITH " + cartera);
+            jdbcTemplate.execute("ALTER TABLE criptomonedas ALTER COLUMN id_cripto RESTART WITH " + cripto);
+            jdbcTemplate.execute("ALTER SEQUENCE activos_seq RESTART WITH " + activo);
+            jdbcTemplate.execute("ALTER SEQUENCE transacciones_seq RESTART WITH " + transaccion);
+        } else {
+            // MySQL no tiene secuencias: Hibernate las emula con una tabla de una fila (next_val)
+            jdbcTemplate.execute("ALTER TABLE usuarios AUTO_INCREMENT = " + usuario);
+            jdbcTemplate.execute("ALTER TABLE carteras AUTO_INCREMENT = " + cartera);
+            jdbcTemplate.execute("ALTER TABLE criptomonedas AUTO_INCREMENT = " + cripto);
+            jdbcTemplate.update("UPDATE activos_seq SET next_val = ?", activo);
+            jdbcTemplate.update("UPDATE transacciones_seq SET next_val = ?", transaccion);
+        }
+    }
+
+    // --- INTERNOS ---
+
+    private boolean esH2() {
+        String producto = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if ("H2".equals(producto)) {
+            return true;
+        }
+        if ("MySQL".equals(producto)) {
+            return false;
+        }
+        throw new IllegalStateException("El generador de datos solo admite H2 y MySQL, no " + producto + ".");
+    }
+
+    private long maximo(String tabla, String columna) {
+        Long maximo = jdbcTemplate.queryForObject("SELECT MAX(" + columna + ") FROM " + tabla, Long.class);
+        return maximo != null ? maximo : 0L;
+    }
+
+    // Siguiente valor que daría la secuencia: los IDs generados van por encima para no chocar con los ya reservados
+    private long siguienteDeSecuencia(String secuencia, boolean h2) {
+        String sql = h2
+                ? "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER('" + secuencia + "')"
+                : "SELECT next_val FROM " + secuencia;
+        List<Long> valor = jdbcTemplate.queryForList(sql, Long.class);
+        return valor.isEmpty() || valor.get(0) == null ? 0L : valor.get(0);
+    }
+
+    /**
+     * Ejecuta tarea(0) ... tarea(bloques - 1) en 'hilos' hilos y espera a que terminen todas.
+     * Si alguna falla, cancela las pendientes y relanza su error.
+     */
+    private void enParalelo(long bloques, LongConsumer tarea) {
+        try (ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, Thread.ofPlatform().name("generador-", 0).factory())) {
+            List<Future<?>> pendientes = new ArrayList<>();
+            for (long b = 0; b < bloques; b++) {
+                long bloque = b;
+                pendientes.add(ejecutor.submit(() -> tarea.accept(bloque)));
+            }
+            for (Future<?> pendiente : pendientes) {
+                try {
+                    pendiente.get();
+                } catch (ExecutionException e) {
+                    ejecutor.shutdownNow();
+                    if (e.getCause() instanceof RuntimeException causa) {
+                        throw causa;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    ejecutor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Generación de datos interrumpida.", e);
+                }
+            }
+        }
+    }
+
+    static String email(long idUsuario) {
+        return "usuario" + idUsuario + "@sintetico.test";
+    }
+
+    // 1 cartera, y con probabilidad PROBABILIDAD_OTRA_CARTERA una más cada vez (geométrica)
+    private static int carterasDe(SplittableRandom aleatorio) {
+        int numero = 1;
+        while (numero < MAXIMO_CARTERAS && aleatorio.nextDouble() < PROBABILIDAD_OTRA_CARTERA) {
+            numero++;
+        }
+        return numero;
+    }
+
+    // Geométrica de media MEDIA_POSICIONES; la primera cartera de cada usuario, al menos una
+    private static int posicionesDe(SplittableRandom aleatorio, boolean principal, int numeroCriptos) {
+        int numero = (int) (-Math.log(1 - aleatorio.nextDouble()) * MEDIA_POSICIONES);
+        if (principal) {
+            numero = Math.max(1, numero);
+        }
+        return Math.min(numero, Math.min(MAXIMO_POSICIONES, numeroCriptos));
+    }
+
+    /**
+     * Usuario (desde 0) con actividad de ley de potencias: el de rango r sale con probabilidad ~ 1/r.
+     * El rango se reparte entre los IDs con una permutación (r * multiplicador mod n) para que los más
+     * activos no sean los primeros IDs.
+     */
+    private static long usuarioActivo(SplittableRandom aleatorio, int usuarios, long multiplicador) {
+        long rango = Math.min(usuarios, (long) Math.pow(usuarios + 1, aleatorio.nextDouble()));
+        return Math.floorMod((rango - 1) * multiplicador, (long) usuarios);
+    }
+
+    // Un número primo con 'n' cerca de n * (razón áurea - 1): la permutación mezcla bien los rangos
+    static long coprimo(long n) {
+        long m = Math.max(1, (long) (n * 0.6180339887));
+        while (mcd(m, n) != 1) {
+            m++;
+        }
+        return m;
+    }
+
+    private static long mcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    // Entre minimo y maximo, uniforme en escala logarítmica (muchos importes pequeños, pocos grandes)
+    private static long logUniforme(SplittableRandom aleatorio, long minimo, long maximo) {
+        return Math.round(Math.exp(Math.log(minimo) + aleatorio.nextDouble() * (Math.log(maximo) - Math.log(minimo))));
+    }
+
+    private static boolean contiene(int[] valores, int hasta, int valor) {
+        for (int i = 0; i < hasta; i++) {
+            if (valores[i] == valor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // SplitMix64 sobre (semilla, flujo, bloque): generadores independientes y reproducibles por bloque
+    private static SplittableRandom aleatorio(long semilla, long flujo, long bloque) {
+        long z = semilla + flujo * 0x9E3779B97F4A7C15L + bloque * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+}
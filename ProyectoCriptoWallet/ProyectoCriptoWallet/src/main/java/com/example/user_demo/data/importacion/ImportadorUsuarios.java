@@ -0,0 +1,300 @@
+package com.example.user_demo.data.importacion;
+
+import com.example.user_demo.data.busqueda.IndiceUsuarios;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.InformeImportacion;
+import com.example.user_demo.data.dto.InformeImportacion.FilaRechazada;
+import com.example.user_demo.data.dto.ProgresoImportacion;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Alta masiva de usuarios desde CSV (nombre,email[,saldoInicial[,detalle]]): cada fila crea el Usuario,
+ * su Historial y su primera Cartera, igual que el alta desde el formulario.
+ *
+ * El CSV se lee en una sola pasada. Las filas válidas se agrupan en bloques de 'tamano-bloque', y cada
+ * bloque va en su propia transacción:
+ * - Un SELECT ... IN descarta los emails ya registrados.
+ * - Los INSERT de usuarios, historiales y carteras van en lotes JDBC.
+ * - Un segundo SELECT ... IN recupera los IDs generados.
+ * Las tres tablas usan IDENTITY, así que Hibernate no podría agrupar esos INSERT.
+ *
+ * Si un bloque falla (ej. otro proceso registra el mismo email entre la comprobación y el INSERT)
+ * se descarta entero y se sigue con el resto. Los usuarios nuevos no están aún en el patrimonio
+ * materializado ni en el motor de ledger: ambos los cargan de BD la primera vez que se consultan.
+ */
+@Component
+public class ImportadorUsuarios {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportadorUsuarios.class);
+
+    public static final int MAXIMO_RECHAZOS_DETALLADOS = 100;
+
+    // Mismas reglas que UsuarioServiceImpl.crearUsuario
+    private static final Pattern EMAIL = Pattern.compile("^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$");
+    private static final int LONGITUD_MINIMA_NOMBRE = 3;
+
+    private static final String EXISTENTES = "SELECT email FROM usuarios WHERE email IN (:emails)";
+    private static final String IDS = "SELECT id_usuario, email FROM usuarios WHERE email IN (:emails)";
+    private static final String INSERTAR_USUARIO = "INSERT INTO usuarios (nombre, email) VALUES (?, ?)";
+    private static final String INSERTAR_HISTORIAL = "INSERT INTO historiales (id_usuario, detalle) VALUES (?, ?)";
+    private static final String INSERTAR_CARTERA = "INSERT INTO carteras (id_usuario, balance_total) VALUES (?, ?)";
+
+    private record FilaImportacion(long linea, String nombre, String email, long saldoCentimos, String detalle) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final IndiceUsuarios busqueda;
+    private final ClasificacionPatrimonio clasificacion;
+    private final VersionesUsuario versiones;
+    private final int tamanoBloque;
+
+    @Autowired
+    public ImportadorUsuarios(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              IndiceUsuarios busqueda,
+                              ClasificacionPatrimonio clasificacion,
+                              VersionesUsuario versiones,
+                              @Value("${criptowallet.importacion.tamano-bloque:1000}") int tamanoBloque) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque de la importación debe ser positivo.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.busqueda = busqueda;
+        this.clasificacion = clasificacion;
+        this.versiones = versiones;
+        this.tamanoBloque = tamanoBloque;
+    }
+
+    /**
+     * Importa todas las filas válidas del CSV. La primera línea se toma como cabecera si empieza por "nombre".
+     * @param progreso Se llama tras confirmar cada bloque (puede ser null).
+     * @throws IOException Si falla la lectura del CSV (los bloques ya confirmados se quedan).
+     */
+    public InformeImportacion importar(Reader csv, Consumer<ProgresoImportacion> progreso) throws IOException {
+        Estado estado = new Estado(progreso);
+        Set<String> vistos = new HashSet<>();
+        List<FilaImportacion> bloque = new ArrayList<>(tamanoBloque);
+
+        BufferedReader lector = csv instanceof BufferedReader b ? b : new BufferedReader(csv);
+        String linea;
+        long numero = 0;
+        while ((linea = lector.readLine()) != null) {
+            numero++;
+            if (linea.isBlank() || (numero == 1 && linea.trim().toLowerCase().startsWith("nombre"))) {
+                continue;
+            }
+            estado.filasLeidas++;
+            FilaImportacion fila;
+            try {
+                fila = parsear(numero, linea);
+            } catch (IllegalArgumentException e) {
+                estado.rechazar(numero, null, e.getMessage());
+                continue;
+            }
+            if (!vistos.add(fila.email())) {
+                estado.rechazar(numero, fila.email(), "Email repetido en el fichero.");
+                continue;
+            }
+            bloque.add(fila);
+            if (bloque.size() == tamanoBloque) {
+                importarBloque(bloque, estado);
+                bloque.clear();
+            }
+        }
+        if (!bloque.isEmpty()) {
+            importarBloque(bloque, estado);
+        }
+
+        log.info("Importación terminada: {} filas, {} usuarios creados, {} rechazadas",
+                estado.filasLeidas, estado.importados, estado.rechazadas);
+        return new InformeImportacion(estado.filasLeidas, estado.importados, estado.rechazadas, List.copyOf(estado.detalle));
+    }
+
+    private static FilaImportacion parsear(long numero, String linea) {
+        List<String> campos = campos(linea);
+        if (campos.size() < 2 || campos.size() > 4) {
+            throw new IllegalArgumentException("Se esperaban 2 a 4 columnas (nombre,email[,saldoInicial[,detalle]]).");
+        }
+        String nombre = campos.get(0).trim();
+        String email = campos.get(1).trim();
+        if (nombre.length() < LONGITUD_MINIMA_NOMBRE) {
+            throw new IllegalArgumentException("El nombre de usuario debe tener al menos 3 caracteres.");
+        }
+        if (!EMAIL.matcher(email).matches()) {
+            throw new IllegalArgumentException("El formato del email no es válido: " + email);
+        }
+        long saldo = 0;
+        if (campos.size() > 2 && !campos.get(2).isBlank()) {
+            try {
+                saldo = Importe.deDecimal(new BigDecimal(campos.get(2).trim()), Importe.ESCALA_FIAT);
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException("Saldo inicial no válido: " + campos.get(2));
+            }
+            if (saldo < 0) {
+                throw new IllegalArgumentException("El balance inicial no puede ser negativo.");
+            }
+        }
+        String detalle = campos.size() > 3 && !campos.get(3).isBlank() ? campos.get(3).trim() : "Cuenta importada";
+        return new FilaImportacion(numero, nombre, email, saldo, detalle);
+    }
+
+    /**
+     * Separa una línea CSV por comas respetando campos entre comillas dobles ("" = comilla literal).
+     */
+    static List<String> campos(String linea) {
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    private void importarBloque(List<FilaImportacion> bloque, Estado estado) {
+        List<FilaImportacion> nuevas = new ArrayList<>(bloque.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                nuevas.clear();
+                MapSqlParameterSource emails = new MapSqlParameterSource("emails", bloque.stream().map(FilaImportacion::email).toList());
+                Set<String> existentes = new HashSet<>(namedJdbcTemplate.queryForList(EXISTENTES, emails, String.class));
+                for (FilaImportacion fila : bloque) {
+                    if (!existentes.contains(fila.email())) {
+                        nuevas.add(fila);
+                    }
+                }
+                if (nuevas.isEmpty()) {
+                    return;
+                }
+
+                List<Object[]> usuarios = new ArrayList<>(nuevas.size());
+                for (FilaImportacion fila : nuevas) {
+                    usuarios.add(new Object[]{fila.nombre(), fila.email()});
+                }
+                jdbcTemplate.batchUpdate(INSERTAR_USUARIO, usuarios);
+
+                Map<String, Long> ids = new HashMap<>();
+                namedJdbcTemplate.query(IDS, new MapSqlParameterSource("emails", nuevas.stream().map(FilaImportacion::email).toList()),
+                        rs -> {
+                            ids.put(rs.getString("email"), rs.getLong("id_usuario"));
+                        });
+
+                List<Object[]> historiales = new ArrayList<>(nuevas.size());
+                List<Object[]> carteras = new ArrayList<>(nuevas.size());
+                List<SugerenciaUsuario> altas = new ArrayList<>(nuevas.size());
+                List<Long> conSaldo = new ArrayList<>();
+                for (FilaImportacion fila : nuevas) {
+                    Long id = ids.get(fila.email());
+                    historiales.add(new Object[]{id, fila.detalle()});
+                    carteras.add(new Object[]{id, Importe.aDecimal(fila.saldoCentimos(), Importe.ESCALA_FIAT)});
+                    altas.add(new SugerenciaUsuario(id, fila.nombre(), fila.email()));
+                    if (fila.saldoCentimos() > 0) {
+                        conSaldo.add(id);
+                    }
+                }
+                jdbcTemplate.batchUpdate(INSERTAR_HISTORIAL, historiales);
+                jdbcTemplate.batchUpdate(INSERTAR_CARTERA, carteras);
+                busqueda.usuariosCreados(altas); // Al autocompletado tras el commit del bloque
+                clasificacion.usuariosCambiados(conSaldo.toArray(Long[]::new));
+                versiones.listaCambiada();
+            });
+        } catch (DataAccessException e) {
+            log.warn("Bloque de {} usuarios descartado (líneas {}-{})", bloque.size(),
+                    bloque.get(0).linea(), bloque.get(bloque.size() - 1).linea(), e);
+            for (FilaImportacion fila : bloque) {
+                estado.rechazar(fila.linea(), fila.email(), "Bloque descartado: " + e.getMostSpecificCause().getMessage());
+            }
+            estado.avisar();
+            return;
+        }
+
+        Set<String> importadas = new HashSet<>();
+        for (FilaImportacion fila : nuevas) {
+            importadas.add(fila.email());
+        }
+        for (FilaImportacion fila : bloque) {
+            if (!importadas.contains(fila.email())) {
+                estado.rechazar(fila.linea(), fila.email(), "El email '" + fila.email() + "' ya está registrado en el sistema.");
+            }
+        }
+        estado.importados += nuevas.size();
+        estado.avisar();
+    }
+
+    /**
+     * Contadores de una importación en curso.
+     */
+    private static final class Estado {
+        private final Consumer<ProgresoImportacion> progreso;
+        private final List<FilaRechazada> detalle = new ArrayList<>();
+        private long filasLeidas;
+        private long importados;
+        private long rechazadas;
+
+        private Estado(Consumer<ProgresoImportacion> progreso) {
+            this.progreso = progreso;
+        }
+
+        private void rechazar(long linea, String email, String motivo) {
+            rechazadas++;
+            if (detalle.size() < MAXIMO_RECHAZOS_DETALLADOS) {
+                detalle.add(new FilaRechazada(linea, email, motivo));
+            }
+        }
+
+        private void avisar() {
+            log.debug("Importación: {} filas leídas, {} usuarios creados, {} rechazadas", filasLeidas, importados, rechazadas);
+            if (progreso != null) {
+                progreso.accept(new ProgresoImportacion(filasLeidas, importados, rechazadas));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.user_demo.data.ledger;
+
+import com.example.user_demo.data.model.Transaccion;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cambio pendiente de persistir por el hilo escritor de un shard.
+ * Los cambios de cantidad se guardan como deltas, así cada escritura es independiente del resto.
+ */
+final class Escritura {
+
+    enum Tipo { DEBITO, CREDITO, REEMBOLSO, BARRERA }
+
+    final Tipo tipo;
+    final Posicion posicion;
+    final long delta;
+    final Transferencia transferencia;
+    final long cantidadTras; // Cantidad de la posición tras aplicar este cambio en el shard
+    final CompletableFuture<Transaccion> hecho = new CompletableFuture<>();
+
+    // Lo rellena la persistencia dentro de la transacción y se publica tras el commit
+    Transaccion transaccion;
+    Long idActivoCreado;
+    Long idPendiente; // TransferenciaPendiente insertada con un débito
+
+    private Escritura(Tipo tipo, Posicion posicion, long delta, Transferencia transferencia) {
+        this.tipo = tipo;
+        this.posicion = posicion;
+        this.delta = delta;
+        this.transferencia = transferencia;
+        this.cantidadTras = posicion != null ? posicion.cantidad : 0L;
+    }
+
+    /**
+     * Usuario dueño de la posición: el origen en débitos y reembolsos, el destino en créditos.
+     */
+    Long idUsuario() {
+        return tipo == Tipo.CREDITO ? transferencia.destinoId() : transferencia.origenId();
+    }
+
+    // Se construyen en el hilo del shard justo después de cambiar posicion.cantidad
+    static Escritura debito(Posicion posicion, Transferencia t) {
+        return new Escritura(Tipo.DEBITO, posicion, -t.unidades(), t);
+    }
+
+    static Escritura credito(Posicion posicion, Transferencia t) {
+        return new Escritura(Tipo.CREDITO, posicion, t.unidades(), t);
+    }
+
+    static Escritura reembolso(Posicion posicion, Transferencia t) {
+        return new Escritura(Tipo.REEMBOLSO, posicion, t.unidades(), t);
+    }
+
+    static Escritura barrera() {
+        return new Escritura(Tipo.BARRERA, null, 0L, null);
+    }
+}
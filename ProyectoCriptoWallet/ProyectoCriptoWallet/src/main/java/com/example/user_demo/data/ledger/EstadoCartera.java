@@ -0,0 +1,27 @@
+package com.example.user_demo.data.ledger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copia en memoria de una cartera: su propietario y sus posiciones por criptomoneda.
+ * Pertenece a un único shard y solo se modifica desde su hilo.
+ */
+final class EstadoCartera {
+
+    final Long idCartera;
+    final Long idUsuario;
+    final Map<Long, Posicion> posiciones = new HashMap<>();
+
+    EstadoCartera(Long idCartera, Long idUsuario) {
+        this.idCartera = idCartera;
+        this.idUsuario = idUsuario;
+    }
+
+    /**
+     * Devuelve la posición de la cripto, creándola vacía si la cartera aún no la tenía.
+     */
+    Posicion posicion(Long idCripto) {
+        return posiciones.computeIfAbsent(idCripto, id -> new Posicion(idCartera, id, null, 0L));
+    }
+}
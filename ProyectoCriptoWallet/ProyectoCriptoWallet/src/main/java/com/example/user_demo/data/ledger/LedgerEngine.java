@@ -0,0 +1,240 @@
+package com.example.user_demo.data.ledger;
+
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.commit.TrasCommit;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Transaccion;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.CarteraRepository;
+import com.example.user_demo.data.repository.UsuarioRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de ledger en memoria (modo "engine" de las transferencias).
+ *
+ * Las carteras se reparten entre N shards por su ID. Cada shard aplica débitos y créditos
+ * de Activo en memoria con un único hilo y los persiste de forma asíncrona, en orden y por lotes.
+ * Una transferencia resta en el shard de la cartera origen y, una vez persistido el débito,
+ * suma en el shard de la cartera destino, donde también se registra la Transaccion.
+ * Entre ambas mitades la transferencia queda en la tabla transferencias_pendientes (se escribe
+ * con el débito y se borra con el crédito): las que sigan ahí al arrancar se acreditan de nuevo.
+ *
+ * Está desactivado por defecto (criptowallet.ledger.habilitado=false).
+ */
+@Component
+@DependsOn("semillaSecuencias") // Al arrancar puede acreditar pendientes: los ids nuevos ya deben estar libres
+public class LedgerEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngine.class);
+
+    // Lo que puede tardar en vaciarse el motor al parar antes de rendirse (lo pendiente se reanuda al arrancar)
+    private static final long ESPERA_VACIADO_MS = 30_000;
+
+    private final LedgerPersistencia persistencia;
+    private final UsuarioRepository usuarioRepository;
+    private final CarteraRepository carteraRepository;
+
+    private final boolean habilitado;
+    private final int numShards;
+    private final int capacidadCola;
+    private final int tamanoLote;
+    private final long esperaMs;
+
+    // Usuario -> cartera que recibe sus transferencias (la primera que tenga)
+    private final ConcurrentHashMap<Long, InfoUsuario> usuarios = new ConcurrentHashMap<>();
+
+    // Mensajes y escrituras encolados en cualquier shard y aún sin terminar
+    private final AtomicLong mensajesEnCurso = new AtomicLong();
+
+    private LedgerShard[] shards;
+
+    private record InfoUsuario(Long carteraPrincipal) {
+    }
+
+    @Autowired
+    public LedgerEngine(LedgerPersistencia persistencia,
+                        UsuarioRepository usuarioRepository,
+                        CarteraRepository carteraRepository,
+                        @Value("${criptowallet.ledger.habilitado:false}") boolean habilitado,
+                        @Value("${criptowallet.ledger.shards:4}") int numShards,
+                        @Value("${criptowallet.ledger.capacidad-cola:10000}") int capacidadCola,
+                        @Value("${criptowallet.ledger.tamano-lote:256}") int tamanoLote,
+                        @Value("${criptowallet.ledger.espera-ms:50}") long esperaMs) {
+        if (numShards <= 0 || capacidadCola <= 0 || tamanoLote <= 0) {
+            throw new IllegalArgumentException("La configuración del ledger debe usar valores positivos.");
+        }
+        this.persistencia = persistencia;
+        this.usuarioRepository = usuarioRepository;
+        this.carteraRepository = carteraRepository;
+        this.habilitado = habilitado;
+        this.numShards = numShards;
+        this.capacidadCola = capacidadCola;
+        this.tamanoLote = tamanoLote;
+        this.esperaMs = esperaMs;
+    }
+
+    @PostConstruct
+    void arrancar() {
+        if (!habilitado) {
+            return;
+        }
+        shards = new LedgerShard[numShards];
+        for (int i = 0; i < numShards; i++) {
+            shards[i] = new LedgerShard(i, this, persistencia, capacidadCola, tamanoLote);
+            shards[i].arrancar();
+        }
+        log.info("Motor de ledger arrancado con {} shards (cola {}, lote {})", numShards, capacidadCola, tamanoLote);
+        reanudarPendientes();
+    }
+
+    // Créditos que quedaron a medias en la ejecución anterior; si alguno ya no es posible, se reembolsa
+    private void reanudarPendientes() {
+        List<Transferencia> pendientes = persistencia.transferenciasPendientes();
+        for (Transferencia t : pendientes) {
+            t.resultado().whenComplete((tx, error) -> {
+                if (error != null) {
+                    log.warn("Transferencia pendiente {} reembolsada al reanudarla: {}", t.idPendiente(), error.getMessage());
+                }
+            });
+            acreditar(t);
+        }
+        if (!pendientes.isEmpty()) {
+            log.info("Reanudando {} transferencias debitadas y sin acreditar", pendientes.size());
+        }
+    }
+
+    /**
+     * Parada ordenada: primero ningún shard acepta transferencias nuevas, después se espera a que
+     * débitos, créditos y reembolsos en vuelo terminen en todos (un crédito puede ir a cualquier shard)
+     * y solo entonces se paran los hilos.
+     */
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (shards == null) {
+            return;
+        }
+        for (LedgerShard shard : shards) {
+            shard.cerrarEntrada();
+        }
+        long limite = System.currentTimeMillis() + ESPERA_VACIADO_MS;
+        while (mensajesEnCurso.get() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+        if (mensajesEnCurso.get() > 0) {
+            log.error("El motor de ledger se para con {} operaciones en curso; se reanudarán al arrancar", mensajesEnCurso.get());
+        }
+        for (LedgerShard shard : shards) {
+            shard.detener();
+        }
+    }
+
+    public boolean isActivo() {
+        return shards != null;
+    }
+
+    /**
+     * Encola una transferencia ya validada (argumentos, cripto y precio).
+     * La comprobación de propiedad y saldo se hace en el shard de la cartera origen.
+     * @param unidades Unidades mínimas de cripto a mover (ver Importe).
+     * @param fiatCentimos Importe original en céntimos (solo para el historial).
+     * @return Futuro que se completa con la Transaccion persistida, o con el error de negocio.
+     * @throws NoSuchElementException Si algún usuario no existe.
+     * @throws IllegalStateException Si el motor está desactivado o el destino no tiene carteras.
+     */
+    public CompletableFuture<Transaccion> transferir(Long origenId, Long destinoId, Long carteraOrigenId,
+                                                     CotizacionCripto cripto, long unidades, long fiatCentimos) {
+        if (!isActivo()) {
+            throw new IllegalStateException("El motor de ledger no está habilitado.");
+        }
+        infoUsuario(origenId, "Usuario Origen no encontrado.");
+        InfoUsuario destino = infoUsuario(destinoId, "Usuario Destino no encontrado.");
+        if (destino.carteraPrincipal() == null) {
+            throw new IllegalStateException("El usuario destino no tiene carteras creadas para recibir activos.");
+        }
+
+        Transferencia t = new Transferencia(origenId, destinoId, carteraOrigenId, destino.carteraPrincipal(),
+                cripto.idCripto(), cripto.simbolo(), cripto.nombre(), cripto.precioCentimos(), unidades, fiatCentimos, null,
+                new CompletableFuture<>());
+
+        LedgerShard shard = shardDe(carteraOrigenId);
+        if (!shard.encolarExterno(() -> shard.debitar(t), esperaMs)) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("El motor de ledger está saturado. Inténtalo de nuevo."));
+        }
+        return t.resultado();
+    }
+
+    /**
+     * Avisa de que una cartera se ha modificado fuera del motor (inversión, alta/baja de activos...).
+     * Si hay transacción en curso, se aplica tras el commit.
+     */
+    public void invalidarCartera(Long idCartera) {
+        if (!isActivo() || idCartera == null) {
+            return;
+        }
+        TrasCommit.ejecutar(() -> {
+            LedgerShard shard = shardDe(idCartera);
+            shard.encolarInterno(() -> shard.olvidar(idCartera));
+        });
+    }
+
+    /**
+     * Avisa de que han cambiado las carteras de un usuario (o se ha borrado).
+     */
+    public void invalidarUsuario(Long idUsuario) {
+        if (!isActivo() || idUsuario == null) {
+            return;
+        }
+        TrasCommit.ejecutar(() -> usuarios.remove(idUsuario));
+    }
+
+    // --- Mensajes entre shards ---
+
+    void mensajeEncolado() {
+        mensajesEnCurso.incrementAndGet();
+    }
+
+    void mensajeTerminado() {
+        mensajesEnCurso.decrementAndGet();
+    }
+
+    void acreditar(Transferencia t) {
+        LedgerShard shard = shardDe(t.carteraDestinoId());
+        shard.encolarInterno(() -> shard.acreditar(t));
+    }
+
+    void reembolsar(Transferencia t, Throwable causa) {
+        LedgerShard shard = shardDe(t.carteraOrigenId());
+        shard.encolarInterno(() -> shard.reembolsar(t, causa));
+    }
+
+    private LedgerShard shardDe(Long idCartera) {
+        return shards[(int) Math.floorMod(idCartera, (long) shards.length)];
+    }
+
+    private InfoUsuario infoUsuario(Long idUsuario, String mensajeError) {
+        InfoUsuario info = usuarios.get(idUsuario);
+        if (info == null) {
+            Usuario usuario = usuarioRepository.findById(idUsuario)
+                    .orElseThrow(() -> new NoSuchElementException(mensajeError));
+            List<Cartera> carteras = carteraRepository.findByUsuario(usuario);
+            info = new InfoUsuario(carteras.isEmpty() ? null : carteras.get(0).getIdCartera());
+            usuarios.put(idUsuario, info);
+        }
+        return info;
+    }
+}
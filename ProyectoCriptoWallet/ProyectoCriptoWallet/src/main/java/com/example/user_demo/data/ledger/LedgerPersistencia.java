@@ -0,0 +1,190 @@
+package com.example.user_demo.data.ledger;
+
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.CambioSaldo;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.model.*;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.ActivoRepository;
+import com.example.user_demo.data.repository.CarteraRepository;
+import com.example.user_demo.data.repository.TransaccionRepository;
+import com.example.user_demo.data.repository.TransferenciaPendienteRepository;
+import com.example.user_demo.data.services.HistorialService;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Acceso a BD del motor de ledger: carga el estado de una cartera y persiste
+ * lotes de escrituras en una única transacción.
+ *
+ * Cada débito deja una TransferenciaPendiente en su misma transacción, y el crédito o el reembolso
+ * la borra en la suya: lo que quede en la tabla al arrancar son créditos que hay que reanudar.
+ */
+@Component
+public class LedgerPersistencia {
+
+    private final ActivoRepository activoRepository;
+    private final CarteraRepository carteraRepository;
+    private final TransaccionRepository transaccionRepository;
+    private final TransferenciaPendienteRepository pendienteRepository;
+    private final HistorialService historialService;
+    private final PatrimonioMaterializado patrimonio;
+    private final IndiceTenedores tenedores;
+    private final ClasificacionPatrimonio clasificacion;
+    private final VersionesUsuario versiones;
+    private final DifusorEventos eventos;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate lecturaTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public LedgerPersistencia(ActivoRepository activoRepository,
+                              CarteraRepository carteraRepository,
+                              TransaccionRepository transaccionRepository,
+                              TransferenciaPendienteRepository pendienteRepository,
+                              HistorialService historialService,
+                              PatrimonioMaterializado patrimonio,
+                              IndiceTenedores tenedores,
+                              ClasificacionPatrimonio clasificacion,
+                              VersionesUsuario versiones,
+                              DifusorEventos eventos,
+                              PlatformTransactionManager transactionManager) {
+        this.activoRepository = activoRepository;
+        this.carteraRepository = carteraRepository;
+        this.transaccionRepository = transaccionRepository;
+        this.pendienteRepository = pendienteRepository;
+        this.historialService = historialService;
+        this.patrimonio = patrimonio;
+        this.tenedores = tenedores;
+        this.clasificacion = clasificacion;
+        this.versiones = versiones;
+        this.eventos = eventos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lecturaTemplate = new TransactionTemplate(transactionManager);
+        this.lecturaTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Lee de BD el propietario y los activos de una cartera.
+     * @return El estado cargado, o null si la cartera no existe.
+     */
+    EstadoCartera cargarCartera(Long idCartera) {
+        return lecturaTemplate.execute(status -> {
+            Cartera cartera = carteraRepository.findById(idCartera).orElse(null);
+            if (cartera == null) {
+                return null;
+            }
+            EstadoCartera estado = new EstadoCartera(idCartera, cartera.getUsuario().getIdUsuario());
+            for (Activo activo : activoRepository.findByCartera_IdCartera(idCartera)) {
+                Long idCripto = activo.getCriptomoneda().getIdCripto();
+                estado.posiciones.put(idCripto, new Posicion(idCartera, idCripto, activo.getIdActivo(), activo.getUnidades()));
+            }
+            return estado;
+        });
+    }
+
+    /**
+     * Transferencias debitadas y sin acreditar (la aplicación se paró o se cayó entre ambas mitades).
+     * Solo llevan lo que necesitan el crédito y el reembolso; su 'resultado' no lo espera nadie.
+     */
+    List<Transferencia> transferenciasPendientes() {
+        return lecturaTemplate.execute(status -> pendienteRepository.findAllByOrderByIdTransferenciaAsc().stream()
+                .map(p -> new Transferencia(p.getIdUsuarioOrigen(), p.getIdUsuarioDestino(), p.getIdCarteraOrigen(),
+                        p.getIdCarteraDestino(), p.getIdCripto(), p.getSimbolo(), p.getSimbolo(), 0L,
+                        p.getUnidades(), p.getFiatCentimos(), p.getIdTransferencia(), new CompletableFuture<>()))
+                .toList());
+    }
+
+    /**
+     * Persiste un lote completo en una transacción. Si algo falla no se aplica nada
+     * y la excepción llega al llamante, que decide si reintentar por separado.
+     * Los ids de activos nuevos solo se publican en la Posicion tras el commit.
+     */
+    void persistir(List<Escritura> lote) {
+        Map<Posicion, Long> creados = transactionTemplate.execute(status -> {
+            Map<Posicion, Long> nuevos = new IdentityHashMap<>();
+            for (Escritura e : lote) {
+                switch (e.tipo) {
+                    case DEBITO -> {
+                        sumar(e.posicion.idActivo, e.delta);
+                        e.idPendiente = registrarPendiente(e.transferencia);
+                    }
+                    case REEMBOLSO -> {
+                        sumar(e.posicion.idActivo, e.delta);
+                        terminarPendiente(e.transferencia);
+                    }
+                    case CREDITO -> {
+                        terminarPendiente(e.transferencia);
+                        Long idActivo = e.posicion.idActivo != null ? e.posicion.idActivo : nuevos.get(e.posicion);
+                        if (idActivo == null) {
+                            Activo activo = new Activo(entityManager.getReference(Cartera.class, e.posicion.idCartera),
+                                    entityManager.getReference(Criptomoneda.class, e.posicion.idCripto), e.delta);
+                            e.idActivoCreado = activoRepository.save(activo).getIdActivo();
+                            nuevos.put(e.posicion, e.idActivoCreado);
+                        } else {
+                            sumar(idActivo, e.delta);
+                        }
+                        e.transaccion = registrarTransaccion(e.transferencia);
+                    }
+                    case BARRERA -> { }
+                }
+                if (e.tipo != Escritura.Tipo.BARRERA) {
+                    patrimonio.moverUnidades(e.posicion.idCartera, e.posicion.idCripto, e.delta);
+                    tenedores.posicionCambiada(e.idUsuario(), e.posicion.idCripto, e.cantidadTras - e.delta, e.cantidadTras);
+                    clasificacion.usuariosCambiados(e.idUsuario());
+                    versiones.carterasCambiadas(e.idUsuario());
+                    eventos.saldoCambiado(e.idUsuario(), new CambioSaldo(e.posicion.idCartera, e.posicion.idCripto, e.delta, 0L));
+                }
+            }
+            return nuevos;
+        });
+        if (creados != null) {
+            creados.forEach((posicion, idActivo) -> posicion.idActivo = idActivo);
+        }
+    }
+
+    private void sumar(Long idActivo, long delta) {
+        if (idActivo == null || activoRepository.sumarCantidad(idActivo, delta) == 0) {
+            throw new IllegalStateException("El activo (ID: " + idActivo + ") ya no existe.");
+        }
+    }
+
+    private Long registrarPendiente(Transferencia t) {
+        return pendienteRepository.save(new TransferenciaPendiente(t.origenId(), t.destinoId(), t.carteraOrigenId(),
+                t.carteraDestinoId(), t.idCripto(), t.simbolo(), t.unidades(), t.fiatCentimos())).getIdTransferencia();
+    }
+
+    // Si ya no estaba pendiente, otro crédito o reembolso la ha cerrado: aplicarla otra vez duplicaría las unidades
+    private void terminarPendiente(Transferencia t) {
+        if (t.idPendiente() != null && pendienteRepository.borrar(t.idPendiente()) == 0) {
+            throw new IllegalStateException("La transferencia pendiente (ID: " + t.idPendiente() + ") ya estaba cerrada.");
+        }
+    }
+
+    private Transaccion registrarTransaccion(Transferencia t) {
+        Usuario origen = entityManager.find(Usuario.class, t.origenId());
+        Usuario destino = entityManager.find(Usuario.class, t.destinoId());
+        if (origen == null || destino == null) {
+            throw new NoSuchElementException("Usuario de la transferencia no encontrado.");
+        }
+        Criptomoneda cripto = entityManager.getReference(Criptomoneda.class, t.idCripto());
+
+        Transaccion guardada = transaccionRepository.save(new Transaccion(origen, destino, cripto, t.unidades()));
+        historialService.registrarTransferencia(origen, destino, t.simbolo(), t.fiatCentimos(), t.unidades());
+        return guardada;
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.user_demo.data.ledger;
+
+import com.example.user_demo.data.model.Importe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partición del motor de ledger. Un único hilo aplica en memoria todas las operaciones
+ * de sus carteras (sin locks) y un segundo hilo las persiste en orden y por lotes.
+ *
+ * La cola de entrada externa está acotada con un semáforo; los mensajes internos entre
+ * shards (créditos, reembolsos, invalidaciones) no consumen plaza para evitar bloqueos cruzados.
+ * Todo mensaje y toda escritura se cuentan en el motor desde que se encolan hasta que terminan,
+ * para que pueda parar cuando ya no queda nada en vuelo en ningún shard.
+ */
+final class LedgerShard {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerShard.class);
+
+    private final int indice;
+    private final LedgerEngine motor;
+    private final LedgerPersistencia persistencia;
+    private final int tamanoLote;
+
+    private final LinkedBlockingQueue<Runnable> buzon = new LinkedBlockingQueue<>();
+    private final Semaphore plazas;
+    private final LinkedBlockingQueue<Escritura> pendientes = new LinkedBlockingQueue<>();
+
+    // Solo lo toca el hilo del shard
+    private final Map<Long, EstadoCartera> carteras = new HashMap<>();
+
+    private final Thread hiloShard;
+    private final Thread hiloEscritor;
+    private volatile boolean activo = true;
+    private volatile boolean admiteExternas = true;
+    private volatile boolean degradado = false;
+
+    LedgerShard(int indice, LedgerEngine motor, LedgerPersistencia persistencia, int capacidadCola, int tamanoLote) {
+        this.indice = indice;
+        this.motor = motor;
+        this.persistencia = persistencia;
+        this.tamanoLote = tamanoLote;
+        this.plazas = new Semaphore(capacidadCola);
+        this.hiloShard = new Thread(this::bucleShard, "ledger-shard-" + indice);
+        this.hiloEscritor = new Thread(this::bucleEscritor, "ledger-escritor-" + indice);
+        this.hiloShard.setDaemon(true);
+        this.hiloEscritor.setDaemon(true);
+    }
+
+    void arrancar() {
+        hiloShard.start();
+        hiloEscritor.start();
+    }
+
+    /**
+     * Deja de aceptar transferencias nuevas; los mensajes entre shards se siguen procesando.
+     */
+    void cerrarEntrada() {
+        admiteExternas = false;
+    }
+
+    /**
+     * Para ambos hilos tras vaciar lo que ya estaba encolado. El motor solo lo llama cuando
+     * ningún shard tiene trabajo en vuelo: después ya no llegarían créditos de otros shards.
+     */
+    void detener() throws InterruptedException {
+        activo = false;
+        hiloShard.join();
+        hiloEscritor.join();
+    }
+
+    // --- ENTRADA ---
+
+    /**
+     * Encola una tarea externa respetando la capacidad del shard.
+     * @return false si la cola sigue llena tras esperar 'esperaMs'.
+     */
+    boolean encolarExterno(Runnable tarea, long esperaMs) {
+        // Se cuenta antes de mirar admiteExternas: o el motor ve el mensaje al esperar, o el mensaje ve el cierre
+        motor.mensajeEncolado();
+        try {
+            if (!admiteExternas || !plazas.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) {
+                motor.mensajeTerminado();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            motor.mensajeTerminado();
+            return false;
+        }
+        buzon.add(() -> {
+            plazas.release();
+            tarea.run();
+        });
+        return true;
+    }
+
+    void encolarInterno(Runnable tarea) {
+        motor.mensajeEncolado();
+        buzon.add(tarea);
+    }
+
+    private void escribirLuego(Escritura escritura) {
+        motor.mensajeEncolado();
+        pendientes.add(escritura);
+    }
+
+    // --- HILO DEL SHARD ---
+
+    private void bucleShard() {
+        while (activo || !buzon.isEmpty()) {
+            Runnable tarea;
+            try {
+                tarea = buzon.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (tarea == null) {
+                continue;
+            }
+            if (degradado) {
+                resincronizar();
+            }
+            try {
+                tarea.run();
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el shard {}", indice, e);
+            } finally {
+                motor.mensajeTerminado();
+            }
+        }
+    }
+
+    private EstadoCartera estado(Long idCartera) {
+        EstadoCartera estado = carteras.get(idCartera);
+        if (estado == null) {
+            estado = persistencia.cargarCartera(idCartera);
+            if (estado != null) {
+                carteras.put(idCartera, estado);
+            }
+        }
+        return estado;
+    }
+
+    /**
+     * Primera mitad de la transferencia: valida y resta en la cartera de origen.
+     * El crédito se encola en el shard destino solo cuando el débito ya está en BD.
+     */
+    void debitar(Transferencia t) {
+        EstadoCartera origen;
+        try {
+            origen = estado(t.carteraOrigenId());
+        } catch (RuntimeException e) {
+            t.resultado().completeExceptionally(e);
+            return;
+        }
+        if (origen == null) {
+            t.resultado().completeExceptionally(new NoSuchElementException("La cartera seleccionada no existe."));
+            return;
+        }
+        if (!origen.idUsuario.equals(t.origenId())) {
+            t.resultado().completeExceptionally(new SecurityException("Error de seguridad: La cartera no pertenece al usuario."));
+            return;
+        }
+        Posicion posicion = origen.posiciones.get(t.idCripto());
+        if (posicion == null) {
+            t.resultado().completeExceptionally(new IllegalArgumentException("No posees " + t.nombreCripto() + " en esta cartera."));
+            return;
+        }
+        if (posicion.cantidad < t.unidades()) {
+            t.resultado().completeExceptionally(new IllegalArgumentException(String.format(
+                    "Saldo insuficiente. Tienes %.4f %s (Valor: $%.2f), intentas enviar $%.2f",
+                    Importe.unidadesADouble(posicion.cantidad), t.simbolo(),
+                    Importe.centimosADouble(Importe.valorEnCentimos(posicion.cantidad, t.precioCentimos())),
+                    Importe.centimosADouble(t.fiatCentimos()))));
+            return;
+        }
+
+        posicion.cantidad -= t.unidades();
+        Escritura debito = Escritura.debito(posicion, t);
+        debito.hecho.whenComplete((ok, error) -> {
+            if (error != null) {
+                t.resultado().completeExceptionally(error);
+            } else {
+                motor.acreditar(t.conPendiente(debito.idPendiente));
+            }
+        });
+        escribirLuego(debito);
+    }
+
+    /**
+     * Segunda mitad: suma en la cartera destino y registra la Transaccion.
+     * Si no se puede, devuelve las unidades al origen.
+     */
+    void acreditar(Transferencia t) {
+        EstadoCartera destino;
+        try {
+            destino = estado(t.carteraDestinoId());
+        } catch (RuntimeException e) {
+            motor.reembolsar(t, e);
+            return;
+        }
+        if (destino == null) {
+            motor.reembolsar(t, new IllegalStateException("La cartera destino ya no existe."));
+            return;
+        }
+
+        Posicion posicion = destino.posicion(t.idCripto());
+        posicion.cantidad += t.unidades();
+        Escritura credito = Escritura.credito(posicion, t);
+        credito.hecho.whenComplete((tx, error) -> {
+            if (error != null) {
+                motor.reembolsar(t, error);
+            } else {
+                t.resultado().complete(tx);
+            }
+        });
+        escribirLuego(credito);
+    }
+
+    /**
+     * Deshace en el origen un débito cuyo crédito no pudo completarse.
+     */
+    void reembolsar(Transferencia t, Throwable causa) {
+        t.resultado().completeExceptionally(causa);
+        EstadoCartera origen = estado(t.carteraOrigenId());
+        Posicion posicion = origen != null ? origen.posiciones.get(t.idCripto()) : null;
+        if (posicion == null) {
+            log.error("No se pudo reembolsar {} unidades a la cartera {}: ya no existe", t.unidades(), t.carteraOrigenId());
+            return;
+        }
+        posicion.cantidad += t.unidades();
+        Escritura reembolso = Escritura.reembolso(posicion, t);
+        reembolso.hecho.whenComplete((ok, error) -> {
+            if (error != null) {
+                log.error("Reembolso fallido a la cartera {} ({} unidades)", t.carteraOrigenId(), t.unidades(), error);
+            }
+        });
+        escribirLuego(reembolso);
+    }
+
+    /**
+     * Descarta el estado en memoria de una cartera para que se relea de BD.
+     */
+    void olvidar(Long idCartera) {
+        esperarEscritor();
+        carteras.remove(idCartera);
+    }
+
+    private void resincronizar() {
+        degradado = false;
+        esperarEscritor();
+        carteras.clear();
+        log.warn("Shard {} resincronizado con la base de datos", indice);
+    }
+
+    /**
+     * Bloquea el hilo del shard hasta que todo lo encolado antes esté escrito (o descartado).
+     */
+    private void esperarEscritor() {
+        Escritura barrera = Escritura.barrera();
+        escribirLuego(barrera);
+        barrera.hecho.join();
+    }
+
+    // --- HILO ESCRITOR ---
+
+    private void bucleEscritor() {
+        List<Escritura> lote = new ArrayList<>(tamanoLote);
+        while (activo || hiloShard.isAlive() || !pendientes.isEmpty()) {
+            Escritura primera;
+            try {
+                primera = pendientes.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (primera == null) {
+                continue;
+            }
+            lote.add(primera);
+            pendientes.drainTo(lote, tamanoLote - 1);
+            escribir(lote);
+            lote.clear();
+        }
+    }
+
+    // Las escrituras se dan por terminadas después de completarlas: sus continuaciones (el crédito
+    // de un débito, el reembolso de un crédito fallido) ya se han encolado y contado
+    private void escribir(List<Escritura> lote) {
+        try {
+            escribirLote(lote);
+        } finally {
+            lote.forEach(e -> motor.mensajeTerminado());
+        }
+    }
+
+    private void escribirLote(List<Escritura> lote) {
+        try {
+            persistencia.persistir(lote);
+            lote.forEach(e -> e.hecho.complete(e.transaccion));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Lote de {} escrituras fallido en el shard {}, reintentando una a una", lote.size(), indice, e);
+        }
+        // Aislamos la escritura problemática para no arrastrar al resto del lote
+        for (Escritura e : lote) {
+            try {
+                persistencia.persistir(List.of(e));
+                e.hecho.complete(e.transaccion);
+            } catch (RuntimeException error) {
+                if (e.tipo == Escritura.Tipo.BARRERA) {
+                    e.hecho.complete(null);
+                } else {
+                    degradado = true;
+                    e.hecho.completeExceptionally(error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.user_demo.data.ledger;
+
+/**
+ * Cantidad de una criptomoneda dentro de una cartera, tal y como la ve el motor.
+ * 'cantidad' solo la toca el hilo del shard; 'idActivo' solo el hilo escritor.
+ */
+final class Posicion {
+
+    final Long idCartera;
+    final Long idCripto;
+    Long idActivo; // null mientras el activo no exista en BD
+    long cantidad; // Unidades mínimas de 1e-8
+
+    Posicion(Long idCartera, Long idCripto, Long idActivo, long cantidad) {
+        this.idCartera = idCartera;
+        this.idCripto = idCripto;
+        this.idActivo = idActivo;
+        this.cantidad = cantidad;
+    }
+}
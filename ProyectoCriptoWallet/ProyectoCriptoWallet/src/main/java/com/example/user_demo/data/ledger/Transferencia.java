@@ -0,0 +1,33 @@
+package com.example.user_demo.data.ledger;
+
+import com.example.user_demo.data.model.Transaccion;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Orden de transferencia ya validada a nivel de argumentos, tal y como circula entre shards.
+ * Importes en punto fijo (ver Importe): 'unidades' en 1e-8 y 'fiatCentimos' en céntimos.
+ * 'resultado' se completa cuando débito y crédito están persistidos.
+ * 'idPendiente' es la fila de TransferenciaPendiente escrita con el débito (null hasta entonces).
+ */
+record Transferencia(Long origenId,
+                     Long destinoId,
+                     Long carteraOrigenId,
+                     Long carteraDestinoId,
+                     Long idCripto,
+                     String simbolo,
+                     String nombreCripto,
+                     long precioCentimos,
+                     long unidades,
+                     long fiatCentimos,
+                     Long idPendiente,
+                     CompletableFuture<Transaccion> resultado) {
+
+    /**
+     * La misma transferencia, una vez persistido su débito.
+     */
+    Transferencia conPendiente(Long id) {
+        return new Transferencia(origenId, destinoId, carteraOrigenId, carteraDestinoId, idCripto, simbolo,
+                nombreCripto, precioCentimos, unidades, fiatCentimos, id, resultado);
+    }
+}
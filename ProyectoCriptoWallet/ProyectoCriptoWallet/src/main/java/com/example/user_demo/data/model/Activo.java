@@ -6,8 +6,10 @@ import jakarta.persistence.*;
 @Table(name = "activos")
 public class Activo {
 
+    // Secuencia con pool (no IDENTITY) para que Hibernate pueda agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "activos_seq")
+    @SequenceGenerator(name = "activos_seq", sequenceName = "activos_seq", initialValue = 1000, allocationSize = 50)
     private Long idActivo;
 
     // Relación con la Cartera (N:1)
@@ -20,16 +22,18 @@ public class Activo {
     @JoinColumn(name = "id_cripto", nullable = false)
     private Criptomoneda criptomoneda;
 
-    // EL DATO NUEVO: La cantidad exacta
-    private Double cantidad;
+    // EL DATO NUEVO: La cantidad exacta, en unidades mínimas de 1e-8 (ver Importe)
+    @Convert(converter = CantidadCriptoConverter.class)
+    @Column(precision = 38, scale = 8)
+    private long cantidad;
 
     public Activo() {
     }
 
-    public Activo(Cartera cartera, Criptomoneda criptomoneda, Double cantidad) {
+    public Activo(Cartera cartera, Criptomoneda criptomoneda, long unidades) {
         this.cartera = cartera;
         this.criptomoneda = criptomoneda;
-        this.cantidad = cantidad;
+        this.cantidad = unidades;
     }
 
     // Getters y Setters
@@ -39,6 +43,9 @@ public class Activo {
     public void setCartera(Cartera cartera) { this.cartera = cartera; }
     public Criptomoneda getCriptomoneda() { return criptomoneda; }
     public void setCriptomoneda(Criptomoneda criptomoneda) { this.criptomoneda = criptomoneda; }
-    public Double getCantidad() { return cantidad; }
-    public void setCantidad(Double cantidad) { this.cantidad = cantidad; }
+    public long getUnidades() { return cantidad; }
+    public void setUnidades(long unidades) { this.cantidad = unidades; }
+
+    // Solo para mostrar (Thymeleaf: ${activo.cantidad})
+    public double getCantidad() { return Importe.unidadesADouble(cantidad); }
 }
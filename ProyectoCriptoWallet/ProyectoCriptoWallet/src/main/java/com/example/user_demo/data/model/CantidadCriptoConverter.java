@@ -0,0 +1,23 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Guarda las cantidades cripto (long en unidades de 1e-8) como DECIMAL legible en BD.
+ */
+@Converter
+public class CantidadCriptoConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long unidades) {
+        return unidades == null ? null : Importe.aDecimal(unidades, Importe.ESCALA_CRIPTO);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal cantidad) {
+        return cantidad == null ? 0L : Importe.deDecimal(cantidad, Importe.ESCALA_CRIPTO);
+    }
+}
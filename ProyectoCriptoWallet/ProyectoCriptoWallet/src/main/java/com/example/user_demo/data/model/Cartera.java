@@ -1,12 +1,16 @@
 package com.example.user_demo.data.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
 @Table(name = "carteras")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "carteras")
 public class Cartera {
 
     @Id
@@ -18,7 +22,10 @@ public class Cartera {
     @JoinColumn(name = "id_usuario", nullable = false)
     private Usuario usuario;
 
-    private double balanceTotal; // Dinero Fiat (Dólares/Euros)
+    // Dinero Fiat (Dólares/Euros), en céntimos (ver Importe)
+    @Convert(converter = ImporteFiatConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long balanceTotal;
 
     // --- CAMBIO CLAVE: REEMPLAZAMOS @ManyToMany POR @OneToMany ---
     // Antes: Set<Criptomoneda> (Solo guardaba qué criptos tenías)
@@ -32,7 +39,7 @@ public class Cartera {
 
     public Cartera(Usuario usuario, double balanceTotal) {
         this.usuario = usuario;
-        this.balanceTotal = balanceTotal;
+        this.balanceTotal = Importe.centimosDesde(balanceTotal);
     }
 
     // --- Getters y Setters ---
@@ -53,12 +60,17 @@ public class Cartera {
         this.usuario = usuario;
     }
 
-    public double getBalanceTotal() {
+    public long getBalanceCentimos() {
         return balanceTotal;
     }
 
-    public void setBalanceTotal(double balanceTotal) {
-        this.balanceTotal = balanceTotal;
+    public void setBalanceCentimos(long balanceCentimos) {
+        this.balanceTotal = balanceCentimos;
+    }
+
+    // Solo para mostrar (Thymeleaf: ${cartera.balanceTotal})
+    public double getBalanceTotal() {
+        return Importe.centimosADouble(balanceTotal);
     }
 
     // Getter y Setter para la nueva lista de Activos
@@ -75,8 +87,8 @@ public class Cartera {
     /**
      * Nuevo helper: Añade un ACTIVO (Cripto + Cantidad)
      */
-    public void addActivo(Criptomoneda cripto, Double cantidad) {
-        Activo activo = new Activo(this, cripto, cantidad);
+    public void addActivo(Criptomoneda cripto, long unidades) {
+        Activo activo = new Activo(this, cripto, unidades);
         this.activos.add(activo);
     }
 
@@ -86,24 +98,30 @@ public class Cartera {
     }
 
     /**
-     * Calcula el valor total de la cartera sumando el dinero FIAT
+     * Calcula el valor total de la cartera (en céntimos) sumando el dinero FIAT
      * más el valor de mercado de todos los activos cripto.
-     * Thymeleaf lo usará como ${cartera.patrimonioEstimado}
      */
-    public Double getPatrimonioEstimado() {
-        double total = this.balanceTotal; // Empezamos con los dólares
+    public long getPatrimonioCentimos() {
+        long total = this.balanceTotal; // Empezamos con los dólares
 
         if (this.activos != null) {
             for (Activo activo : this.activos) {
-                if (activo.getCriptomoneda() != null && activo.getCriptomoneda().getPrecioActual() != null) {
+                if (activo.getCriptomoneda() != null && activo.getCriptomoneda().getPrecioCentimos() > 0) {
                     // Cantidad * Precio
-                    total += (activo.getCantidad() * activo.getCriptomoneda().getPrecioActual());
+                    total = Importe.sumar(total, Importe.valorEnCentimos(activo.getUnidades(), activo.getCriptomoneda().getPrecioCentimos()));
                 }
             }
         }
         return total;
     }
 
+    /**
+     * Thymeleaf lo usará como ${cartera.patrimonioEstimado}
+     */
+    public double getPatrimonioEstimado() {
+        return Importe.centimosADouble(getPatrimonioCentimos());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,12 +1,19 @@
 package com.example.user_demo.data.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
 @Table(name = "criptomonedas")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "criptomonedas")
+@NaturalIdCache(region = "criptomonedas-simbolo")
 public class Criptomoneda {
 
     @Id
@@ -14,10 +21,16 @@ public class Criptomoneda {
     private Long idCripto;
 
     private String nombre; // Ej: Bitcoin
+    @NaturalId
     private String simbolo; // Ej: BTC
 
-    // NUEVO CAMPO: Precio para calcular conversiones (Ej: 50000.0)
-    private Double precioActual;
+    // NUEVO CAMPO: Precio para calcular conversiones, en céntimos (Ej: 5000000 = $50000.00)
+    @Convert(converter = ImporteFiatConverter.class)
+    @Column(precision = 19, scale = 2)
+    private long precioActual;
+
+    // Decimales que admite la cripto (BTC 8 = satoshis). Null equivale al máximo (Importe.ESCALA_CRIPTO)
+    private Integer decimales;
 
     // 1:N con Transaccion (Mantenemos esto para el historial)
     @OneToMany(mappedBy = "criptomoneda", fetch = FetchType.LAZY)
@@ -31,10 +44,10 @@ public class Criptomoneda {
     public Criptomoneda() {
     }
 
-    public Criptomoneda(String nombre, String simbolo, Double precioActual) {
+    public Criptomoneda(String nombre, String simbolo, double precioActual) {
         this.nombre = nombre;
         this.simbolo = simbolo;
-        this.precioActual = precioActual;
+        this.precioActual = Importe.centimosDesde(precioActual);
     }
 
     // --- Getters y Setters ---
@@ -64,12 +77,25 @@ public class Criptomoneda {
     }
 
     // Getter y Setter del nuevo campo
-    public Double getPrecioActual() {
+    public long getPrecioCentimos() {
         return precioActual;
     }
 
-    public void setPrecioActual(Double precioActual) {
-        this.precioActual = precioActual;
+    public void setPrecioCentimos(long precioCentimos) {
+        this.precioActual = precioCentimos;
+    }
+
+    // Solo para mostrar (Thymeleaf: ${c.precioActual})
+    public double getPrecioActual() {
+        return Importe.centimosADouble(precioActual);
+    }
+
+    public int getDecimales() {
+        return decimales == null ? Importe.ESCALA_CRIPTO : Math.min(decimales, Importe.ESCALA_CRIPTO);
+    }
+
+    public void setDecimales(Integer decimales) {
+        this.decimales = decimales;
     }
 
     public List<Transaccion> getTransacciones() {
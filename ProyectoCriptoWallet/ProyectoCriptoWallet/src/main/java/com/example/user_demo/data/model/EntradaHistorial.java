@@ -0,0 +1,105 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Una línea del registro de actividad de un usuario (solo se inserta, nunca se modifica).
+ * Sustituye a ir concatenando texto en Historial.detalle, que ahora es solo el resumen.
+ */
+@Entity
+@Table(name = "historial_entradas",
+        indexes = @Index(name = "idx_historial_entradas_usuario_fecha", columnList = "id_usuario, fecha, id_entrada"))
+public class EntradaHistorial {
+
+    public enum Tipo { ENV, REC }
+
+    // Secuencia con pool (no IDENTITY) para que Hibernate pueda agrupar los INSERT en lotes JDBC
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historial_entradas_seq")
+    @SequenceGenerator(name = "historial_entradas_seq", sequenceName = "historial_entradas_seq", initialValue = 1000, allocationSize = 50)
+    @Column(name = "id_entrada")
+    private Long idEntrada;
+
+    // N:1 con Usuario (sin colección inversa: un usuario puede tener miles de entradas)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_usuario", nullable = false)
+    private Usuario usuario;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 3, nullable = false)
+    private Tipo tipo;
+
+    // Ej: "TX $100.00 (0.0020 BTC) a Luis Marte"
+    @Column(nullable = false)
+    private String detalle;
+
+    public EntradaHistorial() {
+    }
+
+    public EntradaHistorial(Usuario usuario, Tipo tipo, String detalle) {
+        this.usuario = usuario;
+        this.tipo = tipo;
+        this.detalle = detalle;
+        this.fecha = LocalDateTime.now();
+    }
+
+    // --- Getters y Setters ---
+
+    public Long getIdEntrada() {
+        return idEntrada;
+    }
+
+    public void setIdEntrada(Long idEntrada) {
+        this.idEntrada = idEntrada;
+    }
+
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public void setUsuario(Usuario usuario) {
+        this.usuario = usuario;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(Tipo tipo) {
+        this.tipo = tipo;
+    }
+
+    public String getDetalle() {
+        return detalle;
+    }
+
+    public void setDetalle(String detalle) {
+        this.detalle = detalle;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EntradaHistorial that = (EntradaHistorial) o;
+        return Objects.equals(idEntrada, that.idEntrada);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idEntrada);
+    }
+}
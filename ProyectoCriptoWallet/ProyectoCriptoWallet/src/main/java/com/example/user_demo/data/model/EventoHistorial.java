@@ -0,0 +1,131 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Evento pendiente del registro de actividad (outbox transaccional).
+ *
+ * La transferencia solo inserta esta fila, compacta y sin formatear, en su misma transacción.
+ * El HistorialDespachador la convierte después en dos EntradaHistorial (origen y destino) y la borra.
+ * Si la aplicación se reinicia, los eventos que sigan en la tabla se procesan al arrancar.
+ */
+@Entity
+@Table(name = "historial_eventos", indexes = {
+        // El despachador los recoge por fecha
+        @Index(name = "idx_historial_eventos_fecha", columnList = "fecha, id_evento")
+})
+public class EventoHistorial {
+
+    // Secuencia con pool: cada nodo reserva bloques de 50, así que el orden de los IDs no es el de las transferencias
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historial_eventos_seq")
+    @SequenceGenerator(name = "historial_eventos_seq", sequenceName = "historial_eventos_seq", initialValue = 1, allocationSize = 50)
+    @Column(name = "id_evento")
+    private Long idEvento;
+
+    // Solo IDs (sin FK): el evento debe poder despacharse aunque el usuario se haya borrado entretanto
+    @Column(name = "id_usuario_origen", nullable = false)
+    private Long idUsuarioOrigen;
+
+    @Column(name = "id_usuario_destino", nullable = false)
+    private Long idUsuarioDestino;
+
+    @Column(length = 10, nullable = false)
+    private String simbolo;
+
+    // Importes en punto fijo (ver Importe)
+    @Column(name = "fiat_centimos", nullable = false)
+    private long fiatCentimos;
+
+    @Column(nullable = false)
+    private long unidades;
+
+    // Momento de la transferencia: ordena el despacho y es la fecha de las entradas generadas
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    public EventoHistorial() {
+    }
+
+    public EventoHistorial(Long idUsuarioOrigen, Long idUsuarioDestino, String simbolo, long fiatCentimos, long unidades) {
+        this.idUsuarioOrigen = idUsuarioOrigen;
+        this.idUsuarioDestino = idUsuarioDestino;
+        this.simbolo = simbolo;
+        this.fiatCentimos = fiatCentimos;
+        this.unidades = unidades;
+        this.fecha = LocalDateTime.now();
+    }
+
+    // --- Getters y Setters ---
+
+    public Long getIdEvento() {
+        return idEvento;
+    }
+
+    public void setIdEvento(Long idEvento) {
+        this.idEvento = idEvento;
+    }
+
+    public Long getIdUsuarioOrigen() {
+        return idUsuarioOrigen;
+    }
+
+    public void setIdUsuarioOrigen(Long idUsuarioOrigen) {
+        this.idUsuarioOrigen = idUsuarioOrigen;
+    }
+
+    public Long getIdUsuarioDestino() {
+        return idUsuarioDestino;
+    }
+
+    public void setIdUsuarioDestino(Long idUsuarioDestino) {
+        this.idUsuarioDestino = idUsuarioDestino;
+    }
+
+    public String getSimbolo() {
+        return simbolo;
+    }
+
+    public void setSimbolo(String simbolo) {
+        this.simbolo = simbolo;
+    }
+
+    public long getFiatCentimos() {
+        return fiatCentimos;
+    }
+
+    public void setFiatCentimos(long fiatCentimos) {
+        this.fiatCentimos = fiatCentimos;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public void setUnidades(long unidades) {
+        this.unidades = unidades;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EventoHistorial that = (EventoHistorial) o;
+        return Objects.equals(idEvento, that.idEvento);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idEvento);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.user_demo.data.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de punto fijo para importes (sin Double ni objetos en el camino caliente).
+ *
+ * - Cantidades cripto: long en unidades mínimas de 1e-8 (satoshis para BTC).
+ * - Dinero fiat y precios: long en céntimos.
+ *
+ * Todas las operaciones trabajan con primitivos y lanzan ArithmeticException si desbordan.
+ * Las conversiones desde/hacia BigDecimal o double son solo para la frontera (BD, formularios, vistas).
+ */
+public final class Importe {
+
+    public static final int ESCALA_CRIPTO = 8;
+    public static final long UNIDAD_CRIPTO = 100_000_000L;
+
+    public static final int ESCALA_FIAT = 2;
+    public static final long UNIDAD_FIAT = 100L;
+
+    // POTENCIAS[i] = 10^i, para redondear al cuanto de cada cripto
+    private static final long[] POTENCIAS = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    private Importe() {
+    }
+
+    // --- Aritmética ---
+
+    public static long sumar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long restar(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Convierte un importe en céntimos a unidades mínimas de cripto al precio dado,
+     * redondeando hacia abajo al cuanto de la cripto (nunca se entrega más de lo pagado).
+     * @param centimos Importe fiat en céntimos (>= 0).
+     * @param precioCentimos Precio de 1 unidad entera de cripto, en céntimos (> 0).
+     * @param decimales Decimales que admite la cripto (0..8).
+     */
+    public static long fiatAUnidades(long centimos, long precioCentimos, int decimales) {
+        if (precioCentimos <= 0) {
+            throw new IllegalArgumentException("El precio debe ser positivo.");
+        }
+        long unidades;
+        long alto = Math.multiplyHigh(centimos, UNIDAD_CRIPTO);
+        long bajo = centimos * UNIDAD_CRIPTO;
+        if ((alto == 0 && bajo >= 0) || (alto == -1 && bajo < 0)) {
+            unidades = bajo / precioCentimos;
+        } else {
+            // Solo con importes enormes (> 92 millones de dólares): camino lento pero exacto
+            unidades = BigInteger.valueOf(centimos).multiply(BigInteger.valueOf(UNIDAD_CRIPTO))
+                    .divide(BigInteger.valueOf(precioCentimos)).longValueExact();
+        }
+        long cuanto = POTENCIAS[ESCALA_CRIPTO - limitarDecimales(decimales)];
+        return unidades - (unidades % cuanto);
+    }
+
+    /**
+     * Valor en céntimos de una cantidad de cripto al precio dado (redondeo hacia abajo).
+     * Separa parte entera y fraccionaria para no desbordar con cantidades grandes.
+     */
+    public static long valorEnCentimos(long unidades, long precioCentimos) {
+        long enteras = unidades / UNIDAD_CRIPTO;
+        long resto = unidades % UNIDAD_CRIPTO;
+        return Math.addExact(Math.multiplyExact(enteras, precioCentimos),
+                Math.multiplyExact(resto, precioCentimos) / UNIDAD_CRIPTO);
+    }
+
+    // --- Frontera (BD, formularios, vistas) ---
+
+    /**
+     * Importe fiat introducido por el usuario (ej: 100.5) a céntimos, redondeando al céntimo.
+     */
+    public static long centimosDesde(double importe) {
+        return deDecimal(BigDecimal.valueOf(importe), ESCALA_FIAT);
+    }
+
+    /**
+     * Cantidad cripto decimal (ej: 0.05) a unidades mínimas, redondeando a 1e-8.
+     */
+    public static long unidadesDesde(double cantidad) {
+        return deDecimal(BigDecimal.valueOf(cantidad), ESCALA_CRIPTO);
+    }
+
+    public static double centimosADouble(long centimos) {
+        return centimos / (double) UNIDAD_FIAT;
+    }
+
+    public static double unidadesADouble(long unidades) {
+        return unidades / (double) UNIDAD_CRIPTO;
+    }
+
+    public static BigDecimal aDecimal(long valor, int escala) {
+        return BigDecimal.valueOf(valor, escala);
+    }
+
+    public static long deDecimal(BigDecimal valor, int escala) {
+        return valor.setScale(escala, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int limitarDecimales(int decimales) {
+        return Math.max(0, Math.min(ESCALA_CRIPTO, decimales));
+    }
+}
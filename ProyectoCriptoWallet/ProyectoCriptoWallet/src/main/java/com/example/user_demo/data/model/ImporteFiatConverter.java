@@ -0,0 +1,23 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Guarda los importes fiat y precios (long en céntimos) como DECIMAL legible en BD.
+ */
+@Converter
+public class ImporteFiatConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long centimos) {
+        return centimos == null ? null : Importe.aDecimal(centimos, Importe.ESCALA_FIAT);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal importe) {
+        return importe == null ? 0L : Importe.deDecimal(importe, Importe.ESCALA_FIAT);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entrada del mapa de particiones mensuales de las transacciones: un mes y dónde están sus filas.
+ * ACTIVA: en 'transacciones'. ARCHIVANDO: repartidas entre ambas tablas (se están moviendo).
+ * ARCHIVADA: todas en 'transacciones_archivo'.
+ *
+ * La mantiene ParticionesTransacciones por JDBC; la entidad solo define el esquema.
+ */
+@Entity
+@Table(name = "particiones_transacciones")
+public class ParticionTransacciones {
+
+    public enum Estado {
+        ACTIVA, ARCHIVANDO, ARCHIVADA
+    }
+
+    // Primer día del mes
+    @Id
+    private LocalDate mes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, nullable = false)
+    private Estado estado;
+
+    // Filas movidas al archivo
+    @Column(nullable = false)
+    private long filasArchivadas;
+
+    private LocalDateTime actualizada;
+
+    public ParticionTransacciones() {
+    }
+
+    public LocalDate getMes() {
+        return mes;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public long getFilasArchivadas() {
+        return filasArchivadas;
+    }
+
+    public LocalDateTime getActualizada() {
+        return actualizada;
+    }
+}
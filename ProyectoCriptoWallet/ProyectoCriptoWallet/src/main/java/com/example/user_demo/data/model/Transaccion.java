@@ -5,11 +5,19 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "transacciones")
+@Table(name = "transacciones", indexes = {
+        // Soportan las dos ramas de la paginación por (fecha, id) del historial de transacciones de un usuario
+        @Index(name = "idx_transacciones_origen_fecha", columnList = "id_usuario_origen, fecha"),
+        @Index(name = "idx_transacciones_destino_fecha", columnList = "id_usuario_destino, fecha"),
+        // Consultas por rango y archivado de meses enteros (ver ParticionesTransacciones)
+        @Index(name = "idx_transacciones_fecha", columnList = "fecha")
+})
 public class Transaccion {
 
+    // Secuencia con pool (no IDENTITY) para que Hibernate pueda agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transacciones_seq")
+    @SequenceGenerator(name = "transacciones_seq", sequenceName = "transacciones_seq", initialValue = 1000, allocationSize = 50)
     private Long idTransaccion;
 
     // N:1 con Usuario (Origen)
@@ -27,7 +35,10 @@ public class Transaccion {
     @JoinColumn(name = "id_cripto", nullable = false)
     private Criptomoneda criptomoneda;
 
-    private double cantidad;
+    // Unidades mínimas de 1e-8 (ver Importe)
+    @Convert(converter = CantidadCriptoConverter.class)
+    @Column(precision = 38, scale = 8)
+    private long cantidad;
     private LocalDateTime fecha;
 
     // Constructores, Getters y Setters
@@ -35,11 +46,11 @@ public class Transaccion {
     public Transaccion() {
     }
 
-    public Transaccion(Usuario usuarioOrigen, Usuario usuarioDestino, Criptomoneda criptomoneda, double cantidad) {
+    public Transaccion(Usuario usuarioOrigen, Usuario usuarioDestino, Criptomoneda criptomoneda, long unidades) {
         this.usuarioOrigen = usuarioOrigen;
         this.usuarioDestino = usuarioDestino;
         this.criptomoneda = criptomoneda;
-        this.cantidad = cantidad;
+        this.cantidad = unidades;
         this.fecha = LocalDateTime.now();
     }
 
@@ -77,12 +88,17 @@ public class Transaccion {
         this.criptomoneda = criptomoneda;
     }
 
-    public double getCantidad() {
+    public long getUnidades() {
         return cantidad;
     }
 
-    public void setCantidad(double cantidad) {
-        this.cantidad = cantidad;
+    public void setUnidades(long unidades) {
+        this.cantidad = unidades;
+    }
+
+    // Solo para mostrar
+    public double getCantidad() {
+        return Importe.unidadesADouble(cantidad);
     }
 
     public LocalDateTime getFecha() {
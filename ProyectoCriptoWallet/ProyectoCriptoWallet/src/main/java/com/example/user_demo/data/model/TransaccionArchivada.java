@@ -0,0 +1,81 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transacción de un mes ya archivado (fuera de la ventana de retención de 'transacciones').
+ *
+ * Mismas columnas que Transaccion pero sin FK: el archivo sobrevive aunque se borre el usuario o
+ * la cripto. La escribe ParticionesTransacciones por JDBC moviendo meses enteros; desde JPA
+ * solo se lee (consultas por rango de fechas e historial de transacciones de un usuario).
+ */
+@Entity
+@Immutable
+@Table(name = "transacciones_archivo", indexes = {
+        @Index(name = "idx_transacciones_archivo_fecha", columnList = "fecha"),
+        @Index(name = "idx_transacciones_archivo_origen_fecha", columnList = "id_usuario_origen, fecha"),
+        @Index(name = "idx_transacciones_archivo_destino_fecha", columnList = "id_usuario_destino, fecha")
+})
+public class TransaccionArchivada {
+
+    @Id
+    @Column(name = "id_transaccion")
+    private Long idTransaccion;
+
+    @Column(name = "id_usuario_origen", nullable = false)
+    private Long idUsuarioOrigen;
+
+    @Column(name = "id_usuario_destino", nullable = false)
+    private Long idUsuarioDestino;
+
+    @Column(name = "id_cripto", nullable = false)
+    private Long idCripto;
+
+    // Unidades mínimas de 1e-8 (ver Importe)
+    @Convert(converter = CantidadCriptoConverter.class)
+    @Column(precision = 38, scale = 8)
+    private long cantidad;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    public TransaccionArchivada() {
+    }
+
+    public Long getIdTransaccion() {
+        return idTransaccion;
+    }
+
+    public Long getIdUsuarioOrigen() {
+        return idUsuarioOrigen;
+    }
+
+    public Long getIdUsuarioDestino() {
+        return idUsuarioDestino;
+    }
+
+    public Long getIdCripto() {
+        return idCripto;
+    }
+
+    public long getUnidades() {
+        return cantidad;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    /**
+     * Transacción equivalente, sin persistir, para mostrarla junto a las de la tabla caliente.
+     */
+    public Transaccion comoTransaccion(Usuario origen, Usuario destino, Criptomoneda criptomoneda) {
+        Transaccion t = new Transaccion(origen, destino, criptomoneda, cantidad);
+        t.setIdTransaccion(idTransaccion);
+        t.setFecha(fecha);
+        return t;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Transferencia del motor de ledger ya debitada en el origen y aún sin acreditar en el destino.
+ *
+ * Se inserta en la misma transacción que el débito y se borra en la del crédito (o la del reembolso),
+ * así que mientras exista las unidades están "en vuelo". Si la aplicación se cae entre ambas,
+ * el LedgerEngine vuelve a encolar el crédito al arrancar.
+ */
+@Entity
+@Table(name = "transferencias_pendientes")
+public class TransferenciaPendiente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transferencias_pendientes_seq")
+    @SequenceGenerator(name = "transferencias_pendientes_seq", sequenceName = "transferencias_pendientes_seq", initialValue = 1, allocationSize = 50)
+    @Column(name = "id_transferencia")
+    private Long idTransferencia;
+
+    // Solo IDs (sin FK): si algo ya no existe, el crédito falla y se reembolsa
+    @Column(name = "id_usuario_origen", nullable = false)
+    private Long idUsuarioOrigen;
+
+    @Column(name = "id_usuario_destino", nullable = false)
+    private Long idUsuarioDestino;
+
+    @Column(name = "id_cartera_origen", nullable = false)
+    private Long idCarteraOrigen;
+
+    @Column(name = "id_cartera_destino", nullable = false)
+    private Long idCarteraDestino;
+
+    @Column(name = "id_cripto", nullable = false)
+    private Long idCripto;
+
+    @Column(length = 10, nullable = false)
+    private String simbolo;
+
+    // Importes en punto fijo (ver Importe)
+    @Column(nullable = false)
+    private long unidades;
+
+    @Column(name = "fiat_centimos", nullable = false)
+    private long fiatCentimos;
+
+    @Column(nullable = false)
+    private LocalDateTime fecha;
+
+    public TransferenciaPendiente() {
+    }
+
+    public TransferenciaPendiente(Long idUsuarioOrigen, Long idUsuarioDestino, Long idCarteraOrigen, Long idCarteraDestino,
+                                  Long idCripto, String simbolo, long unidades, long fiatCentimos) {
+        this.idUsuarioOrigen = idUsuarioOrigen;
+        this.idUsuarioDestino = idUsuarioDestino;
+        this.idCarteraOrigen = idCarteraOrigen;
+        this.idCarteraDestino = idCarteraDestino;
+        this.idCripto = idCripto;
+        this.simbolo = simbolo;
+        this.unidades = unidades;
+        this.fiatCentimos = fiatCentimos;
+        this.fecha = LocalDateTime.now();
+    }
+
+    // --- Getters y Setters ---
+
+    public Long getIdTransferencia() {
+        return idTransferencia;
+    }
+
+    public void setIdTransferencia(Long idTransferencia) {
+        this.idTransferencia = idTransferencia;
+    }
+
+    public Long getIdUsuarioOrigen() {
+        return idUsuarioOrigen;
+    }
+
+    public void setIdUsuarioOrigen(Long idUsuarioOrigen) {
+        this.idUsuarioOrigen = idUsuarioOrigen;
+    }
+
+    public Long getIdUsuarioDestino() {
+        return idUsuarioDestino;
+    }
+
+    public void setIdUsuarioDestino(Long idUsuarioDestino) {
+        this.idUsuarioDestino = idUsuarioDestino;
+    }
+
+    public Long getIdCarteraOrigen() {
+        return idCarteraOrigen;
+    }
+
+    public void setIdCarteraOrigen(Long idCarteraOrigen) {
+        this.idCarteraOrigen = idCarteraOrigen;
+    }
+
+    public Long getIdCarteraDestino() {
+        return idCarteraDestino;
+    }
+
+    public void setIdCarteraDestino(Long idCarteraDestino) {
+        this.idCarteraDestino = idCarteraDestino;
+    }
+
+    public Long getIdCripto() {
+        return idCripto;
+    }
+
+    public void setIdCripto(Long idCripto) {
+        this.idCripto = idCripto;
+    }
+
+    public String getSimbolo() {
+        return simbolo;
+    }
+
+    public void setSimbolo(String simbolo) {
+        this.simbolo = simbolo;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public void setUnidades(long unidades) {
+        this.unidades = unidades;
+    }
+
+    public long getFiatCentimos() {
+        return fiatCentimos;
+    }
+
+    public void setFiatCentimos(long fiatCentimos) {
+        this.fiatCentimos = fiatCentimos;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TransferenciaPendiente that = (TransferenciaPendiente) o;
+        return Objects.equals(idTransferencia, that.idTransferencia);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idTransferencia);
+    }
+}
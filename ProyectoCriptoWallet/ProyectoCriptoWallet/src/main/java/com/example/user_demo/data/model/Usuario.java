@@ -1,12 +1,19 @@
 package com.example.user_demo.data.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
 @Table(name = "usuarios")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios")
+@NaturalIdCache(region = "usuarios-email")
 public class Usuario {
 
     @Id
@@ -14,6 +21,7 @@ public class Usuario {
     private Long idUsuario;
 
     private String nombre;
+    @NaturalId(mutable = true) // Búsquedas por email: email -> ID cacheado en "usuarios-email"
     private String email; // Añadido para un ejemplo más real
 
     // 1:N con Cartera
@@ -0,0 +1,136 @@
+package com.example.user_demo.data.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Vela OHLC ya cerrada de una criptomoneda (precios en céntimos, ver Importe).
+ *
+ * Tabla compacta y sin FK: clave (cripto, resolución, inicio) y seis enteros. La escribe y la
+ * lee el AlmacenVelas por JDBC; la entidad solo define el esquema.
+ */
+@Entity
+@Table(name = "velas")
+@IdClass(Vela.Clave.class)
+public class Vela {
+
+    public enum Resolucion {
+        M1(Duration.ofMinutes(1)), H1(Duration.ofHours(1)), D1(Duration.ofDays(1));
+
+        private final long milis;
+
+        Resolucion(Duration duracion) {
+            this.milis = duracion.toMillis();
+        }
+
+        public long getMilis() {
+            return milis;
+        }
+
+        /**
+         * Inicio (epoch ms, UTC) de la vela que contiene ese instante.
+         */
+        public long inicioDe(long instanteMs) {
+            return instanteMs - Math.floorMod(instanteMs, milis);
+        }
+    }
+
+    @Id
+    @Column(name = "id_cripto")
+    private Long idCripto;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 2)
+    private Resolucion resolucion;
+
+    // Epoch en milisegundos (UTC)
+    @Id
+    @Column(name = "inicio_ms")
+    private long inicioMs;
+
+    @Column(nullable = false)
+    private long apertura;
+
+    @Column(nullable = false)
+    private long maximo;
+
+    @Column(nullable = false)
+    private long minimo;
+
+    @Column(nullable = false)
+    private long cierre;
+
+    // Número de precios que han caído en la vela
+    @Column(nullable = false)
+    private long muestras;
+
+    public Vela() {
+    }
+
+    public Long getIdCripto() {
+        return idCripto;
+    }
+
+    public Resolucion getResolucion() {
+        return resolucion;
+    }
+
+    public long getInicioMs() {
+        return inicioMs;
+    }
+
+    public long getApertura() {
+        return apertura;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public long getMinimo() {
+        return minimo;
+    }
+
+    public long getCierre() {
+        return cierre;
+    }
+
+    public long getMuestras() {
+        return muestras;
+    }
+
+    /**
+     * Clave compuesta (cripto, resolución, inicio).
+     */
+    public static class Clave implements Serializable {
+        private Long idCripto;
+        private Resolucion resolucion;
+        private long inicioMs;
+
+        public Clave() {
+        }
+
+        public Clave(Long idCripto, Resolucion resolucion, long inicioMs) {
+            this.idCripto = idCripto;
+            this.resolucion = resolucion;
+            this.inicioMs = inicioMs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Clave that = (Clave) o;
+            return inicioMs == that.inicioMs && Objects.equals(idCripto, that.idCripto) && resolucion == that.resolucion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idCripto, resolucion, inicioMs);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.user_demo.data.particiones;
+
+import com.example.user_demo.data.model.ParticionTransacciones.Estado;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Particiones mensuales de las transacciones por fecha.
+ *
+ * 'transacciones' solo guarda los últimos 'retencion-meses' meses (más el actual); los meses anteriores
+ * se mueven enteros a 'transacciones_archivo'. El mapa de meses y su estado vive en la tabla
+ * particiones_transacciones. Es una emulación portable (MySQL y H2): el particionado nativo de InnoDB
+ * no admite las FK que Hibernate genera en 'transacciones'.
+ *
+ * Un hilo virtual, cada 'intervalo-ms', da de alta el mes actual y el siguiente y archiva los meses que
+ * han salido de la ventana, en transacciones de 'tamano-lote' filas (INSERT ... SELECT + DELETE por ID).
+ * Todo el SQL es estándar (nada de ON DUPLICATE KEY ni MERGE): el mapa se escribe con UPDATE y, si el mes
+ * aún no existe, INSERT; si otra instancia lo inserta a la vez, la clave duplicada se trata como hecho.
+ * Con los límites resultantes, las consultas por rango (ver TransaccionesPorRango) solo leen las tablas
+ * que pueden tener filas del rango: las consultas de meses recientes no tocan el archivo.
+ *
+ * Ninguna instancia, archive o no, usa límites leídos del mapa hace más de 'limites-ttl-ms': se releen
+ * en la primera consulta tras caducar. Quien archiva un mes lo marca ARCHIVANDO y espera ese tiempo antes de mover filas, así
+ * ninguna instancia deja de buscar en el archivo filas que ya están allí.
+ */
+@Component
+public class ParticionesTransacciones {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticionesTransacciones.class);
+
+    private static final String EXISTE = "SELECT COUNT(*) FROM particiones_transacciones WHERE mes = ?";
+    private static final String ALTA = "INSERT INTO particiones_transacciones (mes, estado, filas_archivadas, actualizada) "
+            + "VALUES (?, ?, 0, ?)";
+    private static final String MARCAR = "UPDATE particiones_transacciones SET estado = ?, actualizada = ? WHERE mes = ?";
+    private static final String LIMITES = "SELECT "
+            + "(SELECT MIN(mes) FROM particiones_transacciones WHERE estado = 'ARCHIVANDO') AS archivando, "
+            + "(SELECT MAX(mes) FROM particiones_transacciones WHERE estado = 'ARCHIVADA') AS archivada, "
+            + "(SELECT MAX(mes) FROM particiones_transacciones WHERE estado <> 'ACTIVA') AS ultima";
+    private static final String MAS_ANTIGUA = "SELECT MIN(fecha) FROM transacciones WHERE fecha < ?";
+    private static final String IDS_DEL_MES = "SELECT id_transaccion FROM transacciones WHERE fecha >= ? AND fecha < ? "
+            + "ORDER BY id_transaccion LIMIT ?";
+    private static final String COPIAR = "INSERT INTO transacciones_archivo "
+            + "(id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha) "
+            + "SELECT id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha "
+            + "FROM transacciones WHERE id_transaccion IN (:ids)";
+    private static final String BORRAR = "DELETE FROM transacciones WHERE id_transaccion IN (:ids)";
+    private static final String CONTAR = "UPDATE particiones_transacciones SET filas_archivadas = filas_archivadas + ?, "
+            + "actualizada = ? WHERE mes = ?";
+
+    /**
+     * Dónde están las filas: las de fecha anterior a 'inicioCaliente' ya están todas en el archivo y el archivo
+     * no tiene ninguna de fecha igual o posterior a 'finArchivo'. Null = sin límite (nada archivado).
+     * 'leidosNanos' = System.nanoTime() de la lectura del mapa.
+     */
+    record Limites(LocalDateTime inicioCaliente, LocalDateTime finArchivo, long leidosNanos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final int retencionMeses;
+    private final long intervaloMs;
+    private final int tamanoLote;
+    private final long limitesTtlMs;
+
+    private volatile Limites limites;
+    private volatile boolean activo;
+    private Thread hilo;
+
+    @Autowired
+    public ParticionesTransacciones(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${criptowallet.transacciones.particiones.habilitado:true}") boolean habilitado,
+                                    @Value("${criptowallet.transacciones.particiones.retencion-meses:24}") int retencionMeses,
+                                    @Value("${criptowallet.transacciones.particiones.intervalo-ms:3600000}") long intervaloMs,
+                                    @Value("${criptowallet.transacciones.particiones.tamano-lote:1000}") int tamanoLote,
+                                    @Value("${criptowallet.transacciones.particiones.limites-ttl-ms:5000}") long limitesTtlMs) {
+        if (retencionMeses < 0 || intervaloMs <= 0 || tamanoLote <= 0 || limitesTtlMs < 0) {
+            throw new IllegalArgumentException("La configuración de las particiones de transacciones no es válida.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.retencionMeses = retencionMeses;
+        this.intervaloMs = intervaloMs;
+        this.tamanoLote = tamanoLote;
+        this.limitesTtlMs = limitesTtlMs;
+    }
+
+    // Tras data.sql: al arrancar en desarrollo se vacían las tablas de transacciones
+    @EventListener(ApplicationReadyEvent.class)
+    void arrancar() {
+        cargar();
+        if (!habilitado) {
+            return;
+        }
+        activo = true;
+        hilo = Thread.ofVirtual().name("transacciones-particiones").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activo = false;
+        hilo.interrupt();
+        hilo.join();
+    }
+
+    private void bucle() {
+        while (activo) {
+            try {
+                LocalDate hoy = LocalDate.now();
+                rodar(hoy);
+                archivar(hoy);
+            } catch (RuntimeException e) {
+                log.error("Error en el mantenimiento de particiones de transacciones", e);
+            }
+            try {
+                Thread.sleep(intervaloMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // --- PODA (la usan las consultas por rango) ---
+
+    /**
+     * @return true si 'transacciones' puede tener filas con fecha en [desde, hasta). Null = rango abierto.
+     */
+    public boolean tocaCaliente(LocalDateTime desde, LocalDateTime hasta) {
+        LocalDateTime inicio = limites().inicioCaliente();
+        return inicio == null || hasta == null || hasta.isAfter(inicio);
+    }
+
+    /**
+     * @return true si 'transacciones_archivo' puede tener filas con fecha en [desde, hasta). Null = rango abierto.
+     */
+    public boolean tocaArchivo(LocalDateTime desde, LocalDateTime hasta) {
+        LocalDateTime fin = limites().finArchivo();
+        return fin != null && (desde == null || desde.isBefore(fin));
+    }
+
+    // --- MANTENIMIENTO ---
+
+    /**
+     * Da de alta en el mapa el mes de 'hoy' y el siguiente (idempotente).
+     */
+    public void rodar(LocalDate hoy) {
+        LocalDate mes = hoy.withDayOfMonth(1);
+        darDeAlta(mes);
+        darDeAlta(mes.plusMonths(1));
+    }
+
+    /**
+     * Mueve al archivo, del más antiguo al más reciente, los meses anteriores a la ventana de retención.
+     * @return Número de filas archivadas.
+     */
+    public long archivar(LocalDate hoy) {
+        LocalDateTime horizonte = hoy.withDayOfMonth(1).minusMonths(retencionMeses).atStartOfDay();
+        long total = 0;
+        LocalDateTime masAntigua;
+        while (!Thread.currentThread().isInterrupted()
+                && (masAntigua = jdbcTemplate.queryForObject(MAS_ANTIGUA, LocalDateTime.class, horizonte)) != null) {
+            total += archivarMes(masAntigua.toLocalDate().withDayOfMonth(1));
+        }
+        return total;
+    }
+
+    private long archivarMes(LocalDate mes) {
+        LocalDateTime inicio = mes.atStartOfDay();
+        LocalDateTime fin = mes.plusMonths(1).atStartOfDay();
+
+        // Mientras se mueve, el mes se lee de las dos tablas. Las demás instancias pueden tardar un TTL
+        // en releer el mapa: hasta entonces no se mueve nada
+        marcar(mes, Estado.ARCHIVANDO);
+        cargar();
+        if (!esperar(limitesTtlMs)) {
+            return 0;
+        }
+
+        long filas = 0;
+        int movidas;
+        do {
+            Integer n = transactionTemplate.execute(status -> {
+                List<Long> ids = jdbcTemplate.queryForList(IDS_DEL_MES, Long.class, inicio, fin, tamanoLote);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                MapSqlParameterSource parametros = new MapSqlParameterSource("ids", ids);
+                namedJdbcTemplate.update(COPIAR, parametros);
+                namedJdbcTemplate.update(BORRAR, parametros);
+                jdbcTemplate.update(CONTAR, ids.size(), LocalDateTime.now(), mes);
+                return ids.size();
+            });
+            movidas = n != null ? n : 0;
+            filas += movidas;
+        } while (movidas == tamanoLote);
+
+        marcar(mes, Estado.ARCHIVADA);
+        cargar();
+        log.info("Archivadas {} transacciones de {}", filas, mes);
+        return filas;
+    }
+
+    // Nuevo mes ACTIVA; si ya existe se deja como está
+    private void darDeAlta(LocalDate mes) {
+        Integer existe = jdbcTemplate.queryForObject(EXISTE, Integer.class, mes);
+        if (existe != null && existe > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(ALTA, mes, Estado.ACTIVA.name(), LocalDateTime.now());
+        } catch (DuplicateKeyException e) {
+            // Otra instancia lo ha dado de alta entre la consulta y el INSERT
+        }
+    }
+
+    private void marcar(LocalDate mes, Estado estado) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (jdbcTemplate.update(MARCAR, estado.name(), ahora, mes) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(ALTA, mes, estado.name(), ahora);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(MARCAR, estado.name(), ahora, mes);
+        }
+    }
+
+    // Interrumpido: el mes se queda ARCHIVANDO (se lee de las dos tablas) hasta la próxima pasada
+    private static boolean esperar(long ms) {
+        if (ms == 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Límites vigentes, releídos del mapa si tienen más de limitesTtlMs: otra instancia puede haber archivado
+    private Limites limites() {
+        Limites actuales = limites;
+        if (actuales == null || System.nanoTime() - actuales.leidosNanos() >= limitesTtlMs * 1_000_000) {
+            cargar();
+            actuales = limites;
+        }
+        return actuales;
+    }
+
+    /**
+     * Recalcula los límites de poda a partir del mapa de particiones.
+     */
+    void cargar() {
+        long leidos = System.nanoTime();
+        limites = jdbcTemplate.queryForObject(LIMITES, (rs, i) -> {
+            LocalDate archivando = rs.getObject("archivando", LocalDate.class);
+            LocalDate archivada = rs.getObject("archivada", LocalDate.class);
+            LocalDate ultima = rs.getObject("ultima", LocalDate.class);
+            LocalDateTime inicioCaliente = archivando != null ? archivando.atStartOfDay()
+                    : archivada != null ? archivada.plusMonths(1).atStartOfDay() : null;
+            LocalDateTime finArchivo = ultima != null ? ultima.plusMonths(1).atStartOfDay() : null;
+            return new Limites(inicioCaliente, finArchivo, leidos);
+        });
+    }
+
+    // Solo para mostrar
+    public LocalDateTime getInicioCaliente() {
+        return limites().inicioCaliente();
+    }
+
+    // Solo para mostrar
+    public LocalDateTime getFinArchivo() {
+        return limites().finArchivo();
+    }
+}
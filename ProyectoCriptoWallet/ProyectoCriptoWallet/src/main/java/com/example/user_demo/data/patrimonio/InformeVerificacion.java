@@ -0,0 +1,16 @@
+package com.example.user_demo.data.patrimonio;
+
+import java.util.List;
+
+/**
+ * Resultado de comparar el patrimonio materializado con lo que hay en BD.
+ * @param usuariosRevisados Usuarios materializados que se han recalculado.
+ * @param usuariosConDeriva IDs de los usuarios cuyo estado en memoria no coincidía.
+ * @param corregido true si los usuarios con deriva se han sustituido por el estado de BD.
+ */
+public record InformeVerificacion(int usuariosRevisados, List<Long> usuariosConDeriva, boolean corregido) {
+
+    public boolean isConsistente() {
+        return usuariosConDeriva.isEmpty();
+    }
+}
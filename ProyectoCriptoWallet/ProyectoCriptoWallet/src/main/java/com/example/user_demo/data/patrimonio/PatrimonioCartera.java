@@ -0,0 +1,23 @@
+package com.example.user_demo.data.patrimonio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estado materializado de una cartera: fiat, unidades por cripto y su valor de mercado cacheado.
+ * Solo se modifica con el lock de PatrimonioMaterializado.
+ */
+final class PatrimonioCartera {
+
+    final Long idCartera;
+    final Long idUsuario;
+    long fiatCentimos;
+    long valorActivosCentimos;
+    final Map<Long, Long> unidades = new HashMap<>(); // idCripto -> unidades mínimas
+
+    PatrimonioCartera(Long idCartera, Long idUsuario, long fiatCentimos) {
+        this.idCartera = idCartera;
+        this.idUsuario = idUsuario;
+        this.fiatCentimos = fiatCentimos;
+    }
+}
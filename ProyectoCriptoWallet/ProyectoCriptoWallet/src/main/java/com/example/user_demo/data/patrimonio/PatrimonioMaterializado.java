@@ -0,0 +1,449 @@
+package com.example.user_demo.data.patrimonio;
+
+import com.example.user_demo.data.commit.CambiosEnVuelo;
+import com.example.user_demo.data.dto.PosicionesUsuario;
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.dto.ValoracionUsuario;
+import com.example.user_demo.data.enrutado.ContextoLectura;
+import com.example.user_demo.data.model.Activo;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.repository.ActivoRepository;
+import com.example.user_demo.data.repository.CarteraRepository;
+import com.example.user_demo.data.repository.CriptomonedaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Patrimonio (fiat + unidades por cripto) de cada usuario y cartera, materializado en memoria.
+ *
+ * Un usuario se carga de BD la primera vez que se consulta; a partir de ahí cada operación
+ * (transferencias, inversiones, alta/baja de carteras, cambios de precio) le aplica su delta
+ * tras el commit, así que leer el patrimonio es O(1) y no vuelve a tocar la BD.
+ * Se guardan como mucho 'max-usuarios': al pasarse se olvida el que lleva más tiempo sin usarse,
+ * que se volverá a leer de BD si se consulta.
+ * verificar() recalcula desde las filas de Activo para detectar (y corregir) desvíos.
+ *
+ * Desactivable con criptowallet.patrimonio.materializado=false (se usan las consultas agregadas).
+ */
+@Component
+public class PatrimonioMaterializado {
+
+    private static final Logger log = LoggerFactory.getLogger(PatrimonioMaterializado.class);
+
+    // Veces que se reintenta una carga si hay cambios en vuelo; después se acepta y verificar() lo detectaría
+    private static final int MAX_REINTENTOS_CARGA = 3;
+
+    private final CarteraRepository carteraRepository;
+    private final ActivoRepository activoRepository;
+    private final CriptomonedaRepository criptomonedaRepository;
+    private final TransactionTemplate lecturaTemplate;
+    private final TransactionTemplate lecturaAparteTemplate;
+    private final boolean habilitado;
+    private final int maxUsuarios;
+
+    // Todo el estado se protege con 'cerrojo' (las operaciones son O(1) o O(activos de una cartera))
+    private final Object cerrojo = new Object();
+    private final LinkedHashMap<Long, PatrimonioUsuario> usuarios = new LinkedHashMap<>(16, 0.75f, true); // Orden de acceso
+    private final Map<Long, PatrimonioCartera> carteras = new HashMap<>();
+    private final Map<Long, Set<PatrimonioCartera>> tenedores = new HashMap<>(); // idCripto -> carteras que la tienen
+    private final Map<Long, Long> precios = new HashMap<>(); // idCripto -> céntimos
+
+    // Para no cargar a medias mientras hay cambios en vuelo
+    private final CambiosEnVuelo cambios = new CambiosEnVuelo();
+
+    @Autowired
+    public PatrimonioMaterializado(CarteraRepository carteraRepository,
+                                   ActivoRepository activoRepository,
+                                   CriptomonedaRepository criptomonedaRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${criptowallet.patrimonio.materializado:true}") boolean habilitado,
+                                   @Value("${criptowallet.patrimonio.max-usuarios:100000}") int maxUsuarios) {
+        if (maxUsuarios <= 0) {
+            throw new IllegalArgumentException("El máximo de usuarios materializados debe ser mayor que cero.");
+        }
+        this.carteraRepository = carteraRepository;
+        this.activoRepository = activoRepository;
+        this.criptomonedaRepository = criptomonedaRepository;
+        this.lecturaTemplate = new TransactionTemplate(transactionManager);
+        this.lecturaTemplate.setReadOnly(true);
+        this.lecturaAparteTemplate = new TransactionTemplate(transactionManager);
+        this.lecturaAparteTemplate.setReadOnly(true);
+        this.lecturaAparteTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.habilitado = habilitado;
+        this.maxUsuarios = maxUsuarios;
+    }
+
+    public boolean isActivo() {
+        return habilitado;
+    }
+
+    // --- LECTURAS ---
+
+    /**
+     * Patrimonio total del usuario (O(1) una vez materializado).
+     */
+    public ValoracionUsuario valoracionUsuario(Long idUsuario) {
+        PatrimonioUsuario u = usuario(idUsuario);
+        synchronized (cerrojo) {
+            return new ValoracionUsuario(idUsuario, u.fiatCentimos, u.valorActivosCentimos);
+        }
+    }
+
+    /**
+     * Desglose por cartera, ordenado por ID de cartera.
+     */
+    public List<ValoracionCartera> valoracionCarteras(Long idUsuario) {
+        PatrimonioUsuario u = usuario(idUsuario);
+        synchronized (cerrojo) {
+            List<ValoracionCartera> valoraciones = new ArrayList<>(u.carteras.size());
+            for (PatrimonioCartera c : u.carteras.values()) {
+                valoraciones.add(new ValoracionCartera(c.idCartera, c.fiatCentimos, c.valorActivosCentimos));
+            }
+            return valoraciones;
+        }
+    }
+
+    /**
+     * Fiat y unidades por cripto del usuario, sumando sus carteras (para la clasificación).
+     * @return null si el usuario no está materializado: no lo carga de BD.
+     */
+    public PosicionesUsuario posicionesMaterializadas(Long idUsuario) {
+        synchronized (cerrojo) {
+            PatrimonioUsuario u = habilitado ? usuarios.get(idUsuario) : null;
+            if (u == null) {
+                return null;
+            }
+            Map<Long, Long> unidades = new HashMap<>();
+            for (PatrimonioCartera c : u.carteras.values()) {
+                c.unidades.forEach((idCripto, cantidad) -> unidades.merge(idCripto, cantidad, Long::sum));
+            }
+            unidades.values().removeIf(cantidad -> cantidad <= 0);
+            return new PosicionesUsuario(idUsuario, u.fiatCentimos, unidades);
+        }
+    }
+
+    // --- CAMBIOS (se aplican tras el commit de la transacción en curso) ---
+
+    /**
+     * Suma (o resta) unidades de una cripto a una cartera.
+     */
+    public void moverUnidades(Long idCartera, Long idCripto, long delta) {
+        trasCommit(() -> {
+            PatrimonioCartera c = carteras.get(idCartera);
+            if (c == null || delta == 0) {
+                return; // Usuario aún no materializado: se leerá de BD cuando se consulte
+            }
+            Long precio = precios.get(idCripto);
+            if (precio == null) {
+                // Cripto que no conocíamos: se descarta el usuario y se recarga entero al consultarlo
+                olvidarUsuario(c.idUsuario);
+                return;
+            }
+            long antes = c.unidades.getOrDefault(idCripto, 0L);
+            long despues = Importe.sumar(antes, delta);
+            ponerUnidades(c, idCripto, despues);
+            sumarValor(c, Importe.valorEnCentimos(despues, precio) - Importe.valorEnCentimos(antes, precio));
+        });
+    }
+
+    /**
+     * Suma (o resta) dinero fiat a una cartera.
+     */
+    public void moverFiat(Long idCartera, long deltaCentimos) {
+        trasCommit(() -> {
+            PatrimonioCartera c = carteras.get(idCartera);
+            if (c == null) {
+                return;
+            }
+            c.fiatCentimos = Importe.sumar(c.fiatCentimos, deltaCentimos);
+            PatrimonioUsuario u = usuarios.get(c.idUsuario);
+            u.fiatCentimos = Importe.sumar(u.fiatCentimos, deltaCentimos);
+        });
+    }
+
+    public void carteraCreada(Long idCartera, Long idUsuario, long fiatCentimos) {
+        trasCommit(() -> {
+            PatrimonioUsuario u = usuarios.get(idUsuario);
+            if (u == null || carteras.containsKey(idCartera)) {
+                return;
+            }
+            PatrimonioCartera c = new PatrimonioCartera(idCartera, idUsuario, fiatCentimos);
+            u.carteras.put(idCartera, c);
+            carteras.put(idCartera, c);
+            u.fiatCentimos = Importe.sumar(u.fiatCentimos, fiatCentimos);
+        });
+    }
+
+    public void carteraEliminada(Long idCartera) {
+        trasCommit(() -> {
+            PatrimonioCartera c = carteras.remove(idCartera);
+            if (c == null) {
+                return;
+            }
+            PatrimonioUsuario u = usuarios.get(c.idUsuario);
+            u.carteras.remove(idCartera);
+            u.fiatCentimos = Importe.restar(u.fiatCentimos, c.fiatCentimos);
+            u.valorActivosCentimos = Importe.restar(u.valorActivosCentimos, c.valorActivosCentimos);
+            for (Long idCripto : c.unidades.keySet()) {
+                quitarTenedor(idCripto, c);
+            }
+        });
+    }
+
+    public void usuarioEliminado(Long idUsuario) {
+        trasCommit(() -> olvidarUsuario(idUsuario));
+    }
+
+    /**
+     * Revaloriza a todos los tenedores materializados de una cripto con su nuevo precio.
+     * Coste proporcional al número de carteras que la tienen, no al de usuarios.
+     */
+    public void precioActualizado(Long idCripto, long precioCentimos) {
+        trasCommit(() -> {
+            Long anterior = precios.put(idCripto, precioCentimos);
+            if (anterior == null || anterior == precioCentimos) {
+                return;
+            }
+            for (PatrimonioCartera c : tenedores.getOrDefault(idCripto, Set.of())) {
+                long unidades = c.unidades.get(idCripto);
+                sumarValor(c, Importe.valorEnCentimos(unidades, precioCentimos) - Importe.valorEnCentimos(unidades, anterior));
+            }
+        });
+    }
+
+    // --- MANTENIMIENTO ---
+
+    /**
+     * Recalcula desde BD (filas de Cartera y Activo) a todos los usuarios materializados y los compara.
+     * @param corregir Si es true, los usuarios con deriva se sustituyen por el estado leído de BD.
+     */
+    public InformeVerificacion verificar(boolean corregir) {
+        List<Long> ids;
+        synchronized (cerrojo) {
+            ids = new ArrayList<>(usuarios.keySet());
+        }
+        Map<Long, Long> preciosBd = leerPrecios();
+        List<Long> conDeriva = new ArrayList<>();
+        for (Long idUsuario : ids) {
+            for (int intento = 0; intento <= MAX_REINTENTOS_CARGA; intento++) {
+                CambiosEnVuelo.Marca marca = cambios.marca();
+                Map<Long, PatrimonioCartera> enBd = leerCarteras(idUsuario);
+                synchronized (cerrojo) {
+                    if (!cambios.estable(marca) && intento < MAX_REINTENTOS_CARGA) {
+                        continue; // Había cambios en vuelo: la foto de BD podría no cuadrar todavía
+                    }
+                    PatrimonioUsuario actual = usuarios.get(idUsuario);
+                    if (actual != null && !coincide(actual, enBd, preciosBd)) {
+                        conDeriva.add(idUsuario);
+                        if (corregir) {
+                            olvidarUsuario(idUsuario);
+                            registrar(idUsuario, enBd, preciosBd);
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        if (!conDeriva.isEmpty()) {
+            log.warn("Patrimonio materializado con deriva en {} usuario(s): {}{}", conDeriva.size(), conDeriva,
+                    corregir ? " (corregido)" : "");
+        }
+        return new InformeVerificacion(ids.size(), conDeriva, corregir);
+    }
+
+    /**
+     * Descarta todo lo materializado; cada usuario se vuelve a leer de BD en su próxima consulta.
+     */
+    public void reconstruir() {
+        synchronized (cerrojo) {
+            usuarios.clear();
+            carteras.clear();
+            tenedores.clear();
+            precios.clear();
+        }
+    }
+
+    // --- INTERNOS ---
+
+    private PatrimonioUsuario usuario(Long idUsuario) {
+        if (!habilitado) {
+            throw new IllegalStateException("El patrimonio materializado no está habilitado.");
+        }
+        Objects.requireNonNull(idUsuario, "El ID de usuario es obligatorio.");
+        synchronized (cerrojo) {
+            PatrimonioUsuario u = usuarios.get(idUsuario);
+            if (u != null) {
+                return u;
+            }
+        }
+        // Lectura de BD fuera del cerrojo; si mientras tanto se confirma algún cambio, se repite
+        for (int intento = 0; ; intento++) {
+            CambiosEnVuelo.Marca marca = cambios.marca();
+            Map<Long, Long> preciosBd = leerPrecios();
+            Map<Long, PatrimonioCartera> enBd = leerCarteras(idUsuario);
+            synchronized (cerrojo) {
+                PatrimonioUsuario u = usuarios.get(idUsuario);
+                if (u != null) {
+                    return u;
+                }
+                if (cambios.estable(marca) || intento >= MAX_REINTENTOS_CARGA) {
+                    return registrar(idUsuario, enBd, preciosBd);
+                }
+            }
+        }
+    }
+
+    private Map<Long, Long> leerPrecios() {
+        Map<Long, Long> leidos = new HashMap<>();
+        for (Criptomoneda c : criptomonedaRepository.findAll()) {
+            leidos.put(c.getIdCripto(), c.getPrecioCentimos());
+        }
+        return leidos;
+    }
+
+    // Siempre de la primaria: lo cargado se mantiene solo con deltas, así que un usuario leído de una réplica
+    // retrasada seguiría mal hasta verificar(). Si el llamante ya lee de la réplica, en una transacción aparte
+    private Map<Long, PatrimonioCartera> leerCarteras(Long idUsuario) {
+        TransactionTemplate plantilla = ContextoLectura.leeDeReplica() ? lecturaAparteTemplate : lecturaTemplate;
+        return ContextoLectura.enPrimaria(() -> plantilla.execute(status -> {
+            Map<Long, PatrimonioCartera> leidas = new HashMap<>();
+            for (Cartera c : carteraRepository.findByUsuario_IdUsuarioInOrderByIdCarteraAsc(List.of(idUsuario))) {
+                leidas.put(c.getIdCartera(), new PatrimonioCartera(c.getIdCartera(), idUsuario, c.getBalanceCentimos()));
+            }
+            if (!leidas.isEmpty()) {
+                for (Activo a : activoRepository.findByCartera_IdCarteraIn(leidas.keySet())) {
+                    if (a.getUnidades() != 0) {
+                        leidas.get(a.getCartera().getIdCartera()).unidades.merge(a.getCriptomoneda().getIdCripto(), a.getUnidades(), Long::sum);
+                    }
+                }
+            }
+            return leidas;
+        }));
+    }
+
+    // Con el cerrojo
+    private PatrimonioUsuario registrar(Long idUsuario, Map<Long, PatrimonioCartera> leidas, Map<Long, Long> preciosBd) {
+        preciosBd.forEach(precios::putIfAbsent); // Los precios ya materializados van por delante (llegan por precioActualizado)
+        PatrimonioUsuario u = new PatrimonioUsuario(idUsuario);
+        for (PatrimonioCartera c : leidas.values()) {
+            c.valorActivosCentimos = 0L;
+            for (Map.Entry<Long, Long> e : c.unidades.entrySet()) {
+                c.valorActivosCentimos = Importe.sumar(c.valorActivosCentimos,
+                        Importe.valorEnCentimos(e.getValue(), precios.getOrDefault(e.getKey(), 0L)));
+                tenedores.computeIfAbsent(e.getKey(), k -> new HashSet<>()).add(c);
+            }
+            u.carteras.put(c.idCartera, c);
+            u.fiatCentimos = Importe.sumar(u.fiatCentimos, c.fiatCentimos);
+            u.valorActivosCentimos = Importe.sumar(u.valorActivosCentimos, c.valorActivosCentimos);
+            carteras.put(c.idCartera, c);
+        }
+        usuarios.put(idUsuario, u);
+        // El más antiguo en orden de acceso nunca es 'u', que se acaba de añadir
+        while (usuarios.size() > maxUsuarios) {
+            olvidarUsuario(usuarios.keySet().iterator().next());
+        }
+        return u;
+    }
+
+    // Con el cerrojo
+    private boolean coincide(PatrimonioUsuario actual, Map<Long, PatrimonioCartera> enBd, Map<Long, Long> preciosBd) {
+        if (!actual.carteras.keySet().equals(enBd.keySet())) {
+            return false;
+        }
+        for (PatrimonioCartera c : actual.carteras.values()) {
+            PatrimonioCartera bd = enBd.get(c.idCartera);
+            if (c.fiatCentimos != bd.fiatCentimos || !c.unidades.equals(bd.unidades)) {
+                return false;
+            }
+            long valor = 0L;
+            for (Map.Entry<Long, Long> e : c.unidades.entrySet()) {
+                valor = Importe.sumar(valor, Importe.valorEnCentimos(e.getValue(), preciosBd.getOrDefault(e.getKey(), 0L)));
+            }
+            if (valor != c.valorActivosCentimos) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Con el cerrojo
+    private void olvidarUsuario(Long idUsuario) {
+        PatrimonioUsuario u = usuarios.remove(idUsuario);
+        if (u == null) {
+            return;
+        }
+        for (PatrimonioCartera c : u.carteras.values()) {
+            carteras.remove(c.idCartera);
+            for (Long idCripto : c.unidades.keySet()) {
+                quitarTenedor(idCripto, c);
+            }
+        }
+    }
+
+    // Con el cerrojo
+    private void ponerUnidades(PatrimonioCartera c, Long idCripto, long unidades) {
+        if (unidades == 0) {
+            c.unidades.remove(idCripto);
+            quitarTenedor(idCripto, c);
+        } else {
+            c.unidades.put(idCripto, unidades);
+            tenedores.computeIfAbsent(idCripto, k -> new HashSet<>()).add(c);
+        }
+    }
+
+    // Con el cerrojo
+    private void quitarTenedor(Long idCripto, PatrimonioCartera c) {
+        Set<PatrimonioCartera> set = tenedores.get(idCripto);
+        if (set != null) {
+            set.remove(c);
+            if (set.isEmpty()) {
+                tenedores.remove(idCripto);
+            }
+        }
+    }
+
+    // Con el cerrojo
+    private void sumarValor(PatrimonioCartera c, long delta) {
+        c.valorActivosCentimos = Importe.sumar(c.valorActivosCentimos, delta);
+        PatrimonioUsuario u = usuarios.get(c.idUsuario);
+        u.valorActivosCentimos = Importe.sumar(u.valorActivosCentimos, delta);
+    }
+
+    private void trasCommit(Runnable cambio) {
+        if (!habilitado) {
+            return;
+        }
+        cambios.trasCommit(() -> aplicar(cambio));
+    }
+
+    private void aplicar(Runnable cambio) {
+        synchronized (cerrojo) {
+            try {
+                cambio.run();
+            } catch (RuntimeException e) {
+                // Nunca debe romper la transacción ya confirmada: se descarta todo y se recarga bajo demanda
+                log.error("Error aplicando un cambio al patrimonio materializado; se reconstruirá", e);
+                usuarios.clear();
+                carteras.clear();
+                tenedores.clear();
+            }
+        }
+    }
+}
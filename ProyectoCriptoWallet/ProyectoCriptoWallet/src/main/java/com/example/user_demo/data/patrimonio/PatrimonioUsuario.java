@@ -0,0 +1,20 @@
+package com.example.user_demo.data.patrimonio;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estado materializado de un usuario: sus carteras (ordenadas por ID) y los totales ya sumados.
+ * Solo se modifica con el lock de PatrimonioMaterializado.
+ */
+final class PatrimonioUsuario {
+
+    final Long idUsuario;
+    final Map<Long, PatrimonioCartera> carteras = new TreeMap<>();
+    long fiatCentimos;
+    long valorActivosCentimos;
+
+    PatrimonioUsuario(Long idUsuario) {
+        this.idUsuario = idUsuario;
+    }
+}
@@ -3,12 +3,87 @@ package com.example.user_demo.data.repository;
 import com.example.user_demo.data.model.Activo;
 import com.example.user_demo.data.model.Cartera;
 import com.example.user_demo.data.model.Criptomoneda;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ActivoRepository extends CrudRepository<Activo, Long> {
     // Buscar un activo específico (ej: Bitcoin) dentro de una cartera concreta
     Optional<Activo> findByCarteraAndCriptomoneda(Cartera cartera, Criptomoneda criptomoneda);
+
+    /**
+     * Todos los activos de una cartera (lo usa el motor de ledger para cargar su estado).
+     */
+    List<Activo> findByCartera_IdCartera(Long idCartera);
+
+    /**
+     * Activos de varias carteras en una sola consulta IN (transferencias por lotes).
+     */
+    List<Activo> findByCartera_IdCarteraIn(Collection<Long> idsCartera);
+
+    /**
+     * Como findByCartera_IdCarteraIn, pero con SELECT ... FOR UPDATE hasta el final de la transacción:
+     * el saldo leído es el que se va a escribir. En orden de ID para que dos lotes no se bloqueen en cruz.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Activo a WHERE a.cartera.idCartera IN :idsCartera ORDER BY a.idActivo")
+    List<Activo> bloquearDeCarteras(@Param("idsCartera") Collection<Long> idsCartera);
+
+    /**
+     * Posición (cartera, cripto, unidades) de un activo, sin entidades asociadas.
+     */
+    interface FilaPosicion {
+        Long getIdCartera();
+        Long getIdCripto();
+        Long getUnidades();
+    }
+
+    /**
+     * Todas las posiciones de las carteras de un usuario en una consulta, por cartera y orden de alta.
+     */
+    @Query("SELECT a.cartera.idCartera AS idCartera, a.criptomoneda.idCripto AS idCripto, a.cantidad AS unidades " +
+            "FROM Activo a WHERE a.cartera.usuario.idUsuario = :idUsuario ORDER BY a.cartera.idCartera, a.idActivo")
+    List<FilaPosicion> findPosicionesDeUsuario(@Param("idUsuario") Long idUsuario);
+
+    /**
+     * Página de las posiciones de una cartera, por orden de alta (Slice: sin COUNT).
+     */
+    @Query("SELECT a.cartera.idCartera AS idCartera, a.criptomoneda.idCripto AS idCripto, a.cantidad AS unidades " +
+            "FROM Activo a WHERE a.cartera.idCartera = :idCartera ORDER BY a.idActivo")
+    Slice<FilaPosicion> findPosicionesDeCartera(@Param("idCartera") Long idCartera, Pageable pagina);
+
+    /**
+     * Suma (o resta, si es negativo) unidades a un activo sin leerlo antes.
+     * El delta va en unidades mínimas y pasa por el mismo conversor que el atributo.
+     * @return Número de filas actualizadas (0 si el activo ya no existe).
+     */
+    @Modifying
+    @Query("UPDATE Activo a SET a.cantidad = a.cantidad + :delta WHERE a.idActivo = :idActivo")
+    int sumarCantidad(@Param("idActivo") Long idActivo, @Param("delta") Long delta);
+
+    /**
+     * Resta unidades a un activo solo si le alcanzan, comprobación y escritura en la misma sentencia:
+     * dos transferencias concurrentes no pueden gastar el mismo saldo.
+     * @return Número de filas actualizadas (0 si no hay saldo suficiente o el activo ya no existe).
+     */
+    @Modifying
+    @Query("UPDATE Activo a SET a.cantidad = a.cantidad - :unidades WHERE a.idActivo = :idActivo AND a.cantidad >= :unidades")
+    int restarSiAlcanza(@Param("idActivo") Long idActivo, @Param("unidades") Long unidades);
+
+    /**
+     * Unidades actuales de un activo, leídas de la BD (no de la entidad que haya en el contexto).
+     */
+    @Query("SELECT a.cantidad FROM Activo a WHERE a.idActivo = :idActivo")
+    Optional<Long> findUnidades(@Param("idActivo") Long idActivo);
 }
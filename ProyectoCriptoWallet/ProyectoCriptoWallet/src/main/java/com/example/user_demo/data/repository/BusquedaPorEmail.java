@@ -0,0 +1,13 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Usuario;
+
+import java.util.Optional;
+
+/**
+ * Búsqueda de usuarios por email a través de la caché de clave natural (no lanza un SELECT si ya está cacheado).
+ */
+public interface BusquedaPorEmail {
+
+    Optional<Usuario> findByEmail(String email);
+}
@@ -0,0 +1,22 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Usuario;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+class BusquedaPorEmailImpl implements BusquedaPorEmail {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Usuario> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Usuario.class).loadOptional(email);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Criptomoneda;
+
+import java.util.Optional;
+
+/**
+ * Búsqueda de criptomonedas por símbolo a través de la caché de clave natural.
+ */
+public interface BusquedaPorSimbolo {
+
+    Optional<Criptomoneda> findBySimbolo(String simbolo);
+}
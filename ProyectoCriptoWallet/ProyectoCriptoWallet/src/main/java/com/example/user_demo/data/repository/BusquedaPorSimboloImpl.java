@@ -0,0 +1,22 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Criptomoneda;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+class BusquedaPorSimboloImpl implements BusquedaPorSimbolo {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Criptomoneda> findBySimbolo(String simbolo) {
+        if (simbolo == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Criptomoneda.class).loadOptional(simbolo);
+    }
+}
@@ -2,12 +2,16 @@ package com.example.user_demo.data.repository;
 
 import com.example.user_demo.data.model.Cartera;
 import com.example.user_demo.data.model.Usuario;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CarteraRepository extends CrudRepository<Cartera, Long> {
@@ -17,10 +21,16 @@ public interface CarteraRepository extends CrudRepository<Cartera, Long> {
      */
     List<Cartera> findByUsuario(Usuario usuario);
 
+    /**
+     * Todas las carteras de varios usuarios, ordenadas por ID (la primera de cada usuario es la que recibe).
+     */
+    List<Cartera> findByUsuario_IdUsuarioInOrderByIdCarteraAsc(Collection<Long> idsUsuario);
+
     /**
      * Encuentra carteras que tengan un balance superior a una cantidad dada.
+     * @param balanceCentimos Importe en céntimos.
      */
-    List<Cartera> findByBalanceTotalGreaterThan(Double balance);
+    List<Cartera> findByBalanceTotalGreaterThan(Long balanceCentimos);
 
     /**
      * Suma el balance total de todas las carteras de un usuario.
@@ -29,5 +39,68 @@ public interface CarteraRepository extends CrudRepository<Cartera, Long> {
      */
     @Query("SELECT COALESCE(SUM(c.balanceTotal), 0.0) FROM Cartera c WHERE c.usuario = :usuario")
     Double getBalanceTotalPorUsuario(@Param("usuario") Usuario usuario);
+
+    /**
+     * Fila de valoración calculada en BD: ID (de cartera o de usuario), fiat y valor de los activos.
+     * El valor de cada activo se redondea hacia abajo al céntimo, igual que Importe.valorEnCentimos.
+     */
+    interface FilaValoracion {
+        Long getId();
+        BigDecimal getBalance();
+        BigDecimal getValorActivos();
+    }
+
+    /**
+     * Desglose por cartera del patrimonio de un usuario en una sola consulta
+     * (fiat + SUM(cantidad * precio) de sus activos), ordenado por ID de cartera.
+     */
+    @Query(value = """
+            SELECT c.id_cartera AS id,
+                   c.balance_total AS balance,
+                   COALESCE(SUM(FLOOR(a.cantidad * cr.precio_actual * 100)), 0) AS valorActivos
+            FROM carteras c
+            LEFT JOIN activos a ON a.id_cartera = c.id_cartera
+            LEFT JOIN criptomonedas cr ON cr.id_cripto = a.id_cripto
+            WHERE c.id_usuario = :idUsuario
+            GROUP BY c.id_cartera, c.balance_total
+            ORDER BY c.id_cartera
+            """, nativeQuery = true)
+    List<FilaValoracion> valorarCarterasDeUsuario(@Param("idUsuario") Long idUsuario);
+
+    /**
+     * Patrimonio total (fiat + activos) agrupado por usuario, en una sola consulta.
+     * Los usuarios sin carteras no aparecen.
+     */
+    @Query(value = """
+            SELECT c.id_usuario AS id,
+                   SUM(c.balance_total) AS balance,
+                   COALESCE(SUM(v.valor), 0) AS valorActivos
+            FROM carteras c
+            LEFT JOIN (SELECT a.id_cartera, SUM(FLOOR(a.cantidad * cr.precio_actual * 100)) AS valor
+                       FROM activos a
+                       JOIN criptomonedas cr ON cr.id_cripto = a.id_cripto
+                       JOIN carteras ca ON ca.id_cartera = a.id_cartera
+                       WHERE ca.id_usuario IN (:idsUsuario)
+                       GROUP BY a.id_cartera) v ON v.id_cartera = c.id_cartera
+            WHERE c.id_usuario IN (:idsUsuario)
+            GROUP BY c.id_usuario
+            """, nativeQuery = true)
+    List<FilaValoracion> valorarUsuarios(@Param("idsUsuario") Collection<Long> idsUsuario);
+
+    /**
+     * Resta fiat a una cartera solo si le alcanza, comprobación y escritura en la misma sentencia
+     * (como ActivoRepository.restarSiAlcanza). Al ser un UPDATE masivo, Hibernate vacía la región "carteras".
+     * @param centimos Importe en céntimos.
+     * @return Número de filas actualizadas (0 si no hay saldo suficiente o la cartera ya no existe).
+     */
+    @Modifying
+    @Query("UPDATE Cartera c SET c.balanceTotal = c.balanceTotal - :centimos WHERE c.idCartera = :idCartera AND c.balanceTotal >= :centimos")
+    int restarSiAlcanza(@Param("idCartera") Long idCartera, @Param("centimos") Long centimos);
+
+    /**
+     * Balance actual de una cartera en céntimos, leído de la BD (no de la entidad que haya en el contexto).
+     */
+    @Query("SELECT c.balanceTotal FROM Cartera c WHERE c.idCartera = :idCartera")
+    Optional<Long> findBalance(@Param("idCartera") Long idCartera);
 }
 
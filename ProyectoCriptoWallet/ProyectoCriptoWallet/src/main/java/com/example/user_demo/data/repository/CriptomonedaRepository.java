@@ -1,21 +1,31 @@
 package com.example.user_demo.data.repository;
 
 import com.example.user_demo.data.model.Criptomoneda;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CriptomonedaRepository extends CrudRepository<Criptomoneda, Long> {
+public interface CriptomonedaRepository extends CrudRepository<Criptomoneda, Long>, BusquedaPorSimbolo {
 
-    Optional<Criptomoneda> findBySimbolo(String simbolo);
+    // Lista corta y casi estática: los resultados van a la caché de consultas (se invalida al escribir la tabla)
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Criptomoneda> findAll();
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Criptomoneda> findByNombre(String nombre);
 
+    List<Criptomoneda> findBySimboloIn(Collection<String> simbolos);
+
     /**
      * CONSULTA ARREGLADA:
      * Buscamos criptomonedas que NO existan en la tabla de Activos.
@@ -0,0 +1,27 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.EntradaHistorial;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EntradaHistorialRepository extends CrudRepository<EntradaHistorial, Long> {
+
+    /**
+     * Entradas de un usuario de la más reciente a la más antigua, por páginas.
+     * Devuelve Slice (no Page) para no lanzar un COUNT sobre todo el historial en cada lectura.
+     */
+    Slice<EntradaHistorial> findByUsuario_IdUsuarioOrderByFechaDescIdEntradaDesc(Long idUsuario, Pageable pageable);
+
+    /**
+     * Borra todas las entradas de un usuario con un único DELETE (sin cargarlas).
+     */
+    @Modifying
+    @Query("DELETE FROM EntradaHistorial e WHERE e.usuario.idUsuario = :idUsuario")
+    int deleteByIdUsuario(@Param("idUsuario") Long idUsuario);
+}
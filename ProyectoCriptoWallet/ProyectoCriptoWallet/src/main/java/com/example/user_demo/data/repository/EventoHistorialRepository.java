@@ -0,0 +1,43 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.EventoHistorial;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EventoHistorialRepository extends CrudRepository<EventoHistorial, Long> {
+
+    /**
+     * Reclama los eventos pendientes más antiguos (por fecha de la transferencia) bloqueándolos hasta el
+     * fin de la transacción: SELECT ... FOR UPDATE SKIP LOCKED. Si otro nodo está despachando, se salta
+     * sus filas en vez de esperar o procesarlas dos veces. Nativa: el dialecto H2 de Hibernate no genera
+     * SKIP LOCKED, aunque H2 y MySQL 8 lo admiten con esta misma sintaxis.
+     */
+    @Query(value = "SELECT * FROM historial_eventos ORDER BY fecha, id_evento LIMIT :limite FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EventoHistorial> reclamarPendientes(@Param("limite") int limite);
+
+    /**
+     * Eventos pendientes de los usuarios indicados, hasta una fecha, que no están en el lote reclamado.
+     * Es una lectura sin bloqueo: también ve las filas que otro nodo tiene reclamadas.
+     */
+    @Query("SELECT e FROM EventoHistorial e WHERE (e.idUsuarioOrigen IN :usuarios OR e.idUsuarioDestino IN :usuarios) "
+            + "AND e.fecha <= :hasta AND e.idEvento NOT IN :reclamados")
+    List<EventoHistorial> findPendientesFueraDelLote(@Param("usuarios") Collection<Long> usuarios,
+                                                     @Param("hasta") LocalDateTime hasta,
+                                                     @Param("reclamados") Collection<Long> reclamados);
+
+    /**
+     * Borra los eventos ya despachados con un único DELETE.
+     */
+    @Modifying
+    @Query("DELETE FROM EventoHistorial e WHERE e.idEvento IN :ids")
+    int deleteByIdEventoIn(@Param("ids") Collection<Long> ids);
+}
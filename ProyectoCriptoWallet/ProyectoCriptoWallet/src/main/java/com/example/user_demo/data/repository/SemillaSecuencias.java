@@ -0,0 +1,80 @@
+package com.example.user_demo.data.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Sube al arrancar las secuencias de ids de Transaccion y Activo por encima de los ids ya usados.
+ *
+ * Antes esos ids los daba AUTO_INCREMENT (IDENTITY). En una base de datos existente, la secuencia recién
+ * creada empezaría en su initialValue (1000) y chocaría con las filas anteriores. Solo sube la secuencia,
+ * nunca la baja: en los arranques siguientes no cambia nada.
+ *
+ * En MySQL Hibernate emula cada secuencia con una tabla de una fila (columna next_val); en H2 son
+ * secuencias nativas.
+ */
+@Component
+@DependsOn("entityManagerFactory") // El esquema, con las secuencias, ya está creado o actualizado
+public class SemillaSecuencias {
+
+    private static final Logger log = LoggerFactory.getLogger(SemillaSecuencias.class);
+
+    // allocationSize de los @SequenceGenerator. El optimizador "pooled" reparte el bloque (valor - POOL, valor],
+    // así que valor = MAX(id) + POOL deja el primer id nuevo en MAX(id) + 1
+    static final int POOL = 50;
+
+    record Secuencia(String nombre, String tabla, String columnaId) {
+    }
+
+    static final List<Secuencia> SECUENCIAS = List.of(
+            new Secuencia("transacciones_seq", "transacciones", "id_transaccion"),
+            new Secuencia("activos_seq", "activos", "id_activo"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SemillaSecuencias(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void sembrar() {
+        boolean h2 = esH2();
+        for (Secuencia s : SECUENCIAS) {
+            long minimo = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(" + s.columnaId() + "), 0) FROM " + s.tabla(), Long.class) + POOL;
+            long actual = h2
+                    ? jdbcTemplate.queryForObject("SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?",
+                            Long.class, s.nombre().toUpperCase())
+                    : jdbcTemplate.queryForObject("SELECT next_val FROM " + s.nombre(), Long.class);
+            if (actual >= minimo) {
+                continue;
+            }
+            if (h2) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + s.nombre() + " RESTART WITH " + minimo);
+            } else {
+                jdbcTemplate.update("UPDATE " + s.nombre() + " SET next_val = ?", minimo);
+            }
+            log.info("Secuencia {} subida de {} a {} (ids ya usados en {})", s.nombre(), actual, minimo, s.tabla());
+        }
+    }
+
+    private boolean esH2() {
+        String producto = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if ("H2".equals(producto)) {
+            return true;
+        }
+        if ("MySQL".equals(producto)) {
+            return false;
+        }
+        throw new IllegalStateException("Las secuencias de ids solo se ajustan en H2 y MySQL, no " + producto + ".");
+    }
+}
@@ -1,18 +1,24 @@
 package com.example.user_demo.data.repository;
 
+import com.example.user_demo.data.dto.FilaTransaccion;
 import com.example.user_demo.data.model.Criptomoneda;
 import com.example.user_demo.data.model.Transaccion;
 import com.example.user_demo.data.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface TransaccionRepository extends CrudRepository<Transaccion, Long> {
+public interface TransaccionRepository extends CrudRepository<Transaccion, Long>, TransaccionesPorRango {
 
     /**
      * Encuentra todas las transacciones enviadas por un usuario.
@@ -31,6 +37,7 @@ public interface TransaccionRepository extends CrudRepository<Transaccion, Long>
 
     /**
      * (NUEVA FUNCIÓN) Busca transacciones entre un rango de fechas.
+     * Solo la tabla caliente (meses dentro de la retención); con el archivo, ver TransaccionesPorRango.
      */
     @Query("SELECT t FROM Transaccion t WHERE t.fecha BETWEEN :inicio AND :fin")
     Iterable<Transaccion> findTransaccionesEnRangoDeFechas(
@@ -38,6 +45,21 @@ public interface TransaccionRepository extends CrudRepository<Transaccion, Long>
             @Param("fin") LocalDateTime fin
     );
 
+    /**
+     * Transacciones con fecha en [inicio, fin) como filas planas, leídas con un cursor de solo avance
+     * (fetch size fijo, sin entidades en el contexto de persistencia). El Stream debe cerrarse dentro de la transacción.
+     * Solo la tabla caliente; streamFilasConArchivo incluye también los meses archivados.
+     */
+    @Query("SELECT new com.example.user_demo.data.dto.FilaTransaccion(t.idTransaccion, t.fecha, t.usuarioOrigen.idUsuario, " +
+            "t.usuarioDestino.idUsuario, t.criptomoneda.simbolo, t.cantidad) FROM Transaccion t " +
+            "WHERE t.fecha >= :inicio AND t.fecha < :fin ORDER BY t.fecha, t.idTransaccion")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    Stream<FilaTransaccion> streamFilasEnRango(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
     /**
      * (NUEVA FUNCIÓN) Busca transacciones donde un usuario se envió dinero a sí mismo.
      */
@@ -47,9 +69,17 @@ public interface TransaccionRepository extends CrudRepository<Transaccion, Long>
      * Encuentra todas las transacciones (enviadas O recibidas)
      * de un usuario en particular.
      * Esta es la consulta compleja que une todo.
+     * Solo ve los meses dentro de la retención: los anteriores están en transacciones_archivo (ver archivadasDeUsuario).
      */
     @Query("SELECT t FROM Transaccion t " +
             "WHERE t.usuarioOrigen = :usuario OR t.usuarioDestino = :usuario " +
-            "ORDER BY t.fecha DESC")
+            "ORDER BY t.fecha DESC, t.idTransaccion DESC")
     List<Transaccion> findAllTransaccionesByUsuario(@Param("usuario") Usuario usuario);
+
+    /**
+     * Carga unas transacciones con sus usuarios y cripto en una sola consulta (sin N+1).
+     */
+    @Query("SELECT t FROM Transaccion t JOIN FETCH t.usuarioOrigen JOIN FETCH t.usuarioDestino JOIN FETCH t.criptomoneda " +
+            "WHERE t.idTransaccion IN :ids")
+    List<Transaccion> findConRelacionesByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,45 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.dto.ClaveTransaccion;
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.model.TransaccionArchivada;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Consultas sobre las particiones de transacciones (tabla caliente + archivo), por rango de fechas o
+ * por usuario: solo se consulta cada tabla si puede tener filas pedidas (ver ParticionesTransacciones).
+ */
+public interface TransaccionesPorRango {
+
+    /**
+     * Filas con fecha en [inicio, fin), primero las archivadas y después las de 'transacciones',
+     * cada tramo por fecha e ID. Cursor de solo avance: el Stream debe cerrarse dentro de la transacción.
+     */
+    Stream<FilaTransaccion> streamFilasConArchivo(LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Número de transacciones con fecha en [inicio, fin), archivadas o no.
+     */
+    long contarEnRango(LocalDateTime inicio, LocalDateTime fin);
+
+    /**
+     * Siguiente página de transacciones de un usuario (enviadas o recibidas), archivadas o no, por (fecha, id)
+     * descendente y estrictamente anteriores al cursor. Cada tabla se lee con dos ramas (origen / destino) que
+     * recorren su índice (usuario, fecha) y se cortan en 'limite', así que cualquier página cuesta lo mismo
+     * que la primera. El archivo solo se lee si puede tener filas de la página.
+     * Las transferencias a uno mismo solo salen en la rama de origen.
+     */
+    List<ClaveTransaccion> paginaPorUsuario(Long idUsuario, LocalDateTime fecha, Long idTransaccion, int limite);
+
+    /**
+     * Transacciones archivadas enviadas o recibidas por el usuario, de la más reciente a la más antigua
+     * (vacío sin consultar nada si no hay meses archivados).
+     */
+    List<TransaccionArchivada> archivadasDeUsuario(Long idUsuario);
+
+    List<TransaccionArchivada> archivadasPorIds(Collection<Long> ids);
+}
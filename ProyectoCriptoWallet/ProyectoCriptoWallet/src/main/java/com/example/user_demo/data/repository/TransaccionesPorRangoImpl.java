@@ -0,0 +1,153 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.dto.ClaveTransaccion;
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.model.TransaccionArchivada;
+import com.example.user_demo.data.particiones.ParticionesTransacciones;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+class TransaccionesPorRangoImpl implements TransaccionesPorRango {
+
+    private static final String FILAS_CALIENTES = "SELECT new com.example.user_demo.data.dto.FilaTransaccion(t.idTransaccion, t.fecha, " +
+            "t.usuarioOrigen.idUsuario, t.usuarioDestino.idUsuario, t.criptomoneda.simbolo, t.cantidad) FROM Transaccion t " +
+            "WHERE t.fecha >= :inicio AND t.fecha < :fin ORDER BY t.fecha, t.idTransaccion";
+    private static final String FILAS_ARCHIVADAS = "SELECT new com.example.user_demo.data.dto.FilaTransaccion(a.idTransaccion, a.fecha, " +
+            "a.idUsuarioOrigen, a.idUsuarioDestino, c.simbolo, a.cantidad) FROM TransaccionArchivada a " +
+            "JOIN Criptomoneda c ON c.idCripto = a.idCripto " +
+            "WHERE a.fecha >= :inicio AND a.fecha < :fin ORDER BY a.fecha, a.idTransaccion";
+    private static final String PAGINA = "SELECT id_transaccion, fecha FROM (" +
+            "(SELECT id_transaccion, fecha FROM %1$s " +
+            "WHERE id_usuario_origen = :idUsuario AND (fecha < :fecha OR (fecha = :fecha AND id_transaccion < :idTransaccion)) " +
+            "ORDER BY fecha DESC, id_transaccion DESC LIMIT :limite) " +
+            "UNION ALL " +
+            "(SELECT id_transaccion, fecha FROM %1$s " +
+            "WHERE id_usuario_destino = :idUsuario AND id_usuario_origen <> :idUsuario " +
+            "AND (fecha < :fecha OR (fecha = :fecha AND id_transaccion < :idTransaccion)) " +
+            "ORDER BY fecha DESC, id_transaccion DESC LIMIT :limite)" +
+            ") pagina ORDER BY fecha DESC, id_transaccion DESC LIMIT :limite";
+    private static final String PAGINA_CALIENTE = PAGINA.formatted("transacciones");
+    private static final String PAGINA_ARCHIVO = PAGINA.formatted("transacciones_archivo");
+    private static final Comparator<ClaveTransaccion> MAS_RECIENTE_PRIMERO =
+            Comparator.comparing(ClaveTransaccion::fecha).thenComparing(ClaveTransaccion::idTransaccion).reversed();
+
+    private final ParticionesTransacciones particiones;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    TransaccionesPorRangoImpl(ParticionesTransacciones particiones) {
+        this.particiones = particiones;
+    }
+
+    @Override
+    public Stream<FilaTransaccion> streamFilasConArchivo(LocalDateTime inicio, LocalDateTime fin) {
+        Stream<FilaTransaccion> archivadas = particiones.tocaArchivo(inicio, fin) ? filas(FILAS_ARCHIVADAS, inicio, fin) : Stream.empty();
+        Stream<FilaTransaccion> calientes = particiones.tocaCaliente(inicio, fin) ? filas(FILAS_CALIENTES, inicio, fin) : Stream.empty();
+        return Stream.concat(archivadas, calientes);
+    }
+
+    @Override
+    public long contarEnRango(LocalDateTime inicio, LocalDateTime fin) {
+        long total = 0;
+        if (particiones.tocaArchivo(inicio, fin)) {
+            total += contar("SELECT COUNT(a) FROM TransaccionArchivada a WHERE a.fecha >= :inicio AND a.fecha < :fin", inicio, fin);
+        }
+        if (particiones.tocaCaliente(inicio, fin)) {
+            total += contar("SELECT COUNT(t) FROM Transaccion t WHERE t.fecha >= :inicio AND t.fecha < :fin", inicio, fin);
+        }
+        return total;
+    }
+
+    @Override
+    public List<ClaveTransaccion> paginaPorUsuario(Long idUsuario, LocalDateTime fecha, Long idTransaccion, int limite) {
+        List<ClaveTransaccion> calientes = claves(PAGINA_CALIENTE, false, idUsuario, fecha, idTransaccion, limite);
+        // Si la página ya está llena, al archivo solo hay que ir si tiene filas desde la fecha de la última
+        LocalDateTime desde = calientes.size() == limite ? calientes.get(limite - 1).fecha() : null;
+        if (!particiones.tocaArchivo(desde, fecha)) {
+            return calientes;
+        }
+        List<ClaveTransaccion> pagina = new ArrayList<>(calientes);
+        Set<Long> vistas = new HashSet<>();
+        calientes.forEach(c -> vistas.add(c.idTransaccion()));
+        for (ClaveTransaccion c : claves(PAGINA_ARCHIVO, true, idUsuario, fecha, idTransaccion, limite)) {
+            if (vistas.add(c.idTransaccion())) { // Una fila que se archivaba entre las dos lecturas sale una vez
+                pagina.add(c);
+            }
+        }
+        pagina.sort(MAS_RECIENTE_PRIMERO);
+        return pagina.size() > limite ? pagina.subList(0, limite) : pagina;
+    }
+
+    @Override
+    public List<TransaccionArchivada> archivadasDeUsuario(Long idUsuario) {
+        if (!particiones.tocaArchivo(null, null)) {
+            return List.of();
+        }
+        return entityManager.createQuery("SELECT a FROM TransaccionArchivada a " +
+                        "WHERE a.idUsuarioOrigen = :idUsuario OR a.idUsuarioDestino = :idUsuario " +
+                        "ORDER BY a.fecha DESC, a.idTransaccion DESC", TransaccionArchivada.class)
+                .setParameter("idUsuario", idUsuario)
+                .getResultList();
+    }
+
+    @Override
+    public List<TransaccionArchivada> archivadasPorIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery("SELECT a FROM TransaccionArchivada a WHERE a.idTransaccion IN :ids", TransaccionArchivada.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    private List<ClaveTransaccion> claves(String sql, boolean archivada, Long idUsuario, LocalDateTime fecha,
+                                          Long idTransaccion, int limite) {
+        List<?> filas = entityManager.createNativeQuery(sql)
+                .setParameter("idUsuario", idUsuario)
+                .setParameter("fecha", fecha)
+                .setParameter("idTransaccion", idTransaccion)
+                .setParameter("limite", limite)
+                .getResultList();
+        List<ClaveTransaccion> claves = new ArrayList<>(filas.size());
+        for (Object fila : filas) {
+            Object[] columnas = (Object[]) fila;
+            claves.add(new ClaveTransaccion(((Number) columnas[0]).longValue(), fecha(columnas[1]), archivada));
+        }
+        return claves;
+    }
+
+    // Según el driver, TIMESTAMP llega como Timestamp o como LocalDateTime
+    private static LocalDateTime fecha(Object valor) {
+        return valor instanceof Timestamp t ? t.toLocalDateTime() : (LocalDateTime) valor;
+    }
+
+    private Stream<FilaTransaccion> filas(String jpql, LocalDateTime inicio, LocalDateTime fin) {
+        return entityManager.createQuery(jpql, FilaTransaccion.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fin", fin)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private long contar(String jpql, LocalDateTime inicio, LocalDateTime fin) {
+        return entityManager.createQuery(jpql, Long.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fin", fin)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.TransferenciaPendiente;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TransferenciaPendienteRepository extends CrudRepository<TransferenciaPendiente, Long> {
+
+    /**
+     * Las transferencias que quedaron a medias, en el orden en que se debitaron.
+     */
+    List<TransferenciaPendiente> findAllByOrderByIdTransferenciaAsc();
+
+    /**
+     * Da por terminada una transferencia (acreditada o reembolsada).
+     * @return 0 si ya no estaba pendiente.
+     */
+    @Modifying
+    @Query("DELETE FROM TransferenciaPendiente t WHERE t.idTransferencia = :id")
+    int borrar(@Param("id") Long idTransferencia);
+}
@@ -1,27 +1,76 @@
 package com.example.user_demo.data.repository;
 
+import com.example.user_demo.data.dto.FichaUsuario;
 import com.example.user_demo.data.model.Usuario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UsuarioRepository extends CrudRepository<Usuario, Long> {
+public interface UsuarioRepository extends CrudRepository<Usuario, Long>, BusquedaPorEmail {
 
-    Optional<Usuario> findByEmail(String email);
+    /**
+     * Datos de cabecera del dashboard (nombre y texto del Historial) sin cargar la entidad ni sus relaciones.
+     */
+    interface CabeceraPanel {
+        Long getIdUsuario();
+        String getNombre();
+        Long getIdHistorial();
+        String getDetalleHistorial();
+    }
+
+    @Query("SELECT u.idUsuario AS idUsuario, u.nombre AS nombre, h.idHistorial AS idHistorial, h.detalle AS detalleHistorial " +
+            "FROM Usuario u LEFT JOIN u.historial h WHERE u.idUsuario = :id")
+    Optional<CabeceraPanel> findCabeceraPanel(@Param("id") Long idUsuario);
 
     Iterable<Usuario> findByNombreStartingWith(String prefijo);
 
+    @Query("SELECT new com.example.user_demo.data.dto.FichaUsuario(u.idUsuario, u.nombre, u.email) " +
+            "FROM Usuario u WHERE u.idUsuario = :id")
+    Optional<FichaUsuario> findFichaById(@Param("id") Long idUsuario);
+
+    /**
+     * Listado por cursor (los usuarios con ID mayor que 'despuesDe', en orden de ID): cada página
+     * es un rango del índice primario, sin OFFSET ni COUNT, y no carga entidades.
+     */
+    @Query("SELECT new com.example.user_demo.data.dto.FichaUsuario(u.idUsuario, u.nombre, u.email) " +
+            "FROM Usuario u WHERE u.idUsuario > :despuesDe ORDER BY u.idUsuario")
+    Slice<FichaUsuario> findFichasDespuesDe(@Param("despuesDe") Long despuesDe, Pageable pagina);
+
+    /**
+     * Autocompletado sin el índice en memoria (LIKE 'prefijo%' sobre nombre y email).
+     */
+    List<Usuario> findByNombreStartingWithIgnoreCaseOrEmailStartingWithIgnoreCaseOrderByNombreAsc(
+            String nombre, String email, Pageable pagina);
+
+    /**
+     * Carga varios usuarios junto a su Historial en una sola consulta (evita un SELECT por usuario).
+     */
+    @Query("SELECT u FROM Usuario u LEFT JOIN FETCH u.historial WHERE u.idUsuario IN :ids")
+    List<Usuario> findConHistorialByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Usuarios con saldo de una cripto en alguna cartera. Con el índice de tenedores cargado
+     * no se usa (ver UsuarioService.getUsuariosConCripto).
+     */
     @Query("SELECT DISTINCT u FROM Usuario u " +
             "JOIN u.carteras c " +
             "JOIN c.activos a " +          // <-- Cambiado
             "JOIN a.criptomoneda cripto " + // <-- Cambiado
-            "WHERE cripto.simbolo = :simbolo")
+            "WHERE cripto.simbolo = :simbolo AND a.cantidad > 0")
     Iterable<Usuario> findUsuariosByCriptoSimbolo(@Param("simbolo") String simbolo);
 
+    @Query("SELECT COUNT(DISTINCT c.usuario.idUsuario) FROM Activo a JOIN a.cartera c " +
+            "WHERE a.criptomoneda.simbolo = :simbolo AND a.cantidad > 0")
+    long countUsuariosByCriptoSimbolo(@Param("simbolo") String simbolo);
+
     @Query("SELECT c.usuario FROM Cartera c GROUP BY c.usuario HAVING COUNT(c) > 1")
     Iterable<Usuario> findUsuariosConMultiplesCarteras();
 }
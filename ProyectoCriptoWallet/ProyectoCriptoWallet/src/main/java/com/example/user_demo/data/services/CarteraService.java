@@ -1,6 +1,16 @@
 package com.example.user_demo.data.services;
 
+import com.example.user_demo.data.dto.PanelActivo;
+import com.example.user_demo.data.dto.PanelUsuario;
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.dto.ValoracionUsuario;
 import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.patrimonio.InformeVerificacion;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -39,8 +49,46 @@ public interface CarteraService {
      */
     Cartera removeCriptomonedaDeCartera(Long idCartera, Long idCripto);
 
+    /**
+     * Patrimonio total (fiat + valor de mercado de los activos) de un usuario.
+     * Se calcula en BD con una consulta agregada, sin recorrer carteras ni activos.
+     * @throws java.util.NoSuchElementException Si el usuario no existe.
+     */
     Double getBalanceTotalPorUsuario(String emailUsuario);
 
+    /**
+     * Desglose del patrimonio por cartera de un usuario, ordenado por ID de cartera.
+     * Sale del patrimonio materializado si está activo; si no, de una sola consulta.
+     */
+    List<ValoracionCartera> getValoracionCarteras(Long idUsuario);
+
+    /**
+     * Todo lo que muestra el dashboard de un usuario (cabecera, carteras valoradas y activos) en un número
+     * fijo de consultas, sea cual sea el número de carteras o activos.
+     * @throws java.util.NoSuchElementException Si el usuario no existe.
+     */
+    PanelUsuario getPanelUsuario(Long idUsuario);
+
+    /**
+     * Página de las posiciones de una cartera, por orden de alta (nombre y símbolo del catálogo en memoria).
+     * @param pagina Número de página (empieza en 0).
+     * @param tamano Activos por página (1..100).
+     * @throws IllegalArgumentException Si la página o el tamaño no son válidos.
+     * @throws java.util.NoSuchElementException Si la cartera no existe.
+     */
+    Slice<PanelActivo> getActivos(Long idCartera, int pagina, int tamano);
+
+    /**
+     * Patrimonio de varios usuarios (una sola consulta). Los usuarios sin carteras no aparecen.
+     */
+    Map<Long, ValoracionUsuario> getValoracionUsuarios(Collection<Long> idsUsuario);
+
+    /**
+     * Recalcula el patrimonio materializado desde las filas de Activo y lo compara con el de memoria.
+     * @param corregir Si es true, sustituye el estado de los usuarios con deriva por el de BD.
+     */
+    InformeVerificacion verificarPatrimonio(boolean corregir);
+
     void invertirEnCripto(Long carteraId, Long criptoId, Double cantidadInversionFiat);
 
     void eliminarCartera(Long id);
@@ -1,17 +1,42 @@
 package com.example.user_demo.data.services;
 
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.CambioSaldo;
+import com.example.user_demo.data.dto.PanelActivo;
+import com.example.user_demo.data.dto.PanelCartera;
+import com.example.user_demo.data.dto.PanelUsuario;
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.dto.ValoracionUsuario;
+import com.example.user_demo.data.enrutado.LecturasTrasEscritura;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.ledger.LedgerEngine;
 import com.example.user_demo.data.model.Activo;
 import com.example.user_demo.data.model.Cartera;
 import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
 import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.patrimonio.InformeVerificacion;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
 import com.example.user_demo.data.repository.ActivoRepository; // <--- NUEVO
 import com.example.user_demo.data.repository.CarteraRepository;
 import com.example.user_demo.data.repository.CriptomonedaRepository;
 import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -23,18 +48,43 @@ public class CarteraServiceImpl implements CarteraService {
     private final UsuarioRepository usuarioRepository;
     private final CriptomonedaRepository criptomonedaRepository;
     private final ActivoRepository activoRepository; // <--- Inyectamos el repo de Activos
-
+    private final LedgerEngine ledgerEngine; // Se le avisa de los cambios hechos fuera del motor
+    private final PatrimonioMaterializado patrimonio; // Idem: se le pasan los deltas de cada operación
+    private final CatalogoCriptomonedas catalogo; // Precios en memoria para invertir
+    private final LecturasTrasEscritura lecturas; // Quien modifica sus carteras lee después de la primaria
+    private final IndiceTenedores tenedores; // Cripto -> usuarios con saldo, para avisos y airdrops
+    private final ClasificacionPatrimonio clasificacion; // Se le avisa de quién cambia de patrimonio
+    private final VersionesUsuario versiones; // ETag del dashboard de cada usuario
+    private final DifusorEventos eventos; // Deltas de saldo a los dashboards conectados
+
+    private static final int TAMANO_MAXIMO_PAGINA = 100;
     private static final String EMAIL_REGEX = "^[a-zA-Z0-9_!#$%&'*+/=?`{|}~^.-]+@[a-zA-Z0-9.-]+$";
 
     @Autowired
     public CarteraServiceImpl(CarteraRepository carteraRepository,
                               UsuarioRepository usuarioRepository,
                               CriptomonedaRepository criptomonedaRepository,
-                              ActivoRepository activoRepository) {
+                              ActivoRepository activoRepository,
+                              LedgerEngine ledgerEngine,
+                              PatrimonioMaterializado patrimonio,
+                              CatalogoCriptomonedas catalogo,
+                              LecturasTrasEscritura lecturas,
+                              IndiceTenedores tenedores,
+                              ClasificacionPatrimonio clasificacion,
+                              VersionesUsuario versiones,
+                              DifusorEventos eventos) {
         this.carteraRepository = carteraRepository;
         this.usuarioRepository = usuarioRepository;
         this.criptomonedaRepository = criptomonedaRepository;
         this.activoRepository = activoRepository;
+        this.ledgerEngine = ledgerEngine;
+        this.patrimonio = patrimonio;
+        this.catalogo = catalogo;
+        this.lecturas = lecturas;
+        this.tenedores = tenedores;
+        this.clasificacion = clasificacion;
+        this.versiones = versiones;
+        this.eventos = eventos;
     }
 
     @Override
@@ -71,7 +121,13 @@ public class CarteraServiceImpl implements CarteraService {
         Cartera nuevaCartera = new Cartera(usuario, balanceInicial);
         usuario.addCartera(nuevaCartera);
 
-        return carteraRepository.save(nuevaCartera);
+        Cartera guardada = carteraRepository.save(nuevaCartera);
+        ledgerEngine.invalidarUsuario(usuario.getIdUsuario());
+        patrimonio.carteraCreada(guardada.getIdCartera(), usuario.getIdUsuario(), guardada.getBalanceCentimos());
+        clasificacion.usuariosCambiados(usuario.getIdUsuario());
+        versiones.carterasCambiadas(usuario.getIdUsuario());
+        lecturas.escrituraDe(usuario.getIdUsuario());
+        return guardada;
     }
 
     @Override
@@ -95,11 +151,14 @@ public class CarteraServiceImpl implements CarteraService {
         }
 
         // Si no existe, creamos un nuevo Activo con cantidad 0.0
-        Activo nuevoActivo = new Activo(cartera, cripto, 0.0);
+        Activo nuevoActivo = new Activo(cartera, cripto, 0L);
         activoRepository.save(nuevoActivo);
 
         // Forzamos la actualización de la lista en memoria para el retorno
         cartera.getActivos().add(nuevoActivo);
+        ledgerEngine.invalidarCartera(idCartera);
+        versiones.carterasCambiadas(cartera.getUsuario().getIdUsuario());
+        lecturas.escrituraDe(cartera.getUsuario().getIdUsuario());
 
         return carteraRepository.save(cartera);
     }
@@ -121,9 +180,15 @@ public class CarteraServiceImpl implements CarteraService {
 
         // Lo borramos
         activoRepository.delete(activo);
+        patrimonio.moverUnidades(idCartera, cripto.getIdCripto(), -activo.getUnidades());
+        tenedores.posicionCambiada(cartera.getUsuario().getIdUsuario(), cripto.getIdCripto(), activo.getUnidades(), 0L);
+        clasificacion.usuariosCambiados(cartera.getUsuario().getIdUsuario());
+        versiones.carterasCambiadas(cartera.getUsuario().getIdUsuario());
 
         // Actualizamos la lista en memoria para el retorno (opcional pero recomendado)
         cartera.getActivos().remove(activo);
+        ledgerEngine.invalidarCartera(idCartera);
+        lecturas.escrituraDe(cartera.getUsuario().getIdUsuario());
 
         return carteraRepository.save(cartera);
     }
@@ -132,19 +197,104 @@ public class CarteraServiceImpl implements CarteraService {
     @Transactional(readOnly = true)
     public Double getBalanceTotalPorUsuario(String emailUsuario) {
         Usuario usuario = usuarioRepository.findByEmail(emailUsuario).orElseThrow();
+        if (patrimonio.isActivo()) {
+            return patrimonio.valoracionUsuario(usuario.getIdUsuario()).getPatrimonio();
+        }
 
-        double patrimonioTotal = 0.0;
+        // Dinero FIAT + valor de los ACTIVOS (Cripto * Precio), sumado en BD en una sola consulta
+        ValoracionUsuario valoracion = getValoracionUsuarios(List.of(usuario.getIdUsuario())).get(usuario.getIdUsuario());
+        return valoracion == null ? 0.0 : valoracion.getPatrimonio();
+    }
 
-        for (Cartera cartera : usuario.getCarteras()) {
-            // 1. Sumar dinero FIAT (Dólares en la cartera)
-            patrimonioTotal += cartera.getBalanceTotal();
+    @Override
+    @Transactional(readOnly = true)
+    public List<ValoracionCartera> getValoracionCarteras(Long idUsuario) {
+        if (idUsuario == null) throw new IllegalArgumentException("El ID de usuario es obligatorio.");
+        if (patrimonio.isActivo()) {
+            return patrimonio.valoracionCarteras(idUsuario);
+        }
 
-            // 2. Sumar valor de los ACTIVOS (Cripto * Precio)
-            for (Activo activo : cartera.getActivos()) {
-                patrimonioTotal += (activo.getCantidad() * activo.getCriptomoneda().getPrecioActual());
-            }
+        List<CarteraRepository.FilaValoracion> filas = carteraRepository.valorarCarterasDeUsuario(idUsuario);
+        List<ValoracionCartera> valoraciones = new ArrayList<>(filas.size());
+        for (CarteraRepository.FilaValoracion f : filas) {
+            valoraciones.add(new ValoracionCartera(f.getId(), centimos(f.getBalance()), valorActivos(f)));
         }
-        return patrimonioTotal;
+        return valoraciones;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PanelUsuario getPanelUsuario(Long idUsuario) {
+        if (idUsuario == null) throw new IllegalArgumentException("El ID de usuario es obligatorio.");
+        UsuarioRepository.CabeceraPanel cabecera = usuarioRepository.findCabeceraPanel(idUsuario)
+                .orElseThrow(() -> new NoSuchElementException("Usuario no encontrado"));
+
+        // Activos de todas las carteras en una consulta; nombre y símbolo salen del catálogo en memoria
+        Map<Long, List<PanelActivo>> activosPorCartera = new HashMap<>();
+        for (ActivoRepository.FilaPosicion f : activoRepository.findPosicionesDeUsuario(idUsuario)) {
+            CotizacionCripto cripto = catalogo.porId(f.getIdCripto());
+            activosPorCartera.computeIfAbsent(f.getIdCartera(), k -> new ArrayList<>()).add(new PanelActivo(
+                    f.getIdCripto(), cripto != null ? cripto.simbolo() : "?", cripto != null ? cripto.nombre() : "?", f.getUnidades()));
+        }
+
+        List<ValoracionCartera> valoraciones = getValoracionCarteras(idUsuario);
+        List<PanelCartera> carteras = new ArrayList<>(valoraciones.size());
+        for (ValoracionCartera v : valoraciones) {
+            carteras.add(new PanelCartera(v.idCartera(), v.balanceCentimos(), v.patrimonioCentimos(),
+                    activosPorCartera.getOrDefault(v.idCartera(), List.of())));
+        }
+        return new PanelUsuario(cabecera.getIdUsuario(), cabecera.getNombre(), cabecera.getIdHistorial() != null,
+                cabecera.getDetalleHistorial(), carteras);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<PanelActivo> getActivos(Long idCartera, int pagina, int tamano) {
+        if (idCartera == null) throw new IllegalArgumentException("El ID de cartera es obligatorio.");
+        if (pagina < 0 || tamano <= 0 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("Página no válida (tamaño entre 1 y " + TAMANO_MAXIMO_PAGINA + ").");
+        }
+        Slice<ActivoRepository.FilaPosicion> filas = activoRepository.findPosicionesDeCartera(idCartera, PageRequest.of(pagina, tamano));
+        // Una página vacía puede ser de una cartera sin activos o de una que no existe
+        if (!filas.hasContent() && !carteraRepository.existsById(idCartera)) {
+            throw new NoSuchElementException("Cartera no encontrada");
+        }
+        return filas.map(f -> {
+            CotizacionCripto cripto = catalogo.porId(f.getIdCripto());
+            return new PanelActivo(f.getIdCripto(), cripto != null ? cripto.simbolo() : "?",
+                    cripto != null ? cripto.nombre() : "?", f.getUnidades());
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, ValoracionUsuario> getValoracionUsuarios(Collection<Long> idsUsuario) {
+        Map<Long, ValoracionUsuario> valoraciones = new HashMap<>();
+        if (idsUsuario == null || idsUsuario.isEmpty()) {
+            return valoraciones;
+        }
+        for (CarteraRepository.FilaValoracion f : carteraRepository.valorarUsuarios(idsUsuario)) {
+            valoraciones.put(f.getId(), new ValoracionUsuario(f.getId(), centimos(f.getBalance()), valorActivos(f)));
+        }
+        return valoraciones;
+    }
+
+    @Override
+    public InformeVerificacion verificarPatrimonio(boolean corregir) {
+        if (!patrimonio.isActivo()) {
+            throw new IllegalStateException("El patrimonio materializado no está habilitado.");
+        }
+        return patrimonio.verificar(corregir);
+    }
+
+    // balance llega en dólares (DECIMAL con 2 decimales)
+    private static long centimos(BigDecimal importe) {
+        return importe == null ? 0L : Importe.deDecimal(importe, Importe.ESCALA_FIAT);
+    }
+
+    // valorActivos ya llega en céntimos enteros (FLOOR(... * 100))
+    private static long valorActivos(CarteraRepository.FilaValoracion fila) {
+        return fila.getValorActivos() == null ? 0L : fila.getValorActivos().longValue();
     }
 
     // Inyectamos también ActivoRepository y CriptomonedaRepository
@@ -153,45 +303,72 @@ public class CarteraServiceImpl implements CarteraService {
     @Transactional
     public void invertirEnCripto(Long carteraId, Long criptoId, Double cantidadInversionFiat) {
         // 1. Validaciones
-        if (cantidadInversionFiat <= 0) throw new IllegalArgumentException("La inversión debe ser positiva.");
+        long centimos = cantidadInversionFiat == null ? 0L : Importe.centimosDesde(cantidadInversionFiat);
+        if (centimos <= 0) throw new IllegalArgumentException("La inversión debe ser positiva.");
 
         Cartera cartera = carteraRepository.findById(carteraId)
                 .orElseThrow(() -> new NoSuchElementException("Cartera no encontrada"));
 
-        Criptomoneda cripto = criptomonedaRepository.findById(criptoId)
-                .orElseThrow(() -> new NoSuchElementException("Criptomoneda no encontrada"));
+        CotizacionCripto cripto = catalogo.porId(criptoId);
+        if (cripto == null) throw new NoSuchElementException("Criptomoneda no encontrada");
 
-        // 2. Verificar si tiene saldo (Efectivo) suficiente
-        if (cartera.getBalanceTotal() < cantidadInversionFiat) {
-            throw new IllegalArgumentException(String.format("Saldo insuficiente. Tienes $%.2f, intentas invertir $%.2f",
-                    cartera.getBalanceTotal(), cantidadInversionFiat));
+        // 2. Calcular cuánta cripto compra (Ej: 100$ / 50000$ = 0.002 BTC), exacto y redondeando hacia abajo
+        if (!cripto.tienePrecio()) {
+            throw new IllegalStateException("La criptomoneda " + cripto.simbolo() + " no tiene un precio configurado.");
+        }
+        long cantidadCriptoComprada = Importe.fiatAUnidades(centimos, cripto.precioCentimos(), cripto.decimales());
+        if (cantidadCriptoComprada <= 0) {
+            throw new IllegalArgumentException("La inversión es demasiado pequeña para comprar " + cripto.simbolo() + ".");
         }
 
-        // 3. Calcular cuánta cripto compra (Ej: 100$ / 50000$ = 0.002 BTC)
-        Double precio = cripto.getPrecioActual();
-        Double cantidadCriptoComprada = cantidadInversionFiat / precio;
-
-        // 4. Ejecutar la transacción interna
-        // A) Restamos el dinero
-        cartera.setBalanceTotal(cartera.getBalanceTotal() - cantidadInversionFiat);
-
-        // B) Sumamos (o creamos) el activo
-        Activo activo = activoRepository.findByCarteraAndCriptomoneda(cartera, cripto)
-                .orElse(new Activo(cartera, cripto, 0.0));
+        // 3. Ejecutar la transacción interna
+        // A) Comprobamos el saldo (efectivo) y restamos el dinero en un solo UPDATE condicional: leer, comprobar y
+        // guardar la entidad dejaba que dos inversiones concurrentes gastaran el mismo saldo
+        if (carteraRepository.restarSiAlcanza(carteraId, centimos) == 0) {
+            throw new IllegalArgumentException(String.format("Saldo insuficiente. Tienes $%.2f, intentas invertir $%.2f",
+                    Importe.centimosADouble(carteraRepository.findBalance(carteraId).orElse(0L)),
+                    Importe.centimosADouble(centimos)));
+        }
 
-        activo.setCantidad(activo.getCantidad() + cantidadCriptoComprada);
+        // B) Sumamos las unidades al activo (también sin leer-y-guardar) o lo creamos
+        Criptomoneda referencia = catalogo.referencia(criptoId);
+        Activo activo = activoRepository.findByCarteraAndCriptomoneda(cartera, referencia).orElse(null);
+        long unidadesDespues;
+        if (activo != null) {
+            activoRepository.sumarCantidad(activo.getIdActivo(), cantidadCriptoComprada);
+            unidadesDespues = activoRepository.findUnidades(activo.getIdActivo()).orElseThrow();
+        } else {
+            activoRepository.save(new Activo(cartera, referencia, cantidadCriptoComprada));
+            unidadesDespues = cantidadCriptoComprada;
+        }
 
-        // 5. Guardar
-        activoRepository.save(activo);
-        carteraRepository.save(cartera);
+        // 4. Estado en memoria: motor, patrimonio, índices y clasificación
+        ledgerEngine.invalidarCartera(carteraId);
+        patrimonio.moverFiat(carteraId, -centimos);
+        patrimonio.moverUnidades(carteraId, criptoId, cantidadCriptoComprada);
+        tenedores.posicionCambiada(cartera.getUsuario().getIdUsuario(), criptoId,
+                Importe.restar(unidadesDespues, cantidadCriptoComprada), unidadesDespues);
+        clasificacion.usuariosCambiados(cartera.getUsuario().getIdUsuario());
+        versiones.carterasCambiadas(cartera.getUsuario().getIdUsuario());
+        eventos.saldoCambiado(cartera.getUsuario().getIdUsuario(), new CambioSaldo(carteraId, criptoId, cantidadCriptoComprada, -centimos));
+        lecturas.escrituraDe(cartera.getUsuario().getIdUsuario());
     }
 
     @Override
     @Transactional
     public void eliminarCartera(Long id) {
-        if (!carteraRepository.existsById(id)) {
-            throw new NoSuchElementException("La cartera no existe.");
+        Cartera cartera = carteraRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("La cartera no existe."));
+        Long idUsuario = cartera.getUsuario().getIdUsuario();
+        for (Activo activo : cartera.getActivos()) {
+            tenedores.posicionCambiada(idUsuario, activo.getCriptomoneda().getIdCripto(), activo.getUnidades(), 0L);
         }
-        carteraRepository.deleteById(id);
+        carteraRepository.delete(cartera);
+        ledgerEngine.invalidarCartera(id);
+        ledgerEngine.invalidarUsuario(idUsuario);
+        patrimonio.carteraEliminada(id);
+        clasificacion.usuariosCambiados(idUsuario);
+        versiones.carterasCambiadas(idUsuario);
+        lecturas.escrituraDe(idUsuario);
     }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.example.user_demo.data.services;
+
+import com.example.user_demo.data.commit.TrasCommit;
+import com.example.user_demo.data.model.EntradaHistorial;
+import com.example.user_demo.data.model.EventoHistorial;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.EntradaHistorialRepository;
+import com.example.user_demo.data.repository.EventoHistorialRepository;
+import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Despachador del outbox del historial: reclama los EventoHistorial pendientes por fecha,
+ * los convierte en EntradaHistorial y los borra, todo en la misma transacción y por lotes.
+ *
+ * Corre en un hilo virtual. Se despierta al confirmarse una transferencia (avisar) o cada
+ * 'intervalo-ms' como red de seguridad. Las filas se reclaman con FOR UPDATE SKIP LOCKED, así que
+ * varios nodos pueden despachar a la vez sin repetir eventos. Cada entrada lleva la fecha de su
+ * transferencia y el historial se lee ordenado por ella.
+ *
+ * Orden por usuario: los eventos de un usuario se despachan en orden (fecha, id_evento). Si otro nodo
+ * tiene reclamado un evento anterior de un usuario del lote, los eventos posteriores de ese usuario (y,
+ * en cadena, los de sus contrapartes) se dejan para el siguiente lote. Así nunca aparece en el historial
+ * una entrada sin las anteriores del mismo usuario. Dos transferencias del mismo usuario con la misma
+ * fecha exacta se leen por id_entrada, que con la secuencia con pool no sigue el orden entre nodos.
+ *
+ * Si falla un lote no se borra nada y se reintenta (entrega al menos una vez).
+ */
+@Component
+public class HistorialDespachador {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorialDespachador.class);
+
+    // El mismo orden que la reclamación (ORDER BY fecha, id_evento)
+    static final Comparator<EventoHistorial> ORDEN =
+            Comparator.comparing(EventoHistorial::getFecha).thenComparing(EventoHistorial::getIdEvento);
+
+    private final EventoHistorialRepository eventoHistorialRepository;
+    private final EntradaHistorialRepository entradaHistorialRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final VersionesUsuario versiones;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean habilitado;
+    private final long intervaloMs;
+    private final int tamanoLote;
+
+    private final Semaphore avisos = new Semaphore(0);
+    private volatile boolean activo;
+    private Thread hilo;
+
+    @Autowired
+    public HistorialDespachador(EventoHistorialRepository eventoHistorialRepository,
+                                EntradaHistorialRepository entradaHistorialRepository,
+                                UsuarioRepository usuarioRepository,
+                                VersionesUsuario versiones,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${criptowallet.historial.despachador.habilitado:true}") boolean habilitado,
+                                @Value("${criptowallet.historial.despachador.intervalo-ms:1000}") long intervaloMs,
+                                @Value("${criptowallet.historial.despachador.tamano-lote:500}") int tamanoLote) {
+        if (intervaloMs <= 0 || tamanoLote <= 0) {
+            throw new IllegalArgumentException("La configuración del despachador del historial debe usar valores positivos.");
+        }
+        this.eventoHistorialRepository = eventoHistorialRepository;
+        this.entradaHistorialRepository = entradaHistorialRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.versiones = versiones;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.intervaloMs = intervaloMs;
+        this.tamanoLote = tamanoLote;
+    }
+
+    @PostConstruct
+    void arrancar() {
+        if (!habilitado) {
+            return;
+        }
+        activo = true;
+        // Al arrancar se despacha lo que quedase pendiente de la ejecución anterior
+        hilo = Thread.ofVirtual().name("historial-despachador").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activo = false;
+        avisos.release();
+        hilo.join();
+    }
+
+    /**
+     * Despierta al despachador cuando se confirme la transacción en curso (o ya, si no hay ninguna).
+     */
+    public void avisar() {
+        if (!activo) {
+            return;
+        }
+        TrasCommit.ejecutar(avisos::release);
+    }
+
+    /**
+     * Despacha lotes hasta vaciar la tabla de eventos. Para antes si un lote sale incompleto porque
+     * parte de sus eventos espera a otro nodo; el resto se despacha en la siguiente vuelta.
+     * @return Número de eventos despachados.
+     */
+    public synchronized int despacharPendientes() {
+        int total = 0;
+        int despachados;
+        do {
+            despachados = despacharLote();
+            total += despachados;
+        } while (despachados == tamanoLote);
+        return total;
+    }
+
+    private void bucle() {
+        while (activo) {
+            try {
+                despacharPendientes();
+            } catch (RuntimeException e) {
+                log.error("Error despachando el historial, se reintentará", e);
+            }
+            try {
+                avisos.tryAcquire(intervaloMs, TimeUnit.MILLISECONDS);
+                avisos.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int despacharLote() {
+        Integer despachados = transactionTemplate.execute(status -> {
+            List<EventoHistorial> eventos = enOrdenPorUsuario(eventoHistorialRepository.reclamarPendientes(tamanoLote));
+            if (eventos.isEmpty()) {
+                return 0;
+            }
+
+            // Una sola consulta para todos los usuarios del lote
+            Set<Long> idsUsuarios = new HashSet<>();
+            for (EventoHistorial e : eventos) {
+                idsUsuarios.add(e.getIdUsuarioOrigen());
+                idsUsuarios.add(e.getIdUsuarioDestino());
+            }
+            Map<Long, Usuario> usuarios = new HashMap<>();
+            for (Usuario u : usuarioRepository.findConHistorialByIdIn(idsUsuarios)) {
+                usuarios.put(u.getIdUsuario(), u);
+            }
+
+            List<EntradaHistorial> entradas = new ArrayList<>(eventos.size() * 2);
+            List<Long> ids = new ArrayList<>(eventos.size());
+            for (EventoHistorial e : eventos) {
+                Usuario origen = usuarios.get(e.getIdUsuarioOrigen());
+                Usuario destino = usuarios.get(e.getIdUsuarioDestino());
+                String detalle = describir(e);
+                // Si un usuario se borró entretanto, solo se omite su entrada
+                if (origen != null) {
+                    entradas.add(entrada(origen, EntradaHistorial.Tipo.ENV, detalle + " a " + nombre(destino), e));
+                }
+                if (destino != null) {
+                    entradas.add(entrada(destino, EntradaHistorial.Tipo.REC, detalle + " de " + nombre(origen), e));
+                }
+                ids.add(e.getIdEvento());
+            }
+
+            entradaHistorialRepository.saveAll(entradas);
+            versiones.actividadCambiada(usuarios.keySet()); // Su registro de actividad, tras el commit del lote
+            eventoHistorialRepository.deleteByIdEventoIn(ids);
+            return eventos.size();
+        });
+        return despachados == null ? 0 : despachados;
+    }
+
+    /**
+     * Quita del lote los eventos que deben esperar a uno anterior del mismo usuario que no está en él
+     * (reclamado por otro nodo, o confirmado después de la reclamación). Los que se quitan siguen
+     * pendientes y se liberan al terminar la transacción.
+     */
+    private List<EventoHistorial> enOrdenPorUsuario(List<EventoHistorial> eventos) {
+        if (eventos.isEmpty()) {
+            return eventos;
+        }
+        Set<Long> idsUsuarios = new HashSet<>();
+        List<Long> reclamados = new ArrayList<>(eventos.size());
+        for (EventoHistorial e : eventos) {
+            idsUsuarios.add(e.getIdUsuarioOrigen());
+            idsUsuarios.add(e.getIdUsuarioDestino());
+            reclamados.add(e.getIdEvento());
+        }
+        LocalDateTime hasta = eventos.get(eventos.size() - 1).getFecha();
+
+        // Por usuario, su evento pendiente más antiguo de fuera del lote
+        Map<Long, EventoHistorial> anteriorFuera = new HashMap<>();
+        for (EventoHistorial f : eventoHistorialRepository.findPendientesFueraDelLote(idsUsuarios, hasta, reclamados)) {
+            anteriorFuera.merge(f.getIdUsuarioOrigen(), f, HistorialDespachador::anterior);
+            anteriorFuera.merge(f.getIdUsuarioDestino(), f, HistorialDespachador::anterior);
+        }
+        if (anteriorFuera.isEmpty()) {
+            return eventos;
+        }
+
+        List<EventoHistorial> listos = new ArrayList<>(eventos.size());
+        Set<Long> bloqueados = new HashSet<>();
+        for (EventoHistorial e : eventos) {
+            if (espera(e.getIdUsuarioOrigen(), e, anteriorFuera, bloqueados)
+                    || espera(e.getIdUsuarioDestino(), e, anteriorFuera, bloqueados)) {
+                // Lo que venga después para cualquiera de los dos también espera
+                bloqueados.add(e.getIdUsuarioOrigen());
+                bloqueados.add(e.getIdUsuarioDestino());
+            } else {
+                listos.add(e);
+            }
+        }
+        if (listos.size() < eventos.size()) {
+            log.debug("{} eventos del historial esperan a otros anteriores de sus usuarios", eventos.size() - listos.size());
+        }
+        return listos;
+    }
+
+    private static boolean espera(Long idUsuario, EventoHistorial e, Map<Long, EventoHistorial> anteriorFuera, Set<Long> bloqueados) {
+        if (bloqueados.contains(idUsuario)) {
+            return true;
+        }
+        EventoHistorial fuera = anteriorFuera.get(idUsuario);
+        return fuera != null && ORDEN.compare(fuera, e) < 0;
+    }
+
+    private static EventoHistorial anterior(EventoHistorial a, EventoHistorial b) {
+        return ORDEN.compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Formato: "TX $100.00 (0.0020 BTC)"
+     */
+    static String describir(EventoHistorial e) {
+        return String.format("TX $%.2f (%.4f %s)",
+                Importe.centimosADouble(e.getFiatCentimos()), Importe.unidadesADouble(e.getUnidades()), e.getSimbolo());
+    }
+
+    private static EntradaHistorial entrada(Usuario usuario, EntradaHistorial.Tipo tipo, String detalle, EventoHistorial e) {
+        EntradaHistorial entrada = new EntradaHistorial(usuario, tipo, detalle);
+        entrada.setFecha(e.getFecha()); // La fecha de la transferencia, no la del despacho
+        return entrada;
+    }
+
+    private static String nombre(Usuario usuario) {
+        return usuario != null ? usuario.getNombre() : "(usuario eliminado)";
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.user_demo.data.services;
+
+import com.example.user_demo.data.model.EntradaHistorial;
+import com.example.user_demo.data.model.EventoHistorial;
+import com.example.user_demo.data.model.Usuario;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * Interfaz para el servicio que mantiene el registro de actividad (Historial) de los usuarios.
+ */
+public interface HistorialService {
+
+    /**
+     * Añade al historial del origen y del destino la línea de una transferencia.
+     * Dentro de la transacción del llamante solo inserta un EventoHistorial (outbox); las dos
+     * EntradaHistorial las genera el HistorialDespachador tras el commit, en segundo plano.
+     * @param origen Usuario que envía.
+     * @param destino Usuario que recibe.
+     * @param simbolo Símbolo de la criptomoneda transferida.
+     * @param fiatCentimos Importe en céntimos indicado por el usuario.
+     * @param unidades Unidades mínimas de cripto equivalentes (ver Importe).
+     */
+    void registrarTransferencia(Usuario origen, Usuario destino, String simbolo, long fiatCentimos, long unidades);
+
+    /**
+     * Lo mismo para todas las filas realizadas de un lote: los eventos se insertan juntos (INSERT por
+     * lotes JDBC) en la transacción del llamante y el despachador recibe un único aviso.
+     * @param eventos Eventos ya construidos, uno por transferencia.
+     */
+    void registrarTransferencias(List<EventoHistorial> eventos);
+
+    /**
+     * Página del registro de actividad de un usuario, de la entrada más reciente a la más antigua.
+     * @param pagina Número de página (empieza en 0).
+     * @param tamano Entradas por página (1..100).
+     * @throws IllegalArgumentException Si la página o el tamaño no son válidos.
+     */
+    Slice<EntradaHistorial> getEntradas(Long idUsuario, int pagina, int tamano);
+
+    /**
+     * Las últimas 'limite' entradas de un usuario (lo que muestra el dashboard).
+     */
+    List<EntradaHistorial> getUltimasEntradas(Long idUsuario, int limite);
+}
@@ -0,0 +1,71 @@
+package com.example.user_demo.data.services;
+
+import com.example.user_demo.data.model.EntradaHistorial;
+import com.example.user_demo.data.model.EventoHistorial;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.EntradaHistorialRepository;
+import com.example.user_demo.data.repository.EventoHistorialRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class HistorialServiceImpl implements HistorialService {
+
+    static final int TAMANO_MAXIMO_PAGINA = 100;
+
+    private final EntradaHistorialRepository entradaHistorialRepository;
+    private final EventoHistorialRepository eventoHistorialRepository;
+    private final HistorialDespachador despachador;
+
+    @Autowired
+    public HistorialServiceImpl(EntradaHistorialRepository entradaHistorialRepository,
+                                EventoHistorialRepository eventoHistorialRepository,
+                                HistorialDespachador despachador) {
+        this.entradaHistorialRepository = entradaHistorialRepository;
+        this.eventoHistorialRepository = eventoHistorialRepository;
+        this.despachador = despachador;
+    }
+
+    @Override
+    @Transactional
+    public void registrarTransferencia(Usuario origen, Usuario destino, String simbolo, long fiatCentimos, long unidades) {
+        // Outbox: una fila compacta sin formatear; las entradas las genera el despachador tras el commit
+        eventoHistorialRepository.save(new EventoHistorial(origen.getIdUsuario(), destino.getIdUsuario(),
+                simbolo, fiatCentimos, unidades));
+        despachador.avisar();
+    }
+
+    @Override
+    @Transactional
+    public void registrarTransferencias(List<EventoHistorial> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        eventoHistorialRepository.saveAll(eventos);
+        despachador.avisar();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<EntradaHistorial> getEntradas(Long idUsuario, int pagina, int tamano) {
+        if (idUsuario == null) {
+            throw new IllegalArgumentException("El ID de usuario es obligatorio.");
+        }
+        if (pagina < 0 || tamano <= 0 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("Página no válida (tamaño entre 1 y " + TAMANO_MAXIMO_PAGINA + ").");
+        }
+        return entradaHistorialRepository.findByUsuario_IdUsuarioOrderByFechaDescIdEntradaDesc(
+                idUsuario, PageRequest.of(pagina, tamano));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EntradaHistorial> getUltimasEntradas(Long idUsuario, int limite) {
+        return getEntradas(idUsuario, 0, limite).getContent();
+    }
+}
@@ -1,11 +1,46 @@
 package com.example.user_demo.data.services;
 
+import com.example.user_demo.data.dto.PaginaTransacciones;
+import com.example.user_demo.data.dto.ResultadoTransferencia;
+import com.example.user_demo.data.dto.SolicitudTransferencia;
 import com.example.user_demo.data.model.Transaccion;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 
 public interface TransaccionService {
     // Añadimos Long carteraOrigenId
     Transaccion realizarTransferencia(Long origenId, Long destinoId, Long carteraOrigenId, String criptoSimbolo, Double cantidad);
 
+    /**
+     * Igual que realizarTransferencia, pero sin esperar a la base de datos cuando el motor
+     * de ledger está habilitado (criptowallet.ledger.habilitado=true).
+     * Sin motor se ejecuta de forma síncrona y devuelve un futuro ya completado.
+     * @return Futuro con la Transaccion persistida o con el error de negocio.
+     * @throws IllegalArgumentException Si los argumentos son inválidos (se lanza directamente).
+     */
+    CompletableFuture<Transaccion> realizarTransferenciaAsync(Long origenId, Long destinoId, Long carteraOrigenId, String criptoSimbolo, Double cantidad);
+
+    /**
+     * Transferencias por lotes (ej: liquidación de pagos). Precarga usuarios, carteras, criptos y activos
+     * con unas pocas consultas IN, valida cada fila en memoria y escribe todo con lotes JDBC.
+     * Las filas inválidas se rechazan sin afectar al resto.
+     * @param solicitudes Filas a procesar, en orden.
+     * @return Un resultado por fila, en el mismo orden.
+     */
+    List<ResultadoTransferencia> realizarTransferencias(List<SolicitudTransferencia> solicitudes);
+
     List<Transaccion> getTransaccionesDeUsuario(Long usuarioId);
-}
\ No newline at end of file
+
+    /**
+     * Página de las transacciones (enviadas o recibidas) de un usuario, paginada por cursor (fecha, id):
+     * el coste de cada página no depende de lo lejos que esté del principio.
+     * @param antesDeFecha Cursor devuelto por la página anterior (null para la primera página).
+     * @param antesDeId Cursor devuelto por la página anterior (null para la primera página).
+     * @param tamano Transacciones por página (1..100).
+     * @throws IllegalArgumentException Si el tamaño o el cursor no son válidos.
+     * @throws NoSuchElementException Si el usuario no existe.
+     */
+    PaginaTransacciones getTransaccionesDeUsuario(Long usuarioId, LocalDateTime antesDeFecha, Long antesDeId, int tamano);
+}
@@ -1,56 +1,192 @@
 package com.example.user_demo.data.services;
 
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.CambioSaldo;
+import com.example.user_demo.data.dto.ClaveTransaccion;
+import com.example.user_demo.data.dto.PaginaTransacciones;
+import com.example.user_demo.data.dto.ResultadoTransferencia;
+import com.example.user_demo.data.dto.SolicitudTransferencia;
+import com.example.user_demo.data.enrutado.LecturasTrasEscritura;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.ledger.LedgerEngine;
 import com.example.user_demo.data.model.*;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
 import com.example.user_demo.data.repository.*;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class TransaccionServiceImpl implements TransaccionService {
 
+    private static final int TAMANO_MAXIMO_PAGINA = 100;
+    private static final LocalDateTime FECHA_MAXIMA = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final TransaccionRepository transaccionRepository;
     private final UsuarioRepository usuarioRepository;
-    private final CriptomonedaRepository criptomonedaRepository;
-    private final HistorialRepository historialRepository;
+    private final CatalogoCriptomonedas catalogo; // Precios en memoria: ninguna transferencia consulta criptomonedas
+    private final HistorialService historialService;
     private final CarteraRepository carteraRepository;
     private final ActivoRepository activoRepository; // Necesario para gestionar cantidades exactas
+    private final LedgerEngine ledgerEngine;
+    private final PatrimonioMaterializado patrimonio;
+    private final LecturasTrasEscritura lecturas;
+    private final IndiceTenedores tenedores;
+    private final ClasificacionPatrimonio clasificacion;
+    private final VersionesUsuario versiones;
+    private final DifusorEventos eventos; // Deltas de saldo a los dashboards conectados
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public TransaccionServiceImpl(TransaccionRepository transaccionRepository,
                                   UsuarioRepository usuarioRepository,
-                                  CriptomonedaRepository criptomonedaRepository,
-                                  HistorialRepository historialRepository,
+                                  CatalogoCriptomonedas catalogo,
+                                  HistorialService historialService,
                                   CarteraRepository carteraRepository,
-                                  ActivoRepository activoRepository) {
+                                  ActivoRepository activoRepository,
+                                  LedgerEngine ledgerEngine,
+                                  PatrimonioMaterializado patrimonio,
+                                  LecturasTrasEscritura lecturas,
+                                  IndiceTenedores tenedores,
+                                  ClasificacionPatrimonio clasificacion,
+                                  VersionesUsuario versiones,
+                                  DifusorEventos eventos,
+                                  PlatformTransactionManager transactionManager) {
         this.transaccionRepository = transaccionRepository;
         this.usuarioRepository = usuarioRepository;
-        this.criptomonedaRepository = criptomonedaRepository;
-        this.historialRepository = historialRepository;
+        this.catalogo = catalogo;
+        this.historialService = historialService;
         this.carteraRepository = carteraRepository;
         this.activoRepository = activoRepository;
+        this.ledgerEngine = ledgerEngine;
+        this.patrimonio = patrimonio;
+        this.lecturas = lecturas;
+        this.tenedores = tenedores;
+        this.clasificacion = clasificacion;
+        this.versiones = versiones;
+        this.eventos = eventos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    // Sin @Transactional: la espera al motor no debe retener una conexión del pool, que necesitan sus escritores
     @Override
-    @Transactional
     public Transaccion realizarTransferencia(Long origenId, Long destinoId, Long carteraOrigenId, String criptoSimbolo, Double cantidadFiat) {
+        validarTransferencia(origenId, destinoId, carteraOrigenId, cantidadFiat);
+
+        // Con el motor activo, todas las transferencias pasan por él para no desincronizar su memoria
+        if (ledgerEngine.isActivo()) {
+            return esperar(transferirConMotor(origenId, destinoId, carteraOrigenId, criptoSimbolo, cantidadFiat));
+        }
+        return transactionTemplate.execute(status ->
+                transferirEnBaseDeDatos(origenId, destinoId, carteraOrigenId, criptoSimbolo, cantidadFiat));
+    }
+
+    @Override
+    public CompletableFuture<Transaccion> realizarTransferenciaAsync(Long origenId, Long destinoId, Long carteraOrigenId, String criptoSimbolo, Double cantidadFiat) {
+        validarTransferencia(origenId, destinoId, carteraOrigenId, cantidadFiat);
+
+        if (ledgerEngine.isActivo()) {
+            return transferirConMotor(origenId, destinoId, carteraOrigenId, criptoSimbolo, cantidadFiat);
+        }
+        try {
+            return CompletableFuture.completedFuture(transactionTemplate.execute(status ->
+                    transferirEnBaseDeDatos(origenId, destinoId, carteraOrigenId, criptoSimbolo, cantidadFiat)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
+    private void validarTransferencia(Long origenId, Long destinoId, Long carteraOrigenId, Double cantidadFiat) {
         // --- 1. VALIDACIONES BÁSICAS ---
         if (origenId == null || destinoId == null || carteraOrigenId == null) {
             throw new IllegalArgumentException("IDs obligatorios.");
         }
-        if (cantidadFiat == null || cantidadFiat <= 0) {
+        if (cantidadFiat == null || Importe.centimosDesde(cantidadFiat) <= 0) {
             throw new IllegalArgumentException("La cantidad debe ser positiva.");
         }
         if (origenId.equals(destinoId)) {
             throw new IllegalArgumentException("No puedes enviarte activos a ti mismo.");
         }
+    }
+
+    private CotizacionCripto buscarCriptoConPrecio(String criptoSimbolo) {
+        CotizacionCripto cripto = catalogo.porSimbolo(criptoSimbolo);
+        if (cripto == null) {
+            throw new NoSuchElementException("Criptomoneda no soportada: " + criptoSimbolo);
+        }
+        if (!cripto.tienePrecio()) {
+            throw new IllegalStateException("La criptomoneda " + cripto.simbolo() + " no tiene un precio configurado.");
+        }
+        return cripto;
+    }
 
+    /**
+     * Convierte el importe en céntimos a unidades mínimas de la cripto al precio actual (exacto, sin double).
+     */
+    private static long unidadesPara(CotizacionCripto cripto, long centimos) {
+        long unidades = Importe.fiatAUnidades(centimos, cripto.precioCentimos(), cripto.decimales());
+        if (unidades <= 0) {
+            throw new IllegalArgumentException("La cantidad es demasiado pequeña para enviar " + cripto.simbolo() + ".");
+        }
+        return unidades;
+    }
+
+    private static IllegalArgumentException saldoInsuficiente(long unidades, CotizacionCripto cripto, long centimos) {
+        return new IllegalArgumentException(String.format(
+                "Saldo insuficiente. Tienes %.4f %s (Valor: $%.2f), intentas enviar $%.2f",
+                Importe.unidadesADouble(unidades), cripto.simbolo(),
+                Importe.centimosADouble(Importe.valorEnCentimos(unidades, cripto.precioCentimos())),
+                Importe.centimosADouble(centimos)));
+    }
+
+    /**
+     * Modo "engine": delega en el LedgerEngine, que valida saldo y propiedad en memoria
+     * y persiste de forma asíncrona.
+     */
+    private CompletableFuture<Transaccion> transferirConMotor(Long origenId, Long destinoId, Long carteraOrigenId, String criptoSimbolo, Double cantidadFiat) {
+        CotizacionCripto cripto = buscarCriptoConPrecio(criptoSimbolo);
+        long centimos = Importe.centimosDesde(cantidadFiat);
+        // El motor confirma en su propio hilo escritor: se anota al completarse, no con el commit del llamante
+        return ledgerEngine.transferir(origenId, destinoId, carteraOrigenId, cripto, unidadesPara(cripto, centimos), centimos)
+                .whenComplete((tx, error) -> {
+                    if (error == null) {
+                        lecturas.escrituraDe(origenId, destinoId);
+                        versiones.carterasCambiadas(origenId, destinoId);
+                    }
+                });
+    }
+
+    private static Transaccion esperar(CompletableFuture<Transaccion> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private Transaccion transferirEnBaseDeDatos(Long origenId, Long destinoId, Long carteraOrigenId, String criptoSimbolo, Double cantidadFiat) {
         // --- 2. BUSCAR ENTIDADES ---
         Usuario origen = usuarioRepository.findById(origenId)
                 .orElseThrow(() -> new NoSuchElementException("Usuario Origen no encontrado."));
@@ -58,17 +194,14 @@ public class TransaccionServiceImpl implements TransaccionService {
         Usuario destino = usuarioRepository.findById(destinoId)
                 .orElseThrow(() -> new NoSuchElementException("Usuario Destino no encontrado."));
 
-        Criptomoneda cripto = criptomonedaRepository.findBySimbolo(criptoSimbolo)
-                .orElseThrow(() -> new NoSuchElementException("Criptomoneda no soportada: " + criptoSimbolo));
-
         // --- 3. LÓGICA DE CONVERSIÓN (FIAT -> CRIPTO) ---
         // Aquí arreglamos el problema: convertimos los Dólares del formulario a unidades de Cripto
-        if (cripto.getPrecioActual() == null || cripto.getPrecioActual() <= 0) {
-            throw new IllegalStateException("La criptomoneda " + cripto.getSimbolo() + " no tiene un precio configurado.");
-        }
+        CotizacionCripto cripto = buscarCriptoConPrecio(criptoSimbolo);
+        Criptomoneda referencia = catalogo.referencia(cripto.idCripto()); // Sin SELECT: solo para las FK
 
-        // Ejemplo: Envío $50,000 y el Bitcoin vale $50,000 -> Son 1.0 BTC
-        Double unidadesCripto = cantidadFiat / cripto.getPrecioActual();
+        // Ejemplo: Envío $50,000 y el Bitcoin vale $50,000 -> Son 1.0 BTC (100.000.000 satoshis)
+        long centimos = Importe.centimosDesde(cantidadFiat);
+        long unidadesCripto = unidadesPara(cripto, centimos);
 
         // --- 4. GESTIÓN DE LA CARTERA DE ORIGEN ---
         Cartera carteraOrigen = carteraRepository.findById(carteraOrigenId)
@@ -82,20 +215,17 @@ public class TransaccionServiceImpl implements TransaccionService {
         // --- GESTIÓN DE ACTIVOS (RESTAR AL ORIGEN) ---
 
         // Buscamos si el usuario tiene esa cripto (Activo)
-        Activo activoOrigen = activoRepository.findByCarteraAndCriptomoneda(carteraOrigen, cripto)
-                .orElseThrow(() -> new IllegalArgumentException("No posees " + cripto.getNombre() + " en esta cartera."));
+        Activo activoOrigen = activoRepository.findByCarteraAndCriptomoneda(carteraOrigen, referencia)
+                .orElseThrow(() -> new IllegalArgumentException("No posees " + cripto.nombre() + " en esta cartera."));
 
-        // Validamos si tiene suficientes UNIDADES (no dólares)
-        if (activoOrigen.getCantidad() < unidadesCripto) {
-            throw new IllegalArgumentException(String.format(
-                    "Saldo insuficiente. Tienes %.4f %s (Valor: $%.2f), intentas enviar $%.2f",
-                    activoOrigen.getCantidad(), cripto.getSimbolo(),
-                    activoOrigen.getCantidad() * cripto.getPrecioActual(), cantidadFiat));
+        // Validamos y restamos las UNIDADES (no dólares) en un solo UPDATE condicional: leer, comprobar y
+        // guardar la entidad dejaba que dos transferencias concurrentes gastaran el mismo saldo
+        Long idActivoOrigen = activoOrigen.getIdActivo();
+        if (activoRepository.restarSiAlcanza(idActivoOrigen, unidadesCripto) == 0) {
+            throw saldoInsuficiente(activoRepository.findUnidades(idActivoOrigen).orElse(0L), cripto, centimos);
         }
-
-        // Restamos las unidades
-        activoOrigen.setCantidad(activoOrigen.getCantidad() - unidadesCripto);
-        activoRepository.save(activoOrigen);
+        // La fila queda bloqueada por el UPDATE: este valor es el que se confirma
+        long origenDespues = activoRepository.findUnidades(idActivoOrigen).orElseThrow();
 
         // --- 5. GESTIÓN DE LA CARTERA DESTINO (SUMAR AL DESTINO) ---
         List<Cartera> carterasDestino = carteraRepository.findByUsuario(destino);
@@ -104,40 +234,191 @@ public class TransaccionServiceImpl implements TransaccionService {
         }
         Cartera carteraDestino = carterasDestino.get(0); // Usamos la primera disponible
 
-        // Buscamos o creamos el activo en el destino
-        Activo activoDestino = activoRepository.findByCarteraAndCriptomoneda(carteraDestino, cripto)
-                .orElse(new Activo(carteraDestino, cripto, 0.0));
+        // Sumamos las unidades al activo del destino (también sin leer-y-guardar) o lo creamos
+        Activo activoDestino = activoRepository.findByCarteraAndCriptomoneda(carteraDestino, referencia).orElse(null);
+        long destinoDespues;
+        if (activoDestino != null) {
+            activoRepository.sumarCantidad(activoDestino.getIdActivo(), unidadesCripto);
+            destinoDespues = activoRepository.findUnidades(activoDestino.getIdActivo()).orElseThrow();
+        } else {
+            activoRepository.save(new Activo(carteraDestino, referencia, unidadesCripto));
+            destinoDespues = unidadesCripto;
+        }
 
-        // Sumamos las unidades
-        activoDestino.setCantidad(activoDestino.getCantidad() + unidadesCripto);
-        activoRepository.save(activoDestino);
+        // Patrimonio materializado: se aplica tras el commit
+        patrimonio.moverUnidades(carteraOrigen.getIdCartera(), cripto.idCripto(), -unidadesCripto);
+        patrimonio.moverUnidades(carteraDestino.getIdCartera(), cripto.idCripto(), unidadesCripto);
+        // Antes/después de las filas ya actualizadas, no de las entidades leídas al principio
+        tenedores.posicionCambiada(origenId, cripto.idCripto(), Importe.sumar(origenDespues, unidadesCripto), origenDespues);
+        tenedores.posicionCambiada(destinoId, cripto.idCripto(), Importe.restar(destinoDespues, unidadesCripto), destinoDespues);
+        clasificacion.usuariosCambiados(origenId, destinoId);
+        versiones.carterasCambiadas(origenId, destinoId);
+        eventos.saldoCambiado(origenId, new CambioSaldo(carteraOrigen.getIdCartera(), cripto.idCripto(), -unidadesCripto, 0L));
+        eventos.saldoCambiado(destinoId, new CambioSaldo(carteraDestino.getIdCartera(), cripto.idCripto(), unidadesCripto, 0L));
+        lecturas.escrituraDe(origenId, destinoId); // Sus próximas lecturas, de la primaria
 
         // --- 6. REGISTRAR TRANSACCIÓN ---
         // Guardamos la cantidad en unidades cripto (para referencia técnica)
-        Transaccion tx = new Transaccion(origen, destino, cripto, unidadesCripto);
+        Transaccion tx = new Transaccion(origen, destino, referencia, unidadesCripto);
         Transaccion guardada = transaccionRepository.save(tx);
 
         // --- 7. ACTUALIZAR HISTORIALES ---
         // Mostramos ambas cantidades para que el usuario entienda qué pasó
-        actualizarHistoriales(origen, destino, cripto, cantidadFiat, unidadesCripto);
+        historialService.registrarTransferencia(origen, destino, cripto.simbolo(), centimos, unidadesCripto);
 
         return guardada;
     }
 
-    private void actualizarHistoriales(Usuario origen, Usuario destino, Criptomoneda cripto, Double fiat, Double unidades) {
-        // Formato: "TX $100.00 (0.0020 BTC)"
-        String detalle = String.format("TX $%.2f (%.4f %s)", fiat, unidades, cripto.getSimbolo());
+    // Sin @Transactional, como realizarTransferencia: el lote del motor se espera sin conexión retenida
+    @Override
+    public List<ResultadoTransferencia> realizarTransferencias(List<SolicitudTransferencia> solicitudes) {
+        if (solicitudes == null || solicitudes.isEmpty()) {
+            return List.of();
+        }
+        if (ledgerEngine.isActivo()) {
+            return transferirLoteConMotor(solicitudes);
+        }
+        return transactionTemplate.execute(status -> transferirLoteEnBaseDeDatos(solicitudes));
+    }
 
-        if (origen.getHistorial() != null) {
-            String log = "\n[ENV] " + detalle + " a " + destino.getNombre();
-            origen.getHistorial().setDetalle(origen.getHistorial().getDetalle() + log);
-            historialRepository.save(origen.getHistorial());
+    private List<ResultadoTransferencia> transferirLoteEnBaseDeDatos(List<SolicitudTransferencia> solicitudes) {
+        // --- 1. PRECARGA: una consulta IN por tipo de entidad ---
+        Set<Long> idsUsuarios = new HashSet<>();
+        for (SolicitudTransferencia s : solicitudes) {
+            if (s == null) continue;
+            if (s.origenId() != null) idsUsuarios.add(s.origenId());
+            if (s.destinoId() != null) idsUsuarios.add(s.destinoId());
         }
-        if (destino.getHistorial() != null) {
-            String log = "\n[REC] " + detalle + " de " + origen.getNombre();
-            destino.getHistorial().setDetalle(destino.getHistorial().getDetalle() + log);
-            historialRepository.save(destino.getHistorial());
+
+        Map<Long, Usuario> usuarios = new HashMap<>();
+        for (Usuario u : usuarioRepository.findConHistorialByIdIn(idsUsuarios)) {
+            usuarios.put(u.getIdUsuario(), u);
+        }
+        Map<Long, Criptomoneda> referencias = new HashMap<>(); // Las criptos salen del catálogo en memoria
+        Map<Long, Cartera> carteras = new HashMap<>();
+        Map<Long, Cartera> carteraPrincipal = new HashMap<>(); // Usuario -> primera cartera (la que recibe)
+        for (Cartera c : carteraRepository.findByUsuario_IdUsuarioInOrderByIdCarteraAsc(usuarios.keySet())) {
+            carteras.put(c.getIdCartera(), c);
+            carteraPrincipal.putIfAbsent(c.getUsuario().getIdUsuario(), c);
         }
+        Map<ClaveActivo, Activo> activos = new HashMap<>();
+        if (!carteras.isEmpty()) {
+            // Bloqueados hasta el commit: el saldo que se valida abajo no puede cambiar por debajo
+            for (Activo a : activoRepository.bloquearDeCarteras(carteras.keySet())) {
+                activos.put(new ClaveActivo(a.getCartera().getIdCartera(), a.getCriptomoneda().getIdCripto()), a);
+            }
+        }
+
+        // --- 2. VALIDAR Y APLICAR EN MEMORIA (fila a fila, en orden) ---
+        List<ResultadoTransferencia> resultados = new ArrayList<>(solicitudes.size());
+        List<Activo> activosNuevos = new ArrayList<>();
+        List<Transaccion> transacciones = new ArrayList<>();
+        List<EventoHistorial> eventosHistorial = new ArrayList<>(); // Se escriben juntos al final, no fila a fila
+        for (int i = 0; i < solicitudes.size(); i++) {
+            SolicitudTransferencia s = solicitudes.get(i);
+            try {
+                if (s == null) {
+                    throw new IllegalArgumentException("Fila vacía.");
+                }
+                validarTransferencia(s.origenId(), s.destinoId(), s.carteraOrigenId(), s.cantidad());
+
+                Usuario origen = usuarios.get(s.origenId());
+                if (origen == null) throw new NoSuchElementException("Usuario Origen no encontrado.");
+                Usuario destino = usuarios.get(s.destinoId());
+                if (destino == null) throw new NoSuchElementException("Usuario Destino no encontrado.");
+
+                CotizacionCripto cripto = buscarCriptoConPrecio(s.criptoSimbolo());
+                long centimos = Importe.centimosDesde(s.cantidad());
+                long unidadesCripto = unidadesPara(cripto, centimos);
+
+                Cartera carteraOrigen = carteras.get(s.carteraOrigenId());
+                if (carteraOrigen == null || !carteraOrigen.getUsuario().getIdUsuario().equals(s.origenId())) {
+                    // Solo precargamos carteras de los usuarios del lote: si no está, no es del origen
+                    throw new SecurityException("Error de seguridad: La cartera no pertenece al usuario.");
+                }
+                Activo activoOrigen = activos.get(new ClaveActivo(carteraOrigen.getIdCartera(), cripto.idCripto()));
+                if (activoOrigen == null) {
+                    throw new IllegalArgumentException("No posees " + cripto.nombre() + " en esta cartera.");
+                }
+                if (activoOrigen.getUnidades() < unidadesCripto) {
+                    throw saldoInsuficiente(activoOrigen.getUnidades(), cripto, centimos);
+                }
+                Cartera carteraDestino = carteraPrincipal.get(s.destinoId());
+                if (carteraDestino == null) {
+                    throw new IllegalStateException("El usuario destino no tiene carteras creadas para recibir activos.");
+                }
+
+                // Validado: aplicamos sobre las entidades gestionadas (los UPDATE salen agrupados en el flush)
+                activoOrigen.setUnidades(Importe.restar(activoOrigen.getUnidades(), unidadesCripto));
+                Activo activoDestino = activos.computeIfAbsent(
+                        new ClaveActivo(carteraDestino.getIdCartera(), cripto.idCripto()), k -> {
+                            Activo nuevo = new Activo(carteraDestino, referencia(referencias, cripto), 0L);
+                            activosNuevos.add(nuevo);
+                            return nuevo;
+                        });
+                activoDestino.setUnidades(Importe.sumar(activoDestino.getUnidades(), unidadesCripto));
+                patrimonio.moverUnidades(carteraOrigen.getIdCartera(), cripto.idCripto(), -unidadesCripto);
+                patrimonio.moverUnidades(carteraDestino.getIdCartera(), cripto.idCripto(), unidadesCripto);
+                tenedores.posicionCambiada(origen.getIdUsuario(), cripto.idCripto(),
+                        Importe.sumar(activoOrigen.getUnidades(), unidadesCripto), activoOrigen.getUnidades());
+                tenedores.posicionCambiada(destino.getIdUsuario(), cripto.idCripto(),
+                        Importe.restar(activoDestino.getUnidades(), unidadesCripto), activoDestino.getUnidades());
+                clasificacion.usuariosCambiados(origen.getIdUsuario(), destino.getIdUsuario());
+                versiones.carterasCambiadas(origen.getIdUsuario(), destino.getIdUsuario());
+                eventos.saldoCambiado(origen.getIdUsuario(),
+                        new CambioSaldo(carteraOrigen.getIdCartera(), cripto.idCripto(), -unidadesCripto, 0L));
+                eventos.saldoCambiado(destino.getIdUsuario(),
+                        new CambioSaldo(carteraDestino.getIdCartera(), cripto.idCripto(), unidadesCripto, 0L));
+                lecturas.escrituraDe(origen.getIdUsuario(), destino.getIdUsuario());
+
+                Transaccion tx = new Transaccion(origen, destino, referencia(referencias, cripto), unidadesCripto);
+                transacciones.add(tx);
+                eventosHistorial.add(new EventoHistorial(origen.getIdUsuario(), destino.getIdUsuario(),
+                        cripto.simbolo(), centimos, unidadesCripto));
+                resultados.add(ResultadoTransferencia.ok(i, tx));
+            } catch (RuntimeException e) {
+                resultados.add(ResultadoTransferencia.rechazada(i, e.getMessage()));
+            }
+        }
+
+        // --- 3. ESCRITURA: ids de secuencia con pool, los INSERT se envían en lotes JDBC ---
+        activoRepository.saveAll(activosNuevos);
+        transaccionRepository.saveAll(transacciones);
+        historialService.registrarTransferencias(eventosHistorial);
+        return resultados;
+    }
+
+    private record ClaveActivo(Long idCartera, Long idCripto) {
+    }
+
+    private Criptomoneda referencia(Map<Long, Criptomoneda> referencias, CotizacionCripto cripto) {
+        return referencias.computeIfAbsent(cripto.idCripto(), catalogo::referencia);
+    }
+
+    /**
+     * En modo "engine" el lote se encola fila a fila en el motor y se esperan todas.
+     */
+    private List<ResultadoTransferencia> transferirLoteConMotor(List<SolicitudTransferencia> solicitudes) {
+        List<CompletableFuture<Transaccion>> futuros = new ArrayList<>(solicitudes.size());
+        for (SolicitudTransferencia s : solicitudes) {
+            try {
+                if (s == null) {
+                    throw new IllegalArgumentException("Fila vacía.");
+                }
+                futuros.add(realizarTransferenciaAsync(s.origenId(), s.destinoId(), s.carteraOrigenId(), s.criptoSimbolo(), s.cantidad()));
+            } catch (RuntimeException e) {
+                futuros.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        List<ResultadoTransferencia> resultados = new ArrayList<>(futuros.size());
+        for (int i = 0; i < futuros.size(); i++) {
+            try {
+                resultados.add(ResultadoTransferencia.ok(i, esperar(futuros.get(i))));
+            } catch (RuntimeException e) {
+                resultados.add(ResultadoTransferencia.rechazada(i, e.getMessage()));
+            }
+        }
+        return resultados;
     }
 
     @Override
@@ -145,7 +426,92 @@ public class TransaccionServiceImpl implements TransaccionService {
     public List<Transaccion> getTransaccionesDeUsuario(Long usuarioId) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new NoSuchElementException("Usuario no encontrado"));
-        return StreamSupport.stream(transaccionRepository.findAllTransaccionesByUsuario(usuario).spliterator(), false)
-                .collect(Collectors.toList());
+        List<Transaccion> transacciones = transaccionRepository.findAllTransaccionesByUsuario(usuario);
+        List<TransaccionArchivada> archivadas = transaccionRepository.archivadasDeUsuario(usuarioId);
+        if (archivadas.isEmpty()) {
+            return transacciones;
+        }
+        List<Transaccion> todas = new ArrayList<>(transacciones);
+        todas.addAll(desarchivar(archivadas).values());
+        todas.sort(Comparator.comparing(Transaccion::getFecha).thenComparing(Transaccion::getIdTransaccion).reversed());
+        return todas;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaTransacciones getTransaccionesDeUsuario(Long usuarioId, LocalDateTime antesDeFecha, Long antesDeId, int tamano) {
+        if (tamano <= 0 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("Página no válida (tamaño entre 1 y " + TAMANO_MAXIMO_PAGINA + ").");
+        }
+        if ((antesDeFecha == null) != (antesDeId == null)) {
+            throw new IllegalArgumentException("El cursor de la página necesita fecha e ID.");
+        }
+        if (usuarioId == null || !usuarioRepository.existsById(usuarioId)) {
+            throw new NoSuchElementException("Usuario no encontrado");
+        }
+
+        // Primera página: cursor por encima de cualquier transacción real
+        LocalDateTime fecha = antesDeFecha != null ? antesDeFecha : FECHA_MAXIMA;
+        Long id = antesDeId != null ? antesDeId : Long.MAX_VALUE;
+        // Uno de más para saber si hay página siguiente
+        List<ClaveTransaccion> claves = transaccionRepository.paginaPorUsuario(usuarioId, fecha, id, tamano + 1);
+        boolean haySiguiente = claves.size() > tamano;
+        if (haySiguiente) {
+            claves = claves.subList(0, tamano);
+        }
+        if (claves.isEmpty()) {
+            return new PaginaTransacciones(List.of(), null, null);
+        }
+
+        List<Long> calientes = new ArrayList<>(claves.size());
+        List<Long> archivadas = new ArrayList<>();
+        for (ClaveTransaccion c : claves) {
+            (c.archivada() ? archivadas : calientes).add(c.idTransaccion());
+        }
+        Map<Long, Transaccion> porId = new HashMap<>();
+        if (!calientes.isEmpty()) {
+            for (Transaccion t : transaccionRepository.findConRelacionesByIdIn(calientes)) {
+                porId.put(t.getIdTransaccion(), t);
+            }
+        }
+        if (!archivadas.isEmpty()) {
+            porId.putAll(desarchivar(transaccionRepository.archivadasPorIds(archivadas)));
+        }
+        List<Transaccion> transacciones = new ArrayList<>(claves.size());
+        for (ClaveTransaccion c : claves) {
+            Transaccion t = porId.get(c.idTransaccion());
+            if (t != null) {
+                transacciones.add(t);
+            }
+        }
+        if (!haySiguiente) {
+            return new PaginaTransacciones(transacciones, null, null);
+        }
+        // El cursor sale de la clave, no de la fila: una archivada omitida no debe repetir ni cortar páginas
+        ClaveTransaccion ultima = claves.get(claves.size() - 1);
+        return new PaginaTransacciones(transacciones, ultima.fecha(), ultima.idTransaccion());
+    }
+
+    /**
+     * Las archivadas como Transaccion (sin persistir), por ID. El archivo no tiene FK: se omiten las de usuarios
+     * ya borrados, igual que las de la tabla caliente, que se borran en cascada con el usuario.
+     */
+    private Map<Long, Transaccion> desarchivar(Collection<TransaccionArchivada> archivadas) {
+        Set<Long> idsUsuario = new HashSet<>();
+        for (TransaccionArchivada a : archivadas) {
+            idsUsuario.add(a.getIdUsuarioOrigen());
+            idsUsuario.add(a.getIdUsuarioDestino());
+        }
+        Map<Long, Usuario> usuarios = new HashMap<>();
+        usuarioRepository.findAllById(idsUsuario).forEach(u -> usuarios.put(u.getIdUsuario(), u));
+        Map<Long, Transaccion> porId = new HashMap<>();
+        for (TransaccionArchivada a : archivadas) {
+            Usuario origen = usuarios.get(a.getIdUsuarioOrigen());
+            Usuario destino = usuarios.get(a.getIdUsuarioDestino());
+            if (origen != null && destino != null && catalogo.porId(a.getIdCripto()) != null) {
+                porId.put(a.getIdTransaccion(), a.comoTransaccion(origen, destino, catalogo.referencia(a.getIdCripto())));
+            }
+        }
+        return porId;
     }
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package com.example.user_demo.data.services;
 
+import com.example.user_demo.data.dto.FichaUsuario;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
 import com.example.user_demo.data.model.Usuario;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -15,6 +20,19 @@ public interface UsuarioService {
 
     Optional<Usuario> findByEmail(String email);
 
+    /**
+     * Datos básicos de un usuario (API REST), sin cargar la entidad ni sus relaciones.
+     */
+    Optional<FichaUsuario> getFichaUsuario(Long id);
+
+    /**
+     * Página de usuarios en orden de ID, paginada por cursor.
+     * @param despuesDe ID del último usuario de la página anterior (null para la primera página).
+     * @param tamano Usuarios por página (1..100).
+     * @throws IllegalArgumentException Si el tamaño no es válido.
+     */
+    Slice<FichaUsuario> getFichasUsuarios(Long despuesDe, int tamano);
+
     /**
      * Crea un nuevo usuario y su historial asociado.
      * Valida los datos de entrada.
@@ -26,6 +44,15 @@ public interface UsuarioService {
      */
     Usuario crearUsuario(String nombre, String email, String detalleHistorial);
 
+    /**
+     * Crea un usuario y su primera cartera en una sola transacción (alta del formulario y de la API):
+     * si la cartera no se puede crear, tampoco queda el usuario.
+     * @param saldoInicial Dólares de la primera cartera (0 si es null).
+     * @return El usuario guardado.
+     * @throws IllegalArgumentException Si los datos del usuario no son válidos o el saldo inicial es negativo.
+     */
+    Usuario crearUsuarioConCartera(String nombre, String email, String detalleHistorial, Double saldoInicial);
+
     /**
      * Elimina un usuario por su ID.
      * La lógica de cascada (borrar carteras, tx, historial) es manejada por JPA.
@@ -35,4 +62,25 @@ public interface UsuarioService {
     void eliminarUsuario(Long id);
 
     Iterable<Usuario> getUsuariosConMultiplesCarteras();
+
+    /**
+     * Autocompletado: usuarios cuyo nombre (o una palabra de él) o email empiezan por el prefijo.
+     * @param limite Máximo de resultados (entre 1 y 50).
+     * @param excluido Usuario que no debe aparecer (ej. el propio origen de una transferencia), o null.
+     * @return Hasta 'limite' sugerencias; vacío si el prefijo está en blanco.
+     */
+    List<SugerenciaUsuario> buscarUsuarios(String prefijo, int limite, Long excluido);
+
+    /**
+     * Usuarios con saldo de una cripto en al menos una cartera (destinatarios de avisos y airdrops).
+     * @param simbolo Símbolo de la cripto (ej: BTC).
+     * @throws java.util.NoSuchElementException Si la cripto no existe.
+     */
+    Iterable<Usuario> getUsuariosConCripto(String simbolo);
+
+    /**
+     * Número de usuarios con saldo de una cripto.
+     * @throws java.util.NoSuchElementException Si la cripto no existe.
+     */
+    long contarUsuariosConCripto(String simbolo);
 }
\ No newline at end of file
@@ -1,13 +1,29 @@
 package com.example.user_demo.data.services;
 
+import com.example.user_demo.data.busqueda.IndiceUsuarios;
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.FichaUsuario;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import com.example.user_demo.data.ledger.LedgerEngine;
+import com.example.user_demo.data.model.Cartera;
 import com.example.user_demo.data.model.Historial;
 import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.EntradaHistorialRepository;
 import com.example.user_demo.data.repository.HistorialRepository;
 import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -20,14 +36,38 @@ public class UsuarioServiceImpl implements com.example.user_demo.data.services.U
 
     private final UsuarioRepository usuarioRepository;
     private final HistorialRepository historialRepository;
+    private final EntradaHistorialRepository entradaHistorialRepository;
+    private final LedgerEngine ledgerEngine;
+    private final PatrimonioMaterializado patrimonio;
+    private final CatalogoCriptomonedas catalogo;
+    private final IndiceTenedores tenedores; // Cripto -> usuarios con saldo, sin JOIN por consulta
+    private final IndiceUsuarios busqueda; // Prefijos de nombre y email para el autocompletado
+    private final ClasificacionPatrimonio clasificacion;
+    private final VersionesUsuario versiones; // Lista de la página de inicio y ETag de los dashboards
+    private final CarteraService carteraService;
+
+    private static final int TAMANO_MAXIMO_PAGINA = 100;
 
     // Regex simple pero efectivo para email
     private static final String EMAIL_REGEX = "^[\\w-\\.]+@([\\w-]+\\.)+[\\w-]{2,4}$";
 
     @Autowired
-    public UsuarioServiceImpl(UsuarioRepository usuarioRepository, HistorialRepository historialRepository) {
+    public UsuarioServiceImpl(UsuarioRepository usuarioRepository, HistorialRepository historialRepository,
+                              EntradaHistorialRepository entradaHistorialRepository, LedgerEngine ledgerEngine,
+                              PatrimonioMaterializado patrimonio, CatalogoCriptomonedas catalogo,
+                              IndiceTenedores tenedores, IndiceUsuarios busqueda,
+                              ClasificacionPatrimonio clasificacion, VersionesUsuario versiones, CarteraService carteraService) {
         this.usuarioRepository = usuarioRepository;
         this.historialRepository = historialRepository;
+        this.entradaHistorialRepository = entradaHistorialRepository;
+        this.ledgerEngine = ledgerEngine;
+        this.patrimonio = patrimonio;
+        this.catalogo = catalogo;
+        this.tenedores = tenedores;
+        this.busqueda = busqueda;
+        this.clasificacion = clasificacion;
+        this.versiones = versiones;
+        this.carteraService = carteraService;
     }
 
     @Override
@@ -48,6 +88,21 @@ public class UsuarioServiceImpl implements com.example.user_demo.data.services.U
         return usuarioRepository.findByEmail(email);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<FichaUsuario> getFichaUsuario(Long id) {
+        return usuarioRepository.findFichaById(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<FichaUsuario> getFichasUsuarios(Long despuesDe, int tamano) {
+        if (tamano <= 0 || tamano > TAMANO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("Página no válida (tamaño entre 1 y " + TAMANO_MAXIMO_PAGINA + ").");
+        }
+        return usuarioRepository.findFichasDespuesDe(despuesDe == null ? 0L : despuesDe, PageRequest.of(0, tamano));
+    }
+
     @Override
     @Transactional
     public Usuario crearUsuario(String nombre, String email, String detalleHistorial) {
@@ -84,7 +139,23 @@ public class UsuarioServiceImpl implements com.example.user_demo.data.services.U
         // Helper para relación bidireccional
         nuevoUsuario.setHistorial(nuevoHistorial);
 
-        return usuarioRepository.save(nuevoUsuario);
+        Usuario guardado = usuarioRepository.save(nuevoUsuario);
+        busqueda.usuarioCreado(guardado.getIdUsuario(), guardado.getNombre(), guardado.getEmail());
+        versiones.listaCambiada();
+        return guardado;
+    }
+
+    @Override
+    @Transactional
+    public Usuario crearUsuarioConCartera(String nombre, String email, String detalleHistorial, Double saldoInicial) {
+        double saldo = saldoInicial != null ? saldoInicial : 0.0;
+        if (saldo < 0) {
+            throw new IllegalArgumentException("El balance inicial no puede ser negativo.");
+        }
+        // Misma transacción: un fallo al crear la cartera deshace también el alta del usuario
+        Usuario guardado = crearUsuario(nombre, email, detalleHistorial);
+        carteraService.crearCartera(guardado.getEmail(), saldo);
+        return guardado;
     }
 
     @Override
@@ -93,6 +164,17 @@ public class UsuarioServiceImpl implements com.example.user_demo.data.services.U
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("No se puede eliminar. Usuario no encontrado con id: " + id));
 
+        for (Cartera cartera : usuario.getCarteras()) {
+            ledgerEngine.invalidarCartera(cartera.getIdCartera());
+        }
+        ledgerEngine.invalidarUsuario(id);
+        patrimonio.usuarioEliminado(id);
+        tenedores.usuarioEliminado(id);
+        busqueda.usuarioEliminado(id);
+        clasificacion.usuarioEliminado(id);
+        versiones.usuarioEliminado(id);
+        // Las entradas del historial no cuelgan de Usuario (pueden ser miles): se borran de una vez
+        entradaHistorialRepository.deleteByIdUsuario(id);
         usuarioRepository.delete(usuario);
     }
 
@@ -101,4 +183,58 @@ public class UsuarioServiceImpl implements com.example.user_demo.data.services.U
     public Iterable<Usuario> getUsuariosConMultiplesCarteras() {
         return usuarioRepository.findUsuariosConMultiplesCarteras();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Iterable<Usuario> getUsuariosConCripto(String simbolo) {
+        CotizacionCripto cripto = buscarCripto(simbolo);
+        if (!tenedores.isListo()) {
+            return usuarioRepository.findUsuariosByCriptoSimbolo(cripto.simbolo());
+        }
+        long[] ids = tenedores.tenedores(cripto.idCripto());
+        List<Long> lista = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            lista.add(id);
+        }
+        return lista.isEmpty() ? List.of() : usuarioRepository.findAllById(lista);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long contarUsuariosConCripto(String simbolo) {
+        CotizacionCripto cripto = buscarCripto(simbolo);
+        if (!tenedores.isListo()) {
+            return usuarioRepository.countUsuariosByCriptoSimbolo(cripto.simbolo());
+        }
+        return tenedores.contarTenedores(cripto.idCripto());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SugerenciaUsuario> buscarUsuarios(String prefijo, int limite, Long excluido) {
+        if (prefijo == null || prefijo.isBlank()) {
+            return List.of();
+        }
+        int maximo = Math.max(1, Math.min(limite, IndiceUsuarios.LIMITE_MAXIMO));
+        if (busqueda.isListo()) {
+            return busqueda.buscar(prefijo, maximo, excluido);
+        }
+        String limpio = prefijo.trim();
+        List<SugerenciaUsuario> sugerencias = new ArrayList<>(maximo);
+        for (Usuario u : usuarioRepository.findByNombreStartingWithIgnoreCaseOrEmailStartingWithIgnoreCaseOrderByNombreAsc(
+                limpio, limpio, PageRequest.of(0, maximo + 1))) {
+            if (!u.getIdUsuario().equals(excluido) && sugerencias.size() < maximo) {
+                sugerencias.add(new SugerenciaUsuario(u.getIdUsuario(), u.getNombre(), u.getEmail()));
+            }
+        }
+        return sugerencias;
+    }
+
+    private CotizacionCripto buscarCripto(String simbolo) {
+        CotizacionCripto cripto = catalogo.porSimbolo(simbolo);
+        if (cripto == null) {
+            throw new NoSuchElementException("Criptomoneda no encontrada: " + simbolo);
+        }
+        return cripto;
+    }
 }
\ No newline at end of file
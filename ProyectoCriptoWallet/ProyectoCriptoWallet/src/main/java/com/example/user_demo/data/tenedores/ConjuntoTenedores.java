@@ -0,0 +1,110 @@
+package com.example.user_demo.data.tenedores;
+
+import java.util.Arrays;
+
+/**
+ * Usuarios que tienen una cripto: IDs ordenados en un int[] y, en paralelo, cuántas de sus carteras
+ * tienen saldo de ella (el usuario sale del conjunto cuando la última llega a cero).
+ * Búsqueda binaria; altas y bajas desplazan el array (O(n), sin objetos por usuario).
+ * No es thread-safe: IndiceTenedores lo protege con su cerrojo.
+ */
+final class ConjuntoTenedores {
+
+    private static final int CAPACIDAD_INICIAL = 8;
+
+    private int[] ids;
+    private int[] carteras;
+    private int tamano;
+
+    ConjuntoTenedores() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    ConjuntoTenedores(int capacidad) {
+        this.ids = new int[Math.max(capacidad, 1)];
+        this.carteras = new int[ids.length];
+    }
+
+    int tamano() {
+        return tamano;
+    }
+
+    boolean contiene(int idUsuario) {
+        return Arrays.binarySearch(ids, 0, tamano, idUsuario) >= 0;
+    }
+
+    /**
+     * Una cartera más del usuario con saldo de la cripto.
+     */
+    void sumar(int idUsuario) {
+        int pos = Arrays.binarySearch(ids, 0, tamano, idUsuario);
+        if (pos >= 0) {
+            carteras[pos]++;
+            return;
+        }
+        insertar(-pos - 1, idUsuario, 1);
+    }
+
+    /**
+     * Una cartera menos del usuario con saldo de la cripto.
+     */
+    void restar(int idUsuario) {
+        int pos = Arrays.binarySearch(ids, 0, tamano, idUsuario);
+        if (pos < 0) {
+            return; // Ya no estaba (p. ej. el usuario se borró antes)
+        }
+        if (--carteras[pos] <= 0) {
+            borrar(pos);
+        }
+    }
+
+    /**
+     * Saca al usuario, tenga las carteras que tenga.
+     */
+    void quitar(int idUsuario) {
+        int pos = Arrays.binarySearch(ids, 0, tamano, idUsuario);
+        if (pos >= 0) {
+            borrar(pos);
+        }
+    }
+
+    /**
+     * Alta al final durante la carga desde BD, que llega ordenada por ID de usuario.
+     */
+    void anadirOrdenado(int idUsuario, int numeroCarteras) {
+        if (tamano > 0 && ids[tamano - 1] >= idUsuario) {
+            throw new IllegalArgumentException("Los usuarios deben llegar en orden creciente (ID: " + idUsuario + ").");
+        }
+        insertar(tamano, idUsuario, numeroCarteras);
+    }
+
+    /**
+     * Copia de los IDs, en orden creciente.
+     */
+    long[] idsOrdenados() {
+        long[] copia = new long[tamano];
+        for (int i = 0; i < tamano; i++) {
+            copia[i] = ids[i];
+        }
+        return copia;
+    }
+
+    private void insertar(int pos, int idUsuario, int numeroCarteras) {
+        if (tamano == ids.length) {
+            int capacidad = ids.length + (ids.length >> 1) + 1;
+            ids = Arrays.copyOf(ids, capacidad);
+            carteras = Arrays.copyOf(carteras, capacidad);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, tamano - pos);
+        System.arraycopy(carteras, pos, carteras, pos + 1, tamano - pos);
+        ids[pos] = idUsuario;
+        carteras[pos] = numeroCarteras;
+        tamano++;
+    }
+
+    private void borrar(int pos) {
+        System.arraycopy(ids, pos + 1, ids, pos, tamano - pos - 1);
+        System.arraycopy(carteras, pos + 1, carteras, pos, tamano - pos - 1);
+        tamano--;
+    }
+}
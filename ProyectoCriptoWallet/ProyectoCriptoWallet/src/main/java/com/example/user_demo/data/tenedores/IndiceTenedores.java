@@ -0,0 +1,210 @@
+package com.example.user_demo.data.tenedores;
+
+import com.example.user_demo.data.commit.CambiosEnVuelo;
+import com.example.user_demo.data.enrutado.ContextoLectura;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice invertido cripto -> usuarios que la tienen (al menos una cartera con saldo mayor que cero).
+ *
+ * Se carga de BD al arrancar con una única consulta agrupada y después se mantiene con los cambios
+ * de posición que le pasan los servicios y el motor de ledger, aplicados tras el commit. Solo cuentan
+ * las transiciones: una cartera que pasa de cero a saldo (o al revés), o que desaparece con saldo.
+ * Consultar los tenedores de una cripto, o cuántos son, no toca la BD.
+ *
+ * Mientras no está cargado (o con criptowallet.tenedores.indice.habilitado=false) isListo() es false
+ * y los llamantes deben usar la consulta de UsuarioRepository.
+ */
+@Component
+public class IndiceTenedores {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceTenedores.class);
+
+    // Veces que se reintenta la carga si hay cambios en vuelo; después se acepta y reconstruir() lo arreglaría
+    private static final int MAX_REINTENTOS_CARGA = 3;
+
+    private static final String CARGA = "SELECT a.id_cripto, c.id_usuario, COUNT(*) AS carteras "
+            + "FROM activos a JOIN carteras c ON c.id_cartera = a.id_cartera "
+            + "WHERE a.cantidad > 0 GROUP BY a.id_cripto, c.id_usuario ORDER BY a.id_cripto, c.id_usuario";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+
+    // Todo el estado se protege con 'cerrojo' (las operaciones son O(log n) o un desplazamiento de array)
+    private final Object cerrojo = new Object();
+    private Map<Long, ConjuntoTenedores> porCripto = new HashMap<>();
+    private volatile boolean listo;
+
+    // Para no cargar a medias mientras hay cambios en vuelo
+    private final CambiosEnVuelo cambios = new CambiosEnVuelo();
+
+    @Autowired
+    public IndiceTenedores(JdbcTemplate jdbcTemplate,
+                           @Value("${criptowallet.tenedores.indice.habilitado:true}") boolean habilitado) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+    }
+
+    // Tras data.sql, que vacía y vuelve a sembrar los activos en desarrollo
+    @EventListener(ApplicationReadyEvent.class)
+    void arrancar() {
+        if (habilitado) {
+            reconstruir();
+        }
+    }
+
+    public boolean isListo() {
+        return listo;
+    }
+
+    // --- LECTURAS ---
+
+    /**
+     * @return IDs de los usuarios que tienen la cripto, en orden creciente (vacío si no la tiene nadie).
+     * @throws IllegalStateException Si el índice aún no está cargado.
+     */
+    public long[] tenedores(Long idCripto) {
+        synchronized (cerrojo) {
+            comprobarListo();
+            ConjuntoTenedores conjunto = porCripto.get(idCripto);
+            return conjunto == null ? new long[0] : conjunto.idsOrdenados();
+        }
+    }
+
+    /**
+     * @return Número de usuarios que tienen la cripto.
+     * @throws IllegalStateException Si el índice aún no está cargado.
+     */
+    public int contarTenedores(Long idCripto) {
+        synchronized (cerrojo) {
+            comprobarListo();
+            ConjuntoTenedores conjunto = porCripto.get(idCripto);
+            return conjunto == null ? 0 : conjunto.tamano();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException Si el índice aún no está cargado.
+     */
+    public boolean esTenedor(Long idUsuario, Long idCripto) {
+        synchronized (cerrojo) {
+            comprobarListo();
+            ConjuntoTenedores conjunto = porCripto.get(idCripto);
+            return conjunto != null && conjunto.contiene(clave(idUsuario));
+        }
+    }
+
+    // --- CAMBIOS (se aplican tras el commit de la transacción en curso) ---
+
+    /**
+     * Cambio de unidades de una cripto en una cartera del usuario. Solo afecta al índice si
+     * la cartera pasa de no tener saldo a tenerlo o al revés; 'despues' = 0 también vale para el borrado del activo.
+     */
+    public void posicionCambiada(Long idUsuario, Long idCripto, long antes, long despues) {
+        boolean teniaSaldo = antes > 0;
+        boolean tieneSaldo = despues > 0;
+        if (teniaSaldo == tieneSaldo) {
+            return;
+        }
+        int id = clave(idUsuario);
+        trasCommit(() -> {
+            if (tieneSaldo) {
+                porCripto.computeIfAbsent(idCripto, k -> new ConjuntoTenedores()).sumar(id);
+            } else {
+                ConjuntoTenedores conjunto = porCripto.get(idCripto);
+                if (conjunto != null) {
+                    conjunto.restar(id);
+                    if (conjunto.tamano() == 0) {
+                        porCripto.remove(idCripto);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * El usuario deja de ser tenedor de todo (se borra con sus carteras).
+     */
+    public void usuarioEliminado(Long idUsuario) {
+        int id = clave(idUsuario);
+        trasCommit(() -> {
+            porCripto.values().forEach(conjunto -> conjunto.quitar(id));
+            porCripto.values().removeIf(conjunto -> conjunto.tamano() == 0);
+        });
+    }
+
+    // --- MANTENIMIENTO ---
+
+    /**
+     * Vuelve a cargar el índice completo desde las filas de activos y carteras.
+     */
+    public void reconstruir() {
+        for (int intento = 0; ; intento++) {
+            CambiosEnVuelo.Marca marca = cambios.marca();
+            Map<Long, ConjuntoTenedores> leido = leer();
+            synchronized (cerrojo) {
+                if (cambios.estable(marca) || intento >= MAX_REINTENTOS_CARGA) {
+                    porCripto = leido;
+                    listo = true;
+                    log.info("Índice de tenedores cargado: {} cripto(s)", leido.size());
+                    return;
+                }
+            }
+        }
+    }
+
+    // --- INTERNOS ---
+
+    // De la primaria aunque se llame desde una transacción readOnly: el índice vive de esta carga
+    private Map<Long, ConjuntoTenedores> leer() {
+        return ContextoLectura.enPrimaria(() -> {
+            Map<Long, ConjuntoTenedores> leido = new HashMap<>();
+            jdbcTemplate.query(CARGA, rs -> {
+                ConjuntoTenedores conjunto = leido.computeIfAbsent(rs.getLong(1), k -> new ConjuntoTenedores());
+                conjunto.anadirOrdenado(clave(rs.getLong(2)), rs.getInt(3));
+            });
+            return leido;
+        });
+    }
+
+    // Con el cerrojo
+    private void comprobarListo() {
+        if (!listo) {
+            throw new IllegalStateException("El índice de tenedores no está cargado.");
+        }
+    }
+
+    private static int clave(Long idUsuario) {
+        try {
+            return Math.toIntExact(idUsuario);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("ID de usuario fuera del rango del índice de tenedores: " + idUsuario);
+        }
+    }
+
+    private void trasCommit(Runnable cambio) {
+        if (!habilitado) {
+            return;
+        }
+        cambios.trasCommit(() -> aplicar(cambio));
+    }
+
+    private void aplicar(Runnable cambio) {
+        synchronized (cerrojo) {
+            if (!listo) {
+                return; // La carga en curso (o la del arranque) ya leerá el cambio de BD
+            }
+            cambio.run();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.user_demo.data.velas;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.catalogo.OyentePrecios;
+import com.example.user_demo.data.model.Vela;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Histórico de precios en velas OHLC de 1 minuto, 1 hora y 1 día por criptomoneda.
+ *
+ * Escucha cada cambio de precio publicado en el catálogo (ingesta o manual) y lo suma a un
+ * AnilloVelas fuera del heap por cripto y resolución. Las consultas ("cierres de BTC de los
+ * últimos 30 días", precio en un instante) se resuelven en memoria, sin JPA. Un hilo virtual vuelca
+ * cada 'volcado-ms' las velas cerradas a la tabla 'velas' por JDBC, y al arrancar se recargan de ahí
+ * las últimas de cada cripto del catálogo, así que el histórico sobrevive a un reinicio. Una cripto
+ * dada de alta después empieza con anillos vacíos: registrar un precio nunca lee de BD.
+ *
+ * La resolución de máximos y mínimos es la de publicación del catálogo (una ventana de la ingesta).
+ */
+@Component
+public class AlmacenVelas implements OyentePrecios {
+
+    private static final Logger log = LoggerFactory.getLogger(AlmacenVelas.class);
+
+    // Escritura idempotente: una vela reabierta tras un reinicio se vuelve a volcar sobre la misma fila
+    private static final String UPSERT_MYSQL = "INSERT INTO velas (id_cripto, resolucion, inicio_ms, apertura, maximo, minimo, cierre, muestras) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE maximo = VALUES(maximo), minimo = VALUES(minimo), "
+            + "cierre = VALUES(cierre), muestras = VALUES(muestras)";
+    private static final String UPSERT_H2 = "MERGE INTO velas (id_cripto, resolucion, inicio_ms, apertura, maximo, minimo, cierre, muestras) "
+            + "KEY (id_cripto, resolucion, inicio_ms) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CARGA = "SELECT inicio_ms, apertura, maximo, minimo, cierre, muestras FROM velas "
+            + "WHERE id_cripto = ? AND resolucion = ? ORDER BY inicio_ms DESC LIMIT ?";
+
+    private final CatalogoCriptomonedas catalogo;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Vela.Resolucion, Integer> capacidades = new EnumMap<>(Vela.Resolucion.class);
+    private final boolean habilitado;
+    private final long volcadoMs;
+
+    // idCripto -> un anillo por resolución (en el orden de Vela.Resolucion.values())
+    private final ConcurrentHashMap<Long, AnilloVelas[]> anillos = new ConcurrentHashMap<>();
+
+    private volatile boolean activo;
+    private Thread hilo;
+    private String upsert; // Según la BD, al primer volcado
+
+    @Autowired
+    public AlmacenVelas(CatalogoCriptomonedas catalogo,
+                        JdbcTemplate jdbcTemplate,
+                        @Value("${criptowallet.velas.habilitado:true}") boolean habilitado,
+                        @Value("${criptowallet.velas.capacidad-m1:1440}") int capacidadM1,
+                        @Value("${criptowallet.velas.capacidad-h1:1440}") int capacidadH1,
+                        @Value("${criptowallet.velas.capacidad-d1:400}") int capacidadD1,
+                        @Value("${criptowallet.velas.volcado-ms:60000}") long volcadoMs) {
+        if (capacidadM1 <= 0 || capacidadH1 <= 0 || capacidadD1 <= 0 || volcadoMs <= 0) {
+            throw new IllegalArgumentException("La configuración del almacén de velas debe usar valores positivos.");
+        }
+        this.catalogo = catalogo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+        this.volcadoMs = volcadoMs;
+        capacidades.put(Vela.Resolucion.M1, capacidadM1);
+        capacidades.put(Vela.Resolucion.H1, capacidadH1);
+        capacidades.put(Vela.Resolucion.D1, capacidadD1);
+    }
+
+    // Tras data.sql, que vacía las velas en desarrollo. Primero se recarga el histórico y luego se escucha:
+    // los precios publicados antes de estar listo no entran en las velas
+    @EventListener(ApplicationReadyEvent.class)
+    void arrancar() {
+        if (!habilitado) {
+            return;
+        }
+        precargar();
+        activo = true;
+        catalogo.suscribir(this);
+        hilo = Thread.ofVirtual().name("velas-volcado").start(this::bucle);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (hilo == null) {
+            return;
+        }
+        activo = false;
+        catalogo.desuscribir(this);
+        hilo.interrupt();
+        hilo.join();
+        try {
+            volcar(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron volcar las últimas velas al parar", e);
+        }
+    }
+
+    @Override
+    public void preciosActualizados(List<CotizacionCripto> cambios, long version) {
+        long ahora = System.currentTimeMillis();
+        for (CotizacionCripto c : cambios) {
+            registrar(c.idCripto(), ahora, c.precioCentimos());
+        }
+    }
+
+    /**
+     * Suma un precio a las velas (1m, 1h, 1d) de esa cripto en ese instante.
+     */
+    public void registrar(Long idCripto, long instanteMs, long precioCentimos) {
+        for (AnilloVelas anillo : anillos(idCripto)) {
+            anillo.registrar(instanteMs, precioCentimos);
+        }
+    }
+
+    // --- CONSULTAS (solo memoria) ---
+
+    /**
+     * Velas con inicio en [desdeMs, hastaMs), de la más antigua a la más reciente.
+     * @throws NoSuchElementException Si la criptomoneda no existe.
+     */
+    public SerieVelas velas(String simbolo, Vela.Resolucion resolucion, long desdeMs, long hastaMs) {
+        CotizacionCripto cripto = cripto(simbolo);
+        AnilloVelas[] deCripto = anillos.get(cripto.idCripto());
+        if (deCripto == null) {
+            return SerieVelas.vacia(simbolo, resolucion);
+        }
+        return deCripto[resolucion.ordinal()].leer(simbolo, desdeMs, hastaMs);
+    }
+
+    /**
+     * Velas del último 'periodo' hasta ahora (ej. velas("BTC", D1, Duration.ofDays(30)) para sus cierres de 30 días).
+     */
+    public SerieVelas ultimas(String simbolo, Vela.Resolucion resolucion, Duration periodo) {
+        long ahora = System.currentTimeMillis();
+        return velas(simbolo, resolucion, resolucion.inicioDe(ahora - periodo.toMillis()), Long.MAX_VALUE);
+    }
+
+    /**
+     * Precio de la cripto en un instante pasado: cierre de la vela más fina que llegue tan atrás.
+     * @return Precio en céntimos, o -1 si no hay histórico de ese momento.
+     */
+    public long precioEn(String simbolo, long instanteMs) {
+        AnilloVelas[] deCripto = anillos.get(cripto(simbolo).idCripto());
+        if (deCripto == null) {
+            return -1;
+        }
+        for (AnilloVelas anillo : deCripto) {
+            long precio = anillo.cierreEn(instanteMs);
+            if (precio >= 0) {
+                return precio;
+            }
+        }
+        return -1;
+    }
+
+    // --- VOLCADO ---
+
+    /**
+     * Escribe en BD las velas cerradas pendientes (un lote JDBC).
+     * @return Número de velas volcadas.
+     */
+    public synchronized int volcar(long ahoraMs) {
+        List<Object[]> filas = new ArrayList<>();
+        List<Runnable> confirmaciones = new ArrayList<>();
+        List<long[]> velas = new ArrayList<>();
+        anillos.forEach((idCripto, deCripto) -> {
+            for (Vela.Resolucion r : Vela.Resolucion.values()) {
+                velas.clear();
+                AnilloVelas anillo = deCripto[r.ordinal()];
+                long hasta = anillo.pendientesDeVolcar(ahoraMs, velas);
+                for (long[] v : velas) {
+                    filas.add(new Object[]{idCripto, r.name(), v[0], v[1], v[2], v[3], v[4], v[5]});
+                }
+                if (!velas.isEmpty()) {
+                    confirmaciones.add(() -> anillo.confirmarVolcado(hasta));
+                }
+            }
+        });
+        if (filas.isEmpty()) {
+            return 0;
+        }
+        if (upsert == null) {
+            upsert = esH2() ? UPSERT_H2 : UPSERT_MYSQL;
+        }
+        jdbcTemplate.batchUpdate(upsert, filas);
+        confirmaciones.forEach(Runnable::run);
+        return filas.size();
+    }
+
+    private void bucle() {
+        while (activo) {
+            try {
+                Thread.sleep(volcadoMs);
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                volcar(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                log.error("Error volcando velas, se reintentará", e);
+            }
+        }
+    }
+
+    // --- INTERNOS ---
+
+    private CotizacionCripto cripto(String simbolo) {
+        CotizacionCripto cripto = catalogo.porSimbolo(simbolo);
+        if (cripto == null) {
+            throw new NoSuchElementException("Criptomoneda no soportada: " + simbolo);
+        }
+        return cripto;
+    }
+
+    private AnilloVelas[] anillos(Long idCripto) {
+        AnilloVelas[] deCripto = anillos.get(idCripto);
+        return deCripto != null ? deCripto : anillos.computeIfAbsent(idCripto, id -> crear());
+    }
+
+    // Anillos con las últimas velas ya volcadas de cada cripto del catálogo (fuera de cualquier cerrojo)
+    void precargar() {
+        for (CotizacionCripto c : catalogo.todas()) {
+            AnilloVelas[] deCripto = crear();
+            cargarGuardadas(c.idCripto(), deCripto);
+            anillos.put(c.idCripto(), deCripto);
+        }
+        log.info("Velas recargadas de BD para {} cripto(s)", anillos.size());
+    }
+
+    private AnilloVelas[] crear() {
+        Vela.Resolucion[] resoluciones = Vela.Resolucion.values();
+        AnilloVelas[] deCripto = new AnilloVelas[resoluciones.length];
+        for (Vela.Resolucion r : resoluciones) {
+            deCripto[r.ordinal()] = new AnilloVelas(r, capacidades.get(r));
+        }
+        return deCripto;
+    }
+
+    private void cargarGuardadas(Long idCripto, AnilloVelas[] deCripto) {
+        for (Vela.Resolucion r : Vela.Resolucion.values()) {
+            AnilloVelas anillo = deCripto[r.ordinal()];
+            List<long[]> guardadas = jdbcTemplate.query(CARGA, (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2),
+                    rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6)}, idCripto, r.name(), capacidades.get(r));
+            for (int i = guardadas.size() - 1; i >= 0; i--) {
+                long[] v = guardadas.get(i);
+                anillo.cargar(v[0], v[1], v[2], v[3], v[4], v[5]);
+            }
+        }
+    }
+
+    // Como SemillaSecuencias, por el producto de la conexión: MERGE ... KEY en H2, ON DUPLICATE KEY UPDATE en MySQL
+    private boolean esH2() {
+        String producto = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if ("H2".equals(producto)) {
+            return true;
+        }
+        if ("MySQL".equals(producto)) {
+            return false;
+        }
+        throw new IllegalStateException("El almacén de velas solo admite H2 y MySQL, no " + producto + ".");
+    }
+}
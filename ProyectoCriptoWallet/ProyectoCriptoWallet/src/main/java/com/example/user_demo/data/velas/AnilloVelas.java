@@ -0,0 +1,166 @@
+package com.example.user_demo.data.velas;
+
+import com.example.user_demo.data.model.Vela;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Búfer circular de tamaño fijo con las últimas velas de una cripto y resolución, fuera del heap
+ * (ByteBuffer directo). Cada vela ocupa seis longs; registrar un precio no crea ningún objeto.
+ *
+ * La vela más reciente (la de 'cabeza') es la abierta. Las anteriores están cerradas y se
+ * vuelcan a BD una sola vez (se recuerda el inicio de la última volcada).
+ */
+final class AnilloVelas {
+
+    private static final int INICIO = 0;
+    private static final int APERTURA = 8;
+    private static final int MAXIMO = 16;
+    private static final int MINIMO = 24;
+    private static final int CIERRE = 32;
+    private static final int MUESTRAS = 40;
+    private static final int REGISTRO = 48;
+
+    private final Vela.Resolucion resolucion;
+    private final int capacidad;
+    private final ByteBuffer datos;
+
+    private int cabeza = -1;
+    private int tamano;
+    private long volcadaHasta = Long.MIN_VALUE;
+
+    AnilloVelas(Vela.Resolucion resolucion, int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del anillo de velas debe ser positiva.");
+        }
+        this.resolucion = resolucion;
+        this.capacidad = capacidad;
+        this.datos = ByteBuffer.allocateDirect(capacidad * REGISTRO);
+    }
+
+    /**
+     * Suma un precio a la vela de ese instante. Los precios de velas ya pasadas se ignoran.
+     */
+    synchronized void registrar(long instanteMs, long precioCentimos) {
+        long inicio = resolucion.inicioDe(instanteMs);
+        if (tamano > 0) {
+            int p = posicion(cabeza);
+            long actual = datos.getLong(p + INICIO);
+            if (inicio < actual) {
+                return;
+            }
+            if (inicio == actual) {
+                datos.putLong(p + MAXIMO, Math.max(datos.getLong(p + MAXIMO), precioCentimos));
+                datos.putLong(p + MINIMO, Math.min(datos.getLong(p + MINIMO), precioCentimos));
+                datos.putLong(p + CIERRE, precioCentimos);
+                datos.putLong(p + MUESTRAS, datos.getLong(p + MUESTRAS) + 1);
+                return;
+            }
+        }
+        escribir(inicio, precioCentimos, precioCentimos, precioCentimos, precioCentimos, 1);
+    }
+
+    /**
+     * Añade una vela ya volcada (carga inicial desde BD, en orden de inicio).
+     */
+    synchronized void cargar(long inicio, long apertura, long maximo, long minimo, long cierre, long muestras) {
+        if (tamano > 0 && inicio <= datos.getLong(posicion(cabeza) + INICIO)) {
+            return;
+        }
+        escribir(inicio, apertura, maximo, minimo, cierre, muestras);
+        volcadaHasta = inicio;
+    }
+
+    /**
+     * Añade a 'filas' las velas cerradas aún no volcadas: [inicio, apertura, máximo, mínimo, cierre, muestras].
+     * La abierta solo cuenta como cerrada si 'ahoraMs' ya ha pasado su final.
+     * @return Inicio de la última vela añadida (para confirmarVolcado), o Long.MIN_VALUE si no hay ninguna.
+     */
+    synchronized long pendientesDeVolcar(long ahoraMs, List<long[]> filas) {
+        long ultima = Long.MIN_VALUE;
+        for (int i = 0; i < tamano; i++) {
+            int slot = slotAntiguo(i);
+            int p = posicion(slot);
+            long inicio = datos.getLong(p + INICIO);
+            boolean cerrada = slot != cabeza || ahoraMs >= inicio + resolucion.getMilis();
+            if (inicio > volcadaHasta && cerrada) {
+                filas.add(new long[]{inicio, datos.getLong(p + APERTURA), datos.getLong(p + MAXIMO),
+                        datos.getLong(p + MINIMO), datos.getLong(p + CIERRE), datos.getLong(p + MUESTRAS)});
+                ultima = inicio;
+            }
+        }
+        return ultima;
+    }
+
+    synchronized void confirmarVolcado(long hasta) {
+        volcadaHasta = Math.max(volcadaHasta, hasta);
+    }
+
+    /**
+     * Copia las velas con inicio en [desdeMs, hastaMs).
+     */
+    synchronized SerieVelas leer(String simbolo, long desdeMs, long hastaMs) {
+        int primero = -1;
+        int n = 0;
+        for (int i = 0; i < tamano; i++) {
+            long inicio = datos.getLong(posicion(slotAntiguo(i)) + INICIO);
+            if (inicio >= desdeMs && inicio < hastaMs) {
+                if (primero < 0) primero = i;
+                n++;
+            }
+        }
+        if (n == 0) {
+            return SerieVelas.vacia(simbolo, resolucion);
+        }
+        long[] inicio = new long[n], apertura = new long[n], maximo = new long[n], minimo = new long[n], cierre = new long[n], muestras = new long[n];
+        for (int k = 0; k < n; k++) {
+            int p = posicion(slotAntiguo(primero + k));
+            inicio[k] = datos.getLong(p + INICIO);
+            apertura[k] = datos.getLong(p + APERTURA);
+            maximo[k] = datos.getLong(p + MAXIMO);
+            minimo[k] = datos.getLong(p + MINIMO);
+            cierre[k] = datos.getLong(p + CIERRE);
+            muestras[k] = datos.getLong(p + MUESTRAS);
+        }
+        return new SerieVelas(simbolo, resolucion, inicio, apertura, maximo, minimo, cierre, muestras);
+    }
+
+    /**
+     * Precio de cierre de la última vela que empezó en o antes de 'instanteMs'.
+     * @return El precio en céntimos, o -1 si el anillo no llega tan atrás.
+     */
+    synchronized long cierreEn(long instanteMs) {
+        if (tamano == 0 || instanteMs < datos.getLong(posicion(slotAntiguo(0)) + INICIO)) {
+            return -1;
+        }
+        for (int i = tamano - 1; i >= 0; i--) {
+            int p = posicion(slotAntiguo(i));
+            if (datos.getLong(p + INICIO) <= instanteMs) {
+                return datos.getLong(p + CIERRE);
+            }
+        }
+        return -1;
+    }
+
+    private void escribir(long inicio, long apertura, long maximo, long minimo, long cierre, long muestras) {
+        cabeza = (cabeza + 1) % capacidad;
+        tamano = Math.min(tamano + 1, capacidad);
+        int p = posicion(cabeza);
+        datos.putLong(p + INICIO, inicio);
+        datos.putLong(p + APERTURA, apertura);
+        datos.putLong(p + MAXIMO, maximo);
+        datos.putLong(p + MINIMO, minimo);
+        datos.putLong(p + CIERRE, cierre);
+        datos.putLong(p + MUESTRAS, muestras);
+    }
+
+    // i = 0 es la vela más antigua que sigue en el anillo
+    private int slotAntiguo(int i) {
+        return (cabeza - tamano + 1 + i + capacidad) % capacidad;
+    }
+
+    private static int posicion(int slot) {
+        return slot * REGISTRO;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.user_demo.data.velas;
+
+import com.example.user_demo.data.model.Vela;
+
+/**
+ * Serie de velas de una cripto, de la más antigua a la más reciente, en arrays primitivos
+ * paralelos (inicio en epoch ms; precios en céntimos). La última puede estar aún abierta.
+ */
+public record SerieVelas(String simbolo, Vela.Resolucion resolucion,
+                         long[] inicio, long[] apertura, long[] maximo, long[] minimo, long[] cierre, long[] muestras) {
+
+    static SerieVelas vacia(String simbolo, Vela.Resolucion resolucion) {
+        return new SerieVelas(simbolo, resolucion, new long[0], new long[0], new long[0], new long[0], new long[0], new long[0]);
+    }
+
+    public int tamano() {
+        return inicio.length;
+    }
+
+    public boolean isVacia() {
+        return inicio.length == 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.user_demo.data.versiones;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.commit.TrasCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sellos de versión en memoria de lo que muestran el dashboard y la lista de usuarios, para
+ * responder 304 (ETag/If-None-Match) sin tocar la BD y para la caché de fragmentos de las vistas.
+ *
+ * Por usuario hay dos versiones: la de sus carteras (saldos y activos: transferencias, inversiones,
+ * altas y bajas de carteras y activos) y la de su actividad (entradas que genera el HistorialDespachador).
+ * Los precios entran con la versión del catálogo y las altas y bajas de usuarios con la de la lista.
+ * Todas suben tras el commit: quien lee la versión antes que los datos nunca pone una versión
+ * nueva a datos viejos (a lo sumo datos nuevos con la versión anterior, que se renderizan de nuevo).
+ *
+ * Las versiones de usuario viven en 'ranuras' contadores (ID % ranuras), no en un mapa: la memoria
+ * no crece con los usuarios y que dos usuarios compartan ranura solo invalida de más. Todos los
+ * valores salen de un único contador, así que una ranura nunca repite versión, y 'epoca' (arranque
+ * del proceso) separa las ETag de otro proceso o de antes de reiniciar.
+ * Con réplica, quien acaba de escribir lee de la primaria (LecturasTrasEscritura); un panel leído
+ * de una réplica retrasada puede quedarse con la versión nueva hasta el siguiente cambio.
+ */
+@Component
+public class VersionesUsuario {
+
+    /**
+     * Versión de todo lo que pinta el dashboard de un usuario.
+     */
+    public record VersionPanel(long epoca, Long idUsuario, long carteras, long actividad, long catalogo) {
+
+        public String etag() {
+            return "W/\"" + epoca + "-" + idUsuario + "-" + carteras + "-" + actividad + "-" + catalogo + "\"";
+        }
+    }
+
+    private final CatalogoCriptomonedas catalogo;
+    private final int ranuras;
+    private final long epoca = System.currentTimeMillis();
+    private final AtomicLong contador = new AtomicLong();
+    private final AtomicLongArray carteras;
+    private final AtomicLongArray actividad;
+    private volatile long lista;
+
+    @Autowired
+    public VersionesUsuario(CatalogoCriptomonedas catalogo,
+                            @Value("${criptowallet.web.versiones.ranuras:65536}") int ranuras) {
+        if (ranuras <= 0) {
+            throw new IllegalArgumentException("El número de ranuras de versiones debe ser mayor que cero.");
+        }
+        this.catalogo = catalogo;
+        this.ranuras = ranuras;
+        this.carteras = new AtomicLongArray(ranuras);
+        this.actividad = new AtomicLongArray(ranuras);
+    }
+
+    // --- LECTURAS ---
+
+    public VersionPanel panel(Long idUsuario) {
+        int ranura = ranura(idUsuario);
+        return new VersionPanel(epoca, idUsuario, carteras.get(ranura), actividad.get(ranura), catalogo.version());
+    }
+
+    public String etagLista() {
+        return "W/\"" + epoca + "-lista-" + lista + "\"";
+    }
+
+    // --- CAMBIOS (se aplican tras el commit de la transacción en curso) ---
+
+    public void carterasCambiadas(Long... idsUsuario) {
+        List<Long> ids = List.of(idsUsuario);
+        TrasCommit.ejecutar(() -> subir(carteras, ids));
+    }
+
+    public void actividadCambiada(Collection<Long> idsUsuario) {
+        List<Long> ids = List.copyOf(idsUsuario);
+        TrasCommit.ejecutar(() -> subir(actividad, ids));
+    }
+
+    /**
+     * Alta o baja de usuarios (cambia la lista de la página de inicio).
+     */
+    public void listaCambiada() {
+        TrasCommit.ejecutar(() -> lista = contador.incrementAndGet());
+    }
+
+    /**
+     * Baja de un usuario: cambia la lista y su dashboard deja de existir.
+     */
+    public void usuarioEliminado(Long idUsuario) {
+        TrasCommit.ejecutar(() -> {
+            subir(carteras, List.of(idUsuario));
+            lista = contador.incrementAndGet();
+        });
+    }
+
+    // --- INTERNOS ---
+
+    private int ranura(Long idUsuario) {
+        return (int) Math.floorMod(idUsuario, (long) ranuras);
+    }
+
+    private void subir(AtomicLongArray versiones, List<Long> idsUsuario) {
+        long nueva = contador.incrementAndGet();
+        for (Long id : idsUsuario) {
+            versiones.set(ranura(id), nueva);
+        }
+    }
+}
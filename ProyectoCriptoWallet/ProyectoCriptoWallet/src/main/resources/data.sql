@@ -3,8 +3,13 @@ DROP TABLE IF EXISTS cartera_cripto;
 -- =================================================================
 -- LIMPIEZA INICIAL
 -- =================================================================
+DELETE FROM historial_eventos;
+DELETE FROM historial_entradas;
 DELETE FROM activos;
+DELETE FROM velas;
 DELETE FROM transacciones;
+DELETE FROM transacciones_archivo;
+DELETE FROM particiones_transacciones;
 DELETE FROM historiales;
 DELETE FROM carteras;
 DELETE FROM criptomonedas;
@@ -15,8 +20,7 @@ ALTER TABLE usuarios AUTO_INCREMENT = 1;
 ALTER TABLE criptomonedas AUTO_INCREMENT = 1;
 ALTER TABLE carteras AUTO_INCREMENT = 1;
 ALTER TABLE historiales AUTO_INCREMENT = 1;
-ALTER TABLE transacciones AUTO_INCREMENT = 1;
-ALTER TABLE activos AUTO_INCREMENT = 1;
+-- transacciones, activos e historial_entradas usan secuencia (empieza en 1000), por eso sus IDs van explícitos abajo
 
 -- =================================================================
 -- CARGA DE DATOS
@@ -46,43 +50,46 @@ INSERT INTO carteras (id_usuario, balance_total) VALUES (3, 2500.00);
 
 
 -- 4. ACTIVOS (ACTUALIZADO A LOS NUEVOS IDs DE CARTERA)
--- Tabla: activos (id_cartera, id_cripto, cantidad)
+-- Tabla: activos (id_activo, id_cartera, id_cripto, cantidad)
 
 -- Cartera 1 (Ana Principal): Tiene BTC y ETH
-INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES (1, 1, 0.05);
-INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES (1, 2, 2.0);
+INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (1, 1, 1, 0.05);
+INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (2, 1, 2, 2.0);
 
 -- Cartera 2 (Ana Secundaria): Tiene SOL
-INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES (2, 3, 10.0);
+INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (3, 2, 3, 10.0);
 
 -- Cartera 3 (Luis): Tiene ETH
-INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES (3, 2, 5.0);
+INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (4, 3, 2, 5.0);
 
 -- Cartera 4 (Carla): Tiene BTC y SOL
-INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES (4, 1, 0.1);
-INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES (4, 3, 50.0);
+INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (5, 4, 1, 0.1);
+INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (6, 4, 3, 50.0);
 
 
 -- 5. TRANSACCIONES
 -- Ana (1) envía 1.5 ETH (2) a Luis (2)
-INSERT INTO transacciones (id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha)
-VALUES (1, 2, 2, 1.5, '2025-10-28 10:30:00');
+INSERT INTO transacciones (id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha)
+VALUES (1, 1, 2, 2, 1.5, '2025-10-28 10:30:00');
 
 -- Ana (1) envía 0.01 BTC (1) a Carla (3)
-INSERT INTO transacciones (id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha)
-VALUES (1, 3, 1, 0.01, '2025-10-29 12:00:00');
+INSERT INTO transacciones (id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha)
+VALUES (2, 1, 3, 1, 0.01, '2025-10-29 12:00:00');
 
 -- Luis (2) envía 10 SOL (3) a Carla (3)
-INSERT INTO transacciones (id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha)
-VALUES (2, 3, 3, 10.0, '2025-10-30 14:45:00');
-
-
--- 6. HISTORIALES
-INSERT INTO historiales (id_usuario, detalle)
-VALUES (1, 'Historial de Ana López\n[ENV] TX 1.50 ETH a Luis Marte\n[ENV] TX 0.01 BTC a Carla Diaz');
-
-INSERT INTO historiales (id_usuario, detalle)
-VALUES (2, 'Historial de Luis Marte\n[REC] TX 1.50 ETH de Ana López\n[ENV] TX 10.00 SOL a Carla Diaz');
-
-INSERT INTO historiales (id_usuario, detalle)
-VALUES (3, 'Historial de Carla Diaz\n[REC] TX 0.01 BTC de Ana López\n[REC] TX 10.00 SOL de Luis Marte');
\ No newline at end of file
+INSERT INTO transacciones (id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha)
+VALUES (3, 2, 3, 3, 10.0, '2025-10-30 14:45:00');
+
+
+-- 6. HISTORIALES (detalle es solo el resumen; cada movimiento es una fila de historial_entradas)
+INSERT INTO historiales (id_usuario, detalle) VALUES (1, 'Historial de Ana López');
+INSERT INTO historiales (id_usuario, detalle) VALUES (2, 'Historial de Luis Marte');
+INSERT INTO historiales (id_usuario, detalle) VALUES (3, 'Historial de Carla Diaz');
+
+-- 7. ENTRADAS DEL HISTORIAL (una por usuario y movimiento)
+INSERT INTO historial_entradas (id_entrada, id_usuario, fecha, tipo, detalle) VALUES (1, 1, '2025-10-28 10:30:00', 'ENV', 'TX 1.50 ETH a Luis Marte');
+INSERT INTO historial_entradas (id_entrada, id_usuario, fecha, tipo, detalle) VALUES (2, 2, '2025-10-28 10:30:00', 'REC', 'TX 1.50 ETH de Ana López');
+INSERT INTO historial_entradas (id_entrada, id_usuario, fecha, tipo, detalle) VALUES (3, 1, '2025-10-29 12:00:00', 'ENV', 'TX 0.01 BTC a Carla Diaz');
+INSERT INTO historial_entradas (id_entrada, id_usuario, fecha, tipo, detalle) VALUES (4, 3, '2025-10-29 12:00:00', 'REC', 'TX 0.01 BTC de Ana López');
+INSERT INTO historial_entradas (id_entrada, id_usuario, fecha, tipo, detalle) VALUES (5, 2, '2025-10-30 14:45:00', 'ENV', 'TX 10.00 SOL a Carla Diaz');
+INSERT INTO historial_entradas (id_entrada, id_usuario, fecha, tipo, detalle) VALUES (6, 3, '2025-10-30 14:45:00', 'REC', 'TX 10.00 SOL de Luis Marte');
\ No newline at end of file
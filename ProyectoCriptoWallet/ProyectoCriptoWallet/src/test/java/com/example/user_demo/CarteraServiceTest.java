@@ -1,12 +1,24 @@
 package com.example.user_demo;
 
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.enrutado.LecturasTrasEscritura;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.ledger.LedgerEngine;
+import com.example.user_demo.data.model.Activo;
 import com.example.user_demo.data.model.Cartera;
 import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
 import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.ActivoRepository;
 import com.example.user_demo.data.repository.CarteraRepository;
 import com.example.user_demo.data.repository.CriptomonedaRepository;
 import com.example.user_demo.data.repository.UsuarioRepository;
 import com.example.user_demo.data.services.CarteraServiceImpl;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +27,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +49,33 @@ public class CarteraServiceTest {
     @Mock
     private CriptomonedaRepository criptomonedaRepository;
 
+    @Mock
+    private ActivoRepository activoRepository;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private PatrimonioMaterializado patrimonio;
+
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+
+    @Mock
+    private LecturasTrasEscritura lecturas;
+
+    @Mock
+    private IndiceTenedores tenedores;
+
+    @Mock
+    private ClasificacionPatrimonio clasificacion;
+
+    @Mock
+    private VersionesUsuario versiones;
+
+    @Mock
+    private DifusorEventos eventos;
+
     @InjectMocks
     private CarteraServiceImpl carteraService;
 
@@ -50,12 +90,10 @@ public class CarteraServiceTest {
         usuarioMock.setIdUsuario(1L);
 
         carteraMock = new Cartera(usuarioMock, 100.0);
-        carteraMock.setIdCartera(1L);
-        carteraMock.setCriptomonedas(new HashSet<>()); // Set vacío inicial
+        carteraMock.setIdCartera(1L); // Sin activos al empezar
 
-        criptoMock = new Criptomoneda("Bitcoin", "BTC");
+        criptoMock = new Criptomoneda("Bitcoin", "BTC", 90000.0);
         criptoMock.setIdCripto(1L);
-        criptoMock.setCarteras(new HashSet<>()); // Importante para relación bidireccional
     }
 
     // --- 1. Tests de Lectura (Faltaban en tu versión) ---
@@ -141,14 +179,17 @@ public class CarteraServiceTest {
 
         when(carteraRepository.findById(idCartera)).thenReturn(Optional.of(carteraMock));
         when(criptomonedaRepository.findById(idCripto)).thenReturn(Optional.of(criptoMock));
+        when(activoRepository.findByCarteraAndCriptomoneda(carteraMock, criptoMock)).thenReturn(Optional.empty());
         when(carteraRepository.save(any(Cartera.class))).thenAnswer(i -> i.getArguments()[0]);
 
         Cartera resultado = carteraService.addCriptomonedaACartera(idCartera, idCripto);
 
-        // Verificamos relación en memoria
-        assertTrue(resultado.getCriptomonedas().contains(criptoMock), "La cartera debe contener la cripto");
-        assertTrue(criptoMock.getCarteras().contains(resultado), "La cripto debe tener la referencia a la cartera");
+        // Verificamos el activo nuevo (sin unidades) en memoria
+        assertEquals(1, resultado.getActivos().size(), "La cartera debe contener la cripto");
+        assertEquals(criptoMock, resultado.getActivos().get(0).getCriptomoneda());
+        assertEquals(0L, resultado.getActivos().get(0).getUnidades());
 
+        verify(activoRepository).save(any(Activo.class));
         verify(carteraRepository).save(carteraMock);
     }
 
@@ -168,16 +209,19 @@ public class CarteraServiceTest {
     @Test
     @DisplayName("Quitar Cripto - Éxito")
     void testRemoveCripto_Exito() {
-        // Setup: Preparamos la relación existente
-        carteraMock.addCriptomoneda(criptoMock);
+        // Setup: Preparamos el activo existente
+        carteraMock.addActivo(criptoMock, 0L);
+        Activo activo = carteraMock.getActivos().get(0);
 
         when(carteraRepository.findById(1L)).thenReturn(Optional.of(carteraMock));
         when(criptomonedaRepository.findById(1L)).thenReturn(Optional.of(criptoMock));
+        when(activoRepository.findByCarteraAndCriptomoneda(carteraMock, criptoMock)).thenReturn(Optional.of(activo));
         when(carteraRepository.save(any(Cartera.class))).thenReturn(carteraMock);
 
         Cartera resultado = carteraService.removeCriptomonedaDeCartera(1L, 1L);
 
-        assertFalse(resultado.getCriptomonedas().contains(criptoMock));
+        assertTrue(resultado.getActivos().isEmpty());
+        verify(activoRepository).delete(activo);
         verify(carteraRepository).save(carteraMock);
     }
 
@@ -187,6 +231,7 @@ public class CarteraServiceTest {
         // Setup: Cartera vacía
         when(carteraRepository.findById(1L)).thenReturn(Optional.of(carteraMock));
         when(criptomonedaRepository.findById(1L)).thenReturn(Optional.of(criptoMock));
+        when(activoRepository.findByCarteraAndCriptomoneda(carteraMock, criptoMock)).thenReturn(Optional.empty());
 
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
                 carteraService.removeCriptomonedaDeCartera(1L, 1L)
@@ -200,10 +245,57 @@ public class CarteraServiceTest {
     @DisplayName("Get Balance - Éxito")
     void testGetBalance_Exito() {
         when(usuarioRepository.findByEmail("pepe@test.com")).thenReturn(Optional.of(usuarioMock));
-        when(carteraRepository.getBalanceTotalPorUsuario(usuarioMock)).thenReturn(1500.0);
+        // Sin activos: el patrimonio es solo el fiat de la consulta agregada
+        when(carteraRepository.valorarUsuarios(List.of(1L))).thenReturn(List.of(new CarteraRepository.FilaValoracion() {
+            public Long getId() { return 1L; }
+            public BigDecimal getBalance() { return new BigDecimal("1500.00"); }
+            public BigDecimal getValorActivos() { return null; }
+        }));
 
         Double balance = carteraService.getBalanceTotalPorUsuario("pepe@test.com");
 
         assertEquals(1500.0, balance);
     }
+
+    // --- 6. Tests para invertirEnCripto ---
+
+    @Test
+    @DisplayName("Invertir - Éxito: resta el fiat con un UPDATE condicional y suma las unidades sin guardar entidades")
+    void testInvertir_Exito() {
+        carteraMock.addActivo(criptoMock, Importe.UNIDAD_CRIPTO);
+        Activo activo = carteraMock.getActivos().get(0);
+        activo.setIdActivo(5L);
+        long compradas = Importe.UNIDAD_CRIPTO / 2000; // 45$ a 90.000$
+
+        when(carteraRepository.findById(1L)).thenReturn(Optional.of(carteraMock));
+        when(catalogo.porId(1L)).thenReturn(new CotizacionCripto(1L, "Bitcoin", "BTC", 9_000_000L, 8, 1L));
+        when(catalogo.referencia(1L)).thenReturn(criptoMock);
+        when(carteraRepository.restarSiAlcanza(1L, 4_500L)).thenReturn(1);
+        when(activoRepository.findByCarteraAndCriptomoneda(carteraMock, criptoMock)).thenReturn(Optional.of(activo));
+        when(activoRepository.findUnidades(5L)).thenReturn(Optional.of(Importe.UNIDAD_CRIPTO + compradas));
+
+        carteraService.invertirEnCripto(1L, 1L, 45.0);
+
+        verify(activoRepository).sumarCantidad(5L, compradas);
+        verify(activoRepository, never()).save(any());
+        verify(carteraRepository, never()).save(any());
+        verify(patrimonio).moverFiat(1L, -4_500L);
+        verify(tenedores).posicionCambiada(1L, 1L, Importe.UNIDAD_CRIPTO, Importe.UNIDAD_CRIPTO + compradas);
+    }
+
+    @Test
+    @DisplayName("Invertir - Fallo: Saldo insuficiente, sin tocar el activo")
+    void testInvertir_SaldoInsuficiente() {
+        when(carteraRepository.findById(1L)).thenReturn(Optional.of(carteraMock));
+        when(catalogo.porId(1L)).thenReturn(new CotizacionCripto(1L, "Bitcoin", "BTC", 9_000_000L, 8, 1L));
+        // Otra inversión ha gastado el saldo después de leer la cartera
+        when(carteraRepository.restarSiAlcanza(1L, 5_000L)).thenReturn(0);
+        when(carteraRepository.findBalance(1L)).thenReturn(Optional.of(1_000L));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                carteraService.invertirEnCripto(1L, 1L, 50.0)
+        );
+        assertTrue(ex.getMessage().contains("Saldo insuficiente"));
+        verifyNoInteractions(activoRepository, patrimonio, tenedores);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.example.user_demo;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.dto.PanelUsuario;
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.dto.ValoracionUsuario;
+import com.example.user_demo.data.enrutado.LecturasTrasEscritura;
+import com.example.user_demo.data.ledger.LedgerEngine;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.*;
+import com.example.user_demo.data.services.CarteraServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de la valoración de carteras con consultas agregadas (sin recorrer activos).
+ */
+@ExtendWith(MockitoExtension.class)
+class CarteraValoracionTest {
+
+    @Mock
+    private CarteraRepository carteraRepository;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private CriptomonedaRepository criptomonedaRepository;
+    @Mock
+    private ActivoRepository activoRepository;
+    @Mock
+    private LedgerEngine ledgerEngine;
+    @Mock
+    private PatrimonioMaterializado patrimonio;
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+    @Mock
+    private LecturasTrasEscritura lecturas;
+
+    @InjectMocks
+    private CarteraServiceImpl carteraService;
+
+    private static CarteraRepository.FilaValoracion fila(long id, String balance, long valorActivosCentimos) {
+        return new CarteraRepository.FilaValoracion() {
+            public Long getId() { return id; }
+            public BigDecimal getBalance() { return new BigDecimal(balance); }
+            public BigDecimal getValorActivos() { return BigDecimal.valueOf(valorActivosCentimos); }
+        };
+    }
+
+    @Test
+    @DisplayName("El patrimonio total sale de una única consulta agregada, sin tocar las carteras del usuario")
+    void balanceTotalConUnaConsulta() {
+        Usuario ana = spy(new Usuario("Ana", "ana@test.com"));
+        ana.setIdUsuario(1L);
+        when(usuarioRepository.findByEmail("ana@test.com")).thenReturn(Optional.of(ana));
+        when(carteraRepository.valorarUsuarios(List.of(1L))).thenReturn(List.of(fila(1L, "1500.00", 1_050_000L)));
+
+        assertEquals(12000.0, carteraService.getBalanceTotalPorUsuario("ana@test.com"));
+        verify(ana, never()).getCarteras();
+    }
+
+    @Test
+    @DisplayName("Un usuario sin carteras vale 0")
+    void usuarioSinCarteras() {
+        Usuario luis = new Usuario("Luis", "luis@test.com");
+        luis.setIdUsuario(2L);
+        when(usuarioRepository.findByEmail("luis@test.com")).thenReturn(Optional.of(luis));
+        when(carteraRepository.valorarUsuarios(List.of(2L))).thenReturn(List.of());
+
+        assertEquals(0.0, carteraService.getBalanceTotalPorUsuario("luis@test.com"));
+    }
+
+    @Test
+    @DisplayName("El desglose por cartera convierte fiat (dólares) y valor de activos (céntimos) a punto fijo")
+    void desglosePorCartera() {
+        when(carteraRepository.valorarCarterasDeUsuario(1L))
+                .thenReturn(List.of(fila(1L, "1400.00", 930_000L), fila(2L, "100.00", 140_000L)));
+
+        List<ValoracionCartera> valoraciones = carteraService.getValoracionCarteras(1L);
+
+        assertEquals(2, valoraciones.size());
+        assertEquals(140_000L, valoraciones.get(0).balanceCentimos());
+        assertEquals(1_070_000L, valoraciones.get(0).patrimonioCentimos());
+        assertEquals(1500.0, valoraciones.get(1).getPatrimonio());
+    }
+
+    @Test
+    @DisplayName("Con el patrimonio materializado activo se lee de memoria, sin consultas agregadas")
+    void balanceDesdePatrimonioMaterializado() {
+        Usuario ana = new Usuario("Ana", "ana@test.com");
+        ana.setIdUsuario(1L);
+        when(usuarioRepository.findByEmail("ana@test.com")).thenReturn(Optional.of(ana));
+        when(patrimonio.isActivo()).thenReturn(true);
+        when(patrimonio.valoracionUsuario(1L)).thenReturn(new ValoracionUsuario(1L, 150_000L, 1_050_000L));
+
+        assertEquals(12000.0, carteraService.getBalanceTotalPorUsuario("ana@test.com"));
+        verify(carteraRepository, never()).valorarUsuarios(any());
+    }
+
+    @Test
+    @DisplayName("El panel del dashboard se monta con proyecciones, sin cargar entidades ni recorrer relaciones")
+    void panelConProyecciones() {
+        when(usuarioRepository.findCabeceraPanel(1L)).thenReturn(Optional.of(new UsuarioRepository.CabeceraPanel() {
+            public Long getIdUsuario() { return 1L; }
+            public String getNombre() { return "Ana"; }
+            public Long getIdHistorial() { return 5L; }
+            public String getDetalleHistorial() { return "Cuenta creada"; }
+        }));
+        when(activoRepository.findPosicionesDeUsuario(1L)).thenReturn(List.of(new ActivoRepository.FilaPosicion() {
+            public Long getIdCartera() { return 2L; }
+            public Long getIdCripto() { return 7L; }
+            public Long getUnidades() { return 50_000_000L; }
+        }));
+        when(catalogo.porId(7L)).thenReturn(new CotizacionCripto(7L, "Bitcoin", "BTC", 5_000_000L, 8, 1L));
+        when(carteraRepository.valorarCarterasDeUsuario(1L))
+                .thenReturn(List.of(fila(1L, "10.00", 0L), fila(2L, "100.00", 2_500_000L)));
+
+        PanelUsuario panel = carteraService.getPanelUsuario(1L);
+
+        assertEquals("Ana", panel.nombre());
+        assertTrue(panel.tieneHistorial());
+        assertEquals(2, panel.carteras().size());
+        assertTrue(panel.carteras().get(0).activos().isEmpty());
+        assertEquals("BTC", panel.carteras().get(1).activos().get(0).simbolo());
+        assertEquals(0.5, panel.carteras().get(1).activos().get(0).getCantidad());
+        assertEquals(25_110.0, panel.getBalanceTotal());
+        verify(usuarioRepository, never()).findById(any());
+    }
+}
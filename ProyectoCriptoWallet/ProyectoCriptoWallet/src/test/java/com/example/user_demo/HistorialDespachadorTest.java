@@ -0,0 +1,160 @@
+package com.example.user_demo;
+
+import com.example.user_demo.data.model.EntradaHistorial;
+import com.example.user_demo.data.model.EventoHistorial;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.EntradaHistorialRepository;
+import com.example.user_demo.data.repository.EventoHistorialRepository;
+import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.services.HistorialDespachador;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del despachador del outbox del historial (sin arrancar su hilo).
+ */
+@ExtendWith(MockitoExtension.class)
+class HistorialDespachadorTest {
+
+    @Mock
+    private EventoHistorialRepository eventoHistorialRepository;
+    @Mock
+    private EntradaHistorialRepository entradaHistorialRepository;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private VersionesUsuario versiones;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HistorialDespachador despachador;
+    private Usuario ana;
+    private Usuario luis;
+
+    @BeforeEach
+    void setUp() {
+        despachador = new HistorialDespachador(eventoHistorialRepository, entradaHistorialRepository,
+                usuarioRepository, versiones, transactionManager, false, 1000L, 2);
+        ana = new Usuario("Ana", "ana@test.com");
+        ana.setIdUsuario(1L);
+        luis = new Usuario("Luis", "luis@test.com");
+        luis.setIdUsuario(2L);
+    }
+
+    private static EventoHistorial evento(long id, long origen, long destino, long centimos) {
+        EventoHistorial e = new EventoHistorial(origen, destino, "BTC", centimos, 200_000L);
+        e.setIdEvento(id);
+        e.setFecha(LocalDateTime.of(2025, 1, 1, 10, 0).plusMinutes(id));
+        return e;
+    }
+
+    @Test
+    @DisplayName("Convierte los eventos en entradas de origen y destino, en orden y por lotes, y los borra")
+    @SuppressWarnings("unchecked")
+    void despachaPorLotes() {
+        when(eventoHistorialRepository.reclamarPendientes(anyInt()))
+                .thenReturn(List.of(evento(1, 1, 2, 10_000L), evento(2, 2, 1, 5_000L)))
+                .thenReturn(List.of(evento(3, 1, 2, 100L)));
+        when(usuarioRepository.findConHistorialByIdIn(anyCollection())).thenReturn(List.of(ana, luis));
+
+        assertEquals(3, despachador.despacharPendientes());
+
+        ArgumentCaptor<List<EntradaHistorial>> entradas = ArgumentCaptor.forClass(List.class);
+        verify(entradaHistorialRepository, times(2)).saveAll(entradas.capture());
+        List<EntradaHistorial> primerLote = entradas.getAllValues().get(0);
+        assertEquals(4, primerLote.size());
+        assertSame(ana, primerLote.get(0).getUsuario());
+        assertEquals(EntradaHistorial.Tipo.ENV, primerLote.get(0).getTipo());
+        assertEquals("TX $100.00 (0.0020 BTC) a Luis", primerLote.get(0).getDetalle().replace(',', '.'));
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 1), primerLote.get(0).getFecha(), "Conserva la fecha de la transferencia");
+        assertSame(luis, primerLote.get(1).getUsuario());
+        assertEquals(EntradaHistorial.Tipo.REC, primerLote.get(1).getTipo());
+
+        verify(eventoHistorialRepository).deleteByIdEventoIn(List.of(1L, 2L));
+        verify(eventoHistorialRepository).deleteByIdEventoIn(List.of(3L));
+    }
+
+    @Test
+    @DisplayName("Los eventos de un usuario con otro anterior reclamado por otro nodo esperan, y en cadena los de su contraparte")
+    @SuppressWarnings("unchecked")
+    void respetaElOrdenPorUsuario() {
+        // Lote: Ana->Luis, Carla->Ana, Luis->Carla. Otro nodo tiene un evento anterior de Luis (id 0)
+        when(eventoHistorialRepository.reclamarPendientes(anyInt()))
+                .thenReturn(List.of(evento(1, 1, 2, 100L), evento(2, 3, 1, 100L), evento(3, 2, 3, 100L)));
+        when(eventoHistorialRepository.findPendientesFueraDelLote(anyCollection(), any(), anyCollection()))
+                .thenReturn(List.of(evento(0, 2, 99, 100L)));
+
+        // Lote incompleto: no se pide otro en la misma vuelta
+        assertEquals(0, despachador.despacharPendientes());
+        verify(eventoHistorialRepository, times(1)).reclamarPendientes(anyInt());
+
+        // El 1 toca a Luis; el 2 a Ana, bloqueada por el 1; el 3 a Luis: ninguno sale
+        verifyNoInteractions(usuarioRepository, entradaHistorialRepository);
+        verify(eventoHistorialRepository, never()).deleteByIdEventoIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Solo esperan los eventos posteriores al que tiene otro nodo")
+    @SuppressWarnings("unchecked")
+    void despachaLoAnteriorAlEventoDeOtroNodo() {
+        when(eventoHistorialRepository.reclamarPendientes(anyInt()))
+                .thenReturn(List.of(evento(1, 1, 2, 100L), evento(3, 2, 1, 100L)));
+        // Evento de Luis entre el 1 y el 3, reclamado por otro nodo
+        when(eventoHistorialRepository.findPendientesFueraDelLote(anyCollection(), any(), anyCollection()))
+                .thenReturn(List.of(evento(2, 2, 99, 100L)));
+        when(usuarioRepository.findConHistorialByIdIn(anyCollection())).thenReturn(List.of(ana, luis));
+
+        assertEquals(1, despachador.despacharPendientes());
+
+        ArgumentCaptor<List<EntradaHistorial>> entradas = ArgumentCaptor.forClass(List.class);
+        verify(entradaHistorialRepository).saveAll(entradas.capture());
+        assertEquals(2, entradas.getValue().size());
+        verify(eventoHistorialRepository).deleteByIdEventoIn(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Si falla el lote no se borra ningún evento (se reintentará)")
+    void fallaSinBorrar() {
+        when(eventoHistorialRepository.reclamarPendientes(anyInt()))
+                .thenReturn(List.of(evento(1, 1, 2, 10_000L)));
+        when(usuarioRepository.findConHistorialByIdIn(anyCollection())).thenReturn(List.of(ana, luis));
+        when(entradaHistorialRepository.saveAll(anyList())).thenThrow(new IllegalStateException("BD caída"));
+
+        assertThrows(IllegalStateException.class, despachador::despacharPendientes);
+        verify(eventoHistorialRepository, never()).deleteByIdEventoIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Si un usuario ya no existe se omite solo su entrada")
+    @SuppressWarnings("unchecked")
+    void usuarioBorrado() {
+        when(eventoHistorialRepository.reclamarPendientes(anyInt()))
+                .thenReturn(List.of(evento(1, 1, 99, 10_000L)));
+        when(usuarioRepository.findConHistorialByIdIn(anyCollection())).thenReturn(List.of(ana));
+
+        despachador.despacharPendientes();
+
+        ArgumentCaptor<List<EntradaHistorial>> entradas = ArgumentCaptor.forClass(List.class);
+        verify(entradaHistorialRepository).saveAll(entradas.capture());
+        assertEquals(1, entradas.getValue().size());
+        assertTrue(entradas.getValue().get(0).getDetalle().endsWith("a (usuario eliminado)"));
+        verify(eventoHistorialRepository).deleteByIdEventoIn(List.of(1L));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.user_demo;
+
+import com.example.user_demo.data.model.EventoHistorial;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.EntradaHistorialRepository;
+import com.example.user_demo.data.repository.EventoHistorialRepository;
+import com.example.user_demo.data.services.HistorialDespachador;
+import com.example.user_demo.data.services.HistorialServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del registro de actividad (HistorialService).
+ */
+@ExtendWith(MockitoExtension.class)
+class HistorialServiceTest {
+
+    @Mock
+    private EntradaHistorialRepository entradaHistorialRepository;
+    @Mock
+    private EventoHistorialRepository eventoHistorialRepository;
+    @Mock
+    private HistorialDespachador despachador;
+
+    @InjectMocks
+    private HistorialServiceImpl historialService;
+
+    @Test
+    @DisplayName("Una transferencia solo inserta un evento en el outbox y avisa al despachador")
+    void registrarTransferenciaSoloInsertaEvento() {
+        Usuario ana = new Usuario("Ana", "ana@test.com");
+        ana.setIdUsuario(1L);
+        Usuario luis = new Usuario("Luis", "luis@test.com");
+        luis.setIdUsuario(2L);
+
+        historialService.registrarTransferencia(ana, luis, "BTC", 10_000L, 200_000L);
+
+        ArgumentCaptor<EventoHistorial> captor = ArgumentCaptor.forClass(EventoHistorial.class);
+        verify(eventoHistorialRepository).save(captor.capture());
+        EventoHistorial evento = captor.getValue();
+        assertEquals(1L, evento.getIdUsuarioOrigen());
+        assertEquals(2L, evento.getIdUsuarioDestino());
+        assertEquals("BTC", evento.getSimbolo());
+        assertEquals(10_000L, evento.getFiatCentimos());
+        assertEquals(200_000L, evento.getUnidades());
+        verify(despachador).avisar();
+        verifyNoInteractions(entradaHistorialRepository);
+    }
+
+    @Test
+    @DisplayName("Un lote de transferencias inserta todos sus eventos con un saveAll y avisa una vez")
+    void registrarTransferenciasEnUnaLlamada() {
+        List<EventoHistorial> eventos = List.of(new EventoHistorial(1L, 2L, "BTC", 100L, 2L),
+                new EventoHistorial(2L, 1L, "ETH", 200L, 4L));
+
+        historialService.registrarTransferencias(eventos);
+        historialService.registrarTransferencias(List.of());
+
+        verify(eventoHistorialRepository).saveAll(eventos);
+        verify(eventoHistorialRepository, never()).save(any());
+        verify(despachador, times(1)).avisar();
+    }
+
+    @Test
+    @DisplayName("La lectura es paginada y valida el tamaño de página")
+    void getEntradasPaginadas() {
+        when(entradaHistorialRepository.findByUsuario_IdUsuarioOrderByFechaDescIdEntradaDesc(eq(1L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        historialService.getUltimasEntradas(1L, 20);
+        verify(entradaHistorialRepository).findByUsuario_IdUsuarioOrderByFechaDescIdEntradaDesc(1L, PageRequest.of(0, 20));
+
+        assertThrows(IllegalArgumentException.class, () -> historialService.getEntradas(1L, -1, 20));
+        assertThrows(IllegalArgumentException.class, () -> historialService.getEntradas(1L, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> historialService.getEntradas(1L, 0, 1000));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.user_demo;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.ResultadoTransferencia;
+import com.example.user_demo.data.dto.SolicitudTransferencia;
+import com.example.user_demo.data.enrutado.LecturasTrasEscritura;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.ledger.LedgerEngine;
+import com.example.user_demo.data.model.*;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.*;
+import com.example.user_demo.data.services.HistorialService;
+import com.example.user_demo.data.services.TransaccionServiceImpl;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de las transferencias por lotes (TransaccionService.realizarTransferencias).
+ */
+@ExtendWith(MockitoExtension.class)
+class TransaccionLoteTest {
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+    @Mock
+    private HistorialService historialService;
+    @Mock
+    private CarteraRepository carteraRepository;
+    @Mock
+    private ActivoRepository activoRepository;
+    @Mock
+    private LedgerEngine ledgerEngine;
+    @Mock
+    private PatrimonioMaterializado patrimonio;
+    @Mock
+    private LecturasTrasEscritura lecturas;
+    @Mock
+    private IndiceTenedores tenedores;
+    @Mock
+    private ClasificacionPatrimonio clasificacion;
+    @Mock
+    private VersionesUsuario versiones;
+    @Mock
+    private DifusorEventos eventos;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private TransaccionServiceImpl transaccionService;
+
+    private Activo activoAna;
+
+    @BeforeEach
+    void setUp() {
+        Usuario ana = new Usuario("Ana", "ana@test.com");
+        ana.setIdUsuario(1L);
+        Usuario luis = new Usuario("Luis", "luis@test.com");
+        luis.setIdUsuario(2L);
+
+        Criptomoneda eth = new Criptomoneda("Ethereum", "ETH", 3000.0);
+        eth.setIdCripto(2L);
+
+        Cartera carteraAna = new Cartera(ana, 0.0);
+        carteraAna.setIdCartera(1L);
+        Cartera carteraLuis = new Cartera(luis, 0.0);
+        carteraLuis.setIdCartera(3L);
+
+        activoAna = new Activo(carteraAna, eth, 2 * Importe.UNIDAD_CRIPTO);
+
+        when(usuarioRepository.findConHistorialByIdIn(anyCollection())).thenReturn(List.of(ana, luis));
+        when(catalogo.porSimbolo("ETH")).thenReturn(new CotizacionCripto(2L, "Ethereum", "ETH", eth.getPrecioCentimos(), 8, 1L));
+        when(catalogo.referencia(2L)).thenReturn(eth);
+        when(carteraRepository.findByUsuario_IdUsuarioInOrderByIdCarteraAsc(anyCollection())).thenReturn(List.of(carteraAna, carteraLuis));
+        when(activoRepository.bloquearDeCarteras(anyCollection())).thenReturn(List.of(activoAna));
+    }
+
+    @Test
+    @DisplayName("Lote: Aplica las filas válidas y rechaza las que no tienen saldo, con una sola precarga")
+    @SuppressWarnings("unchecked")
+    void realizarTransferencias_Mixto() {
+        List<SolicitudTransferencia> lote = List.of(
+                new SolicitudTransferencia(1L, 2L, 1L, "ETH", 3000.0),  // 1 ETH, OK
+                new SolicitudTransferencia(1L, 2L, 1L, "ETH", 6000.0),  // 2 ETH, solo queda 1
+                new SolicitudTransferencia(1L, 2L, 1L, "DOGE", 10.0));  // No soportada
+
+        List<ResultadoTransferencia> resultados = transaccionService.realizarTransferencias(lote);
+
+        assertEquals(3, resultados.size());
+        assertTrue(resultados.get(0).isRealizada());
+        assertTrue(resultados.get(1).error().contains("Saldo insuficiente"));
+        assertTrue(resultados.get(2).error().contains("no soportada"));
+        assertEquals(Importe.UNIDAD_CRIPTO, activoAna.getUnidades());
+
+        ArgumentCaptor<List<Transaccion>> txs = ArgumentCaptor.forClass(List.class);
+        verify(transaccionRepository).saveAll(txs.capture());
+        assertEquals(1, txs.getValue().size());
+
+        ArgumentCaptor<List<Activo>> nuevos = ArgumentCaptor.forClass(List.class);
+        verify(activoRepository).saveAll(nuevos.capture());
+        assertEquals(1, nuevos.getValue().size(), "Luis no tenía ETH: se crea un activo nuevo");
+
+        // Historial: una sola llamada con el evento de la fila realizada
+        ArgumentCaptor<List<EventoHistorial>> eventosHistorial = ArgumentCaptor.forClass(List.class);
+        verify(historialService).registrarTransferencias(eventosHistorial.capture());
+        assertEquals(1, eventosHistorial.getValue().size());
+        assertEquals(2L, eventosHistorial.getValue().get(0).getIdUsuarioDestino());
+        verify(historialService, never()).registrarTransferencia(any(), any(), any(), anyLong(), anyLong());
+
+        // Precarga: una sola consulta por tipo de entidad
+        verify(usuarioRepository, times(1)).findConHistorialByIdIn(anyCollection());
+        verify(activoRepository, times(1)).bloquearDeCarteras(anyCollection());
+        verify(usuarioRepository, never()).findById(any());
+
+        // Solo la fila realizada fija a sus usuarios en la primaria
+        verify(lecturas, times(1)).escrituraDe(1L, 2L);
+        // Ana pasa de 2 a 1 ETH (sigue siendo tenedora); Luis, de 0 a 1
+        verify(tenedores).posicionCambiada(1L, 2L, 2 * Importe.UNIDAD_CRIPTO, Importe.UNIDAD_CRIPTO);
+        verify(tenedores).posicionCambiada(2L, 2L, 0L, Importe.UNIDAD_CRIPTO);
+        verify(clasificacion).usuariosCambiados(1L, 2L);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.user_demo;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.dto.ClaveTransaccion;
+import com.example.user_demo.data.dto.PaginaTransacciones;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Transaccion;
+import com.example.user_demo.data.model.TransaccionArchivada;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.TransaccionRepository;
+import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.services.TransaccionServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de la paginación por cursor del historial de transacciones.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransaccionPaginaTest {
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+
+    @InjectMocks
+    private TransaccionServiceImpl transaccionService;
+
+    private static Transaccion transaccion(long id, LocalDateTime fecha) {
+        Transaccion t = new Transaccion();
+        t.setIdTransaccion(id);
+        t.setFecha(fecha);
+        return t;
+    }
+
+    private static ClaveTransaccion clave(long id, LocalDateTime fecha, boolean archivada) {
+        return new ClaveTransaccion(id, fecha, archivada);
+    }
+
+    private static TransaccionArchivada archivada(long id, long origen, long destino, LocalDateTime fecha) {
+        TransaccionArchivada a = new TransaccionArchivada();
+        ReflectionTestUtils.setField(a, "idTransaccion", id);
+        ReflectionTestUtils.setField(a, "idUsuarioOrigen", origen);
+        ReflectionTestUtils.setField(a, "idUsuarioDestino", destino);
+        ReflectionTestUtils.setField(a, "idCripto", 7L);
+        ReflectionTestUtils.setField(a, "cantidad", 100L);
+        ReflectionTestUtils.setField(a, "fecha", fecha);
+        return a;
+    }
+
+    private static Usuario usuario(long id) {
+        Usuario u = new Usuario("u" + id, "u" + id + "@mail.com");
+        u.setIdUsuario(id);
+        return u;
+    }
+
+    @Test
+    @DisplayName("Pide una fila de más para saber si hay siguiente página y devuelve el cursor de la última")
+    void paginaConSiguiente() {
+        LocalDateTime ahora = LocalDateTime.of(2025, 1, 10, 12, 0);
+        when(usuarioRepository.existsById(1L)).thenReturn(true);
+        when(transaccionRepository.paginaPorUsuario(eq(1L), any(), eq(Long.MAX_VALUE), eq(3)))
+                .thenReturn(List.of(clave(30L, ahora, false), clave(20L, ahora.minusDays(1), false),
+                        clave(10L, ahora.minusDays(2), false)));
+        // El IN no garantiza orden: la página se reordena según los IDs
+        when(transaccionRepository.findConRelacionesByIdIn(List.of(30L, 20L)))
+                .thenReturn(List.of(transaccion(20L, ahora.minusDays(1)), transaccion(30L, ahora)));
+
+        PaginaTransacciones pagina = transaccionService.getTransaccionesDeUsuario(1L, null, null, 2);
+
+        assertEquals(List.of(30L, 20L), pagina.transacciones().stream().map(Transaccion::getIdTransaccion).toList());
+        assertTrue(pagina.hasSiguiente());
+        assertEquals(20L, pagina.siguienteId());
+        assertEquals(ahora.minusDays(1), pagina.siguienteFecha());
+    }
+
+    @Test
+    @DisplayName("La última página no tiene cursor")
+    void ultimaPagina() {
+        LocalDateTime cursor = LocalDateTime.of(2025, 1, 9, 12, 0);
+        when(usuarioRepository.existsById(1L)).thenReturn(true);
+        when(transaccionRepository.paginaPorUsuario(1L, cursor, 20L, 3)).thenReturn(List.of(clave(10L, cursor, false)));
+        when(transaccionRepository.findConRelacionesByIdIn(List.of(10L))).thenReturn(List.of(transaccion(10L, cursor)));
+
+        PaginaTransacciones pagina = transaccionService.getTransaccionesDeUsuario(1L, cursor, 20L, 2);
+
+        assertEquals(1, pagina.transacciones().size());
+        assertFalse(pagina.hasSiguiente());
+    }
+
+    @Test
+    @DisplayName("Las filas de meses archivados se leen del archivo y se intercalan por fecha")
+    void paginaConArchivadas() {
+        LocalDateTime ahora = LocalDateTime.of(2025, 1, 10, 12, 0);
+        LocalDateTime antigua = LocalDateTime.of(2024, 6, 1, 12, 0);
+        when(usuarioRepository.existsById(1L)).thenReturn(true);
+        when(transaccionRepository.paginaPorUsuario(eq(1L), any(), eq(Long.MAX_VALUE), eq(3)))
+                .thenReturn(List.of(clave(30L, ahora, false), clave(5L, antigua, true), clave(4L, antigua.minusDays(1), true)));
+        when(transaccionRepository.findConRelacionesByIdIn(List.of(30L))).thenReturn(List.of(transaccion(30L, ahora)));
+        when(transaccionRepository.archivadasPorIds(List.of(5L))).thenReturn(List.of(archivada(5L, 1L, 2L, antigua)));
+        when(usuarioRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(usuario(1L), usuario(2L)));
+        when(catalogo.porId(7L)).thenReturn(new CotizacionCripto(7L, "Bitcoin", "BTC", 100, 2, 1L));
+        when(catalogo.referencia(7L)).thenReturn(new Criptomoneda());
+
+        PaginaTransacciones pagina = transaccionService.getTransaccionesDeUsuario(1L, null, null, 2);
+
+        assertEquals(List.of(30L, 5L), pagina.transacciones().stream().map(Transaccion::getIdTransaccion).toList());
+        Transaccion desarchivada = pagina.transacciones().get(1);
+        assertEquals(antigua, desarchivada.getFecha());
+        assertEquals(2L, desarchivada.getUsuarioDestino().getIdUsuario());
+        assertEquals(5L, pagina.siguienteId());
+        assertEquals(antigua, pagina.siguienteFecha());
+    }
+
+    @Test
+    @DisplayName("Una archivada de un usuario borrado se omite pero el cursor sigue avanzando por su clave")
+    void archivadaDeUsuarioBorrado() {
+        LocalDateTime antigua = LocalDateTime.of(2024, 6, 1, 12, 0);
+        when(usuarioRepository.existsById(1L)).thenReturn(true);
+        when(transaccionRepository.paginaPorUsuario(eq(1L), any(), eq(Long.MAX_VALUE), eq(2)))
+                .thenReturn(List.of(clave(5L, antigua, true), clave(4L, antigua.minusDays(1), true)));
+        when(transaccionRepository.archivadasPorIds(List.of(5L))).thenReturn(List.of(archivada(5L, 1L, 9L, antigua)));
+        when(usuarioRepository.findAllById(anySet())).thenReturn(List.of(usuario(1L)));
+
+        PaginaTransacciones pagina = transaccionService.getTransaccionesDeUsuario(1L, null, null, 1);
+
+        assertTrue(pagina.transacciones().isEmpty());
+        assertTrue(pagina.hasSiguiente());
+        assertEquals(5L, pagina.siguienteId());
+        assertEquals(antigua, pagina.siguienteFecha());
+    }
+
+    @Test
+    @DisplayName("Cursor incompleto, tamaño inválido o usuario inexistente se rechazan sin consultar transacciones")
+    void argumentosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> transaccionService.getTransaccionesDeUsuario(1L, null, 5L, 10));
+        assertThrows(IllegalArgumentException.class, () -> transaccionService.getTransaccionesDeUsuario(1L, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> transaccionService.getTransaccionesDeUsuario(1L, null, null, 101));
+        when(usuarioRepository.existsById(9L)).thenReturn(false);
+        assertThrows(NoSuchElementException.class, () -> transaccionService.getTransaccionesDeUsuario(9L, null, null, 10));
+        verify(transaccionRepository, never()).paginaPorUsuario(anyLong(), any(), anyLong(), anyInt());
+    }
+}
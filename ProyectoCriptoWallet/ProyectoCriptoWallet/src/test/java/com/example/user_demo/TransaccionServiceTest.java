@@ -1,26 +1,41 @@
 package com.example.user_demo;
 
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.ResultadoTransferencia;
+import com.example.user_demo.data.dto.SolicitudTransferencia;
+import com.example.user_demo.data.enrutado.LecturasTrasEscritura;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.ledger.LedgerEngine;
+import com.example.user_demo.data.model.Activo;
+import com.example.user_demo.data.model.Cartera;
 import com.example.user_demo.data.model.Criptomoneda;
-import com.example.user_demo.data.model.Historial;
+import com.example.user_demo.data.model.Importe;
 import com.example.user_demo.data.model.Transaccion;
 import com.example.user_demo.data.model.Usuario;
-import com.example.user_demo.data.repository.CriptomonedaRepository;
-import com.example.user_demo.data.repository.HistorialRepository;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.ActivoRepository;
+import com.example.user_demo.data.repository.CarteraRepository;
 import com.example.user_demo.data.repository.TransaccionRepository;
 import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.services.HistorialService;
 import com.example.user_demo.data.services.TransaccionServiceImpl;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,66 +49,131 @@ class TransaccionServiceTest {
     @Mock
     private UsuarioRepository usuarioRepository;
     @Mock
-    private CriptomonedaRepository criptomonedaRepository;
+    private CatalogoCriptomonedas catalogo;
     @Mock
-    private HistorialRepository historialRepository;
+    private HistorialService historialService;
+    @Mock
+    private CarteraRepository carteraRepository;
+    @Mock
+    private ActivoRepository activoRepository;
+    @Mock
+    private LedgerEngine ledgerEngine;
+    @Mock
+    private PatrimonioMaterializado patrimonio;
+    @Mock
+    private LecturasTrasEscritura lecturas;
+    @Mock
+    private IndiceTenedores tenedores;
+    @Mock
+    private ClasificacionPatrimonio clasificacion;
+    @Mock
+    private VersionesUsuario versiones;
+    @Mock
+    private DifusorEventos eventos;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private TransaccionServiceImpl transaccionService;
 
     // --- TEST 1: Transferencia Exitosa (Happy Path) ---
     @Test
-    @DisplayName("Transferencia: Debería crear transacción y actualizar historiales correctamente")
+    @DisplayName("Transferencia: Debería crear transacción, mover los activos y registrar el historial")
     void realizarTransferencia_Exitoso() {
         // 1. Datos de prueba
         Long idOrigen = 1L;
         Long idDestino = 2L;
+        Long idCarteraOrigen = 10L;
         String simbolo = "BTC";
-        Double cantidad = 0.5;
+        Double cantidadFiat = 25000.0; // 0.5 BTC a 50.000$
 
         Usuario origen = new Usuario("Origen", "origen@test.com");
         origen.setIdUsuario(idOrigen);
-        // Le damos un historial inicial para verificar que se actualiza
-        origen.setHistorial(new Historial(origen, "Inicio"));
-
         Usuario destino = new Usuario("Destino", "destino@test.com");
         destino.setIdUsuario(idDestino);
-        destino.setHistorial(new Historial(destino, "Inicio"));
 
-        Criptomoneda bitcoin = new Criptomoneda("Bitcoin", simbolo);
+        Criptomoneda bitcoin = new Criptomoneda("Bitcoin", simbolo, 50000.0);
+        bitcoin.setIdCripto(1L);
+
+        Cartera carteraOrigen = new Cartera(origen, 0.0);
+        carteraOrigen.setIdCartera(idCarteraOrigen);
+        Cartera carteraDestino = new Cartera(destino, 0.0);
+        carteraDestino.setIdCartera(20L);
+        Activo activoOrigen = new Activo(carteraOrigen, bitcoin, Importe.UNIDAD_CRIPTO);
+        activoOrigen.setIdActivo(100L);
+        long medio = Importe.UNIDAD_CRIPTO / 2;
 
-        // 2. Simulamos el comportamiento de los Repositorios
+        // 2. Simulamos el comportamiento de los Repositorios y del catálogo
         when(usuarioRepository.findById(idOrigen)).thenReturn(Optional.of(origen));
         when(usuarioRepository.findById(idDestino)).thenReturn(Optional.of(destino));
-        when(criptomonedaRepository.findBySimbolo(simbolo)).thenReturn(Optional.of(bitcoin));
+        when(catalogo.porSimbolo(simbolo)).thenReturn(new CotizacionCripto(1L, "Bitcoin", simbolo, bitcoin.getPrecioCentimos(), 8, 1L));
+        when(catalogo.referencia(1L)).thenReturn(bitcoin);
+        when(carteraRepository.findById(idCarteraOrigen)).thenReturn(Optional.of(carteraOrigen));
+        when(activoRepository.findByCarteraAndCriptomoneda(carteraOrigen, bitcoin)).thenReturn(Optional.of(activoOrigen));
+        when(activoRepository.restarSiAlcanza(100L, medio)).thenReturn(1);
+        when(activoRepository.findUnidades(100L)).thenReturn(Optional.of(medio));
+        when(carteraRepository.findByUsuario(destino)).thenReturn(List.of(carteraDestino));
+        when(activoRepository.findByCarteraAndCriptomoneda(carteraDestino, bitcoin)).thenReturn(Optional.empty());
 
         // Simulamos el guardado de la transacción
         when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(i -> i.getArguments()[0]);
 
         // 3. Ejecución
-        Transaccion resultado = transaccionService.realizarTransferencia(idOrigen, idDestino, simbolo, cantidad);
+        Transaccion resultado = transaccionService.realizarTransferencia(idOrigen, idDestino, idCarteraOrigen, simbolo, cantidadFiat);
 
         // 4. Verificaciones
         assertNotNull(resultado);
         assertEquals(origen, resultado.getUsuarioOrigen());
         assertEquals(destino, resultado.getUsuarioDestino());
-        assertEquals(cantidad, resultado.getCantidad());
-
-        // Verificamos que se actualizó el texto del historial del Origen
-        assertTrue(origen.getHistorial().getDetalle().contains("[ENV] TX 0,50 BTC"));
-        // Nota: El formato %.2f usa coma o punto según el locale del sistema, ajusta si es necesario
+        assertEquals(0.5, resultado.getCantidad());
 
-        // Verificamos que se guardaron los historiales
-        verify(historialRepository).saveAll(anyList());
+        // El destino no tenía BTC: se le crea el activo con lo recibido
+        verify(activoRepository).save(argThat(a -> a.getCartera() == carteraDestino && a.getUnidades() == medio));
+        // Historial con el importe en céntimos y las unidades enviadas
+        verify(historialService).registrarTransferencia(origen, destino, simbolo, 2_500_000L, medio);
         verify(transaccionRepository).save(any(Transaccion.class));
     }
 
+    // --- TEST 1b: Modo engine ---
+    @Test
+    @DisplayName("Transferencia: Con el motor activo se espera su resultado sin abrir una transacción")
+    void realizarTransferencia_MotorSinTransaccion() {
+        CotizacionCripto bitcoin = new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L);
+        Transaccion tx = new Transaccion();
+        when(ledgerEngine.isActivo()).thenReturn(true);
+        when(catalogo.porSimbolo("BTC")).thenReturn(bitcoin);
+        when(ledgerEngine.transferir(1L, 2L, 10L, bitcoin, Importe.UNIDAD_CRIPTO / 2, 2_500_000L)).thenReturn(CompletableFuture.completedFuture(tx));
+
+        assertSame(tx, transaccionService.realizarTransferencia(1L, 2L, 10L, "BTC", 25000.0));
+
+        // El pool no debe quedar con una conexión retenida mientras el shard trabaja
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Lote: Con el motor activo las filas se encolan y se esperan sin abrir una transacción")
+    void realizarTransferencias_MotorSinTransaccion() {
+        CotizacionCripto bitcoin = new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L);
+        Transaccion tx = new Transaccion();
+        when(ledgerEngine.isActivo()).thenReturn(true);
+        when(catalogo.porSimbolo("BTC")).thenReturn(bitcoin);
+        when(ledgerEngine.transferir(1L, 2L, 10L, bitcoin, Importe.UNIDAD_CRIPTO / 2, 2_500_000L)).thenReturn(CompletableFuture.completedFuture(tx));
+
+        List<ResultadoTransferencia> resultados = transaccionService.realizarTransferencias(List.of(
+                new SolicitudTransferencia(1L, 2L, 10L, "BTC", 25000.0),
+                new SolicitudTransferencia(1L, 1L, 10L, "BTC", 25000.0)));
+
+        assertTrue(resultados.get(0).isRealizada());
+        assertFalse(resultados.get(1).isRealizada());
+        verifyNoInteractions(transactionManager);
+    }
+
     // --- TEST 2: Validación de Auto-Transferencia ---
     @Test
     @DisplayName("Transferencia: Debería fallar si origen y destino son iguales")
     void realizarTransferencia_MismoUsuario() {
         assertThrows(IllegalArgumentException.class, () -> {
-            transaccionService.realizarTransferencia(1L, 1L, "BTC", 10.0);
+            transaccionService.realizarTransferencia(1L, 1L, 1L, "BTC", 10.0);
         });
 
         // Aseguramos que nada se guardó
@@ -105,7 +185,7 @@ class TransaccionServiceTest {
     @DisplayName("Transferencia: Debería fallar con cantidades negativas o cero")
     void realizarTransferencia_CantidadInvalida() {
         assertThrows(IllegalArgumentException.class, () -> {
-            transaccionService.realizarTransferencia(1L, 2L, "BTC", -5.0);
+            transaccionService.realizarTransferencia(1L, 2L, 1L, "BTC", -5.0);
         });
     }
 
@@ -116,7 +196,7 @@ class TransaccionServiceTest {
         when(usuarioRepository.findById(99L)).thenReturn(Optional.empty());
 
         assertThrows(NoSuchElementException.class, () -> {
-            transaccionService.realizarTransferencia(99L, 2L, "BTC", 1.0);
+            transaccionService.realizarTransferencia(99L, 2L, 1L, "BTC", 1.0);
         });
     }
 
@@ -131,10 +211,10 @@ class TransaccionServiceTest {
         when(usuarioRepository.findById(idDes)).thenReturn(Optional.of(new Usuario()));
 
         // Simulamos que no encuentra la moneda
-        when(criptomonedaRepository.findBySimbolo("DOGE")).thenReturn(Optional.empty());
+        when(catalogo.porSimbolo("DOGE")).thenReturn(null);
 
         NoSuchElementException ex = assertThrows(NoSuchElementException.class, () -> {
-            transaccionService.realizarTransferencia(idOr, idDes, "DOGE", 100.0);
+            transaccionService.realizarTransferencia(idOr, idDes, 1L, "DOGE", 100.0);
         });
 
         assertTrue(ex.getMessage().contains("no soportada"));
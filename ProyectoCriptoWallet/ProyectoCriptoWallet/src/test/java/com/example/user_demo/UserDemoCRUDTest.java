@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +22,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  * construyendo sobre los datos existentes de data.sql.
  */
 @SpringBootTest
+@ActiveProfiles("h2") // H2 en modo MySQL: no hace falta un servidor para los tests
 @Sql("/data.sql") // Carga data.sql antes
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS) // Limpia al final
  public class UserDemoCRUDTest {
@@ -47,7 +49,7 @@ import static org.assertj.core.api.Assertions.assertThat;
         System.out.println("CREATE: Creando entidades (DOGE, Usuario 'David')...");
 
         // Crear Cripto (usando criptomonedaRepository)
-        Criptomoneda doge = criptomonedaRepository.save(new Criptomoneda("Dogecoin", "DOGE"));
+        Criptomoneda doge = criptomonedaRepository.save(new Criptomoneda("Dogecoin", "DOGE", 0.1));
 
         // Usar un usuario existente (Ana) para interactuar
         Usuario ana = usuarioRepository.findByEmail("ana@email.com").get();
@@ -64,7 +66,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
         // Crear Cartera 1 (1:N)
         Cartera cDavid1 = new Cartera( david,1000.0);
-        cDavid1.addCriptomoneda(doge); // Relación N:M con la nueva cripto
+        cDavid1.addActivo(doge, Importe.unidadesDesde(100.0)); // Activo (1:N) con la nueva cripto
 
         david.addCartera(cDavid1); // Enlace bidireccional
 
@@ -73,10 +75,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 
         // Crear Transacciones (requieren que 'david' tenga ID)
         // (A) David envía 0.1 DOGE a Ana
-        Transaccion tx1 = new Transaccion(david, ana, doge,0.1);
+        Transaccion tx1 = new Transaccion(david, ana, doge, Importe.unidadesDesde(0.1));
         // (B) Ana envía 0.5 ETH a David
         Criptomoneda eth = criptomonedaRepository.findBySimbolo("ETH").get();
-        Transaccion tx2 = new Transaccion(ana, david, eth,0.5);
+        Transaccion tx2 = new Transaccion(ana, david, eth, Importe.unidadesDesde(0.5));
 
         transaccionRepository.saveAll(Arrays.asList(tx1, tx2)); // (usando transaccionRepository)
 
@@ -97,7 +99,7 @@ import static org.assertj.core.api.Assertions.assertThat;
         assertThat(davidLeido.getNombre()).isEqualTo("David Roca");
         assertThat(davidLeido.getHistorial().getDetalle()).isEqualTo("Historial de David");
         assertThat(davidLeido.getCarteras()).hasSize(1);
-        assertThat(davidLeido.getCarteras().get(0).getCriptomonedas()).contains(doge);
+        assertThat(davidLeido.getCarteras().get(0).getActivos()).extracting(Activo::getCriptomoneda).contains(doge);
 
         // Verificamos que los contadores han subido
         assertThat(usuarioRepository.count()).isEqualTo(userCountInicial + 1); // 3 + David
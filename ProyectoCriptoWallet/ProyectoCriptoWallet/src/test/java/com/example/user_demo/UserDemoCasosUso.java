@@ -11,13 +11,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -27,6 +27,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  * Cada caso de uso está separado en un método @Test individual.
  */
 @SpringBootTest
+@ActiveProfiles("h2") // H2 en modo MySQL: no hace falta un servidor para los tests
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @Sql("/data.sql") // Carga data.sql antes de cada test
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // Limpia la BD después de cada test
@@ -69,7 +70,6 @@ public class UserDemoCasosUso {
         assertThat(ana.getNombre()).isEqualTo("Ana López");
     }
 
-''
     @Test
     @Order(3)
     @DisplayName("CU Usuario 3: Encontrar Usuarios por prefijo de nombre")
@@ -147,44 +147,46 @@ public class UserDemoCasosUso {
 
     @Test
     @Order(9)
-    @DisplayName("CU Cartera 4: [Relación N:M] Añadir Criptomoneda a Cartera")
-    @Transactional // Para cargar .getCriptomonedas() LAZY
+    @DisplayName("CU Cartera 4: [Activos] Añadir Criptomoneda a Cartera")
+    @Transactional // Para cargar .getActivos() LAZY
     void testAddCriptoACartera() {
         // Cartera 2 (de Luis) solo tiene ETH
         Cartera carteraLuis = carteraRepository.findById(2L).get();
         Criptomoneda btc = criptomonedaRepository.findBySimbolo("BTC").get();
 
-        Set<Criptomoneda> criptos = carteraLuis.getCriptomonedas();
-        assertThat(criptos).hasSize(1);
+        assertThat(carteraLuis.getActivos()).hasSize(1);
 
         // Acción: Luis "compra" BTC
-        criptos.add(btc);
+        carteraLuis.addActivo(btc, Importe.unidadesDesde(0.01));
         carteraRepository.save(carteraLuis);
 
         // Verificación
         Cartera carteraActualizada = carteraRepository.findById(2L).get();
-        assertThat(carteraActualizada.getCriptomonedas()).hasSize(2).contains(btc);
+        assertThat(carteraActualizada.getActivos()).hasSize(2)
+                .extracting(Activo::getCriptomoneda).contains(btc);
     }
 
     @Test
     @Order(10)
-    @DisplayName("CU Cartera 5: [Relación N:M] Quitar Criptomoneda de Cartera")
-    @Transactional // Para cargar .getCriptomonedas() LAZY
+    @DisplayName("CU Cartera 5: [Activos] Quitar Criptomoneda de Cartera")
+    @Transactional // Para cargar .getActivos() LAZY
     void testRemoveCriptoDeCartera() {
         // Cartera 1 (de Ana) tiene BTC y ETH
         Cartera carteraAna = carteraRepository.findById(1L).get();
         Criptomoneda eth = criptomonedaRepository.findBySimbolo("ETH").get();
 
-        Set<Criptomoneda> criptos = carteraAna.getCriptomonedas();
-        assertThat(criptos).hasSize(2);
+        assertThat(carteraAna.getActivos()).hasSize(2);
 
-        // Acción: Ana "vende" ETH (Funciona gracias a equals/hashCode)
-        criptos.remove(eth);
+        // Acción: Ana "vende" ETH (orphanRemoval borra la fila del activo)
+        Activo activoEth = carteraAna.getActivos().stream()
+                .filter(a -> a.getCriptomoneda().equals(eth)).findFirst().get();
+        carteraAna.removeActivo(activoEth);
         carteraRepository.save(carteraAna);
 
         // Verificación
         Cartera carteraActualizada = carteraRepository.findById(1L).get();
-        assertThat(carteraActualizada.getCriptomonedas()).hasSize(1).doesNotContain(eth);
+        assertThat(carteraActualizada.getActivos()).hasSize(1)
+                .extracting(Activo::getCriptomoneda).doesNotContain(eth);
     }
 
     // --- Casos de Uso: CRIPTOMONEDA ---
@@ -194,7 +196,7 @@ public class UserDemoCasosUso {
     @DisplayName("CU Criptomoneda 1: Crear nueva Criptomoneda")
     void testCrearCriptomoneda() {
         long criptoCount = criptomonedaRepository.count(); // 3
-        Criptomoneda doge = new Criptomoneda("Dogecoin", "DOGE");
+        Criptomoneda doge = new Criptomoneda("Dogecoin", "DOGE", 0.1);
         criptomonedaRepository.save(doge);
 
         assertThat(criptomonedaRepository.count()).isEqualTo(criptoCount + 1);
@@ -240,16 +242,17 @@ public class UserDemoCasosUso {
     @Transactional
     void testDeleteCriptomoneda_Exito() {
         // 1. Creamos una Cripto nueva
-        Criptomoneda ada = criptomonedaRepository.save(new Criptomoneda("Cardano", "ADA"));
+        Criptomoneda ada = criptomonedaRepository.save(new Criptomoneda("Cardano", "ADA", 0.35));
         long criptoCount = criptomonedaRepository.count(); // 4
 
         // 2. La asignamos a una cartera
         Cartera carteraLuis = carteraRepository.findById(2L).get();
-        carteraLuis.addCriptomoneda(ada);
+        carteraLuis.addActivo(ada, 0L);
         carteraRepository.save(carteraLuis);
 
-        // 3. Rompemos la relación N:M
-        carteraLuis.removeCriptomoneda(ada);
+        // 3. Quitamos el activo que la referencia
+        Activo activoAda = carteraLuis.getActivos().get(carteraLuis.getActivos().size() - 1);
+        carteraLuis.removeActivo(activoAda);
         carteraRepository.save(carteraLuis);
 
         // 4. Borramos la Cripto (ahora es seguro)
@@ -270,7 +273,7 @@ public class UserDemoCasosUso {
         Usuario luis = usuarioRepository.findByEmail("luis@email.com").get();
         Criptomoneda sol = criptomonedaRepository.findBySimbolo("SOL").get();
 
-        Transaccion tx = new Transaccion(ana, luis, sol,5.0);
+        Transaccion tx = new Transaccion(ana, luis, sol, Importe.unidadesDesde(5.0));
         transaccionRepository.save(tx);
 
         assertThat(transaccionRepository.count()).isEqualTo(txCount + 1);
@@ -306,7 +309,7 @@ public class UserDemoCasosUso {
         // 1. Crear una TX interna
         Usuario ana = usuarioRepository.findByEmail("ana@email.com").get();
         Criptomoneda btc = criptomonedaRepository.findBySimbolo("BTC").get();
-        transaccionRepository.save(new Transaccion( ana, ana, btc,0.1));
+        transaccionRepository.save(new Transaccion(ana, ana, btc, Importe.unidadesDesde(0.1)));
 
         // 2. Probar la consulta
         Iterable<Transaccion> txs = transaccionRepository.findTransaccionesInternas();
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +22,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  * sobre una base de datos con datos existentes.
  */
 @SpringBootTest
+@ActiveProfiles("h2") // H2 en modo MySQL: no hace falta un servidor para los tests
 @Sql("/data.sql") // Carga los datos de prueba (Ana, Luis, Carla...)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // Limpia la BD después
 public class UserDemoGenericTests {
@@ -64,22 +66,22 @@ public class UserDemoGenericTests {
         long idNuevaCartera = carteraAhorroLuis.getIdCartera();
         assertThat(idNuevaCartera).isNotNull();
 
-        // --- 3. ACTUALIZACIÓN (Relación N:M) (Repositorio: Cartera) ---
+        // --- 3. ACTUALIZACIÓN (Activos 1:N) (Repositorio: Cartera) ---
         // Luis "funde" su nueva cartera añadiendo BTC.
-        System.out.println("ACTUALIZANDO: Financiando nueva cartera con BTC (N:M)...");
+        System.out.println("ACTUALIZANDO: Financiando nueva cartera con BTC...");
         // (Usamos el método de ayuda de la entidad Cartera)
-        carteraAhorroLuis.addCriptomoneda(btc);
+        carteraAhorroLuis.addActivo(btc, Importe.unidadesDesde(0.5));
         carteraRepository.save(carteraAhorroLuis);
 
         // Verificamos
         Cartera carteraLeida = carteraRepository.findById(idNuevaCartera).get();
-        assertThat(carteraLeida.getCriptomonedas()).hasSize(1);
-        assertThat(carteraLeida.getCriptomonedas()).contains(btc);
+        assertThat(carteraLeida.getActivos()).hasSize(1);
+        assertThat(carteraLeida.getActivos()).extracting(Activo::getCriptomoneda).contains(btc);
 
         // --- 4. CREACIÓN (Repositorio: Transaccion) ---
         // Luis envía 0.1 BTC a Ana
         System.out.println("CREANDO: Nueva transacción de Luis a Ana...");
-        Transaccion nuevaTx = new Transaccion(luis, ana, btc,0.1);
+        Transaccion nuevaTx = new Transaccion(luis, ana, btc, Importe.unidadesDesde(0.1));
         transaccionRepository.save(nuevaTx);
 
         // Verificamos
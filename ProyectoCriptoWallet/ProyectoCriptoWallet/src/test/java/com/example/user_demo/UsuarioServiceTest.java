@@ -1,9 +1,17 @@
 package com.example.user_demo;
 
+import com.example.user_demo.data.busqueda.IndiceUsuarios;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.ledger.LedgerEngine;
 import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.EntradaHistorialRepository;
 import com.example.user_demo.data.repository.HistorialRepository;
 import com.example.user_demo.data.repository.UsuarioRepository;
+import com.example.user_demo.data.services.CarteraService;
 import com.example.user_demo.data.services.UsuarioServiceImpl;
+import com.example.user_demo.data.tenedores.IndiceTenedores;
+import com.example.user_demo.data.versiones.VersionesUsuario;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +35,30 @@ public class UsuarioServiceTest {
     @Mock
     private HistorialRepository historialRepository;
 
+    @Mock
+    private EntradaHistorialRepository entradaHistorialRepository;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private PatrimonioMaterializado patrimonio;
+
+    @Mock
+    private IndiceTenedores tenedores;
+
+    @Mock
+    private IndiceUsuarios busqueda;
+
+    @Mock
+    private ClasificacionPatrimonio clasificacion;
+
+    @Mock
+    private VersionesUsuario versiones;
+
+    @Mock
+    private CarteraService carteraService;
+
     @InjectMocks
     private UsuarioServiceImpl usuarioService;
 
@@ -108,6 +140,32 @@ public class UsuarioServiceTest {
         verify(usuarioRepository, never()).save(any());
     }
 
+    // --- TEST 4b: Alta con cartera ---
+    @Test
+    @DisplayName("Crear usuario con cartera: Un saldo inicial negativo no deja un usuario sin cartera")
+    void crearUsuarioConCartera_SaldoNegativo() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            usuarioService.crearUsuarioConCartera("JuanPerez", "juan.perez@example.com", "Detalle", -10.0);
+        });
+
+        assertTrue(exception.getMessage().contains("negativo"));
+        verify(usuarioRepository, never()).save(any());
+        verifyNoInteractions(carteraService);
+    }
+
+    @Test
+    @DisplayName("Crear usuario con cartera: Crea el usuario y su primera cartera (0 si no hay saldo)")
+    void crearUsuarioConCartera_Exitoso() {
+        String email = "juan.perez@example.com";
+        when(usuarioRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(usuarioRepository.save(any(Usuario.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Usuario resultado = usuarioService.crearUsuarioConCartera("JuanPerez", email, "Detalle", null);
+
+        assertEquals(email, resultado.getEmail());
+        verify(carteraService).crearCartera(email, 0.0);
+    }
+
     // --- TEST 5: Eliminar Usuario ---
     @Test
     @DisplayName("Eliminar usuario: Debería llamar a delete si el usuario existe")
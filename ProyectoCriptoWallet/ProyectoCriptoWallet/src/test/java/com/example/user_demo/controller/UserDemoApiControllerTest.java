@@ -0,0 +1,126 @@
+package com.example.user_demo.controller;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.dto.FichaUsuario;
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.dto.Pagina;
+import com.example.user_demo.data.dto.SolicitudTransferencia;
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Transaccion;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.services.CarteraService;
+import com.example.user_demo.data.services.HistorialService;
+import com.example.user_demo.data.services.TransaccionService;
+import com.example.user_demo.data.services.UsuarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de la API REST: DTOs en lugar de entidades, paginación y códigos de error.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserDemoApiControllerTest {
+
+    @Mock
+    private UsuarioService usuarioService;
+    @Mock
+    private CarteraService carteraService;
+    @Mock
+    private TransaccionService transaccionService;
+    @Mock
+    private HistorialService historialService;
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+
+    @InjectMocks
+    private UserDemoApiController api;
+
+    @Test
+    @DisplayName("El listado de usuarios pasa el ID del último como cursor de la página siguiente")
+    void usuariosPorCursor() {
+        List<FichaUsuario> fichas = List.of(new FichaUsuario(4L, "Ana", "ana@email.com"), new FichaUsuario(7L, "Luis", "luis@email.com"));
+        when(usuarioService.getFichasUsuarios(null, 2)).thenReturn(new SliceImpl<>(fichas, PageRequest.of(0, 2), true));
+        when(usuarioService.getFichasUsuarios(7L, 2)).thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 2), false));
+
+        Pagina<FichaUsuario> primera = api.usuarios(null, 2);
+        assertEquals(fichas, primera.elementos());
+        assertEquals(Map.of("despuesDe", "7"), primera.siguiente());
+        assertNull(api.usuarios(7L, 2).siguiente(), "Última página: sin parámetros de la siguiente");
+    }
+
+    @Test
+    @DisplayName("Las carteras se paginan; un usuario inexistente es un 404, no una lista vacía")
+    void carterasPaginadas() {
+        when(usuarioService.getFichaUsuario(1L)).thenReturn(Optional.of(new FichaUsuario(1L, "Ana", "ana@email.com")));
+        when(carteraService.getValoracionCarteras(1L)).thenReturn(List.of(
+                new ValoracionCartera(10L, 100L, 0L), new ValoracionCartera(11L, 200L, 50L), new ValoracionCartera(12L, 0L, 0L)));
+
+        Pagina<ValoracionCartera> primera = api.carteras(1L, 0, 2);
+        assertEquals(List.of(10L, 11L), primera.elementos().stream().map(ValoracionCartera::idCartera).toList());
+        assertEquals(Map.of("pagina", "1"), primera.siguiente());
+        Pagina<ValoracionCartera> segunda = api.carteras(1L, 1, 2);
+        assertEquals(List.of(12L), segunda.elementos().stream().map(ValoracionCartera::idCartera).toList());
+        assertNull(segunda.siguiente());
+        assertEquals(List.of(), api.carteras(1L, 5, 2).elementos());
+
+        when(usuarioService.getFichaUsuario(9L)).thenReturn(Optional.empty());
+        assertThrows(NoSuchElementException.class, () -> api.carteras(9L, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> api.carteras(1L, 0, 101));
+    }
+
+    @Test
+    @DisplayName("Una transferencia responde 201 con la fila plana; el símbolo sale del catálogo")
+    void transferencia() {
+        Usuario origen = new Usuario("Ana", "ana@email.com");
+        origen.setIdUsuario(1L);
+        Usuario destino = new Usuario("Luis", "luis@email.com");
+        destino.setIdUsuario(2L);
+        Criptomoneda referencia = mock(Criptomoneda.class); // Como la referencia sin cargar del catálogo
+        when(referencia.getIdCripto()).thenReturn(3L);
+        Transaccion t = new Transaccion(origen, destino, referencia, 5_000L);
+        t.setIdTransaccion(99L);
+        t.setFecha(LocalDateTime.of(2025, 3, 1, 10, 0));
+        when(transaccionService.realizarTransferencia(1L, 2L, 10L, "ETH", 25.0)).thenReturn(t);
+        when(catalogo.porId(3L)).thenReturn(new CotizacionCripto(3L, "Ethereum", "ETH", 300_000L, 8, 1L));
+
+        ResponseEntity<FilaTransaccion> respuesta = api.transferir(new SolicitudTransferencia(1L, 2L, 10L, "ETH", 25.0));
+
+        assertEquals(HttpStatus.CREATED, respuesta.getStatusCode());
+        assertEquals(new FilaTransaccion(99L, t.getFecha(), 1L, 2L, "ETH", 5_000L), respuesta.getBody());
+        verify(referencia, never()).getSimbolo();
+    }
+
+    @Test
+    @DisplayName("Las excepciones de los servicios se traducen a 404, 400, 403 y 409")
+    void codigosDeError() {
+        ErroresApi errores = new ErroresApi();
+
+        assertEquals(404, errores.noEncontrado(new NoSuchElementException("Usuario no encontrado")).getStatus());
+        assertEquals(400, errores.invalido(new IllegalArgumentException("Saldo insuficiente.")).getStatus());
+        assertEquals("Saldo insuficiente.", errores.invalido(new IllegalArgumentException("Saldo insuficiente.")).getDetail());
+        assertEquals(403, errores.prohibido(new SecurityException("La cartera no pertenece al usuario.")).getStatus());
+        assertEquals(409, errores.conflicto(new IllegalStateException("Sin precio.")).getStatus());
+        assertEquals("Conflict", errores.conflicto(new DataIntegrityViolationException("Duplicate entry 'x' for key 'email'"))
+                .getDetail(), "El mensaje de BD no se expone");
+    }
+}
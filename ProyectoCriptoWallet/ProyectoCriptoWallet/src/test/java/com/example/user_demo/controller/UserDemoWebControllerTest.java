@@ -0,0 +1,211 @@
+package com.example.user_demo.controller;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.FichaUsuario;
+import com.example.user_demo.data.dto.InformeImportacion;
+import com.example.user_demo.data.dto.PanelUsuario;
+import com.example.user_demo.data.dto.ProgresoImportacion;
+import com.example.user_demo.data.eventos.DifusorEventos;
+import com.example.user_demo.data.exportacion.ExportadorTransacciones;
+import com.example.user_demo.data.importacion.ImportadorUsuarios;
+import com.example.user_demo.data.services.CarteraService;
+import com.example.user_demo.data.services.HistorialService;
+import com.example.user_demo.data.services.TransaccionService;
+import com.example.user_demo.data.services.UsuarioService;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de las peticiones condicionales del dashboard y del índice (ETag / 304), del stream de eventos
+ * y del progreso de la importación.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserDemoWebControllerTest {
+
+    @Mock
+    private UsuarioService usuarioService;
+    @Mock
+    private CarteraService carteraService;
+    @Mock
+    private TransaccionService transaccionService;
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+    @Mock
+    private HistorialService historialService;
+    @Mock
+    private FragmentosPanel fragmentos;
+    @Mock
+    private DifusorEventos eventos;
+    @Mock
+    private ImportadorUsuarios importador;
+
+    private VersionesUsuario versiones;
+    private UserDemoWebController controller;
+
+    @BeforeEach
+    void setUp() {
+        versiones = new VersionesUsuario(catalogo, 64);
+        controller = new UserDemoWebController(usuarioService, carteraService, transaccionService, catalogo,
+                historialService, mock(ExportadorTransacciones.class), importador,
+                mock(ClasificacionPatrimonio.class), versiones, fragmentos, eventos, new ObjectMapper(), 50);
+    }
+
+    private static MockHttpServletRequest get(String uri, String etag) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (etag != null) {
+            request.addHeader("If-None-Match", etag);
+        }
+        return request;
+    }
+
+    private String dashboard(MockHttpServletRequest request, MockHttpServletResponse response, ExtendedModelMap model) {
+        return controller.dashboard(1L, 0, model, new ServletWebRequest(request, response), request, response);
+    }
+
+    @Test
+    @DisplayName("Un dashboard sin cambios responde 304 sin tocar servicios; tras una escritura se renderiza")
+    void dashboardCondicional() {
+        when(catalogo.version()).thenReturn(3L);
+        PanelUsuario panel = new PanelUsuario(1L, "Ana", true, "", List.of());
+        when(fragmentos.carteras(any(), any(), any(), any()))
+                .thenReturn(new FragmentosPanel.Carteras(0L, 3L, Locale.ROOT, panel, "<div>carteras</div>"));
+        when(historialService.getEntradas(1L, 0, 50)).thenReturn(new SliceImpl<>(List.of()));
+
+        MockHttpServletResponse primera = new MockHttpServletResponse();
+        ExtendedModelMap model = new ExtendedModelMap();
+        assertEquals("dashboard", dashboard(get("/usuario/1", null), primera, model));
+        String etag = primera.getHeader("ETag");
+        assertNotNull(etag);
+        assertEquals("private, no-cache", primera.getHeader("Cache-Control"));
+        assertEquals("<div>carteras</div>", model.get("htmlCarteras"));
+        verify(fragmentos).carteras(eq(versiones.panel(1L)), any(), any(), any());
+
+        clearInvocations(fragmentos, historialService);
+        MockHttpServletResponse segunda = new MockHttpServletResponse();
+        assertNull(dashboard(get("/usuario/1", etag), segunda, new ExtendedModelMap()));
+        assertEquals(304, segunda.getStatus());
+        verifyNoInteractions(carteraService, historialService, fragmentos);
+
+        versiones.carterasCambiadas(1L);
+        MockHttpServletResponse tercera = new MockHttpServletResponse();
+        assertEquals("dashboard", dashboard(get("/usuario/1", etag), tercera, new ExtendedModelMap()));
+        assertEquals(200, tercera.getStatus());
+        assertNotEquals(etag, tercera.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Una página con mensaje flash se renderiza siempre y no se guarda en caché")
+    void mensajeFlash() {
+        PanelUsuario panel = new PanelUsuario(1L, "Ana", true, "", List.of());
+        when(fragmentos.carteras(any(), any(), any(), any()))
+                .thenReturn(new FragmentosPanel.Carteras(0L, 0L, Locale.ROOT, panel, ""));
+        when(historialService.getEntradas(1L, 0, 50)).thenReturn(new SliceImpl<>(List.of()));
+        ExtendedModelMap model = new ExtendedModelMap();
+        model.addAttribute("mensaje", "Saldo insuficiente.");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertEquals("dashboard", dashboard(get("/usuario/1", versiones.panel(1L).etag()), response, model));
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader("ETag"));
+        assertEquals("no-store", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    @DisplayName("La lista de usuarios responde 304 hasta que hay un alta o una baja")
+    void indiceCondicional() {
+        MockHttpServletResponse primera = new MockHttpServletResponse();
+        MockHttpServletRequest request = get("/", null);
+        assertEquals("index", controller.index(new ExtendedModelMap(), new ServletWebRequest(request, primera), primera));
+        String etag = primera.getHeader("ETag");
+        verify(usuarioService).getAllUsuarios();
+
+        MockHttpServletResponse segunda = new MockHttpServletResponse();
+        request = get("/", etag);
+        assertNull(controller.index(new ExtendedModelMap(), new ServletWebRequest(request, segunda), segunda));
+        assertEquals(304, segunda.getStatus());
+
+        versiones.listaCambiada();
+        MockHttpServletResponse tercera = new MockHttpServletResponse();
+        request = get("/", etag);
+        assertEquals("index", controller.index(new ExtendedModelMap(), new ServletWebRequest(request, tercera), tercera));
+        verify(usuarioService, times(2)).getAllUsuarios();
+    }
+
+    @Test
+    @DisplayName("El stream de eventos es 404 para un usuario inexistente y 503 si el difusor está lleno")
+    void streamDeEventos() {
+        when(usuarioService.getFichaUsuario(1L)).thenReturn(Optional.of(new FichaUsuario(1L, "Ana", "ana@email.com")));
+        when(usuarioService.getFichaUsuario(9L)).thenReturn(Optional.empty());
+        when(eventos.suscribir(eq(1L), any())).thenReturn(mock(DifusorEventos.Suscripcion.class))
+                .thenThrow(new IllegalStateException("Demasiadas conexiones de eventos abiertas."));
+
+        ResponseEntity<ResponseBodyEmitter> abierto = controller.eventos(1L);
+        assertEquals(HttpStatus.OK, abierto.getStatusCode());
+        assertEquals(MediaType.TEXT_EVENT_STREAM, abierto.getHeaders().getContentType());
+        assertNotNull(abierto.getBody());
+        verify(eventos).suscribir(eq(1L), any());
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.eventos(9L).getStatusCode());
+        verify(eventos, never()).suscribir(eq(9L), any());
+
+        // Segunda conexión con el difusor lleno
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, controller.eventos(1L).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("La importación en NDJSON envía una línea por bloque confirmado y termina con el informe")
+    @SuppressWarnings("unchecked")
+    void importacionConProgreso() throws IOException {
+        when(importador.importar(any(), any())).thenAnswer(i -> {
+            Consumer<ProgresoImportacion> progreso = i.getArgument(1);
+            progreso.accept(new ProgresoImportacion(2, 2, 0));
+            progreso.accept(new ProgresoImportacion(3, 2, 1));
+            return new InformeImportacion(3, 2, 1, List.of(new InformeImportacion.FilaRechazada(3, "x", "Email no válido.")));
+        });
+        MockMultipartFile archivo = new MockMultipartFile("archivo", "usuarios.csv", "text/csv",
+                "nombre,email\nAna,ana@email.com\nLuis,luis@email.com\nCarla,x\n".getBytes(StandardCharsets.UTF_8));
+
+        ResponseEntity<StreamingResponseBody> respuesta = controller.importarUsuariosConProgreso(archivo);
+        assertEquals("application/x-ndjson;charset=UTF-8", respuesta.getHeaders().getContentType().toString());
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        respuesta.getBody().writeTo(salida);
+
+        assertEquals(List.of(
+                "{\"filasLeidas\":2,\"importados\":2,\"rechazadas\":0}",
+                "{\"filasLeidas\":3,\"importados\":2,\"rechazadas\":1}",
+                "{\"filasLeidas\":3,\"importados\":2,\"rechazadas\":1,\"primerosRechazos\":"
+                        + "[{\"linea\":3,\"email\":\"x\",\"motivo\":\"Email no válido.\"}]}"),
+                salida.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.user_demo.data.busqueda;
+
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del índice de prefijos contra un H2 en memoria (modo MySQL) con la tabla usuarios.
+ */
+class IndiceUsuariosTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private IndiceUsuarios indice;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:busqueda" + SECUENCIA.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE usuarios (id_usuario BIGINT PRIMARY KEY, nombre VARCHAR(255), email VARCHAR(255))");
+        jdbc.update("INSERT INTO usuarios VALUES (1, 'Ana López', 'ana@email.com'), (2, 'José Ángel Ruiz', 'jar@email.com'), "
+                + "(3, 'Anabel Sanz', 'sanz@email.com'), (4, 'Luis Andrade', 'luis@email.com')");
+        indice = new IndiceUsuarios(jdbc, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private static List<Long> ids(List<SugerenciaUsuario> sugerencias) {
+        return sugerencias.stream().map(SugerenciaUsuario::idUsuario).toList();
+    }
+
+    @Test
+    @DisplayName("Busca por inicio de nombre, de cualquier palabra o de email, sin mayúsculas ni acentos")
+    void buscaPorPrefijo() {
+        assertThrows(IllegalStateException.class, () -> indice.buscar("ana", 10, null));
+        indice.cargar();
+
+        // "ana lopez", "ana@email.com", "anabel sanz" y las palabras "andrade" y "angel"
+        assertEquals(List.of(1L, 3L, 4L, 2L), ids(indice.buscar("  AN ", 10, null)));
+        assertEquals(List.of(2L), ids(indice.buscar("angel", 10, null)));
+        assertEquals(List.of(2L), ids(indice.buscar("jose a", 10, null)));
+        assertEquals(List.of(3L), ids(indice.buscar("sanz", 10, null)), "Palabra y email del mismo usuario: una sola vez");
+        assertEquals(List.of(), indice.buscar("  ", 10, null));
+        assertEquals(List.of(), indice.buscar("zz", 10, null));
+    }
+
+    @Test
+    @DisplayName("Respeta el límite y el usuario excluido")
+    void limiteYExcluido() {
+        indice.cargar();
+
+        assertEquals(List.of(1L), ids(indice.buscar("an", 1, null)));
+        assertEquals(List.of(3L, 4L, 2L), ids(indice.buscar("an", 10, 1L)));
+        assertEquals(List.of(1L), ids(indice.buscar("an", 0, null)), "El límite mínimo es 1");
+    }
+
+    @Test
+    @DisplayName("Altas y bajas tras el commit; las que llegan antes de cargar se aplican al terminar")
+    void altasYBajas() {
+        indice.usuarioCreado(9L, "Zoe Pardo", "zoe@email.com"); // Aún sin cargar: queda pendiente
+        indice.cargar();
+        assertEquals(List.of(9L), ids(indice.buscar("zo", 10, null)));
+
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        tx.executeWithoutResult(status -> {
+            indice.usuarioEliminado(9L);
+            indice.usuarioCreado(10L, "Zacarías", "zac@email.com");
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(9L), ids(indice.buscar("z", 10, null)));
+
+        tx.executeWithoutResult(status -> {
+            indice.usuarioEliminado(9L);
+            indice.usuarioCreado(10L, "Zacarías", "zac@email.com");
+        });
+        assertEquals(List.of(10L), ids(indice.buscar("z", 10, null)));
+        assertEquals(List.of(), indice.buscar("pardo", 10, null));
+    }
+
+    @Test
+    @DisplayName("Volumen: 200.000 usuarios y top-10 sin recorrerlos")
+    void volumen() {
+        indice.cargar();
+        List<SugerenciaUsuario> altas = new ArrayList<>();
+        for (long id = 100; id < 200_100; id++) {
+            altas.add(new SugerenciaUsuario(id, "Cliente " + id, "cliente" + id + "@partner.com"));
+        }
+        indice.usuariosCreados(altas);
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(10, indice.buscar("cliente" + (1_000 + i), 10, null).size());
+        }
+        long mediaNs = (System.nanoTime() - inicio) / 1_000;
+
+        assertTrue(mediaNs < 1_000_000, "Media por búsqueda: " + mediaNs + " ns");
+        assertEquals(List.of(123_456L), ids(indice.buscar("cliente123456@", 10, null)));
+    }
+}
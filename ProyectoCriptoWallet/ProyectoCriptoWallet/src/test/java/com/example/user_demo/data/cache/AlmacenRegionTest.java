@@ -0,0 +1,86 @@
+package com.example.user_demo.data.cache;
+
+import org.hibernate.cache.spi.access.SoftLock;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test Unitario del almacén de una región de la caché de segundo nivel.
+ */
+class AlmacenRegionTest {
+
+    @Test
+    @DisplayName("Cuenta aciertos y fallos y expulsa la entrada menos usada al pasar del tope")
+    void lruConEstadisticas() {
+        AlmacenRegion region = new AlmacenRegion("usuarios", 2, 0);
+        region.putIntoCache(1L, "ana", null);
+        region.putIntoCache(2L, "luis", null);
+        assertEquals("ana", region.getFromCache(1L, null)); // 2 pasa a ser la menos usada
+        region.putIntoCache(3L, "carla", null);
+
+        assertNull(region.getFromCache(2L, null));
+        assertEquals("carla", region.getFromCache(3L, null));
+
+        EstadisticasRegion e = region.estadisticas();
+        assertEquals(2, e.aciertos());
+        assertEquals(1, e.fallos());
+        assertEquals(3, e.escrituras());
+        assertEquals(1, e.expulsiones());
+        assertEquals(2, e.entradas());
+        assertEquals(2.0 / 3, e.getRatioAciertos(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Las entradas caducan tras su TTL y se pueden desalojar a mano")
+    void caducidadYDesalojo() throws InterruptedException {
+        AlmacenRegion region = new AlmacenRegion("carteras", 0, 20);
+        region.putIntoCache(1L, "c1", null);
+        region.putIntoCache(2L, "c2", null);
+        assertTrue(region.contains(1L));
+        region.evictData(2L);
+        assertFalse(region.contains(2L));
+
+        Thread.sleep(40);
+        assertNull(region.getFromCache(1L, null));
+        assertEquals(0, region.estadisticas().entradas());
+    }
+
+    @Test
+    @DisplayName("Los cerrojos de READ_WRITE no se expulsan ni caducan hasta que se sustituyen")
+    void cerrojosNoSeExpulsan() throws InterruptedException {
+        AlmacenRegion region = new AlmacenRegion("usuarios", 2, 20);
+        SoftLock cerrojo = new SoftLock() {
+        };
+        region.putIntoCache(1L, cerrojo, null);
+        region.putIntoCache(2L, "luis", null);
+        region.putIntoCache(3L, "carla", null); // Sale 2, la menos usada que no es un cerrojo
+
+        assertSame(cerrojo, region.getFromCache(1L, null));
+        assertNull(region.getFromCache(2L, null));
+        assertEquals(1, region.estadisticas().expulsiones());
+
+        Thread.sleep(40);
+        assertSame(cerrojo, region.getFromCache(1L, null));
+        assertNull(region.getFromCache(3L, null));
+
+        region.putIntoCache(1L, "ana", null); // Al liberarse vuelve a caducar como cualquier entrada
+        Thread.sleep(40);
+        assertNull(region.getFromCache(1L, null));
+    }
+
+    @Test
+    @DisplayName("Una región grande se reparte en segmentos sin pasar del tope total")
+    void segmentada() {
+        AlmacenRegion region = new AlmacenRegion("carteras", 1024, 0);
+        for (long i = 0; i < 5_000; i++) {
+            region.putIntoCache(i, "c" + i, null);
+        }
+
+        EstadisticasRegion e = region.estadisticas();
+        assertTrue(e.entradas() <= 1024);
+        assertEquals(5_000 - e.entradas(), e.expulsiones());
+        assertEquals("c4999", region.getFromCache(4_999L, null));
+    }
+}
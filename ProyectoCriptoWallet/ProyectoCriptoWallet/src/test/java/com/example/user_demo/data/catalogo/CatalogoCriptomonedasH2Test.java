@@ -0,0 +1,100 @@
+package com.example.user_demo.data.catalogo;
+
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.CriptomonedaRepository;
+import com.example.user_demo.data.repository.PruebaRepositorio;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de integración del UPDATE de precios por lotes JDBC contra H2: escribe todas las filas en una
+ * transacción, saca las criptos de la caché de segundo nivel y publica los precios tras el commit.
+ */
+@PruebaRepositorio
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogoCriptomonedasH2Test {
+
+    @Autowired
+    private CriptomonedaRepository criptomonedaRepository;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PatrimonioMaterializado patrimonio;
+    private CatalogoCriptomonedas catalogo;
+    private Long btc;
+    private Long eth;
+
+    @BeforeEach
+    void setUp() {
+        btc = criptomonedaRepository.save(new Criptomoneda("Bitcoin", "BTC", 50000.0)).getIdCripto();
+        eth = criptomonedaRepository.save(new Criptomoneda("Ethereum", "ETH", 3000.0)).getIdCripto();
+        patrimonio = mock(PatrimonioMaterializado.class);
+        catalogo = new CatalogoCriptomonedas(criptomonedaRepository, patrimonio, jdbc, entityManagerFactory, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        criptomonedaRepository.deleteAll();
+    }
+
+    private BigDecimal precioEnBd(Long idCripto) {
+        return jdbc.queryForObject("SELECT precio_actual FROM criptomonedas WHERE id_cripto = ?", BigDecimal.class, idCripto);
+    }
+
+    @Test
+    @DisplayName("Un lote actualiza todas sus filas y el resto se queda como estaba")
+    void actualizaPreciosEnLote() {
+        Long sol = criptomonedaRepository.save(new Criptomoneda("Solana", "SOL", 140.0)).getIdCripto();
+
+        catalogo.actualizarPrecios(Map.of(btc, 6_000_050L, eth, 310_000L));
+
+        assertEquals(0, new BigDecimal("60000.50").compareTo(precioEnBd(btc)));
+        assertEquals(0, new BigDecimal("3100.00").compareTo(precioEnBd(eth)));
+        assertEquals(0, new BigDecimal("140.00").compareTo(precioEnBd(sol)));
+        verify(patrimonio).precioActualizado(btc, 6_000_050L);
+        verify(patrimonio).precioActualizado(eth, 310_000L);
+
+        // Publicados tras el commit en una sola versión nueva
+        assertEquals(6_000_050L, catalogo.porId(btc).precioCentimos());
+        assertEquals(310_000L, catalogo.porId(eth).precioCentimos());
+        assertEquals(catalogo.porId(btc).version(), catalogo.porId(eth).version());
+    }
+
+    @Test
+    @DisplayName("Tras el UPDATE JDBC, JPA no devuelve el precio viejo de la caché de segundo nivel")
+    void sacaLasCriptosDeLaCache() {
+        assertEquals(5_000_000L, criptomonedaRepository.findById(btc).orElseThrow().getPrecioCentimos()); // A la caché
+
+        catalogo.actualizarPrecios(Map.of(btc, 5_500_000L));
+
+        assertEquals(5_500_000L, criptomonedaRepository.findById(btc).orElseThrow().getPrecioCentimos());
+    }
+
+    @Test
+    @DisplayName("Un precio no positivo rechaza el lote entero sin tocar la BD")
+    void rechazaElLoteConPrecioInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> catalogo.actualizarPrecios(Map.of(btc, 5_500_000L, eth, 0L)));
+
+        assertEquals(0, new BigDecimal("50000.00").compareTo(precioEnBd(btc)));
+        verifyNoInteractions(patrimonio);
+    }
+}
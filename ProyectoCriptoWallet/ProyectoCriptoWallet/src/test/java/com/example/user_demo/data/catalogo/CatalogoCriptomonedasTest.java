@@ -0,0 +1,149 @@
+package com.example.user_demo.data.catalogo;
+
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import com.example.user_demo.data.repository.CriptomonedaRepository;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del catálogo de precios en memoria (sin transacción activa se publica al momento).
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CatalogoCriptomonedasTest {
+
+    @Mock
+    private CriptomonedaRepository criptomonedaRepository;
+    @Mock
+    private PatrimonioMaterializado patrimonio;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+    @Mock
+    private Cache cache;
+    @Mock
+    private org.hibernate.Cache cacheHibernate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogoCriptomonedas catalogo;
+    private Criptomoneda btc;
+
+    @BeforeEach
+    void setUp() {
+        btc = new Criptomoneda("Bitcoin", "BTC", 50000.0);
+        btc.setIdCripto(1L);
+        Criptomoneda eth = new Criptomoneda("Ethereum", "ETH", 3000.0);
+        eth.setIdCripto(2L);
+        when(criptomonedaRepository.findAll()).thenReturn(List.of(eth, btc));
+        when(criptomonedaRepository.findById(1L)).thenReturn(Optional.of(btc));
+
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(cache.unwrap(org.hibernate.Cache.class)).thenReturn(cacheHibernate);
+
+        catalogo = new CatalogoCriptomonedas(criptomonedaRepository, patrimonio, jdbcTemplate, entityManagerFactory, transactionManager);
+    }
+
+    @Test
+    @DisplayName("El catálogo se lee de BD una sola vez y se consulta por símbolo o ID desde memoria")
+    void cargaUnaVez() {
+        assertEquals(5_000_000L, catalogo.porSimbolo("BTC").precioCentimos());
+        assertEquals("Ethereum", catalogo.porId(2L).nombre());
+        assertNull(catalogo.porSimbolo("DOGE"));
+        assertEquals(List.of(1L, 2L), catalogo.todas().stream().map(CotizacionCripto::idCripto).toList());
+
+        verify(criptomonedaRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Un cambio de precio publica una instantánea nueva sin tocar la anterior")
+    void actualizarPrecioSustituyeLaInstantanea() {
+        List<CotizacionCripto> antes = catalogo.todas();
+        long version = catalogo.version();
+
+        catalogo.actualizarPrecio(1L, 6_000_000L);
+
+        assertEquals(6_000_000L, catalogo.porSimbolo("BTC").precioCentimos());
+        assertEquals(version + 1, catalogo.version());
+        assertEquals(version + 1, catalogo.porId(1L).version());
+        assertEquals(version, catalogo.porId(2L).version(), "ETH no ha cambiado");
+        assertEquals(5_000_000L, antes.get(0).precioCentimos(), "Quien leyó antes sigue viendo su instantánea");
+        assertEquals(6_000_000L, btc.getPrecioCentimos());
+        verify(criptomonedaRepository).save(btc);
+        verify(patrimonio).precioActualizado(1L, 6_000_000L);
+    }
+
+    @Test
+    @DisplayName("Precios no positivos o criptos inexistentes se rechazan")
+    void actualizarPrecioInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> catalogo.actualizarPrecio(1L, 0L));
+        assertThrows(NoSuchElementException.class, () -> catalogo.actualizarPrecio(99L, 100L));
+        assertEquals(5_000_000L, catalogo.porSimbolo("BTC").precioCentimos());
+    }
+
+    @Test
+    @DisplayName("Varios precios se escriben con un solo UPDATE por lotes y se publican juntos a los oyentes")
+    void actualizarPreciosEnLote() {
+        catalogo.todas();
+        long version = catalogo.version();
+        List<List<CotizacionCripto>> recibidos = new ArrayList<>();
+        catalogo.suscribir((cambios, v) -> recibidos.add(cambios));
+
+        catalogo.actualizarPrecios(Map.of(1L, 6_000_000L, 2L, 310_000L));
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(criptomonedaRepository, never()).save(any());
+        assertEquals(version + 1, catalogo.version());
+        assertEquals(310_000L, catalogo.porSimbolo("ETH").precioCentimos());
+        assertEquals(1, recibidos.size());
+        assertEquals(2, recibidos.get(0).size());
+        verify(patrimonio).precioActualizado(2L, 310_000L);
+        verify(cache).evict(Criptomoneda.class, 1L);
+        verify(cache).evict(Criptomoneda.class, 2L);
+        verify(cacheHibernate).evictDefaultQueryRegion();
+    }
+
+    @Test
+    @DisplayName("Los oyentes se avisan fuera del cerrojo del catálogo y en orden de versión, aunque publiquen ellos")
+    void avisaFueraDelCerrojo() {
+        long version = catalogo.version();
+        List<Long> versiones = new ArrayList<>();
+        List<Boolean> conCerrojo = new ArrayList<>();
+        catalogo.suscribir((cambios, v) -> {
+            versiones.add(v);
+            conCerrojo.add(Thread.holdsLock(catalogo));
+            if (versiones.size() == 1) {
+                catalogo.actualizarPrecios(Map.of(2L, 320_000L)); // Se avisa al terminar este aviso, no dentro
+                assertEquals(1, versiones.size());
+            }
+        });
+
+        catalogo.actualizarPrecios(Map.of(1L, 6_000_000L));
+
+        assertEquals(List.of(version + 1, version + 2), versiones);
+        assertEquals(List.of(false, false), conCerrojo);
+    }
+}
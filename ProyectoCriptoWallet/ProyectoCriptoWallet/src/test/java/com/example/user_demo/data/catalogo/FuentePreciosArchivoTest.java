@@ -0,0 +1,37 @@
+package com.example.user_demo.data.catalogo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del formato de la fuente de ticks de ejemplo.
+ */
+@ExtendWith(MockitoExtension.class)
+class FuentePreciosArchivoTest {
+
+    @Mock
+    private IngestaPrecios ingesta;
+
+    @Test
+    @DisplayName("Cada línea 'SIMBOLO,precio' se pasa a la ingesta en céntimos; el resto se ignora")
+    void parseaLineas() {
+        FuentePreciosArchivo fuente = new FuentePreciosArchivo(ingesta, "", false);
+        when(ingesta.publicar("BTC", 6_500_025L)).thenReturn(true);
+
+        assertTrue(fuente.procesar(" BTC, 65000.25 "));
+        assertFalse(fuente.procesar("# comentario"));
+        assertFalse(fuente.procesar(""));
+        assertFalse(fuente.procesar("ETH;3000"));
+        assertFalse(fuente.procesar("ETH,tres mil"));
+
+        verify(ingesta, times(1)).publicar(anyString(), anyLong());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.user_demo.data.catalogo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de la ingesta de ticks (la ventana se cierra a mano con aplicarVentana).
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IngestaPreciosTest {
+
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+
+    private IngestaPrecios ingesta;
+
+    @BeforeEach
+    void setUp() {
+        when(catalogo.porSimbolo("BTC")).thenReturn(new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L));
+        when(catalogo.porSimbolo("ETH")).thenReturn(new CotizacionCripto(2L, "Ethereum", "ETH", 300_000L, 8, 1L));
+        when(catalogo.porId(1L)).thenReturn(new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L));
+        when(catalogo.porId(2L)).thenReturn(new CotizacionCripto(2L, "Ethereum", "ETH", 300_000L, 8, 1L));
+
+        ingesta = new IngestaPrecios(catalogo, true, 3_600_000L); // El hilo no llega a cerrar ninguna ventana
+        ingesta.arrancar();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingesta.detener();
+    }
+
+    @Test
+    @DisplayName("Los ticks de una ventana se fusionan por cripto y se aplican en una sola escritura")
+    void fusionaPorCripto() {
+        for (int i = 1; i <= 1000; i++) {
+            assertTrue(ingesta.publicar("BTC", 5_000_000L + i));
+        }
+        ingesta.publicar("ETH", 310_000L);
+
+        assertEquals(2, ingesta.aplicarVentana());
+
+        verify(catalogo, times(1)).actualizarPrecios(Map.of(1L, 5_001_000L, 2L, 310_000L));
+        EstadisticasIngesta stats = ingesta.estadisticas();
+        assertEquals(1001, stats.recibidos());
+        assertEquals(999, stats.fusionados());
+        assertEquals(1, stats.ventanas());
+        assertEquals(0, ingesta.aplicarVentana(), "Nada pendiente: no se escribe");
+    }
+
+    @Test
+    @DisplayName("Símbolos desconocidos, precios no positivos y ticks sin cambio no llegan a la BD")
+    void descartaTicksInutiles() {
+        assertFalse(ingesta.publicar("DOGE", 10L));
+        assertFalse(ingesta.publicar("BTC", 0L));
+        assertTrue(ingesta.publicar("ETH", 300_000L)); // Mismo precio que ya está publicado
+
+        assertEquals(0, ingesta.aplicarVentana());
+        verify(catalogo, never()).actualizarPrecios(anyMap());
+        assertEquals(2, ingesta.estadisticas().rechazados());
+    }
+
+    @Test
+    @DisplayName("Si falla la escritura los precios vuelven a la cola sin pisar ticks más nuevos")
+    void reintentaTrasUnFallo() {
+        ingesta.publicar("BTC", 5_100_000L);
+        doThrow(new IllegalStateException("BD caída")).when(catalogo).actualizarPrecios(anyMap());
+
+        assertThrows(IllegalStateException.class, () -> ingesta.aplicarVentana());
+        ingesta.publicar("ETH", 320_000L);
+        doNothing().when(catalogo).actualizarPrecios(anyMap());
+
+        assertEquals(2, ingesta.aplicarVentana());
+        verify(catalogo).actualizarPrecios(Map.of(1L, 5_100_000L, 2L, 320_000L));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.user_demo.data.clasificacion;
+
+import com.example.user_demo.data.busqueda.IndiceUsuarios;
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.dto.PosicionesUsuario;
+import com.example.user_demo.data.dto.PuestoClasificacion;
+import com.example.user_demo.data.dto.SugerenciaUsuario;
+import com.example.user_demo.data.dto.TablaClasificacion;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.patrimonio.PatrimonioMaterializado;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de las clasificaciones contra un H2 en memoria (modo MySQL) con las tablas carteras y activos.
+ * Los usuarios avisados que PatrimonioMaterializado no tiene se releen de BD (todos salvo en el último test).
+ */
+class ClasificacionPatrimonioTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+    private static final Long BTC = 1L;
+    private static final Long ETH = 2L;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private final CatalogoCriptomonedas catalogo = mock(CatalogoCriptomonedas.class);
+    private final PatrimonioMaterializado patrimonio = mock(PatrimonioMaterializado.class);
+    private final IndiceUsuarios busqueda = mock(IndiceUsuarios.class);
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:clasificacion" + SECUENCIA.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE carteras (id_cartera BIGINT PRIMARY KEY, id_usuario BIGINT NOT NULL, balance_total DECIMAL(19, 2))");
+        jdbc.execute("CREATE TABLE activos (id_activo BIGINT AUTO_INCREMENT PRIMARY KEY, id_cartera BIGINT NOT NULL, "
+                + "id_cripto BIGINT NOT NULL, cantidad DECIMAL(38, 8))");
+        // Patrimonio con BTC a 100.000 y ETH a 3.000: usuario 3 = 100.000, 1 = 51.000, 2 = 30.500, 4 = 13.010, 5 = 0
+        jdbc.update("INSERT INTO carteras VALUES (10, 1, 600), (11, 1, 400), (20, 2, 500), (30, 3, 100000), "
+                + "(40, 4, 10), (50, 5, 0)");
+        jdbc.update("INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES "
+                + "(10, 1, 0.25), (11, 1, 0.25), (20, 2, 10), (40, 1, 0.1), (40, 2, 1), (50, 2, 0)");
+        precios(10_000_000L, 300_000L);
+        when(busqueda.isListo()).thenReturn(true);
+        when(busqueda.porId(3L)).thenReturn(new SugerenciaUsuario(3L, "Carla Vidal", "carla@email.com"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private void precios(long btc, long eth) {
+        when(catalogo.todas()).thenReturn(List.of(
+                new CotizacionCripto(BTC, "Bitcoin", "BTC", btc, 8, 1L),
+                new CotizacionCripto(ETH, "Ethereum", "ETH", eth, 8, 1L)));
+    }
+
+    private ClasificacionPatrimonio clasificacion(int puestos, int holgura) {
+        return new ClasificacionPatrimonio(jdbc, catalogo, patrimonio, busqueda, true, puestos, holgura, 1_000L, 600_000L, 0L);
+    }
+
+    private static List<Long> ids(TablaClasificacion tabla) {
+        return tabla.puestos().stream().map(PuestoClasificacion::idUsuario).toList();
+    }
+
+    @Test
+    @DisplayName("El recálculo ordena por patrimonio y por unidades de cada cripto, sin los que no tienen nada")
+    void recalculoDesdeBd() {
+        ClasificacionPatrimonio clasificacion = clasificacion(3, 1);
+        assertThrows(IllegalStateException.class, () -> clasificacion.patrimonio(10));
+
+        clasificacion.recalcular();
+
+        TablaClasificacion ricos = clasificacion.patrimonio(10);
+        assertEquals(List.of(3L, 1L, 2L), ids(ricos), "Solo se publican los 'puestos' configurados");
+        assertTrue(ricos.isExacta());
+        assertEquals(new PuestoClasificacion(1, 3L, "Carla Vidal", 10_000_000L), ricos.puestos().get(0));
+        assertEquals(5_100_000L, ricos.puestos().get(1).valor());
+        assertEquals(List.of(3L, 1L), ids(clasificacion.patrimonio(2)));
+
+        TablaClasificacion btc = clasificacion.tenedores(BTC, 10);
+        assertEquals(List.of(1L, 4L), ids(btc));
+        assertEquals(Importe.UNIDAD_CRIPTO / 2, btc.puestos().get(0).valor(), "Suma las dos carteras del usuario");
+        assertEquals(List.of(2L, 4L), ids(clasificacion.tenedores(ETH, 10)));
+        assertEquals(List.of(), clasificacion.tenedores(99L, 10).puestos());
+    }
+
+    @Test
+    @DisplayName("Los avisos confirmados se aplican en la siguiente actualización; los deshechos no")
+    void avisosTrasCommit() {
+        ClasificacionPatrimonio clasificacion = clasificacion(3, 1);
+        clasificacion.recalcular();
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        tx.executeWithoutResult(status -> {
+            jdbc.update("UPDATE carteras SET balance_total = 100500 WHERE id_cartera = 20");
+            clasificacion.usuariosCambiados(2L);
+            status.setRollbackOnly();
+        });
+        clasificacion.actualizar();
+        assertEquals(List.of(3L, 1L, 2L), ids(clasificacion.patrimonio(10)));
+
+        tx.executeWithoutResult(status -> {
+            jdbc.update("UPDATE carteras SET balance_total = 100500 WHERE id_cartera = 20");
+            jdbc.update("UPDATE activos SET cantidad = 0 WHERE id_cartera = 40 AND id_cripto = 2");
+            clasificacion.usuariosCambiados(2L, 4L);
+        });
+        assertEquals(List.of(3L, 1L, 2L), ids(clasificacion.patrimonio(10)), "Hasta la actualización se lee la instantánea");
+        clasificacion.actualizar();
+        assertEquals(List.of(2L, 3L, 1L), ids(clasificacion.patrimonio(10)));
+        assertEquals(List.of(2L), ids(clasificacion.tenedores(ETH, 10)), "El usuario 4 ya no tiene ETH");
+
+        jdbc.update("DELETE FROM carteras WHERE id_usuario = 3");
+        clasificacion.usuarioEliminado(3L);
+        clasificacion.actualizar();
+        assertEquals(List.of(2L, 1L, 4L), ids(clasificacion.patrimonio(10)));
+        assertTrue(clasificacion.patrimonio(10).isExacta());
+    }
+
+    @Test
+    @DisplayName("Una subida de precio puede adelantar a alguien de fuera: la tabla deja de ser exacta hasta recalcular")
+    void subidaDePrecio() {
+        ClasificacionPatrimonio clasificacion = clasificacion(2, 0);
+        clasificacion.recalcular();
+        assertEquals(List.of(3L, 1L), ids(clasificacion.patrimonio(10)));
+        assertTrue(clasificacion.patrimonio(10).isExacta());
+
+        // ETH de 3.000 a 8.000: el usuario 2 (fuera de la tabla, 10 ETH) pasa a valer 80.500
+        precios(10_000_000L, 800_000L);
+        clasificacion.preciosActualizados(List.of(new CotizacionCripto(ETH, "Ethereum", "ETH", 800_000L, 8, 2L)), 2L);
+        clasificacion.actualizar();
+
+        TablaClasificacion ricos = clasificacion.patrimonio(10);
+        assertEquals(1, ricos.exactos(), "El primero sigue garantizado; el segundo ya no");
+        assertFalse(ricos.isExacta());
+        assertTrue(clasificacion.patrimonio(1).isExacta());
+
+        clasificacion.recalcular();
+        assertEquals(List.of(3L, 2L), ids(clasificacion.patrimonio(10)));
+        assertEquals(8_050_000L, clasificacion.patrimonio(10).puestos().get(1).valor());
+        assertTrue(clasificacion.patrimonio(10).isExacta());
+    }
+
+    @Test
+    @DisplayName("Los avisados que ya están en el patrimonio materializado se valoran en memoria, sin BD")
+    void conPatrimonioMaterializado() {
+        ClasificacionPatrimonio clasificacion = clasificacion(3, 1);
+        clasificacion.recalcular();
+        when(patrimonio.posicionesMaterializadas(7L))
+                .thenReturn(new PosicionesUsuario(7L, 20_000_000L, Map.of(BTC, Importe.UNIDAD_CRIPTO)));
+
+        clasificacion.usuariosCambiados(7L);
+        clasificacion.actualizar();
+
+        assertEquals(new PuestoClasificacion(1, 7L, null, 30_000_000L), clasificacion.patrimonio(10).puestos().get(0));
+        assertEquals(List.of(7L, 1L, 4L), ids(clasificacion.tenedores(BTC, 10)));
+        verify(patrimonio).posicionesMaterializadas(7L);
+    }
+}
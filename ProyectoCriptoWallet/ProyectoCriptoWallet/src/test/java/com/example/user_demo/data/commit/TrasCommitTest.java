@@ -0,0 +1,97 @@
+package com.example.user_demo.data.commit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de las acciones tras el commit y del contador de cambios en vuelo.
+ */
+class TrasCommitTest {
+
+    private DriverManagerDataSource dataSource;
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:trascommit;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    @Test
+    @DisplayName("Sin transacción se ejecuta al momento; dentro, al confirmar y en orden de registro")
+    void ejecutaAlConfirmar() {
+        List<String> ejecutadas = new ArrayList<>();
+        TrasCommit.ejecutar(() -> ejecutadas.add("sin transacción"));
+        assertEquals(List.of("sin transacción"), ejecutadas);
+
+        tx.executeWithoutResult(status -> {
+            TrasCommit.ejecutar(() -> ejecutadas.add("primera"));
+            TrasCommit.ejecutar(() -> ejecutadas.add("segunda"));
+            assertEquals(1, ejecutadas.size());
+        });
+        assertEquals(List.of("sin transacción", "primera", "segunda"), ejecutadas);
+    }
+
+    @Test
+    @DisplayName("Con rollback no se ejecuta la acción, pero sí 'alTerminar'")
+    void rollbackSoloTermina() {
+        List<String> ejecutadas = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            TrasCommit.ejecutar(() -> ejecutadas.add("acción"), () -> ejecutadas.add("terminada"));
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of("terminada"), ejecutadas);
+    }
+
+    @Test
+    @DisplayName("Un fallo tras el commit no llega al llamante ni impide las demás acciones")
+    void falloTrasCommit() {
+        List<String> ejecutadas = new ArrayList<>();
+        assertDoesNotThrow(() -> tx.executeWithoutResult(status -> {
+            TrasCommit.ejecutar(() -> {
+                throw new IllegalStateException("fallo");
+            }, () -> ejecutadas.add("terminada"));
+            TrasCommit.ejecutar(() -> ejecutadas.add("siguiente"));
+        }));
+        assertEquals(List.of("terminada", "siguiente"), ejecutadas);
+    }
+
+    @Test
+    @DisplayName("La marca deja de ser estable si hay un cambio en vuelo o se aplica alguno después")
+    void cambiosEnVuelo() {
+        CambiosEnVuelo cambios = new CambiosEnVuelo();
+        CambiosEnVuelo.Marca inicial = cambios.marca();
+        assertTrue(cambios.estable(inicial));
+
+        tx.executeWithoutResult(status -> {
+            cambios.trasCommit(() -> { });
+            assertFalse(cambios.estable(cambios.marca())); // En vuelo
+        });
+        assertFalse(cambios.estable(inicial));            // Se aplicó después de la marca
+        assertTrue(cambios.estable(cambios.marca()));
+
+        CambiosEnVuelo.Marca antesDelRollback = cambios.marca();
+        tx.executeWithoutResult(status -> {
+            cambios.trasCommit(() -> fail("No debe aplicarse"));
+            status.setRollbackOnly();
+        });
+        assertFalse(cambios.estable(antesDelRollback));
+        assertTrue(cambios.estable(cambios.marca()));     // El rollback también cierra el cambio
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.user_demo.data.enrutado;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del enrutado lectura/escritura con dos H2 en memoria haciendo de primaria y réplica.
+ * Cada una tiene una tabla 'origen' con su nombre, así se ve a cuál ha ido cada consulta.
+ */
+class DataSourceEnrutadoTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private JdbcTemplate primaria;
+    private JdbcTemplate replica;
+    private DataSourceEnrutado enrutado;
+    private LecturasTrasEscritura lecturas;
+    private JdbcTemplate aplicacion;
+    private TransactionTemplate escritura;
+    private TransactionTemplate lectura;
+
+    @BeforeEach
+    void setUp() {
+        int n = SECUENCIA.incrementAndGet();
+        primaria = new JdbcTemplate(h2("primaria" + n));
+        replica = new JdbcTemplate(h2("replica" + n));
+        primaria.execute("CREATE TABLE origen (nombre VARCHAR(20))");
+        primaria.update("INSERT INTO origen VALUES ('PRIMARIA')");
+        replica.execute("CREATE TABLE origen (nombre VARCHAR(20))");
+        replica.update("INSERT INTO origen VALUES ('REPLICA')");
+
+        lecturas = new LecturasTrasEscritura(60_000);
+        enrutado = new DataSourceEnrutado(primaria.getDataSource(), replica.getDataSource(), lecturas);
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(enrutado);
+        aplicacion = new JdbcTemplate(proxy);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+        escritura = new TransactionTemplate(transactionManager);
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ContextoLectura.limpiar();
+        primaria.execute("SHUTDOWN");
+        replica.execute("SHUTDOWN");
+    }
+
+    private static DriverManagerDataSource h2(String nombre) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private String origenEn(TransactionTemplate plantilla) {
+        return plantilla.execute(status -> aplicacion.queryForObject("SELECT nombre FROM origen", String.class));
+    }
+
+    @Test
+    @DisplayName("Las transacciones readOnly van a la réplica; las de escritura y sin transacción, a la primaria")
+    void enrutaPorTipoDeTransaccion() {
+        assertEquals("REPLICA", origenEn(lectura));
+        assertEquals("PRIMARIA", origenEn(escritura));
+        assertEquals("PRIMARIA", aplicacion.queryForObject("SELECT nombre FROM origen", String.class));
+    }
+
+    @Test
+    @DisplayName("Mientras una transacción lee de la réplica se anota en ContextoLectura, y se borra al terminar")
+    void anotaLecturaDeReplica() {
+        lectura.executeWithoutResult(status -> {
+            assertFalse(ContextoLectura.leeDeReplica(), "La conexión aún no se ha elegido");
+            aplicacion.queryForObject("SELECT nombre FROM origen", String.class);
+            assertTrue(ContextoLectura.leeDeReplica());
+        });
+        assertFalse(ContextoLectura.leeDeReplica());
+
+        escritura.executeWithoutResult(status -> {
+            aplicacion.queryForObject("SELECT nombre FROM origen", String.class);
+            assertFalse(ContextoLectura.leeDeReplica());
+        });
+    }
+
+    @Test
+    @DisplayName("Tras escribir, el usuario lee de la primaria durante la ventana; los demás siguen en la réplica")
+    void lecturaPropiaTrasEscritura() {
+        escritura.executeWithoutResult(status -> {
+            aplicacion.update("UPDATE origen SET nombre = 'PRIMARIA'");
+            lecturas.escrituraDe(1L, 2L);
+            assertFalse(lecturas.debeLeerDePrimaria(1L), "Solo cuenta desde el commit");
+        });
+
+        ContextoLectura.fijar(1L);
+        assertEquals("PRIMARIA", origenEn(lectura));
+        ContextoLectura.fijar(2L);
+        assertEquals("PRIMARIA", origenEn(lectura));
+        ContextoLectura.fijar(3L);
+        assertEquals("REPLICA", origenEn(lectura));
+        ContextoLectura.limpiar();
+        assertEquals("REPLICA", origenEn(lectura));
+    }
+
+    @Test
+    @DisplayName("Las cargas dentro de enPrimaria leen de la primaria aunque su transacción sea readOnly")
+    void cargaEnPrimaria() {
+        assertEquals("PRIMARIA", ContextoLectura.enPrimaria(() -> origenEn(lectura)));
+        assertFalse(ContextoLectura.soloPrimaria());
+        assertEquals("REPLICA", origenEn(lectura));
+    }
+
+    @Test
+    @DisplayName("Las escrituras caducadas se barren aunque esos usuarios no vuelvan a leer")
+    void barreCaducadas() throws InterruptedException {
+        LecturasTrasEscritura corta = new LecturasTrasEscritura(20);
+        for (long id = 1; id <= 100; id++) {
+            corta.escrituraDe(id);
+        }
+        Thread.sleep(40);
+        corta.escrituraDe(500L);
+
+        assertEquals(1, corta.getUsuariosEnPrimaria());
+        assertTrue(corta.debeLeerDePrimaria(500L));
+    }
+
+    @Test
+    @DisplayName("Una escritura deshecha no fija al usuario en la primaria")
+    void rollbackNoAnota() {
+        escritura.executeWithoutResult(status -> {
+            lecturas.escrituraDe(1L);
+            status.setRollbackOnly();
+        });
+
+        ContextoLectura.fijar(1L);
+        assertEquals("REPLICA", origenEn(lectura));
+    }
+
+    @Test
+    @DisplayName("El latido marca la réplica como no disponible si se retrasa y la recupera al ponerse al día")
+    void vigilanteRetraso() {
+        VigilanteReplica vigilante = new VigilanteReplica(primaria, replica, enrutado, 1_000, 500);
+
+        // La réplica aún no tiene la tabla de latidos: no se puede medir
+        assertEquals(-1, vigilante.comprobar(System.currentTimeMillis()));
+        assertFalse(enrutado.isReplicaDisponible());
+        assertEquals("PRIMARIA", origenEn(lectura));
+        assertEquals(1, primaria.queryForObject("SELECT COUNT(*) FROM latidos_replicacion", Integer.class));
+
+        // Réplica con un latido de hace un minuto: demasiado retrasada
+        replica.execute("CREATE TABLE latidos_replicacion (id INT PRIMARY KEY, instante_ms BIGINT NOT NULL)");
+        replica.update("INSERT INTO latidos_replicacion VALUES (1, ?)", System.currentTimeMillis() - 60_000);
+        assertTrue(vigilante.comprobar(System.currentTimeMillis()) >= 60_000);
+        assertFalse(enrutado.isReplicaDisponible());
+
+        // Se pone al día
+        replica.update("UPDATE latidos_replicacion SET instante_ms = ? WHERE id = 1", System.currentTimeMillis());
+        assertTrue(vigilante.comprobar(System.currentTimeMillis()) < 1_000);
+        assertTrue(enrutado.isReplicaDisponible());
+        assertEquals("REPLICA", origenEn(lectura));
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.user_demo.data.eventos;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.dto.CambioSaldo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test del difusor de eventos en directo con canales en memoria y escritores síncronos
+ * (salvo el del cliente lento, cuyas escrituras nunca llegan a ejecutarse).
+ */
+class DifusorEventosTest {
+
+    private static final CotizacionCripto BTC = new CotizacionCripto(1L, "Bitcoin", "BTC", 10_000_000L, 8, 1L);
+    private static final CotizacionCripto ETH = new CotizacionCripto(2L, "Ethereum", "ETH", 300_000L, 8, 1L);
+
+    private final CatalogoCriptomonedas catalogo = mock(CatalogoCriptomonedas.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DriverManagerDataSource dataSource;
+
+    /**
+     * Canal que guarda las tramas escritas.
+     */
+    private static class CanalPrueba implements DifusorEventos.Canal {
+
+        final List<byte[]> tramas = new ArrayList<>();
+        boolean cerrado;
+        boolean roto;
+
+        @Override
+        public void escribir(byte[] trama) throws IOException {
+            if (roto) {
+                throw new IOException("Broken pipe");
+            }
+            tramas.add(trama);
+        }
+
+        @Override
+        public void cerrar() {
+            cerrado = true;
+        }
+
+        String ultima() {
+            return new String(tramas.get(tramas.size() - 1), StandardCharsets.UTF_8);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:eventos;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        when(catalogo.version()).thenReturn(1L);
+        when(catalogo.todas()).thenReturn(List.of(BTC, ETH));
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    private DifusorEventos difusor(int maxSuscriptores) {
+        return new DifusorEventos(catalogo, objectMapper, Runnable::run, true, maxSuscriptores, 2, 1_000L, 25_000L);
+    }
+
+    @Test
+    @DisplayName("Al suscribirse se recibe el catálogo completo, serializado una sola vez por versión")
+    void catalogoAlConectar() {
+        DifusorEventos difusor = difusor(10);
+        CanalPrueba ana = new CanalPrueba();
+        CanalPrueba luis = new CanalPrueba();
+
+        difusor.suscribir(1L, ana);
+        difusor.suscribir(2L, luis);
+
+        assertTrue(ana.ultima().startsWith("event: precios\ndata: {\"version\":1,"), ana.ultima());
+        assertTrue(ana.ultima().contains("\"simbolo\":\"ETH\"") && ana.ultima().endsWith("}\n\n"), ana.ultima());
+        assertSame(ana.tramas.get(0), luis.tramas.get(0));
+        verify(catalogo, times(1)).todas();
+        assertEquals(2, difusor.getSuscriptores());
+    }
+
+    @Test
+    @DisplayName("Los cambios de precio se agrupan en un solo evento, el mismo para todos los suscriptores")
+    void preciosAgrupados() {
+        DifusorEventos difusor = difusor(10);
+        CanalPrueba ana = new CanalPrueba();
+        CanalPrueba luis = new CanalPrueba();
+        difusor.suscribir(1L, ana);
+        difusor.suscribir(2L, luis);
+
+        difusor.preciosActualizados(List.of(new CotizacionCripto(1L, "Bitcoin", "BTC", 10_100_000L, 8, 2L)), 2L);
+        difusor.preciosActualizados(List.of(new CotizacionCripto(1L, "Bitcoin", "BTC", 10_200_000L, 8, 3L),
+                new CotizacionCripto(2L, "Ethereum", "ETH", 310_000L, 8, 3L)), 3L);
+        difusor.difundirPrecios();
+        difusor.difundirPrecios(); // Nada pendiente: no se envía nada
+
+        assertEquals(2, ana.tramas.size());
+        String cambios = ana.ultima();
+        assertTrue(cambios.startsWith("event: precios\ndata: {\"version\":3,"), cambios);
+        assertTrue(cambios.contains("\"precioCentimos\":10200000") && !cambios.contains("10100000"), cambios);
+        assertSame(ana.tramas.get(1), luis.tramas.get(1));
+    }
+
+    @Test
+    @DisplayName("Los cambios de saldo van solo al usuario y tras el commit; un rollback no envía nada")
+    void saldoTrasCommit() {
+        DifusorEventos difusor = difusor(10);
+        CanalPrueba ana = new CanalPrueba();
+        CanalPrueba luis = new CanalPrueba();
+        difusor.suscribir(1L, ana);
+        difusor.suscribir(2L, luis);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        tx.executeWithoutResult(status -> {
+            difusor.saldoCambiado(1L, new CambioSaldo(10L, 1L, -5_000L, 0L));
+            status.setRollbackOnly();
+        });
+        assertEquals(1, ana.tramas.size());
+
+        tx.executeWithoutResult(status -> {
+            difusor.saldoCambiado(1L, new CambioSaldo(10L, 1L, 5_000L, -2_500L));
+            assertEquals(1, ana.tramas.size(), "Hasta el commit no se envía");
+        });
+        assertEquals("event: saldo\ndata: {\"idCartera\":10,\"idCripto\":1,\"unidades\":5000,\"centimos\":-2500}\n\n", ana.ultima());
+        assertEquals(1, luis.tramas.size());
+
+        difusor.saldoCambiado(3L, new CambioSaldo(30L, 1L, 1L, 0L)); // Sin suscriptores: se descarta
+    }
+
+    @Test
+    @DisplayName("Un cliente que no lee se desconecta al llenar su cola; uno que se ha ido, al fallar la escritura")
+    void clientesLentosYCaidos() {
+        List<Runnable> atascados = new ArrayList<>(); // Escrituras que nunca terminan
+        DifusorEventos difusor = new DifusorEventos(catalogo, objectMapper, atascados::add, true, 10, 2, 1_000L, 25_000L);
+        CanalPrueba lento = new CanalPrueba();
+        difusor.suscribir(1L, lento);
+
+        difusor.difundir("event: a\n\n".getBytes(StandardCharsets.UTF_8)); // Cola: catálogo + a
+        assertFalse(lento.cerrado);
+        difusor.difundir("event: b\n\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(lento.cerrado);
+        assertEquals(1, difusor.getDesconectadosLentos());
+        assertEquals(1, atascados.size(), "Un solo hilo escritor por suscriptor");
+        assertEquals(0, difusor.getSuscriptores());
+
+        DifusorEventos sincrono = difusor(10);
+        CanalPrueba caido = new CanalPrueba();
+        sincrono.suscribir(2L, caido);
+        caido.roto = true;
+        sincrono.difundir("event: c\n\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, sincrono.getSuscriptores());
+    }
+
+    @Test
+    @DisplayName("Por encima de 'max-suscriptores' se rechaza la conexión; una baja deja sitio")
+    void maximoDeSuscriptores() {
+        DifusorEventos difusor = difusor(2);
+        DifusorEventos.Suscripcion primera = difusor.suscribir(1L, new CanalPrueba());
+        difusor.suscribir(1L, new CanalPrueba()); // Otra pestaña del mismo usuario
+
+        assertThrows(IllegalStateException.class, () -> difusor.suscribir(2L, new CanalPrueba()));
+        primera.cancelar();
+        primera.cancelar();
+        assertEquals(1, difusor.getSuscriptores());
+        difusor.suscribir(2L, new CanalPrueba());
+        assertEquals(2, difusor.getSuscriptores());
+    }
+}
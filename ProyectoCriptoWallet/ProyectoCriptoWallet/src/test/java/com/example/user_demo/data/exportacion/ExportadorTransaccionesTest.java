@@ -0,0 +1,86 @@
+package com.example.user_demo.data.exportacion;
+
+import com.example.user_demo.data.dto.FilaTransaccion;
+import com.example.user_demo.data.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario de la exportación en streaming de transacciones.
+ */
+@ExtendWith(MockitoExtension.class)
+class ExportadorTransaccionesTest {
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime HASTA = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExportadorTransacciones exportador;
+    private final AtomicBoolean cerrado = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        exportador = new ExportadorTransacciones(transaccionRepository, transactionManager);
+    }
+
+    private void filas(FilaTransaccion... filas) {
+        when(transaccionRepository.streamFilasConArchivo(DESDE, HASTA)).thenReturn(Stream.of(filas).onClose(() -> cerrado.set(true)));
+    }
+
+    @Test
+    @DisplayName("CSV con cabecera, cantidades exactas y el stream cerrado al terminar")
+    void exportaCsv() throws IOException {
+        filas(new FilaTransaccion(1L, LocalDateTime.of(2025, 1, 2, 10, 30), 1L, 2L, "ETH", 150_000_000L),
+                new FilaTransaccion(2L, LocalDateTime.of(2025, 1, 3, 9, 0), 2L, 3L, "B,T", 1L));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        long n = exportador.exportar(DESDE, HASTA, FormatoExportacion.CSV, salida);
+
+        assertEquals(2, n);
+        assertEquals("id_transaccion,fecha,id_usuario_origen,id_usuario_destino,simbolo,cantidad\n"
+                + "1,2025-01-02T10:30,1,2,ETH,1.50000000\n"
+                + "2,2025-01-03T09:00,2,3,\"B,T\",0.00000001\n", salida.toString(StandardCharsets.UTF_8));
+        assertTrue(cerrado.get());
+    }
+
+    @Test
+    @DisplayName("NDJSON: un objeto por línea, con el texto escapado")
+    void exportaNdjson() throws IOException {
+        filas(new FilaTransaccion(7L, LocalDateTime.of(2025, 1, 2, 10, 30), 1L, 2L, "E\"T", 100_000_000L));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        exportador.exportar(DESDE, HASTA, FormatoExportacion.de("ndjson"), salida);
+
+        assertEquals("{\"idTransaccion\":7,\"fecha\":\"2025-01-02T10:30\",\"idUsuarioOrigen\":1,\"idUsuarioDestino\":2,"
+                + "\"simbolo\":\"E\\\"T\",\"cantidad\":\"1.00000000\"}\n", salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Rango o formato inválidos se rechazan antes de consultar")
+    void argumentosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> FormatoExportacion.de("xml"));
+        assertThrows(IllegalArgumentException.class,
+                () -> exportador.exportar(HASTA, DESDE, FormatoExportacion.CSV, new ByteArrayOutputStream()));
+        verify(transaccionRepository, never()).streamFilasConArchivo(any(), any());
+    }
+}
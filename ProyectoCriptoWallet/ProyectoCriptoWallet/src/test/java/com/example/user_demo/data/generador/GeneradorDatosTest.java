@@ -0,0 +1,162 @@
+package com.example.user_demo.data.generador;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.dto.InformeGeneracion;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test del generador de datos sintéticos contra H2 en memoria (modo MySQL) con el esquema mínimo de las
+ * tablas que rellena, y la fila de data.sql de cada una para comprobar que se añade a continuación.
+ */
+class GeneradorDatosTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private final CatalogoCriptomonedas catalogo = mock(CatalogoCriptomonedas.class);
+    private final VersionesUsuario versiones = mock(VersionesUsuario.class);
+    private final List<JdbcTemplate> abiertas = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        abiertas.forEach(jdbc -> jdbc.execute("SHUTDOWN"));
+    }
+
+    private JdbcTemplate baseDeDatos() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:generador" + SECUENCIA.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        abiertas.add(jdbc);
+        jdbc.execute("CREATE TABLE usuarios (id_usuario BIGINT AUTO_INCREMENT PRIMARY KEY, nombre VARCHAR(255), email VARCHAR(255) UNIQUE)");
+        jdbc.execute("CREATE TABLE historiales (id_historial BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "id_usuario BIGINT UNIQUE REFERENCES usuarios(id_usuario), detalle VARCHAR(255))");
+        jdbc.execute("CREATE TABLE criptomonedas (id_cripto BIGINT AUTO_INCREMENT PRIMARY KEY, nombre VARCHAR(255), "
+                + "simbolo VARCHAR(255) UNIQUE, precio_actual DECIMAL(19, 2), decimales INT)");
+        jdbc.execute("CREATE TABLE carteras (id_cartera BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "id_usuario BIGINT NOT NULL REFERENCES usuarios(id_usuario), balance_total DECIMAL(19, 2))");
+        jdbc.execute("CREATE TABLE activos (id_activo BIGINT PRIMARY KEY, id_cartera BIGINT NOT NULL REFERENCES carteras(id_cartera), "
+                + "id_cripto BIGINT NOT NULL REFERENCES criptomonedas(id_cripto), cantidad DECIMAL(38, 8))");
+        jdbc.execute("CREATE TABLE transacciones (id_transaccion BIGINT PRIMARY KEY, "
+                + "id_usuario_origen BIGINT NOT NULL REFERENCES usuarios(id_usuario), "
+                + "id_usuario_destino BIGINT NOT NULL REFERENCES usuarios(id_usuario), "
+                + "id_cripto BIGINT NOT NULL REFERENCES criptomonedas(id_cripto), cantidad DECIMAL(38, 8), fecha TIMESTAMP(6))");
+        jdbc.execute("CREATE SEQUENCE activos_seq START WITH 1000 INCREMENT BY 50");
+        jdbc.execute("CREATE SEQUENCE transacciones_seq START WITH 1000 INCREMENT BY 50");
+
+        jdbc.update("INSERT INTO usuarios (nombre, email) VALUES ('Ana López', 'ana@email.com')");
+        jdbc.update("INSERT INTO criptomonedas (nombre, simbolo, precio_actual, decimales) VALUES ('Bitcoin', 'BTC', 90000.00, 8)");
+        jdbc.update("INSERT INTO carteras (id_usuario, balance_total) VALUES (1, 1500.00)");
+        jdbc.update("INSERT INTO activos (id_activo, id_cartera, id_cripto, cantidad) VALUES (1, 1, 1, 0.05)");
+        return jdbc;
+    }
+
+    private GeneradorDatos generador(JdbcTemplate jdbc, int hilos) {
+        return new GeneradorDatos(jdbc, new DataSourceTransactionManager(jdbc.getDataSource()), catalogo, versiones,
+                false, 0, 0, 0, 42L, hilos, 365);
+    }
+
+    private long contar(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+
+    @Test
+    @DisplayName("Genera usuarios, carteras, activos y transacciones coherentes, a continuación de los existentes")
+    void generaDatosCoherentes() {
+        JdbcTemplate jdbc = baseDeDatos();
+
+        // Dos bloques de usuarios y tres de transacciones, el último de cada uno incompleto
+        InformeGeneracion informe = generador(jdbc, 2).generar(12_000, 25_000, 40, 7L);
+
+        assertEquals(2, informe.primerUsuario());
+        assertEquals(12_001, contar(jdbc, "SELECT COUNT(*) FROM usuarios"));
+        assertEquals(12_000, contar(jdbc, "SELECT COUNT(*) FROM historiales"));
+        assertEquals(41, contar(jdbc, "SELECT COUNT(*) FROM criptomonedas"));
+        assertEquals(informe.carteras() + 1, contar(jdbc, "SELECT COUNT(*) FROM carteras"));
+        assertEquals(informe.activos() + 1, contar(jdbc, "SELECT COUNT(*) FROM activos"));
+        assertEquals(25_000, contar(jdbc, "SELECT COUNT(*) FROM transacciones"));
+        assertTrue(informe.carteras() > 12_000 && informe.carteras() < 24_000, "La mayoría, una cartera: " + informe.carteras());
+
+        assertEquals(0, contar(jdbc, "SELECT COUNT(*) FROM usuarios u WHERE u.id_usuario > 1 AND NOT EXISTS "
+                + "(SELECT 1 FROM carteras c WHERE c.id_usuario = u.id_usuario)"), "Todos con al menos una cartera");
+        assertEquals(0, contar(jdbc, "SELECT COUNT(*) FROM transacciones WHERE id_usuario_origen = id_usuario_destino"));
+        assertEquals(0, contar(jdbc, "SELECT COUNT(*) FROM (SELECT id_cartera, id_cripto FROM activos "
+                + "GROUP BY id_cartera, id_cripto HAVING COUNT(*) > 1) repetidos"), "Una sola posición por cripto y cartera");
+        assertEquals(0, contar(jdbc, "SELECT COUNT(*) FROM transacciones t1 JOIN transacciones t2 "
+                + "ON t2.id_transaccion = t1.id_transaccion + 1 WHERE t2.fecha < t1.fecha"), "Fechas en el orden de los IDs");
+        assertEquals(1001, contar(jdbc, "SELECT MIN(id_transaccion) FROM transacciones"), "Por encima de la secuencia");
+
+        // Los contadores siguen por encima de lo generado
+        jdbc.update("INSERT INTO usuarios (nombre, email) VALUES ('Nuevo', 'nuevo@email.com')");
+        assertEquals(12_002, contar(jdbc, "SELECT id_usuario FROM usuarios WHERE email = 'nuevo@email.com'"));
+        assertTrue(contar(jdbc, "SELECT NEXT VALUE FOR transacciones_seq") > contar(jdbc, "SELECT MAX(id_transaccion) FROM transacciones") + 50);
+        assertTrue(contar(jdbc, "SELECT NEXT VALUE FOR activos_seq") > contar(jdbc, "SELECT MAX(id_activo) FROM activos") + 50);
+        verify(catalogo).recargar();
+        verify(versiones).listaCambiada();
+    }
+
+    @Test
+    @DisplayName("La actividad sigue una ley de potencias: pocos usuarios y criptos concentran las transacciones")
+    void leyDePotencias() {
+        JdbcTemplate jdbc = baseDeDatos();
+        generador(jdbc, 1).generar(10_000, 50_000, 100, 42L);
+
+        // El 1% de usuarios más activo envía mucho más que el 1% de las transacciones
+        long top = contar(jdbc, "SELECT SUM(n) FROM (SELECT COUNT(*) AS n FROM transacciones "
+                + "GROUP BY id_usuario_origen ORDER BY n DESC LIMIT 100) mas_activos");
+        assertTrue(top > 50_000 / 5, "Top 1% de emisores: " + top);
+
+        Map<String, Object> masUsada = jdbc.queryForMap("SELECT id_cripto, COUNT(*) AS n FROM transacciones "
+                + "GROUP BY id_cripto ORDER BY n DESC LIMIT 1");
+        assertEquals(1L, ((Number) masUsada.get("id_cripto")).longValue(), "La cripto más popular es la primera (BTC)");
+    }
+
+    @Test
+    @DisplayName("Misma semilla, mismo dataset, con cualquier número de hilos; otra semilla, otro")
+    void deterministaPorSemilla() {
+        JdbcTemplate uno = baseDeDatos();
+        JdbcTemplate cuatro = baseDeDatos();
+        JdbcTemplate otra = baseDeDatos();
+        generador(uno, 1).generar(11_000, 21_000, 20, 3L);
+        generador(cuatro, 4).generar(11_000, 21_000, 20, 3L);
+        generador(otra, 1).generar(11_000, 21_000, 20, 4L);
+
+        for (String consulta : List.of(
+                "SELECT id_usuario, nombre, email FROM usuarios ORDER BY id_usuario",
+                "SELECT id_cartera, id_usuario, balance_total FROM carteras ORDER BY id_cartera",
+                "SELECT id_activo, id_cartera, id_cripto, cantidad FROM activos ORDER BY id_activo",
+                "SELECT id_cripto, simbolo, precio_actual FROM criptomonedas ORDER BY id_cripto",
+                "SELECT id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad FROM transacciones ORDER BY id_transaccion")) {
+            assertEquals(uno.queryForList(consulta), cuatro.queryForList(consulta), consulta);
+        }
+        String transacciones = "SELECT id_usuario_origen, id_usuario_destino, cantidad FROM transacciones ORDER BY id_transaccion";
+        assertNotEquals(uno.queryForList(transacciones), otra.queryForList(transacciones));
+    }
+
+    @Test
+    @DisplayName("Tamaños no válidos: error antes de escribir nada")
+    void tamanosNoValidos() {
+        JdbcTemplate jdbc = baseDeDatos();
+        GeneradorDatos generador = generador(jdbc, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> generador.generar(0, 0, 10, 1L));
+        assertThrows(IllegalArgumentException.class, () -> generador.generar(1, 10, 10, 1L)); // Nadie a quien enviar
+        assertThrows(IllegalArgumentException.class, () -> generador.generar(10, -1, 10, 1L));
+        assertThrows(IllegalArgumentException.class, () -> new GeneradorDatos(jdbc, null, catalogo, versiones,
+                false, 0, 0, 0, 1L, -1, 365));
+        assertEquals(1, contar(jdbc, "SELECT COUNT(*) FROM usuarios"));
+    }
+}
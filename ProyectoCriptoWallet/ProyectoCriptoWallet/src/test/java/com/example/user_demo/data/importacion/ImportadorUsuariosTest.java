@@ -0,0 +1,131 @@
+package com.example.user_demo.data.importacion;
+
+import com.example.user_demo.data.busqueda.IndiceUsuarios;
+import com.example.user_demo.data.clasificacion.ClasificacionPatrimonio;
+import com.example.user_demo.data.dto.InformeImportacion;
+import com.example.user_demo.data.dto.ProgresoImportacion;
+import com.example.user_demo.data.versiones.VersionesUsuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test de la importación masiva contra un H2 en memoria (modo MySQL) con las tablas usuarios, historiales y carteras.
+ */
+class ImportadorUsuariosTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+    private JdbcTemplate jdbc;
+    private DataSourceTransactionManager transactionManager;
+    private IndiceUsuarios busqueda;
+    private final ClasificacionPatrimonio clasificacion = mock(ClasificacionPatrimonio.class);
+    private final VersionesUsuario versiones = mock(VersionesUsuario.class);
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:importacion" + SECUENCIA.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc.execute("CREATE TABLE usuarios (id_usuario BIGINT AUTO_INCREMENT PRIMARY KEY, nombre VARCHAR(255), email VARCHAR(255) UNIQUE)");
+        jdbc.execute("CREATE TABLE historiales (id_historial BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "id_usuario BIGINT UNIQUE REFERENCES usuarios(id_usuario), detalle VARCHAR(255))");
+        jdbc.execute("CREATE TABLE carteras (id_cartera BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "id_usuario BIGINT NOT NULL REFERENCES usuarios(id_usuario), balance_total DECIMAL(19, 2))");
+        jdbc.update("INSERT INTO usuarios (nombre, email) VALUES ('Ana López', 'ana@email.com')");
+        busqueda = new IndiceUsuarios(jdbc, true);
+        busqueda.cargar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private int filas(String tabla) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + tabla, Integer.class);
+    }
+
+    @Test
+    @DisplayName("Importa las filas válidas con historial y cartera y rechaza el resto con su línea")
+    void importaYRechaza() throws IOException {
+        String csv = """
+                nombre,email,saldoInicial,detalle
+                Pedro Ruiz,pedro@email.com,150.50,Alta partner
+                "Gómez, Marta",marta@email.com,,
+                Al,corto@email.com,10
+                Sin Email,no-es-un-email,10
+                Repetido,pedro@email.com,5
+                Ya Existe,ana@email.com,5
+
+                Saldo Malo,saldo@email.com,-3
+                Eva Sanz,eva@email.com,20
+                """;
+        List<ProgresoImportacion> avances = new ArrayList<>();
+
+        InformeImportacion informe = new ImportadorUsuarios(jdbc, transactionManager, busqueda, clasificacion, versiones, 2).importar(new StringReader(csv), avances::add);
+
+        assertEquals(8, informe.filasLeidas());
+        assertEquals(3, informe.importados());
+        assertEquals(5, informe.rechazadas());
+        assertEquals(List.of(4L, 5L, 6L, 9L, 7L),
+                informe.primerosRechazos().stream().map(InformeImportacion.FilaRechazada::linea).toList());
+        assertTrue(informe.primerosRechazos().get(2).motivo().contains("repetido"));
+        assertTrue(informe.primerosRechazos().get(4).motivo().contains("ya está registrado"));
+
+        assertEquals(4, filas("usuarios"));
+        assertEquals(3, filas("historiales"));
+        assertEquals(3, filas("carteras"));
+        assertEquals("Gómez, Marta", jdbc.queryForObject("SELECT nombre FROM usuarios WHERE email = 'marta@email.com'", String.class));
+        assertEquals(0, new BigDecimal("150.50").compareTo(jdbc.queryForObject(
+                "SELECT c.balance_total FROM carteras c JOIN usuarios u ON u.id_usuario = c.id_usuario WHERE u.email = 'pedro@email.com'",
+                BigDecimal.class)));
+        assertEquals("Alta partner", jdbc.queryForObject(
+                "SELECT h.detalle FROM historiales h JOIN usuarios u ON u.id_usuario = h.id_usuario WHERE u.email = 'pedro@email.com'",
+                String.class));
+
+        // Los importados llegan al autocompletado al confirmar su bloque
+        assertEquals(List.of("marta@email.com"),
+                busqueda.buscar("marta", 10, null).stream().map(u -> u.email()).toList());
+        assertEquals(1, busqueda.buscar("e", 10, null).size()); // "eva sanz" y "eva@email.com": el mismo usuario
+
+        // Bloques de 2: [pedro, marta] y [ana, eva]
+        assertEquals(2, avances.size());
+        assertEquals(3, avances.get(1).importados());
+    }
+
+    @Test
+    @DisplayName("Volumen: 20.000 usuarios en bloques de 1.000")
+    void volumen() throws IOException {
+        StringBuilder csv = new StringBuilder("nombre,email,saldoInicial\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("Usuario ").append(i).append(",usuario").append(i).append("@partner.com,").append(i % 500).append('\n');
+        }
+        AtomicInteger bloques = new AtomicInteger();
+
+        InformeImportacion informe = new ImportadorUsuarios(jdbc, transactionManager, busqueda, clasificacion, versiones, 1_000)
+                .importar(new StringReader(csv.toString()), p -> bloques.incrementAndGet());
+
+        assertEquals(20_000, informe.importados());
+        assertEquals(0, informe.rechazadas());
+        assertEquals(20, bloques.get());
+        assertEquals(20_001, filas("usuarios"));
+        assertEquals(20_000, filas("carteras"));
+        assertEquals(20_000, jdbc.queryForObject("SELECT COUNT(*) FROM historiales h JOIN carteras c ON c.id_usuario = h.id_usuario", Integer.class));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.user_demo.data.ledger;
+
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.model.Transaccion;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.CarteraRepository;
+import com.example.user_demo.data.repository.UsuarioRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del motor de ledger con la persistencia simulada.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LedgerEngineTest {
+
+    private static final long BTC = Importe.UNIDAD_CRIPTO;
+
+    @Mock
+    private LedgerPersistencia persistencia;
+    @Mock
+    private UsuarioRepository usuarioRepository;
+    @Mock
+    private CarteraRepository carteraRepository;
+
+    private LedgerEngine motor;
+    private CotizacionCripto btc;
+    private final List<Escritura> escritas = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        btc = new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L);
+
+        Usuario ana = new Usuario("Ana", "ana@test.com");
+        ana.setIdUsuario(1L);
+        Usuario luis = new Usuario("Luis", "luis@test.com");
+        luis.setIdUsuario(2L);
+        Cartera carteraAna = new Cartera(ana, 0.0);
+        carteraAna.setIdCartera(10L);
+        Cartera carteraLuis = new Cartera(luis, 0.0);
+        carteraLuis.setIdCartera(11L);
+
+        when(usuarioRepository.findById(1L)).thenReturn(Optional.of(ana));
+        when(usuarioRepository.findById(2L)).thenReturn(Optional.of(luis));
+        when(carteraRepository.findByUsuario(ana)).thenReturn(List.of(carteraAna));
+        when(carteraRepository.findByUsuario(luis)).thenReturn(List.of(carteraLuis));
+
+        // Ana tiene 1 BTC en la cartera 10; Luis tiene la cartera 11 vacía
+        when(persistencia.cargarCartera(10L)).thenAnswer(i -> {
+            EstadoCartera estado = new EstadoCartera(10L, 1L);
+            estado.posiciones.put(1L, new Posicion(10L, 1L, 100L, BTC));
+            return estado;
+        });
+        when(persistencia.cargarCartera(11L)).thenAnswer(i -> new EstadoCartera(11L, 2L));
+        doAnswer(i -> {
+            List<Escritura> lote = i.getArgument(0);
+            for (Escritura e : lote) {
+                if (e.tipo == Escritura.Tipo.CREDITO) {
+                    e.transaccion = new Transaccion();
+                }
+            }
+            escritas.addAll(lote);
+            return null;
+        }).when(persistencia).persistir(anyList());
+
+        motor = new LedgerEngine(persistencia, usuarioRepository, carteraRepository, true, 2, 100, 16, 50);
+        motor.arrancar();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        motor.detener();
+    }
+
+    @Test
+    @DisplayName("Motor: Transferencia válida persiste débito y crédito")
+    void transferir_Exitoso() throws Exception {
+        CompletableFuture<Transaccion> futuro = motor.transferir(1L, 2L, 10L, btc, BTC / 4, 1_250_000L);
+
+        assertNotNull(futuro.get(5, TimeUnit.SECONDS));
+        assertTrue(escritas.stream().anyMatch(e -> e.tipo == Escritura.Tipo.DEBITO && e.delta == -BTC / 4));
+        assertTrue(escritas.stream().anyMatch(e -> e.tipo == Escritura.Tipo.CREDITO && e.delta == BTC / 4));
+    }
+
+    @Test
+    @DisplayName("Motor: El saldo en memoria impide gastar dos veces las mismas unidades")
+    void transferir_SaldoInsuficiente() throws Exception {
+        motor.transferir(1L, 2L, 10L, btc, BTC * 3 / 4, 3_750_000L).get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<Transaccion> segundo = motor.transferir(1L, 2L, 10L, btc, BTC / 2, 2_500_000L);
+
+        CompletionException ex = assertThrows(CompletionException.class, segundo::join);
+        assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        assertTrue(ex.getCause().getMessage().contains("Saldo insuficiente"));
+    }
+
+    @Test
+    @DisplayName("Motor: Falla si la cartera no pertenece al usuario origen")
+    void transferir_CarteraAjena() {
+        CompletableFuture<Transaccion> futuro = motor.transferir(2L, 1L, 10L, btc, BTC / 10, 500_000L);
+
+        CompletionException ex = assertThrows(CompletionException.class, futuro::join);
+        assertInstanceOf(SecurityException.class, ex.getCause());
+        verify(persistencia, never()).persistir(anyList());
+    }
+
+    @Test
+    @DisplayName("Motor: Si el crédito no se puede persistir, se reembolsa al origen")
+    void transferir_CreditoFallidoReembolsa() throws InterruptedException {
+        doAnswer(i -> {
+            List<Escritura> lote = i.getArgument(0);
+            if (lote.stream().anyMatch(e -> e.tipo == Escritura.Tipo.CREDITO)) {
+                throw new IllegalStateException("BD caída");
+            }
+            escritas.addAll(lote);
+            return null;
+        }).when(persistencia).persistir(anyList());
+
+        CompletableFuture<Transaccion> futuro = motor.transferir(1L, 2L, 10L, btc, BTC / 4, 1_250_000L);
+
+        assertThrows(CompletionException.class, futuro::join);
+        esperarHasta(() -> escritas.stream().anyMatch(e -> e.tipo == Escritura.Tipo.REEMBOLSO && e.delta == BTC / 4));
+    }
+
+    @Test
+    @DisplayName("Motor: Al parar, el crédito de un débito en vuelo llega aunque su shard destino se pare antes")
+    void detener_EsperaCreditosEnVuelo() throws InterruptedException {
+        // Luis (cartera 11, shard 1) envía a Ana (cartera 10, shard 0): el débito va por el último shard
+        when(persistencia.cargarCartera(11L)).thenAnswer(i -> {
+            EstadoCartera estado = new EstadoCartera(11L, 2L);
+            estado.posiciones.put(1L, new Posicion(11L, 1L, 101L, BTC));
+            return estado;
+        });
+        doAnswer(i -> {
+            Thread.sleep(100); // El débito aún se está escribiendo cuando empieza la parada
+            List<Escritura> lote = i.getArgument(0);
+            lote.stream().filter(e -> e.tipo == Escritura.Tipo.CREDITO).forEach(e -> e.transaccion = new Transaccion());
+            escritas.addAll(lote);
+            return null;
+        }).when(persistencia).persistir(anyList());
+
+        CompletableFuture<Transaccion> futuro = motor.transferir(2L, 1L, 11L, btc, BTC / 4, 1_250_000L);
+        motor.detener();
+
+        assertTrue(futuro.isDone() && !futuro.isCompletedExceptionally());
+        assertTrue(escritas.stream().anyMatch(e -> e.tipo == Escritura.Tipo.CREDITO && e.posicion.idCartera == 10L));
+        // Tras la parada no se aceptan más transferencias
+        assertThrows(CompletionException.class, () -> motor.transferir(1L, 2L, 10L, btc, BTC / 4, 1_250_000L).join());
+    }
+
+    @Test
+    @DisplayName("Motor: Al arrancar acredita las transferencias debitadas que quedaron sin acreditar")
+    void arrancar_ReanudaPendientes() throws Exception {
+        motor.detener();
+        escritas.clear();
+        Transferencia pendiente = new Transferencia(1L, 2L, 10L, 11L, 1L, "BTC", "BTC", 0L,
+                BTC / 4, 1_250_000L, 77L, new CompletableFuture<>());
+        when(persistencia.transferenciasPendientes()).thenReturn(List.of(pendiente));
+
+        motor = new LedgerEngine(persistencia, usuarioRepository, carteraRepository, true, 2, 100, 16, 50);
+        motor.arrancar();
+
+        assertNotNull(pendiente.resultado().get(5, TimeUnit.SECONDS));
+        assertTrue(escritas.stream().anyMatch(e -> e.tipo == Escritura.Tipo.CREDITO
+                && e.transferencia.idPendiente() == 77L && e.posicion.idCartera == 11L));
+        assertTrue(escritas.stream().noneMatch(e -> e.tipo == Escritura.Tipo.DEBITO), "El débito ya estaba hecho");
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "La condición no se cumplió a tiempo");
+            Thread.sleep(20);
+        }
+    }
+}
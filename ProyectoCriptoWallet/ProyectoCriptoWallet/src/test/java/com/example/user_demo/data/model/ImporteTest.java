@@ -0,0 +1,45 @@
+package com.example.user_demo.data.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImporteTest {
+
+    @Test
+    @DisplayName("Conversión fiat -> cripto exacta y redondeada hacia abajo al cuanto de la cripto")
+    void fiatAUnidades() {
+        // $100 a $50000/BTC = 0.002 BTC
+        assertEquals(200_000L, Importe.fiatAUnidades(10_000L, 5_000_000L, 8));
+        // $100 a $3 -> 33.33333333, con 2 decimales se queda en 33.33
+        assertEquals(3_333_333_333L, Importe.fiatAUnidades(10_000L, 300L, 8));
+        assertEquals(3_333_000_000L, Importe.fiatAUnidades(10_000L, 300L, 2));
+        // $10.000 millones a $100 millones/unidad: el producto intermedio no cabe en long, el resultado sí
+        assertEquals(100L * 100_000_000L, Importe.fiatAUnidades(1_000_000_000_000L, 10_000_000_000L, 8));
+        assertThrows(IllegalArgumentException.class, () -> Importe.fiatAUnidades(100L, 0L, 8));
+    }
+
+    @Test
+    @DisplayName("Valoración sin pérdida: 0.1 + 0.2 ETH valen exactamente lo mismo que 0.3 ETH")
+    void valorEnCentimosSinDeriva() {
+        long eth = 300_000L; // $3000.00
+        long suma = Importe.sumar(Importe.unidadesDesde(0.1), Importe.unidadesDesde(0.2));
+        assertEquals(Importe.unidadesDesde(0.3), suma);
+        assertEquals(90_000L, Importe.valorEnCentimos(suma, eth));
+        assertThrows(ArithmeticException.class, () -> Importe.valorEnCentimos(Long.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Los conversores JPA guardan DECIMAL con la escala correcta")
+    void conversores() {
+        CantidadCriptoConverter cripto = new CantidadCriptoConverter();
+        ImporteFiatConverter fiat = new ImporteFiatConverter();
+
+        assertEquals("0.05000000", cripto.convertToDatabaseColumn(5_000_000L).toPlainString());
+        assertEquals(5_000_000L, cripto.convertToEntityAttribute(new java.math.BigDecimal("0.05")));
+        assertEquals("1500.00", fiat.convertToDatabaseColumn(150_000L).toPlainString());
+        assertEquals(150_000L, fiat.convertToEntityAttribute(new java.math.BigDecimal("1500.0")));
+        assertEquals(0L, fiat.convertToEntityAttribute(null));
+    }
+}
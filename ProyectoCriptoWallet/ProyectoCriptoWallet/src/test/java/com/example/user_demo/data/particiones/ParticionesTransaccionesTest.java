@@ -0,0 +1,152 @@
+package com.example.user_demo.data.particiones;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del archivado por meses contra un H2 en memoria (sin modo MySQL: el SQL debe ser estándar)
+ * con las tres tablas implicadas.
+ * Sin hilo: se llama a rodar/archivar a mano con una fecha fija.
+ */
+class ParticionesTransaccionesTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+    private static final LocalDate HOY = LocalDate.of(2026, 10, 18);
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ParticionesTransacciones particiones;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:particiones" + SECUENCIA.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        String columnas = "(id_transaccion BIGINT PRIMARY KEY, id_usuario_origen BIGINT NOT NULL, id_usuario_destino BIGINT NOT NULL, "
+                + "id_cripto BIGINT NOT NULL, cantidad DECIMAL(38, 8), fecha TIMESTAMP)";
+        jdbc.execute("CREATE TABLE transacciones " + columnas);
+        jdbc.execute("CREATE TABLE transacciones_archivo " + columnas);
+        jdbc.execute("CREATE TABLE particiones_transacciones (mes DATE PRIMARY KEY, estado VARCHAR(10) NOT NULL, "
+                + "filas_archivadas BIGINT NOT NULL, actualizada TIMESTAMP)");
+
+        // Retención de 12 meses con lotes de 2 filas: se archiva todo lo anterior a octubre de 2025
+        particiones = instancia(0);
+    }
+
+    private ParticionesTransacciones instancia(long limitesTtlMs) {
+        ParticionesTransacciones p = new ParticionesTransacciones(jdbc, new DataSourceTransactionManager(dataSource), true, 12, 60_000, 2, limitesTtlMs);
+        p.cargar();
+        return p;
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private void insertar(long id, String fecha) {
+        jdbc.update("INSERT INTO transacciones VALUES (?, 1, 2, 1, 0.5, ?)", id, LocalDateTime.parse(fecha));
+    }
+
+    private int filas(String tabla) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + tabla, Integer.class);
+    }
+
+    @Test
+    @DisplayName("Sin nada archivado todas las consultas van solo a la tabla caliente")
+    void sinArchivo() {
+        assertTrue(particiones.tocaCaliente(LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2001, 1, 1, 0, 0)));
+        assertFalse(particiones.tocaArchivo(LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2001, 1, 1, 0, 0)));
+        assertEquals(0, particiones.archivar(HOY));
+        assertNull(particiones.getInicioCaliente());
+    }
+
+    @Test
+    @DisplayName("Archiva por lotes los meses fuera de la retención y poda las consultas por rango")
+    void archivaMesesAntiguos() {
+        insertar(1, "2025-08-03T10:00:00");
+        insertar(2, "2025-08-31T23:59:59");
+        insertar(3, "2025-08-15T12:00:00");
+        insertar(4, "2025-09-30T08:00:00");
+        insertar(5, "2025-10-01T00:00:00"); // Primer mes dentro de la ventana
+        insertar(6, "2026-10-17T09:30:00");
+
+        assertEquals(4, particiones.archivar(HOY));
+
+        assertEquals(2, filas("transacciones"));
+        assertEquals(4, filas("transacciones_archivo"));
+        assertEquals(List.of(5L, 6L), jdbc.queryForList("SELECT id_transaccion FROM transacciones ORDER BY id_transaccion", Long.class));
+        assertEquals(3L, jdbc.queryForObject("SELECT filas_archivadas FROM particiones_transacciones WHERE mes = ?",
+                Long.class, LocalDate.of(2025, 8, 1)));
+        assertEquals(List.of("ARCHIVADA", "ARCHIVADA"),
+                jdbc.queryForList("SELECT estado FROM particiones_transacciones ORDER BY mes", String.class));
+
+        LocalDateTime octubre = LocalDateTime.of(2025, 10, 1, 0, 0);
+        assertEquals(octubre, particiones.getInicioCaliente());
+        assertEquals(octubre, particiones.getFinArchivo());
+
+        // Meses recientes: solo la tabla caliente
+        assertTrue(particiones.tocaCaliente(LocalDateTime.of(2026, 9, 1, 0, 0), LocalDateTime.of(2026, 10, 1, 0, 0)));
+        assertFalse(particiones.tocaArchivo(LocalDateTime.of(2026, 9, 1, 0, 0), LocalDateTime.of(2026, 10, 1, 0, 0)));
+        // Meses archivados: solo el archivo
+        assertFalse(particiones.tocaCaliente(LocalDateTime.of(2025, 8, 1, 0, 0), octubre));
+        assertTrue(particiones.tocaArchivo(LocalDateTime.of(2025, 8, 1, 0, 0), octubre));
+        // Rango que cruza el límite: las dos
+        assertTrue(particiones.tocaCaliente(LocalDateTime.of(2025, 9, 1, 0, 0), LocalDateTime.of(2025, 11, 1, 0, 0)));
+        assertTrue(particiones.tocaArchivo(LocalDateTime.of(2025, 9, 1, 0, 0), LocalDateTime.of(2025, 11, 1, 0, 0)));
+
+        // Idempotente: una segunda pasada no mueve nada
+        assertEquals(0, particiones.archivar(HOY));
+    }
+
+    @Test
+    @DisplayName("Otra instancia ve el mes archivado en cuanto caducan sus límites, sin reiniciar")
+    void otraInstanciaReleeLosLimites() throws InterruptedException {
+        ParticionesTransacciones otra = instancia(50);
+        LocalDateTime agosto = LocalDateTime.of(2025, 8, 1, 0, 0);
+        LocalDateTime octubre = LocalDateTime.of(2025, 10, 1, 0, 0);
+        assertFalse(otra.tocaArchivo(agosto, octubre));
+        insertar(1, "2025-08-03T10:00:00");
+
+        assertEquals(1, particiones.archivar(HOY));
+
+        Thread.sleep(60);
+        assertTrue(otra.tocaArchivo(agosto, octubre));
+        assertFalse(otra.tocaCaliente(agosto, LocalDateTime.of(2025, 9, 1, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("Rodar da de alta el mes actual y el siguiente una sola vez")
+    void rodarEsIdempotente() {
+        particiones.rodar(HOY);
+        particiones.rodar(HOY);
+
+        assertEquals(List.of(LocalDate.of(2026, 10, 1), LocalDate.of(2026, 11, 1)),
+                jdbc.queryForList("SELECT mes FROM particiones_transacciones ORDER BY mes", LocalDate.class));
+        particiones.cargar();
+        assertNull(particiones.getFinArchivo(), "Los meses activos no cuentan como archivo");
+    }
+
+    @Test
+    @DisplayName("Archivar un mes ya dado de alta cambia su estado en la misma fila")
+    void archivaMesYaDadoDeAlta() {
+        particiones.rodar(LocalDate.of(2025, 8, 10));
+        insertar(1, "2025-08-03T10:00:00");
+
+        assertEquals(1, particiones.archivar(HOY));
+        assertEquals(List.of("ARCHIVADA", "ACTIVA"),
+                jdbc.queryForList("SELECT estado FROM particiones_transacciones ORDER BY mes", String.class));
+    }
+}
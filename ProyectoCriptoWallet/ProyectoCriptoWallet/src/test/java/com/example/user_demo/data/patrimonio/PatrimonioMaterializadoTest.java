@@ -0,0 +1,144 @@
+package com.example.user_demo.data.patrimonio;
+
+import com.example.user_demo.data.dto.ValoracionCartera;
+import com.example.user_demo.data.model.Activo;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.repository.ActivoRepository;
+import com.example.user_demo.data.repository.CarteraRepository;
+import com.example.user_demo.data.repository.CriptomonedaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del patrimonio materializado (sin transacción activa los deltas se aplican al momento).
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PatrimonioMaterializadoTest {
+
+    private static final long BTC = Importe.UNIDAD_CRIPTO;
+
+    @Mock
+    private CarteraRepository carteraRepository;
+    @Mock
+    private ActivoRepository activoRepository;
+    @Mock
+    private CriptomonedaRepository criptomonedaRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PatrimonioMaterializado patrimonio;
+    private Criptomoneda btc;
+    private Cartera carteraAna;
+
+    @BeforeEach
+    void setUp() {
+        btc = new Criptomoneda("Bitcoin", "BTC", 50000.0);
+        btc.setIdCripto(1L);
+        Usuario ana = new Usuario("Ana", "ana@test.com");
+        ana.setIdUsuario(1L);
+        carteraAna = new Cartera(ana, 1500.0);
+        carteraAna.setIdCartera(10L);
+
+        when(criptomonedaRepository.findAll()).thenReturn(List.of(btc));
+        when(carteraRepository.findByUsuario_IdUsuarioInOrderByIdCarteraAsc(List.of(1L))).thenReturn(List.of(carteraAna));
+        when(activoRepository.findByCartera_IdCarteraIn(anyCollection())).thenReturn(List.of(new Activo(carteraAna, btc, BTC)));
+
+        patrimonio = new PatrimonioMaterializado(carteraRepository, activoRepository, criptomonedaRepository, transactionManager, true, 1000);
+    }
+
+    @Test
+    @DisplayName("El usuario se lee de BD una sola vez; las consultas siguientes salen de memoria")
+    void cargaUnaVez() {
+        assertEquals(5_150_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+        assertEquals(5_150_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+
+        verify(carteraRepository, times(1)).findByUsuario_IdUsuarioInOrderByIdCarteraAsc(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Los deltas de unidades, fiat y carteras se aplican sin volver a la BD")
+    void aplicaDeltas() {
+        patrimonio.valoracionUsuario(1L);
+
+        patrimonio.moverUnidades(10L, 1L, -BTC / 2);   // Envía 0.5 BTC
+        patrimonio.moverFiat(10L, -50_000L);            // Invierte $500...
+        patrimonio.moverUnidades(10L, 1L, BTC / 100);   // ...en 0.01 BTC
+        patrimonio.carteraCreada(11L, 1L, 20_000L);
+
+        List<ValoracionCartera> carteras = patrimonio.valoracionCarteras(1L);
+        assertEquals(2, carteras.size());
+        assertEquals(100_000L, carteras.get(0).balanceCentimos());
+        assertEquals(2_550_000L, carteras.get(0).valorActivosCentimos());
+        assertEquals(2_670_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+
+        patrimonio.carteraEliminada(10L);
+        assertEquals(20_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+        verify(carteraRepository, times(1)).findByUsuario_IdUsuarioInOrderByIdCarteraAsc(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Un cambio de precio revaloriza a los tenedores de esa cripto")
+    void revalorizaConElPrecio() {
+        patrimonio.valoracionUsuario(1L);
+
+        patrimonio.precioActualizado(1L, 6_000_000L); // BTC a $60.000
+
+        assertEquals(6_150_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+    }
+
+    @Test
+    @DisplayName("Al pasarse del máximo se olvida al usuario usado hace más tiempo, que se vuelve a leer de BD")
+    void olvidaAlMenosUsado() {
+        patrimonio = new PatrimonioMaterializado(carteraRepository, activoRepository, criptomonedaRepository, transactionManager, true, 1);
+        Usuario beto = new Usuario("Beto", "beto@test.com");
+        beto.setIdUsuario(2L);
+        Cartera carteraBeto = new Cartera(beto, 100.0);
+        carteraBeto.setIdCartera(20L);
+        when(carteraRepository.findByUsuario_IdUsuarioInOrderByIdCarteraAsc(List.of(2L))).thenReturn(List.of(carteraBeto));
+        when(activoRepository.findByCartera_IdCarteraIn(Set.of(20L))).thenReturn(List.of());
+
+        patrimonio.valoracionUsuario(1L);
+        assertEquals(10_000L, patrimonio.valoracionUsuario(2L).patrimonioCentimos());
+        assertNull(patrimonio.posicionesMaterializadas(1L));
+
+        patrimonio.moverFiat(10L, -50_000L); // Ya no está materializado: no se aplica en memoria
+        assertEquals(5_150_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+        verify(carteraRepository, times(2)).findByUsuario_IdUsuarioInOrderByIdCarteraAsc(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("verificar() detecta la deriva respecto a los Activos y la corrige si se pide")
+    void verificaYCorrige() {
+        patrimonio.valoracionUsuario(1L);
+        assertTrue(patrimonio.verificar(false).isConsistente());
+
+        // Alguien cambia la BD sin pasar por el servicio
+        when(activoRepository.findByCartera_IdCarteraIn(anyCollection())).thenReturn(List.of(new Activo(carteraAna, btc, 2 * BTC)));
+
+        InformeVerificacion informe = patrimonio.verificar(false);
+        assertEquals(List.of(1L), informe.usuariosConDeriva());
+        assertEquals(5_150_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+
+        assertFalse(patrimonio.verificar(true).isConsistente());
+        assertEquals(10_150_000L, patrimonio.valoracionUsuario(1L).patrimonioCentimos());
+        assertTrue(patrimonio.verificar(false).isConsistente());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Activo;
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.model.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de integración de la resta condicional de saldo contra H2: dos transferencias del mismo activo
+ * no pueden gastar las mismas unidades. Sin transacción de test: cada resta va en la suya.
+ */
+@PruebaRepositorio
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ActivoRepositoryTest {
+
+    private static final long UNA = Importe.UNIDAD_CRIPTO;
+
+    @Autowired
+    private ActivoRepository repository;
+    @Autowired
+    private CarteraRepository carteraRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private CriptomonedaRepository criptomonedaRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cartera cartera;
+    private Long idActivo;
+
+    @BeforeEach
+    void setUp() {
+        Usuario ana = usuarioRepository.save(new Usuario("Ana", "ana@email.com"));
+        Criptomoneda eth = criptomonedaRepository.save(new Criptomoneda("Ethereum", "ETH", 3000.0));
+        cartera = carteraRepository.save(new Cartera(ana, 0.0));
+        idActivo = repository.save(new Activo(cartera, eth, 2 * UNA)).getIdActivo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+        carteraRepository.deleteAll();
+        criptomonedaRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    private int restar(long unidades) {
+        return new TransactionTemplate(transactionManager).execute(status -> repository.restarSiAlcanza(idActivo, unidades));
+    }
+
+    @Test
+    @DisplayName("Resta mientras alcanza y no deja el saldo en negativo")
+    void restaSoloSiAlcanza() {
+        assertEquals(1, restar(UNA + UNA / 2));
+        assertEquals(0, restar(UNA), "Quedan 0,5: no alcanza");
+        assertEquals(UNA / 2, repository.findUnidades(idActivo).orElseThrow());
+        assertEquals(1, restar(UNA / 2), "Justo el saldo: alcanza");
+        assertEquals(0L, repository.findUnidades(idActivo).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Dos restas concurrentes del mismo saldo: solo una se aplica")
+    void restasConcurrentes() throws Exception {
+        CountDownLatch restada = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+        CompletableFuture<Integer> primera = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    int filas = repository.restarSiAlcanza(idActivo, UNA + UNA / 2);
+                    restada.countDown();
+                    try {
+                        confirmar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return filas;
+                }));
+        assertTrue(restada.await(5, TimeUnit.SECONDS));
+        // La segunda espera al bloqueo de fila de la primera y evalúa la condición sobre el saldo ya restado
+        CompletableFuture<Integer> segunda = CompletableFuture.supplyAsync(() -> restar(UNA + UNA / 2));
+        Thread.sleep(200);
+        confirmar.countDown();
+
+        assertEquals(1, primera.get(5, TimeUnit.SECONDS));
+        assertEquals(0, segunda.get(5, TimeUnit.SECONDS));
+        assertEquals(UNA / 2, repository.findUnidades(idActivo).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("El lote lee los activos de sus carteras bloqueados y en orden de ID")
+    void bloqueaLosActivosDelLote() {
+        List<Activo> activos = new TransactionTemplate(transactionManager)
+                .execute(status -> repository.bloquearDeCarteras(List.of(cartera.getIdCartera())));
+        assertEquals(List.of(idActivo), activos.stream().map(Activo::getIdActivo).toList());
+        assertEquals(2 * UNA, activos.get(0).getUnidades());
+    }
+}
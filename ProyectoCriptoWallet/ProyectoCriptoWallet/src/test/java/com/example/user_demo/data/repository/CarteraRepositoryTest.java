@@ -0,0 +1,59 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Cartera;
+import com.example.user_demo.data.model.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de integración de la resta condicional de fiat contra H2: el importe en céntimos pasa por el
+ * conversor del balance. Sin transacción de test: cada resta va en la suya.
+ */
+@PruebaRepositorio
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CarteraRepositoryTest {
+
+    @Autowired
+    private CarteraRepository repository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long idCartera;
+
+    @BeforeEach
+    void setUp() {
+        Usuario ana = usuarioRepository.save(new Usuario("Ana", "ana@email.com"));
+        idCartera = repository.save(new Cartera(ana, 100.0)).getIdCartera();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    private int restar(long centimos) {
+        return new TransactionTemplate(transactionManager).execute(status -> repository.restarSiAlcanza(idCartera, centimos));
+    }
+
+    @Test
+    @DisplayName("Resta fiat mientras alcanza y no deja el balance en negativo")
+    void restaSoloSiAlcanza() {
+        assertEquals(1, restar(6_000L));
+        assertEquals(0, restar(6_000L), "Quedan 40$: no alcanza");
+        assertEquals(4_000L, repository.findBalance(idCartera).orElseThrow());
+        assertEquals(1, restar(4_000L), "Justo el balance: alcanza");
+        assertEquals(0L, repository.findBalance(idCartera).orElseThrow());
+    }
+}
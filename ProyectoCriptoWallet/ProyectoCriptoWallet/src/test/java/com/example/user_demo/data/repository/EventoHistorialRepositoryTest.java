@@ -0,0 +1,119 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.EventoHistorial;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de integración del outbox del historial contra H2: el despachador reclama por fecha y
+ * con FOR UPDATE SKIP LOCKED. Sin transacción de test: cada reclamación va en la suya.
+ */
+@PruebaRepositorio
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventoHistorialRepositoryTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private EventoHistorialRepository repository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    private EventoHistorial guardar(LocalDateTime fecha) {
+        EventoHistorial evento = new EventoHistorial(1L, 2L, "BTC", 100L, 1L);
+        evento.setFecha(fecha);
+        return repository.save(evento);
+    }
+
+    private List<Long> reclamar(int cuantos) {
+        return new TransactionTemplate(transactionManager).execute(status -> ids(repository.reclamarPendientes(cuantos)));
+    }
+
+    private static List<Long> ids(List<EventoHistorial> eventos) {
+        return eventos.stream().map(EventoHistorial::getIdEvento).toList();
+    }
+
+    @Test
+    @DisplayName("Reclama en orden de fecha de la transferencia, no de ID")
+    void reclamaPorFecha() {
+        // IDs en orden de guardado, fechas no: con secuencias con pool pasa entre nodos
+        EventoHistorial tercero = guardar(AHORA.plusSeconds(2));
+        EventoHistorial primero = guardar(AHORA);
+        EventoHistorial segundo = guardar(AHORA.plusSeconds(1));
+
+        assertEquals(List.of(primero.getIdEvento(), segundo.getIdEvento(), tercero.getIdEvento()), reclamar(10));
+        assertEquals(List.of(primero.getIdEvento()), reclamar(1));
+    }
+
+    @Test
+    @DisplayName("Encuentra los pendientes de los usuarios del lote que no están en él, hasta su última fecha")
+    void pendientesFueraDelLote() {
+        EventoHistorial primero = guardar(AHORA);
+        EventoHistorial segundo = guardar(AHORA.plusSeconds(1));
+        guardar(AHORA.plusSeconds(2));
+        EventoHistorial otroUsuario = new EventoHistorial(7L, 8L, "BTC", 100L, 1L);
+        otroUsuario.setFecha(AHORA);
+        repository.save(otroUsuario);
+
+        List<EventoHistorial> fuera = repository.findPendientesFueraDelLote(
+                List.of(2L), segundo.getFecha(), List.of(segundo.getIdEvento()));
+
+        assertEquals(List.of(primero.getIdEvento()), ids(fuera));
+    }
+
+    @Test
+    @DisplayName("Lo que otro despachador tiene reclamado se salta en vez de esperar o repetirlo")
+    void saltaLasFilasReclamadas() throws Exception {
+        EventoHistorial primero = guardar(AHORA);
+        EventoHistorial segundo = guardar(AHORA.plusSeconds(1));
+        EventoHistorial tercero = guardar(AHORA.plusSeconds(2));
+
+        CountDownLatch reclamadas = new CountDownLatch(1);
+        CountDownLatch terminar = new CountDownLatch(1);
+        CompletableFuture<List<Long>> otroNodo = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    List<Long> suyas = ids(repository.reclamarPendientes(1));
+                    reclamadas.countDown();
+                    try {
+                        terminar.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return suyas;
+                }));
+        List<Long> nuestras;
+        try {
+            assertTrue(reclamadas.await(5, TimeUnit.SECONDS));
+            // Sin SKIP LOCKED esperaría al otro nodo y fallaría por timeout de bloqueo. H2 bloquea todas las filas
+            // que lee para ordenar (MySQL, con el índice por fecha, solo las devueltas): aquí basta con no repetir
+            nuestras = reclamar(10);
+        } finally {
+            terminar.countDown();
+        }
+        assertEquals(List.of(primero.getIdEvento()), otroNodo.get(5, TimeUnit.SECONDS));
+        assertFalse(nuestras.contains(primero.getIdEvento()));
+        assertTrue(List.of(segundo.getIdEvento(), tercero.getIdEvento()).containsAll(nuestras));
+
+        // Liberadas, vuelven a estar disponibles
+        assertEquals(List.of(primero.getIdEvento(), segundo.getIdEvento(), tercero.getIdEvento()), reclamar(10));
+    }
+}
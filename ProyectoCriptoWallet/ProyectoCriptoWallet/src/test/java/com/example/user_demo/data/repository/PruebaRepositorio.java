@@ -0,0 +1,28 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.particiones.ParticionesTransacciones;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Test de repositorio sobre H2 en memoria (perfil "h2"): entidades, repositorios y las consultas
+ * nativas y JDBC tal y como se ejecutan en la aplicación. Incluye ParticionesTransacciones porque
+ * TransaccionesPorRangoImpl la necesita para decidir qué tablas leer.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(ParticionesTransacciones.class)
+public @interface PruebaRepositorio {
+}
@@ -0,0 +1,57 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.Importe;
+import com.example.user_demo.data.model.Transaccion;
+import com.example.user_demo.data.model.Usuario;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test de la semilla de secuencias contra H2: una base de datos con ids de la época IDENTITY.
+ */
+@PruebaRepositorio
+@Import(SemillaSecuencias.class)
+class SemillaSecuenciasTest {
+
+    @Autowired
+    private SemillaSecuencias semilla;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private CriptomonedaRepository criptomonedaRepository;
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Test
+    @DisplayName("Los ids nuevos empiezan después del MAX(id) existente y una segunda pasada no cambia nada")
+    void subeLaSecuenciaPorEncimaDeLosIdsExistentes() {
+        Usuario ana = usuarioRepository.save(new Usuario("Ana", "ana@test.com"));
+        Usuario luis = usuarioRepository.save(new Usuario("Luis", "luis@test.com"));
+        Criptomoneda btc = criptomonedaRepository.save(new Criptomoneda("Bitcoin", "BTC", 50000.0));
+        // Fila insertada cuando el id lo daba AUTO_INCREMENT, muy por encima del initialValue de la secuencia
+        jdbcTemplate.update("INSERT INTO transacciones (id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha) "
+                + "VALUES (5000, ?, ?, ?, 0.1, ?)", ana.getIdUsuario(), luis.getIdUsuario(), btc.getIdCripto(), LocalDateTime.now());
+
+        semilla.sembrar();
+        semilla.sembrar();
+
+        assertThat(siguienteValor()).isEqualTo(5000 + SemillaSecuencias.POOL);
+        Transaccion nueva = transaccionRepository.save(new Transaccion(ana, luis, btc, Importe.unidadesDesde(0.2)));
+        assertThat(nueva.getIdTransaccion()).isEqualTo(5001L);
+    }
+
+    private long siguienteValor() {
+        return jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'TRANSACCIONES_SEQ'", Long.class);
+    }
+}
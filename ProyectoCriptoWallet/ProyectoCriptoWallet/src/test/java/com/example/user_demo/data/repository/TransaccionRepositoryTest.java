@@ -0,0 +1,147 @@
+package com.example.user_demo.data.repository;
+
+import com.example.user_demo.data.dto.ClaveTransaccion;
+import com.example.user_demo.data.model.Criptomoneda;
+import com.example.user_demo.data.model.TransaccionArchivada;
+import com.example.user_demo.data.model.Usuario;
+import com.example.user_demo.data.particiones.ParticionesTransacciones;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test de integración de la página por cursor del historial contra H2: UNION ALL de origen y destino
+ * sobre la tabla caliente y, si el rango lo alcanza, sobre el archivo; y del SQL del archivado que
+ * mueve los meses antiguos. Sin transacción de test: el archivado confirma sus lotes en transacciones propias.
+ */
+@PruebaRepositorio
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransaccionRepositoryTest {
+
+    private static final LocalDate HOY = LocalDate.of(2026, 10, 18);
+    private static final LocalDateTime RECIENTE = LocalDateTime.of(2026, 10, 1, 12, 0);
+    private static final LocalDateTime ANTIGUA = LocalDateTime.of(2023, 5, 1, 12, 0);
+    private static final LocalDateTime SIN_CURSOR = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    @Autowired
+    private TransaccionRepository repository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private CriptomonedaRepository criptomonedaRepository;
+    @Autowired
+    private ParticionesTransacciones particiones;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private long ana;
+    private long luis;
+    private long carla;
+    private long btc;
+
+    @BeforeEach
+    void setUp() {
+        ana = usuarioRepository.save(new Usuario("Ana", "ana@email.com")).getIdUsuario();
+        luis = usuarioRepository.save(new Usuario("Luis", "luis@email.com")).getIdUsuario();
+        carla = usuarioRepository.save(new Usuario("Carla", "carla@email.com")).getIdUsuario();
+        btc = criptomonedaRepository.save(new Criptomoneda("Bitcoin", "BTC", 90000.0)).getIdCripto();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM transacciones");
+        jdbc.update("DELETE FROM transacciones_archivo");
+        jdbc.update("DELETE FROM particiones_transacciones");
+        criptomonedaRepository.deleteAll();
+        usuarioRepository.deleteAll();
+    }
+
+    private void insertar(long id, long origen, long destino, LocalDateTime fecha) {
+        jdbc.update("INSERT INTO transacciones (id_transaccion, id_usuario_origen, id_usuario_destino, id_cripto, cantidad, fecha) "
+                + "VALUES (?, ?, ?, ?, 0.5, ?)", id, origen, destino, btc, fecha);
+    }
+
+    private static List<Long> ids(List<ClaveTransaccion> claves) {
+        return claves.stream().map(ClaveTransaccion::idTransaccion).toList();
+    }
+
+    @Test
+    @DisplayName("Une enviadas y recibidas por fecha e ID, sin duplicar las que el usuario se envía a sí mismo")
+    void paginaDeEnviadasYRecibidas() {
+        insertar(1, ana, luis, RECIENTE);
+        insertar(2, luis, ana, RECIENTE); // Misma fecha: desempata el ID
+        insertar(3, ana, ana, RECIENTE.plusHours(1));
+        insertar(4, luis, carla, RECIENTE.plusHours(2)); // De otros usuarios
+        insertar(5, carla, ana, RECIENTE.minusDays(1));
+
+        List<ClaveTransaccion> primera = repository.paginaPorUsuario(ana, SIN_CURSOR, Long.MAX_VALUE, 3);
+        assertEquals(List.of(3L, 2L, 1L), ids(primera));
+        assertTrue(primera.stream().noneMatch(ClaveTransaccion::archivada));
+
+        ClaveTransaccion ultima = primera.get(2);
+        assertEquals(List.of(5L), ids(repository.paginaPorUsuario(ana, ultima.fecha(), ultima.idTransaccion(), 3)));
+    }
+
+    @Test
+    @DisplayName("El archivado copia los meses antiguos a transacciones_archivo, los borra de la tabla caliente y los anota")
+    void archivaMesesAntiguos() {
+        insertar(1, ana, luis, ANTIGUA);
+        insertar(2, luis, ana, ANTIGUA.plusDays(2));
+        insertar(3, carla, ana, ANTIGUA.plusMonths(1));
+        insertar(4, ana, carla, RECIENTE); // Dentro de la retención
+
+        assertEquals(3, particiones.archivar(HOY));
+
+        assertEquals(List.of(4L), jdbc.queryForList("SELECT id_transaccion FROM transacciones", Long.class));
+        assertEquals(List.of(1L, 2L, 3L), jdbc.queryForList(
+                "SELECT id_transaccion FROM transacciones_archivo ORDER BY id_transaccion", Long.class));
+        Map<String, Object> copiada = jdbc.queryForMap(
+                "SELECT id_usuario_origen, id_usuario_destino, id_cripto FROM transacciones_archivo WHERE id_transaccion = 2");
+        assertEquals(luis, ((Number) copiada.get("id_usuario_origen")).longValue());
+        assertEquals(ana, ((Number) copiada.get("id_usuario_destino")).longValue());
+        assertEquals(btc, ((Number) copiada.get("id_cripto")).longValue());
+        assertEquals(ANTIGUA.plusDays(2), jdbc.queryForObject(
+                "SELECT fecha FROM transacciones_archivo WHERE id_transaccion = 2", LocalDateTime.class));
+
+        // Un mes por fila del mapa, ya ARCHIVADA y con sus filas contadas
+        assertEquals(List.of("ARCHIVADA:2", "ARCHIVADA:1"), jdbc.queryForList(
+                "SELECT CONCAT(estado, ':', filas_archivadas) FROM particiones_transacciones ORDER BY mes", String.class));
+        assertEquals(LocalDateTime.of(2023, 7, 1, 0, 0), particiones.getInicioCaliente());
+        assertEquals(LocalDateTime.of(2023, 7, 1, 0, 0), particiones.getFinArchivo());
+
+        assertEquals(0, particiones.archivar(HOY), "Volver a archivar no mueve nada");
+    }
+
+    @Test
+    @DisplayName("Cuando la página llega a meses archivados sigue por el archivo con el mismo cursor")
+    void paginaQueLlegaAlArchivo() {
+        insertar(10, ana, luis, RECIENTE);
+        insertar(11, luis, ana, RECIENTE.minusDays(1));
+        insertar(1, ana, carla, ANTIGUA);
+        insertar(2, carla, ana, ANTIGUA.minusDays(1));
+        insertar(3, luis, carla, ANTIGUA); // De otros usuarios
+
+        assertEquals(3, particiones.archivar(HOY));
+
+        List<ClaveTransaccion> primera = repository.paginaPorUsuario(ana, SIN_CURSOR, Long.MAX_VALUE, 3);
+        assertEquals(List.of(10L, 11L, 1L), ids(primera));
+        assertEquals(List.of(false, false, true), primera.stream().map(ClaveTransaccion::archivada).toList());
+        assertEquals(ANTIGUA, primera.get(2).fecha());
+
+        List<ClaveTransaccion> segunda = repository.paginaPorUsuario(ana, ANTIGUA, 1L, 3);
+        assertEquals(List.of(2L), ids(segunda));
+        assertEquals(List.of(1L, 2L), repository.archivadasDeUsuario(ana).stream().map(TransaccionArchivada::getIdTransaccion).toList());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.user_demo.data.tenedores;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del índice de tenedores contra un H2 en memoria (modo MySQL) con las tablas carteras y activos.
+ * Los cambios se aplican sin transacción (en el acto) salvo en el test del rollback.
+ */
+class IndiceTenedoresTest {
+
+    private static final AtomicInteger SECUENCIA = new AtomicInteger();
+    private static final Long BTC = 1L;
+    private static final Long ETH = 2L;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private IndiceTenedores indice;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:tenedores" + SECUENCIA.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE carteras (id_cartera BIGINT PRIMARY KEY, id_usuario BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE activos (id_activo BIGINT AUTO_INCREMENT PRIMARY KEY, id_cartera BIGINT NOT NULL, "
+                + "id_cripto BIGINT NOT NULL, cantidad DECIMAL(38, 8))");
+        // Usuario 5: dos carteras con BTC; usuario 3: BTC y ETH a cero; usuario 9: ETH
+        jdbc.update("INSERT INTO carteras VALUES (10, 5), (11, 5), (30, 3), (90, 9)");
+        jdbc.update("INSERT INTO activos (id_cartera, id_cripto, cantidad) VALUES "
+                + "(10, 1, 0.5), (11, 1, 1.25), (30, 1, 2), (30, 2, 0), (90, 2, 3)");
+
+        indice = new IndiceTenedores(jdbc, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @Test
+    @DisplayName("La carga desde BD agrupa por cripto, en orden de usuario y sin contar activos a cero")
+    void cargaDesdeBd() {
+        assertFalse(indice.isListo());
+        assertThrows(IllegalStateException.class, () -> indice.contarTenedores(BTC));
+
+        indice.reconstruir();
+
+        assertTrue(indice.isListo());
+        assertArrayEquals(new long[]{3, 5}, indice.tenedores(BTC));
+        assertArrayEquals(new long[]{9}, indice.tenedores(ETH));
+        assertEquals(0, indice.contarTenedores(99L));
+        assertFalse(indice.esTenedor(3L, ETH));
+    }
+
+    @Test
+    @DisplayName("Solo las transiciones desde o hacia cero cambian el índice; el usuario sale con su última cartera")
+    void transiciones() {
+        indice.reconstruir();
+
+        indice.posicionCambiada(3L, ETH, 0L, 100L);
+        indice.posicionCambiada(9L, ETH, 300L, 100L); // Sigue teniendo
+        assertArrayEquals(new long[]{3, 9}, indice.tenedores(ETH));
+
+        indice.posicionCambiada(5L, BTC, 50L, 0L); // Le queda la otra cartera
+        assertTrue(indice.esTenedor(5L, BTC));
+        indice.posicionCambiada(5L, BTC, 125L, 0L);
+        assertFalse(indice.esTenedor(5L, BTC));
+        assertEquals(1, indice.contarTenedores(BTC));
+
+        indice.posicionCambiada(4L, BTC, 0L, 7L); // Entra en medio del array
+        indice.posicionCambiada(1L, BTC, 0L, 7L);
+        assertArrayEquals(new long[]{1, 3, 4}, indice.tenedores(BTC));
+
+        indice.usuarioEliminado(3L);
+        assertArrayEquals(new long[]{1, 4}, indice.tenedores(BTC));
+        assertArrayEquals(new long[]{9}, indice.tenedores(ETH));
+    }
+
+    @Test
+    @DisplayName("Un cambio dentro de una transacción solo se aplica si hace commit")
+    void soloTrasCommit() {
+        indice.reconstruir();
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        tx.executeWithoutResult(status -> {
+            indice.posicionCambiada(7L, ETH, 0L, 1L);
+            status.setRollbackOnly();
+        });
+        assertFalse(indice.esTenedor(7L, ETH));
+
+        tx.executeWithoutResult(status -> {
+            indice.posicionCambiada(7L, ETH, 0L, 1L);
+            assertFalse(indice.esTenedor(7L, ETH), "Aún sin confirmar");
+        });
+        assertTrue(indice.esTenedor(7L, ETH));
+    }
+
+    @Test
+    @DisplayName("Consulta de tenedores por debajo del milisegundo con 200.000 usuarios")
+    void volumen() {
+        indice.reconstruir();
+        for (long id = 1_000; id < 201_000; id++) {
+            indice.posicionCambiada(id, BTC, 0L, 1L);
+        }
+
+        long inicio = System.nanoTime();
+        int total = 0;
+        for (int i = 0; i < 1_000; i++) {
+            total += indice.contarTenedores(BTC);
+            assertTrue(indice.esTenedor(150_000L + i, BTC));
+        }
+        long mediaNs = (System.nanoTime() - inicio) / 1_000;
+
+        assertEquals(1_000 * 200_002, total);
+        assertTrue(mediaNs < 1_000_000, "Media por consulta: " + mediaNs + " ns");
+        assertEquals(200_002, indice.tenedores(BTC).length);
+    }
+}
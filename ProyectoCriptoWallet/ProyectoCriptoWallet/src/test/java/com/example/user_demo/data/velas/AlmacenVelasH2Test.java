@@ -0,0 +1,113 @@
+package com.example.user_demo.data.velas;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.model.Vela;
+import com.example.user_demo.data.repository.PruebaRepositorio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de integración del volcado de velas contra H2: el MERGE ... KEY escribe cada vela cerrada
+ * una sola vez aunque ya estuviera guardada, y lo volcado se recarga al arrancar.
+ */
+@PruebaRepositorio
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AlmacenVelasH2Test {
+
+    private static final long MINUTO = 60_000L;
+    private static final long BASE = 1_700_006_400_000L; // Múltiplo de un día
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private CatalogoCriptomonedas catalogo;
+    private AlmacenVelas almacen;
+
+    @BeforeEach
+    void setUp() {
+        catalogo = mock(CatalogoCriptomonedas.class);
+        CotizacionCripto btc = new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L);
+        when(catalogo.porSimbolo("BTC")).thenReturn(btc);
+        when(catalogo.todas()).thenReturn(List.of(btc));
+        almacen = new AlmacenVelas(catalogo, jdbc, true, 3, 24, 30, 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM velas");
+    }
+
+    private Map<String, Object> velaM1(long inicioMs) {
+        return jdbc.queryForMap("SELECT apertura, maximo, minimo, cierre, muestras FROM velas "
+                + "WHERE id_cripto = 1 AND resolucion = 'M1' AND inicio_ms = ?", inicioMs);
+    }
+
+    private static long valor(Map<String, Object> fila, String columna) {
+        return ((Number) fila.get(columna)).longValue();
+    }
+
+    @Test
+    @DisplayName("Vuelca solo las velas cerradas, con sus valores OHLC")
+    void vuelcaVelasCerradas() {
+        almacen.registrar(1L, BASE + 1_000, 100);
+        almacen.registrar(1L, BASE + 2_000, 130);
+        almacen.registrar(1L, BASE + 3_000, 90);
+        almacen.registrar(1L, BASE + MINUTO, 120); // Abre la vela siguiente
+
+        assertEquals(1, almacen.volcar(BASE + MINUTO + 1));
+
+        Map<String, Object> vela = velaM1(BASE);
+        assertEquals(100, valor(vela, "apertura"));
+        assertEquals(130, valor(vela, "maximo"));
+        assertEquals(90, valor(vela, "minimo"));
+        assertEquals(90, valor(vela, "cierre"));
+        assertEquals(3, valor(vela, "muestras"));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM velas", Integer.class));
+        assertEquals(0, almacen.volcar(BASE + MINUTO + 2), "Lo ya volcado no se repite");
+    }
+
+    @Test
+    @DisplayName("Volcar una vela que ya estaba guardada actualiza su fila en vez de fallar por clave duplicada")
+    void reescribeLaMismaFila() {
+        jdbc.update("INSERT INTO velas (id_cripto, resolucion, inicio_ms, apertura, maximo, minimo, cierre, muestras) "
+                + "VALUES (1, 'M1', ?, 100, 100, 100, 100, 1)", BASE);
+        almacen.registrar(1L, BASE + 1_000, 100);
+        almacen.registrar(1L, BASE + 2_000, 150);
+
+        assertEquals(1, almacen.volcar(BASE + MINUTO));
+
+        Map<String, Object> vela = velaM1(BASE);
+        assertEquals(150, valor(vela, "maximo"));
+        assertEquals(150, valor(vela, "cierre"));
+        assertEquals(2, valor(vela, "muestras"));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM velas", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Un almacén nuevo recarga de la tabla las velas volcadas")
+    void recargaAlArrancar() {
+        almacen.registrar(1L, BASE + 1_000, 100);
+        almacen.registrar(1L, BASE + MINUTO + 1_000, 120);
+        almacen.volcar(BASE + 2 * MINUTO);
+
+        AlmacenVelas reiniciado = new AlmacenVelas(catalogo, jdbc, true, 3, 24, 30, 60_000L);
+        reiniciado.precargar();
+
+        SerieVelas m1 = reiniciado.velas("BTC", Vela.Resolucion.M1, BASE, Long.MAX_VALUE);
+        assertEquals(2, m1.tamano());
+        assertArrayEquals(new long[]{100, 120}, m1.cierre());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.user_demo.data.velas;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import com.example.user_demo.data.catalogo.CotizacionCripto;
+import com.example.user_demo.data.model.Vela;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test Unitario del almacén de velas (sin hilo de volcado: se llama a volcar a mano).
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AlmacenVelasTest {
+
+    private static final long MINUTO = 60_000L;
+    private static final long BASE = 1_700_006_400_000L; // Múltiplo de un día
+
+    @Mock
+    private CatalogoCriptomonedas catalogo;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AlmacenVelas almacen;
+
+    @BeforeEach
+    void setUp() {
+        when(catalogo.porSimbolo("BTC")).thenReturn(new CotizacionCripto(1L, "Bitcoin", "BTC", 5_000_000L, 8, 1L));
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("MySQL");
+        almacen = new AlmacenVelas(catalogo, jdbcTemplate, true, 3, 24, 30, 60_000L);
+    }
+
+    @Test
+    @DisplayName("Los precios de un mismo minuto forman una vela OHLC")
+    void agregaOhlc() {
+        almacen.registrar(1L, BASE + 1_000, 100);
+        almacen.registrar(1L, BASE + 2_000, 130);
+        almacen.registrar(1L, BASE + 3_000, 90);
+        almacen.registrar(1L, BASE + 4_000, 110);
+        almacen.registrar(1L, BASE + MINUTO, 120);
+
+        SerieVelas m1 = almacen.velas("BTC", Vela.Resolucion.M1, BASE, Long.MAX_VALUE);
+        assertEquals(2, m1.tamano());
+        assertArrayEquals(new long[]{100, 120}, m1.apertura());
+        assertArrayEquals(new long[]{130, 120}, m1.maximo());
+        assertArrayEquals(new long[]{90, 120}, m1.minimo());
+        assertArrayEquals(new long[]{110, 120}, m1.cierre());
+        assertArrayEquals(new long[]{4, 1}, m1.muestras());
+
+        SerieVelas h1 = almacen.velas("BTC", Vela.Resolucion.H1, BASE, Long.MAX_VALUE);
+        assertEquals(1, h1.tamano());
+        assertEquals(90, h1.minimo()[0]);
+        assertEquals(120, h1.cierre()[0]);
+    }
+
+    @Test
+    @DisplayName("El anillo conserva solo las últimas velas y precioEn cae a una resolución más gruesa")
+    void anilloCircular() {
+        for (int i = 0; i < 5; i++) {
+            almacen.registrar(1L, BASE + i * MINUTO, 100 + i);
+        }
+
+        SerieVelas m1 = almacen.velas("BTC", Vela.Resolucion.M1, 0, Long.MAX_VALUE);
+        assertArrayEquals(new long[]{BASE + 2 * MINUTO, BASE + 3 * MINUTO, BASE + 4 * MINUTO}, m1.inicio());
+        assertEquals(103, almacen.precioEn("BTC", BASE + 3 * MINUTO + 30_000));
+        // El minuto 0 ya salió del anillo de 1m: responde la vela horaria (cierre = último precio)
+        assertEquals(104, almacen.precioEn("BTC", BASE));
+        assertEquals(-1, almacen.precioEn("BTC", BASE - 1));
+    }
+
+    @Test
+    @DisplayName("Cada vela cerrada se vuelca una sola vez y la abierta espera a cerrarse")
+    @SuppressWarnings("unchecked")
+    void vuelcaCerradasUnaVez() {
+        almacen.registrar(1L, BASE, 100);
+        almacen.registrar(1L, BASE + MINUTO, 101);
+
+        assertEquals(1, almacen.volcar(BASE + MINUTO + 1));
+        ArgumentCaptor<List<Object[]>> filas = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), filas.capture());
+        Object[] fila = filas.getValue().get(0);
+        assertEquals(1L, fila[0]);
+        assertEquals("M1", fila[1]);
+        assertEquals(BASE, fila[2]);
+
+        assertEquals(0, almacen.volcar(BASE + MINUTO + 2));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+
+        // Pasado el día se cierran la de 1m restante, la horaria y la diaria
+        assertEquals(3, almacen.volcar(BASE + 86_400_000L));
+    }
+
+    @Test
+    @DisplayName("Al arrancar se recargan las velas guardadas; registrar precios después no lee de BD")
+    @SuppressWarnings("unchecked")
+    void precargaAlArrancar() {
+        CotizacionCripto btc = catalogo.porSimbolo("BTC");
+        when(catalogo.todas()).thenReturn(List.of(btc));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L), eq("M1"), eq(3)))
+                .thenReturn(List.of(new long[]{BASE, 100, 110, 90, 105, 4}));
+
+        almacen.precargar();
+        clearInvocations(jdbcTemplate);
+        almacen.registrar(1L, BASE + MINUTO, 120);
+        almacen.registrar(2L, BASE + MINUTO, 7); // Cripto dada de alta después: anillos vacíos
+
+        assertArrayEquals(new long[]{105, 120}, almacen.velas("BTC", Vela.Resolucion.M1, BASE, Long.MAX_VALUE).cierre());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Consultar una cripto desconocida lanza NoSuchElementException")
+    void criptoDesconocida() {
+        assertThrows(NoSuchElementException.class,
+                () -> almacen.velas("XXX", Vela.Resolucion.D1, 0, Long.MAX_VALUE));
+        assertTrue(almacen.velas("BTC", Vela.Resolucion.D1, 0, Long.MAX_VALUE).isVacia());
+    }
+}
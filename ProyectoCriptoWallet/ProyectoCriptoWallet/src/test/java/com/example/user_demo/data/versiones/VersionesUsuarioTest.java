@@ -0,0 +1,105 @@
+package com.example.user_demo.data.versiones;
+
+import com.example.user_demo.data.catalogo.CatalogoCriptomonedas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test de las versiones de dashboard y lista: cambian tras el commit, nunca con un rollback.
+ */
+class VersionesUsuarioTest {
+
+    private final CatalogoCriptomonedas catalogo = mock(CatalogoCriptomonedas.class);
+    private DriverManagerDataSource dataSource;
+    private TransactionTemplate tx;
+    private VersionesUsuario versiones;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:versiones;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        when(catalogo.version()).thenReturn(1L);
+        versiones = new VersionesUsuario(catalogo, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+    }
+
+    @Test
+    @DisplayName("Las carteras cambiadas cambian la ETag tras el commit; un rollback la deja igual")
+    void carterasTrasCommit() {
+        String inicial = versiones.panel(1L).etag();
+        String otro = versiones.panel(2L).etag();
+
+        tx.executeWithoutResult(status -> {
+            versiones.carterasCambiadas(1L);
+            status.setRollbackOnly();
+        });
+        assertEquals(inicial, versiones.panel(1L).etag());
+
+        tx.executeWithoutResult(status -> {
+            versiones.carterasCambiadas(1L);
+            assertEquals(inicial, versiones.panel(1L).etag(), "Hasta el commit, la versión anterior");
+        });
+        String tras = versiones.panel(1L).etag();
+        assertNotEquals(inicial, tras);
+        assertEquals(otro, versiones.panel(2L).etag(), "Los demás usuarios no cambian");
+
+        versiones.carterasCambiadas(1L); // Sin transacción: en el acto
+        assertNotEquals(tras, versiones.panel(1L).etag());
+    }
+
+    @Test
+    @DisplayName("La actividad y los precios también cambian la ETag del dashboard, no la de la lista")
+    void actividadYPrecios() {
+        String lista = versiones.etagLista();
+        VersionesUsuario.VersionPanel inicial = versiones.panel(3L);
+
+        versiones.actividadCambiada(List.of(3L, 4L));
+        VersionesUsuario.VersionPanel conActividad = versiones.panel(3L);
+        assertEquals(inicial.carteras(), conActividad.carteras());
+        assertNotEquals(inicial.etag(), conActividad.etag());
+
+        when(catalogo.version()).thenReturn(2L);
+        assertNotEquals(conActividad.etag(), versiones.panel(3L).etag());
+        assertEquals(lista, versiones.etagLista());
+    }
+
+    @Test
+    @DisplayName("Altas y bajas cambian la lista; una baja también el dashboard del eliminado")
+    void lista() {
+        String lista = versiones.etagLista();
+        String panel = versiones.panel(5L).etag();
+
+        tx.executeWithoutResult(status -> versiones.listaCambiada());
+        String tras = versiones.etagLista();
+        assertNotEquals(lista, tras);
+
+        versiones.usuarioEliminado(5L);
+        assertNotEquals(tras, versiones.etagLista());
+        assertNotEquals(panel, versiones.panel(5L).etag());
+    }
+
+    @Test
+    @DisplayName("Dos usuarios en la misma ranura comparten versión: solo se invalida de más")
+    void ranuras() {
+        String vecino = versiones.panel(9L).etag(); // 9 % 8 = 1
+        versiones.carterasCambiadas(1L);
+        assertNotEquals(vecino, versiones.panel(9L).etag());
+        assertTrue(versiones.panel(9L).etag().contains("-9-"), "La ETag lleva el ID del usuario");
+        assertThrows(IllegalArgumentException.class, () -> new VersionesUsuario(catalogo, 0));
+    }
+}